@@ -6,6 +6,7 @@ JAVA_ENGINE := $(call J,src/engine)
 JAVA_RENDER := $(call J,src/render)
 JAVA_UI_TEXT := $(call J,src/ui-text)
 JAVA_UI_SWING := $(call J,src/ui-swing)
+JAVA_BENCH := $(shell find src/bench/src -type f -name "*.java")
 
 TEST_CLASSPATH := lib/org.hamcrest.core_1.3.0.jar:lib/junit.jar
 
@@ -19,7 +20,8 @@ compile.mk-compile: \
 		src/engine/bin/compile.touchfile \
 		src/render/bin/compile.touchfile \
 		src/ui-text/bin/compile.touchfile \
-		src/ui-swing/bin/compile.touchfile
+		src/ui-swing/bin/compile.touchfile \
+		levelpacks
 
 compile.mk-compile-noui-notests: \
 		checks \
@@ -76,3 +78,11 @@ src/ui-swing/bin/compile.touchfile: ${JAVA_ENGINE} ${JAVA_RENDER} ${JAVA_UI_SWIN
 		src/ui-swing/bin \
 		src/ui-swing/src \
 		src/ui-swing/test
+
+src/bench/bin/compile.touchfile: ${JAVA_ENGINE} ${JAVA_BENCH}
+	@echo ". Compiling benchmarks"
+	@./build-scripts/compile-java \
+		"$@" \
+		"src/engine/bin" \
+		src/bench/bin \
+		src/bench/src
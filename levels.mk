@@ -16,6 +16,27 @@ LEVELS_DIRS := $(shell \
 %/levels.txt: %/*/*.rel
 	@./build-scripts/levelnames $(@D) > $(@D)/levels.txt
 
+LEVELS_SRC := src/engine/src/rabbitescape/levels
+LEVELS_BIN := src/engine/bin/rabbitescape/levels
+
+# Packs go straight into the compiled engine, since building them needs it.
+LEVEL_PACKS := $(patsubst $(LEVELS_SRC)/%, $(LEVELS_BIN)/%/levels.pack, \
+	$(filter $(LEVELS_SRC)/%, $(LEVELS_DIRS)))
+
+BUILD_LEVEL_PACK = @java -classpath src/engine/bin \
+	rabbitescape.engine.binaryworld.BuildLevelPack $(LEVELS_SRC)/$* $@
+
+$(LEVELS_BIN)/%/levels.pack: \
+		$(LEVELS_SRC)/%/levels.txt \
+		$(LEVELS_SRC)/%/*.rel \
+		src/engine/bin/compile.touchfile
+	$(BUILD_LEVEL_PACK)
+
+$(LEVELS_BIN)/%/levels.pack: \
+		$(LEVELS_SRC)/%/levels.txt \
+		$(LEVELS_SRC)/%/*/*.rel \
+		src/engine/bin/compile.touchfile
+	$(BUILD_LEVEL_PACK)
 
 $(ANIMATIONS_DIR)/rabbot%.rea: $(ANIMATIONS_DIR)/rabbit%.rea
 	./build-scripts/rea-rabbit-to-rabbot < $< > $@
@@ -26,6 +47,9 @@ levels.mk-animations: $(ANIMATIONS_DIR)/ls.txt $(RABBOT_ANIMATIONS)
 levels.mk-levels: $(patsubst %, %/levels.txt, $(LEVELS_DIRS))
 	@echo ". Generating level lists"
 
+levels.mk-levelpacks: $(LEVEL_PACKS)
+	@echo ". Generating level packs"
+
 levels.mk-clean-animations:
 	@echo ". Cleaning animation lists"
 	@find ./ -name "ls.txt" -delete
@@ -33,3 +57,4 @@ levels.mk-clean-animations:
 levels.mk-clean-levels:
 	@echo ". Cleaning levels lists"
 	@find ./ -name "levels.txt" -delete
+	@find ./ -name "levels.pack" -delete
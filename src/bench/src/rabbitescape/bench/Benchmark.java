@@ -0,0 +1,28 @@
+package rabbitescape.bench;
+
+/**
+ * One thing to time. Harness calls op() over and over and reports the
+ * average time each call took.
+ */
+public abstract class Benchmark
+{
+    /** e.g. "World.step" */
+    public final String name;
+
+    /** What the benchmark ran against, e.g. a level path. */
+    public final String param;
+
+    public Benchmark( String name, String param )
+    {
+        this.name = name;
+        this.param = param;
+    }
+
+    /**
+     * Do the work being measured once.
+     *
+     * @return anything derived from the work, so the JIT cannot throw the
+     *         work away.
+     */
+    public abstract long op();
+}
@@ -0,0 +1,162 @@
+package rabbitescape.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import rabbitescape.engine.Block;
+import rabbitescape.engine.BlockGrid;
+import rabbitescape.engine.World;
+import rabbitescape.engine.util.Dimension;
+import rabbitescape.engine.util.LookupTable2D;
+
+/**
+ * Compare the memory and lookup cost of holding the blocks of the largest
+ * official levels in a generic LookupTable2D against a BlockGrid. Each op
+ * looks up every cell once, and the heap each takes per cell is part of
+ * the param. Run by EngineBench.
+ */
+public class BlockLookupBench
+{
+    /** How many of the largest levels to look up blocks in. */
+    private static final int NUM_LEVELS = 2;
+
+    /** How many copies of each table to keep alive when measuring heap. */
+    private static final int COPIES = 200;
+
+    private interface Table
+    {
+        Object build( List<Block> blocks, Dimension size );
+    }
+
+    private static final Table LOOKUP_TABLE = new Table()
+    {
+        @Override
+        public Object build( List<Block> blocks, Dimension size )
+        {
+            return new LookupTable2D<Block>( blocks, size );
+        }
+    };
+
+    private static final Table BLOCK_GRID = new Table()
+    {
+        @Override
+        public Object build( List<Block> blocks, Dimension size )
+        {
+            return new BlockGrid( blocks, size );
+        }
+    };
+
+    public static List<Benchmark> benchmarks()
+    {
+        List<Benchmark> ret = new ArrayList<>();
+        for ( OfficialLevels.Level level :
+            OfficialLevels.largest( NUM_LEVELS ) )
+        {
+            World world = level.world();
+            List<Block> blocks = world.blockTable.getListCopy();
+            final Dimension size = world.size;
+            int cells = ( size.width + 2 ) * ( size.height + 2 );
+
+            final LookupTable2D<Block> table =
+                new LookupTable2D<>( blocks, size );
+            final BlockGrid grid = new BlockGrid( blocks, size );
+
+            ret.add( new Benchmark(
+                "LookupTable2D.getItemAt",
+                param( level, LOOKUP_TABLE, blocks, size, cells )
+            )
+            {
+                @Override
+                public long op()
+                {
+                    long found = 0;
+                    for ( int x = -1; x <= size.width; ++x )
+                    {
+                        for ( int y = -1; y <= size.height; ++y )
+                        {
+                            if ( table.getItemAt( x, y ) != null )
+                            {
+                                ++found;
+                            }
+                        }
+                    }
+                    return found;
+                }
+            } );
+
+            ret.add( new Benchmark(
+                "BlockGrid.getItemAt",
+                param( level, BLOCK_GRID, blocks, size, cells )
+            )
+            {
+                @Override
+                public long op()
+                {
+                    long found = 0;
+                    for ( int x = -1; x <= size.width; ++x )
+                    {
+                        for ( int y = -1; y <= size.height; ++y )
+                        {
+                            if ( grid.getItemAt( x, y ) != null )
+                            {
+                                ++found;
+                            }
+                        }
+                    }
+                    return found;
+                }
+            } );
+        }
+        return ret;
+    }
+
+    private static String param(
+        OfficialLevels.Level level,
+        Table table,
+        List<Block> blocks,
+        Dimension size,
+        int cells
+    )
+    {
+        return String.format(
+            "%s cells=%d B/cell=%.1f",
+            level.path,
+            cells,
+            bytesPer( table, blocks, size, cells )
+        );
+    }
+
+    /**
+     * @return the retained heap per cell of the table, averaged over
+     *         COPIES copies.
+     */
+    private static double bytesPer(
+        Table table, List<Block> blocks, Dimension size, int cells )
+    {
+        Object[] keep = new Object[COPIES];
+        long before = usedHeap();
+        for ( int i = 0; i < COPIES; ++i )
+        {
+            keep[i] = table.build( blocks, size );
+        }
+        long after = usedHeap();
+
+        // Keep the copies reachable until after the measurement.
+        if ( keep[COPIES - 1] == null )
+        {
+            throw new AssertionError();
+        }
+
+        return (double)( after - before ) / COPIES / cells;
+    }
+
+    private static long usedHeap()
+    {
+        Runtime runtime = Runtime.getRuntime();
+        for ( int i = 0; i < 3; ++i )
+        {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,86 @@
+package rabbitescape.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import rabbitescape.engine.Block;
+import rabbitescape.engine.World;
+import rabbitescape.engine.textworld.TextWorldManip;
+
+/**
+ * Time how much digging through the shelves of WaterBench's flooded box
+ * adds to each step, as many rabbits digging at once would. Every cell
+ * dug out makes the world work out that cell's water regions again.
+ *
+ * Both benchmarks start the box again once every shelf has been dug
+ * through, so the difference between them is the cost of the digging.
+ * Run by EngineBench.
+ */
+public class DigBench
+{
+    private static final int CELLS_PER_STEP = 20;
+
+    public static List<Benchmark> benchmarks()
+    {
+        List<Benchmark> ret = new ArrayList<>();
+        ret.add( step( 0 ) );
+        ret.add( step( CELLS_PER_STEP ) );
+        return ret;
+    }
+
+    private static Benchmark step( final int perStep )
+    {
+        final World start = TextWorldManip.createWorld(
+            WaterBench.floodedBox( WaterBench.SIZE ) );
+
+        final List<Block> shelves = shelves( start, WaterBench.SIZE );
+        final int steps = shelves.size() / CELLS_PER_STEP;
+
+        return new Benchmark(
+            "World.step",
+            "flooded box " + WaterBench.SIZE + " digging=" + perStep
+        )
+        {
+            private World world = null;
+            private int step = steps;
+
+            @Override
+            public long op()
+            {
+                if ( step == steps )
+                {
+                    world = start.snapshot();
+                    step = 0;
+                }
+                for ( int j = step * perStep; j < ( step + 1 ) * perStep; ++j )
+                {
+                    Block block = shelves.get( j );
+                    world.changes.removeBlockAt( block.x, block.y );
+                }
+                world.step();
+                ++step;
+                return world.rabbits.size();
+            }
+        };
+    }
+
+    /**
+     * @return the blocks of the shelves inside the box, top shelf first.
+     */
+    private static List<Block> shelves( World world, int size )
+    {
+        List<Block> ret = new ArrayList<>();
+        for ( int y = size / 3; y < size - 3; ++y )
+        {
+            for ( int x = 3; x < size - 1; ++x )
+            {
+                Block block = world.getBlockAt( x, y );
+                if ( block != null )
+                {
+                    ret.add( block );
+                }
+            }
+        }
+        return ret;
+    }
+}
@@ -0,0 +1,224 @@
+package rabbitescape.bench;
+
+import java.io.FileNotFoundException;
+import java.util.ArrayList;
+import java.util.List;
+
+import rabbitescape.engine.Pipe;
+import rabbitescape.engine.Thing;
+import rabbitescape.engine.Token;
+import rabbitescape.engine.World;
+import rabbitescape.engine.solution.SandboxGame;
+import rabbitescape.engine.solution.Solution;
+import rabbitescape.engine.solution.SolutionParser;
+import rabbitescape.engine.solution.SolutionRunner;
+import rabbitescape.engine.textworld.TextWorldManip;
+
+/**
+ * Time the engine's hot paths against representative official levels, and
+ * against the made-up levels of the other benchmark classes, and write the
+ * results to a CSV file so that runs can be compared.
+ *
+ * If FILTER is given, only benchmarks whose name or param contain it are
+ * run.
+ *
+ * Usage: EngineBench [OUTPUT_FILE [FILTER]]
+ */
+public class EngineBench
+{
+    private static final int WARMUP_ITERATIONS = 3;
+    private static final int ITERATIONS = 5;
+    private static final long ITERATION_MS = 500;
+
+    public static void main( String[] args ) throws FileNotFoundException
+    {
+        String outputFile = args.length > 0 ? args[0] : "bench-results.csv";
+        String filter = args.length > 1 ? args[1] : "";
+
+        List<OfficialLevels.Level> all = OfficialLevels.all();
+        OfficialLevels.Level crowded = mostRabbits( all );
+        OfficialLevels.Level water = mostWater(
+            OfficialLevels.inSet( "09_water" ) );
+        OfficialLevels.Level tokens = mostTokens( all );
+        OfficialLevels.Level largest = OfficialLevels.largest( 1 ).get( 0 );
+
+        List<Benchmark> benchmarks = new ArrayList<>();
+        benchmarks.add( step( crowded ) );
+        benchmarks.add( step( water ) );
+        benchmarks.add( step( tokens ) );
+        benchmarks.add( createWorld( largest ) );
+        benchmarks.add( createSandbox( largest ) );
+        benchmarks.add( runSolution( crowded ) );
+        benchmarks.add( runSolution( water ) );
+        benchmarks.addAll( BlockLookupBench.benchmarks() );
+        benchmarks.addAll( StateCategoryBench.benchmarks() );
+        benchmarks.addAll( SandboxBench.benchmarks() );
+        benchmarks.addAll( WaterBench.benchmarks() );
+        benchmarks.addAll( DigBench.benchmarks() );
+        benchmarks.addAll( RabbitBench.benchmarks() );
+        benchmarks.addAll( SaveBench.benchmarks() );
+        benchmarks.addAll( RewindBench.benchmarks() );
+        benchmarks.addAll( LevelLoadBench.benchmarks() );
+
+        List<Harness.Result> results =
+            new Harness( WARMUP_ITERATIONS, ITERATIONS, ITERATION_MS )
+                .runAll( matching( benchmarks, filter ), System.out );
+
+        Harness.writeCsv( results, outputFile );
+        System.out.println( "Results written to " + outputFile );
+    }
+
+    private static List<Benchmark> matching(
+        List<Benchmark> benchmarks, String filter )
+    {
+        List<Benchmark> ret = new ArrayList<>();
+        for ( Benchmark benchmark : benchmarks )
+        {
+            if (
+                   benchmark.name.contains( filter )
+                || benchmark.param.contains( filter )
+            )
+            {
+                ret.add( benchmark );
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Step the level repeatedly, starting again from the beginning
+     * whenever it finishes.
+     */
+    private static Benchmark step( OfficialLevels.Level level )
+    {
+        final World start = level.world();
+
+        return new Benchmark( "World.step", level.path )
+        {
+            private World world = start.snapshot();
+
+            @Override
+            public long op()
+            {
+                if ( world.completionState() != World.CompletionState.RUNNING )
+                {
+                    world = start.snapshot();
+                }
+                world.step();
+                return world.rabbits.size();
+            }
+        };
+    }
+
+    private static Benchmark createWorld( final OfficialLevels.Level level )
+    {
+        return new Benchmark( "TextWorldManip.createWorld", level.path )
+        {
+            @Override
+            public long op()
+            {
+                return TextWorldManip.createWorld( level.lines ).things.size();
+            }
+        };
+    }
+
+    private static Benchmark createSandbox( OfficialLevels.Level level )
+    {
+        final World world = level.world();
+
+        return new Benchmark( "new SandboxGame", level.path )
+        {
+            @Override
+            public long op()
+            {
+                return new SandboxGame( world ).getWorld().things.size();
+            }
+        };
+    }
+
+    private static Benchmark runSolution( OfficialLevels.Level level )
+    {
+        final World world = level.world();
+        final Solution solution = SolutionParser.parse( world.solutions[0] );
+
+        return new Benchmark( "SolutionRunner.runSolution", level.path )
+        {
+            @Override
+            public long op()
+            {
+                return SolutionRunner.runSolution( solution, world ) ? 1 : 0;
+            }
+        };
+    }
+
+    private static OfficialLevels.Level mostRabbits(
+        List<OfficialLevels.Level> levels )
+    {
+        OfficialLevels.Level ret = null;
+        int most = -1;
+        for ( OfficialLevels.Level level : levels )
+        {
+            World world = level.world();
+            if ( world.solutions.length > 0 && world.num_rabbits > most )
+            {
+                ret = level;
+                most = world.num_rabbits;
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * @return the level with the most water in it at the start, counting
+     *         each pipe as a cell's worth of water.
+     */
+    private static OfficialLevels.Level mostWater(
+        List<OfficialLevels.Level> levels )
+    {
+        OfficialLevels.Level ret = null;
+        int most = -1;
+        for ( OfficialLevels.Level level : levels )
+        {
+            World world = level.world();
+            int water = world.getWaterContents().size()
+                + count( world.things, Pipe.class );
+
+            if ( world.solutions.length > 0 && water > most )
+            {
+                ret = level;
+                most = water;
+            }
+        }
+        return ret;
+    }
+
+    private static OfficialLevels.Level mostTokens(
+        List<OfficialLevels.Level> levels )
+    {
+        OfficialLevels.Level ret = null;
+        int most = -1;
+        for ( OfficialLevels.Level level : levels )
+        {
+            int tokens = count( level.world().things, Token.class );
+            if ( tokens > most )
+            {
+                ret = level;
+                most = tokens;
+            }
+        }
+        return ret;
+    }
+
+    private static int count( List<Thing> things, Class<?> type )
+    {
+        int ret = 0;
+        for ( Thing thing : things )
+        {
+            if ( type.isInstance( thing ) )
+            {
+                ++ret;
+            }
+        }
+        return ret;
+    }
+}
@@ -0,0 +1,175 @@
+package rabbitescape.bench;
+
+import java.io.FileNotFoundException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Times Benchmarks in the way JMH would: some untimed warm-up iterations
+ * to let the JIT settle, then several timed iterations of a fixed length,
+ * each reporting the average time per op.
+ */
+public class Harness
+{
+    public static class Result
+    {
+        public final String name;
+        public final String param;
+        public final long ops;
+        /** The average ns per op of each timed iteration. */
+        public final double[] samples;
+
+        public Result( String name, String param, long ops, double[] samples )
+        {
+            this.name = name;
+            this.param = param;
+            this.ops = ops;
+            this.samples = samples;
+        }
+
+        public double mean()
+        {
+            double total = 0;
+            for ( double sample : samples )
+            {
+                total += sample;
+            }
+            return total / samples.length;
+        }
+
+        public double min()
+        {
+            double ret = Double.MAX_VALUE;
+            for ( double sample : samples )
+            {
+                ret = Math.min( ret, sample );
+            }
+            return ret;
+        }
+
+        public double max()
+        {
+            double ret = 0;
+            for ( double sample : samples )
+            {
+                ret = Math.max( ret, sample );
+            }
+            return ret;
+        }
+    }
+
+    private static volatile long sink;
+
+    private final int warmupIterations;
+    private final int iterations;
+    private final long iterationNanos;
+
+    public Harness( int warmupIterations, int iterations, long iterationMs )
+    {
+        this.warmupIterations = warmupIterations;
+        this.iterations = iterations;
+        this.iterationNanos = iterationMs * 1000000L;
+    }
+
+    public Result run( Benchmark benchmark )
+    {
+        for ( int i = 0; i < warmupIterations; ++i )
+        {
+            iteration( benchmark );
+        }
+
+        long ops = 0;
+        double[] samples = new double[iterations];
+        for ( int i = 0; i < iterations; ++i )
+        {
+            long[] opsAndNanos = iteration( benchmark );
+            ops += opsAndNanos[0];
+            samples[i] = opsAndNanos[1] / (double)opsAndNanos[0];
+        }
+
+        return new Result( benchmark.name, benchmark.param, ops, samples );
+    }
+
+    public List<Result> runAll( List<Benchmark> benchmarks, PrintStream out )
+    {
+        out.printf(
+            "%-28s %-40s %10s %14s %14s%n",
+            "benchmark",
+            "param",
+            "ops",
+            "mean ns/op",
+            "min ns/op"
+        );
+
+        List<Result> ret = new ArrayList<>();
+        for ( Benchmark benchmark : benchmarks )
+        {
+            Result result = run( benchmark );
+            out.printf(
+                "%-28s %-40s %10d %14.1f %14.1f%n",
+                result.name,
+                result.param,
+                result.ops,
+                result.mean(),
+                result.min()
+            );
+            ret.add( result );
+        }
+        return ret;
+    }
+
+    /**
+     * Write one line per result, in the form:
+     * benchmark,param,ops,mean_ns_per_op,min_ns_per_op,max_ns_per_op
+     */
+    public static void writeCsv( List<Result> results, String fileName )
+        throws FileNotFoundException
+    {
+        try ( PrintStream out = new PrintStream( fileName ) )
+        {
+            out.println(
+                "benchmark,param,ops,mean_ns_per_op,min_ns_per_op,max_ns_per_op"
+            );
+            for ( Result result : results )
+            {
+                out.println(
+                    String.format(
+                        Locale.ROOT,
+                        "%s,%s,%d,%.1f,%.1f,%.1f",
+                        result.name,
+                        result.param,
+                        result.ops,
+                        result.mean(),
+                        result.min(),
+                        result.max()
+                    )
+                );
+            }
+        }
+    }
+
+    /**
+     * Call op() until iterationNanos have passed.
+     *
+     * @return { number of ops, nanoseconds taken }
+     */
+    private long[] iteration( Benchmark benchmark )
+    {
+        long total = 0;
+        long ops = 0;
+        long start = System.nanoTime();
+        long elapsed;
+        do
+        {
+            total += benchmark.op();
+            ++ops;
+            elapsed = System.nanoTime() - start;
+        }
+        while ( elapsed < iterationNanos );
+
+        sink = total;
+        return new long[] { ops, elapsed };
+    }
+}
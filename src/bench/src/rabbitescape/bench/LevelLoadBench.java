@@ -0,0 +1,120 @@
+package rabbitescape.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import rabbitescape.engine.IgnoreWorldStatsListener;
+import rabbitescape.engine.LoadWorldFile;
+import rabbitescape.engine.World;
+import rabbitescape.engine.binaryworld.LevelPack;
+import rabbitescape.engine.menu.LevelsList;
+import rabbitescape.engine.menu.LoadLevelsList;
+import rabbitescape.engine.menu.MenuDefinition;
+import rabbitescape.engine.textworld.TextWorldManip;
+
+import static rabbitescape.engine.util.Util.resourceLines;
+
+/**
+ * Compare opening every official level from its .rel file against opening
+ * it from its set's level pack, and listing the levels of every set from
+ * levels.txt against the packs' indexes. Needs "make levelpacks". Run by
+ * EngineBench.
+ */
+public class LevelLoadBench
+{
+    public static List<Benchmark> benchmarks()
+    {
+        final List<OfficialLevels.Level> levels = OfficialLevels.all();
+        String all = "all " + levels.size() + " official levels";
+
+        List<Benchmark> ret = new ArrayList<>();
+
+        ret.add( new Benchmark( "LoadLevelsList.levelInfos", "all sets" )
+        {
+            @Override
+            public long op()
+            {
+                long total = 0;
+                for ( LevelsList.LevelSetInfo set : MenuDefinition.allLevels )
+                {
+                    total += LoadLevelsList.levelInfos(
+                        resourceLines(
+                            "/rabbitescape/levels/" + set.dirName
+                                + "/levels.txt" )
+                    ).size();
+                }
+                return total;
+            }
+        } );
+
+        ret.add( new Benchmark( "LevelPack.fromResource", "all sets" )
+        {
+            @Override
+            public long op()
+            {
+                long total = 0;
+                for ( LevelsList.LevelSetInfo set : MenuDefinition.allLevels )
+                {
+                    total += packFor( set.dirName ).entries.size();
+                }
+                return total;
+            }
+        } );
+
+        ret.add( new Benchmark( "TextWorldManip.createWorldWithName", all )
+        {
+            @Override
+            public long op()
+            {
+                long total = 0;
+                for ( OfficialLevels.Level level : levels )
+                {
+                    total += TextWorldManip.createWorldWithName(
+                        LoadWorldFile.levelName( level.path ),
+                        new IgnoreWorldStatsListener(),
+                        LoadWorldFile.readLinesFromResource( level.path )
+                    ).num_rabbits;
+                }
+                return total;
+            }
+        } );
+
+        ret.add( new Benchmark( "LevelPack.loadFromPacks", all )
+        {
+            @Override
+            public long op()
+            {
+                long total = 0;
+                for ( OfficialLevels.Level level : levels )
+                {
+                    World world = LevelPack.loadFromPacks(
+                        new IgnoreWorldStatsListener(), level.path );
+                    if ( world == null )
+                    {
+                        noPack( level.path );
+                    }
+                    total += world.num_rabbits;
+                }
+                return total;
+            }
+        } );
+
+        return ret;
+    }
+
+    private static LevelPack packFor( String dirName )
+    {
+        LevelPack ret = LevelPack.fromResource( dirName );
+        if ( ret == null )
+        {
+            noPack( dirName );
+        }
+        return ret;
+    }
+
+    private static void noPack( String name )
+    {
+        System.err.println( "No pack for " + name + ": run make levelpacks" );
+        System.exit( 1 );
+    }
+}
@@ -0,0 +1,94 @@
+package rabbitescape.bench;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import rabbitescape.engine.LoadWorldFile;
+import rabbitescape.engine.World;
+import rabbitescape.engine.menu.LevelsList;
+import rabbitescape.engine.menu.LoadLevelsList;
+import rabbitescape.engine.menu.MenuDefinition;
+import rabbitescape.engine.textworld.TextWorldManip;
+
+/**
+ * The official (non-hidden) levels, loaded from the bundled resources,
+ * for benchmarks to run against.
+ */
+public class OfficialLevels
+{
+    public static class Level
+    {
+        /** e.g. "09_water/02_Waterfalls.rel" */
+        public final String path;
+        public final String[] lines;
+        public final int area;
+
+        public Level( String path, String[] lines )
+        {
+            this.path = path;
+            this.lines = lines;
+
+            World world = world();
+            this.area = world.size.width * world.size.height;
+        }
+
+        /** Create a fresh world from this level's text. */
+        public World world()
+        {
+            return TextWorldManip.createWorld( lines );
+        }
+    }
+
+    public static List<Level> all()
+    {
+        List<Level> ret = new ArrayList<>();
+        for ( LevelsList.LevelSetInfo set :
+            LoadLevelsList.load( MenuDefinition.allLevels ) )
+        {
+            if ( set.hidden )
+            {
+                continue;
+            }
+            for ( LevelsList.LevelInfo level : set.levels )
+            {
+                String path = set.dirName + "/" + level.fileName + ".rel";
+                ret.add(
+                    new Level( path, LoadWorldFile.readLinesFromResource( path ) )
+                );
+            }
+        }
+        return ret;
+    }
+
+    public static List<Level> inSet( String dirName )
+    {
+        List<Level> ret = new ArrayList<>();
+        for ( Level level : all() )
+        {
+            if ( level.path.startsWith( dirName + "/" ) )
+            {
+                ret.add( level );
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * @return the num levels with the largest area, biggest first.
+     */
+    public static List<Level> largest( int num )
+    {
+        List<Level> ret = all();
+        Collections.sort( ret, new Comparator<Level>()
+        {
+            @Override
+            public int compare( Level a, Level b )
+            {
+                return b.area - a.area;
+            }
+        } );
+        return ret.subList( 0, Math.min( num, ret.size() ) );
+    }
+}
@@ -0,0 +1,90 @@
+package rabbitescape.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import rabbitescape.engine.World;
+import rabbitescape.engine.textworld.TextWorldManip;
+
+/**
+ * Time World.step() on a large, made-up crowded level: floors full of
+ * rabbits walking back and forth between walls, so that nobody ever leaves.
+ *
+ * The level is run with rabbits stepped on 1 thread, then 2, 4 and so on up
+ * to the number of processors. Run by EngineBench.
+ */
+public class RabbitBench
+{
+    /** How wide each floor is, and how many rabbits start on it. */
+    private static final int WIDTH = 200;
+    private static final int RABBITS_PER_FLOOR = 100;
+    private static final int FLOORS = 20;
+
+    public static List<Benchmark> benchmarks()
+    {
+        List<Benchmark> ret = new ArrayList<>();
+        int maxThreads = Runtime.getRuntime().availableProcessors();
+        for ( int threads = 1; threads <= maxThreads; threads *= 2 )
+        {
+            ret.add( step( threads ) );
+        }
+        return ret;
+    }
+
+    private static Benchmark step( int threads )
+    {
+        final World world = TextWorldManip.createWorld( crowd( FLOORS ) );
+        world.setRabbitThreads( threads );
+
+        return new Benchmark(
+            "World.step",
+            "crowd " + FLOORS * RABBITS_PER_FLOOR + " threads=" + threads
+        )
+        {
+            @Override
+            public long op()
+            {
+                world.step();
+                return world.rabbits.size();
+            }
+        };
+    }
+
+    private static String[] crowd( int floors )
+    {
+        String[] lines = new String[floors * 2 + 1];
+        for ( int floor = 0; floor < floors; ++floor )
+        {
+            StringBuilder line = new StringBuilder( WIDTH );
+            for ( int x = 0; x < WIDTH; ++x )
+            {
+                if ( x == 0 || x == WIDTH - 1 )
+                {
+                    line.append( '#' );
+                }
+                else if ( x % 2 == 0 && x / 2 <= RABBITS_PER_FLOOR )
+                {
+                    line.append( x % 4 == 0 ? 'r' : 'j' );
+                }
+                else
+                {
+                    line.append( ' ' );
+                }
+            }
+            lines[floor * 2] = line.toString();
+            lines[floor * 2 + 1] = repeat( '#', WIDTH );
+        }
+        lines[floors * 2] = ":num_rabbits=0";
+        return lines;
+    }
+
+    private static String repeat( char c, int n )
+    {
+        StringBuilder ret = new StringBuilder( n );
+        for ( int i = 0; i < n; ++i )
+        {
+            ret.append( c );
+        }
+        return ret.toString();
+    }
+}
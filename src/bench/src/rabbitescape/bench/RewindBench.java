@@ -0,0 +1,111 @@
+package rabbitescape.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import rabbitescape.engine.Token;
+import rabbitescape.engine.World;
+import rabbitescape.engine.rewind.RewindBuffer;
+import rabbitescape.engine.solution.PlaceTokenAction;
+import rabbitescape.engine.solution.SelectAction;
+import rabbitescape.engine.solution.SolutionInterpreter;
+import rabbitescape.engine.solution.SolutionParser;
+import rabbitescape.engine.solution.SolutionTimeStep;
+import rabbitescape.engine.solution.TimeStepAction;
+
+/**
+ * Play the first solution of the largest official levels into a
+ * RewindBuffer, with keyframes at several intervals, and time how long it
+ * takes to see random earlier ticks. The interval "none" never saves a
+ * keyframe, so every seek replays from the start. Run by EngineBench.
+ */
+public class RewindBench
+{
+    private static final int[] INTERVALS = { 5, 25, 100, Integer.MAX_VALUE };
+
+    /** How many of the largest levels to play. */
+    private static final int NUM_LEVELS = 2;
+
+    public static List<Benchmark> benchmarks()
+    {
+        List<Benchmark> ret = new ArrayList<>();
+        for ( OfficialLevels.Level level :
+            OfficialLevels.largest( NUM_LEVELS ) )
+        {
+            String[] solutions = level.world().solutions;
+            if ( solutions.length == 0 )
+            {
+                continue;
+            }
+
+            for ( int interval : INTERVALS )
+            {
+                ret.add( seek( level, solutions[0], interval ) );
+            }
+        }
+        return ret;
+    }
+
+    private static Benchmark seek(
+        OfficialLevels.Level level, String solution, int interval )
+    {
+        final RewindBuffer buffer =
+            play( level.world(), solution, interval );
+        final Random random = new Random( 1 );
+
+        return new Benchmark(
+            "RewindBuffer.worldAt",
+            level.path
+                + " every="
+                + ( interval == Integer.MAX_VALUE
+                    ? "none" : Integer.toString( interval ) )
+                + " ticks=" + buffer.tick()
+                + " frames=" + buffer.numKeyframes()
+                + " bytes=" + buffer.keyframeBytes()
+        )
+        {
+            @Override
+            public long op()
+            {
+                return buffer.worldAt( random.nextInt( buffer.tick() + 1 ) )
+                    .rabbits.size();
+            }
+        };
+    }
+
+    private static RewindBuffer play(
+        World world, String solution, int interval )
+    {
+        RewindBuffer buffer = new RewindBuffer(
+            world, interval, RewindBuffer.DEFAULT_MEMORY_BUDGET );
+
+        SolutionInterpreter interpreter =
+            new SolutionInterpreter( SolutionParser.parse( solution ), false );
+
+        Token.Type selected = null;
+        SolutionTimeStep step = interpreter.next( world.completionState() );
+        while ( step != null )
+        {
+            for ( TimeStepAction action : step.actions )
+            {
+                if ( action instanceof SelectAction )
+                {
+                    selected = ( (SelectAction)action ).type;
+                }
+                else if ( action instanceof PlaceTokenAction )
+                {
+                    PlaceTokenAction place = (PlaceTokenAction)action;
+                    buffer.placeToken( place.x, place.y, selected );
+                }
+            }
+
+            if ( world.completionState() == World.CompletionState.RUNNING )
+            {
+                buffer.step();
+            }
+            step = interpreter.next( world.completionState() );
+        }
+        return buffer;
+    }
+}
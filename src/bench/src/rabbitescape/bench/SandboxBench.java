@@ -0,0 +1,158 @@
+package rabbitescape.bench;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+import rabbitescape.engine.Entrance;
+import rabbitescape.engine.Exit;
+import rabbitescape.engine.Fire;
+import rabbitescape.engine.IgnoreWorldStatsListener;
+import rabbitescape.engine.Pipe;
+import rabbitescape.engine.Rabbit;
+import rabbitescape.engine.Thing;
+import rabbitescape.engine.Token;
+import rabbitescape.engine.VoidMarkerStyle;
+import rabbitescape.engine.World;
+import rabbitescape.engine.textworld.Comment;
+
+/**
+ * Compare the cost of making a sandbox copy of the largest official levels
+ * with World.snapshot() against rebuilding the world from its blocks and
+ * water contents, as SandboxGame used to. Run by EngineBench.
+ */
+public class SandboxBench
+{
+    /** How many of the largest levels to copy. */
+    private static final int NUM_LEVELS = 2;
+
+    /** How many steps to run each level before copying it. */
+    private static final int STEPS = 20;
+
+    public static List<Benchmark> benchmarks()
+    {
+        List<Benchmark> ret = new ArrayList<>();
+        for ( OfficialLevels.Level level :
+            OfficialLevels.largest( NUM_LEVELS ) )
+        {
+            final World world = level.world();
+            for ( int i = 0; i < STEPS && running( world ); ++i )
+            {
+                world.step();
+            }
+
+            ret.add( new Benchmark( "rebuild for SandboxGame", level.path )
+            {
+                @Override
+                public long op()
+                {
+                    return rebuild( world ).rabbits.size();
+                }
+            } );
+
+            ret.add( new Benchmark( "World.snapshot", level.path )
+            {
+                @Override
+                public long op()
+                {
+                    return world.snapshot().rabbits.size();
+                }
+            } );
+        }
+        return ret;
+    }
+
+    private static boolean running( World world )
+    {
+        return world.completionState() == World.CompletionState.RUNNING;
+    }
+
+    /**
+     * Copy a world the way SandboxGame did before World.snapshot().
+     */
+    private static World rebuild( World world )
+    {
+        return new World(
+            world.size,
+            world.blockTable.getListCopy(),
+            rebuildRabbits( world.rabbits ),
+            rebuildThings( world.things ),
+            world.getWaterContents(),
+            new HashMap<>( world.abilities ),
+            world.name,
+            world.description,
+            world.author_name,
+            world.author_url,
+            Arrays.copyOf( world.hints, world.hints.length ),
+            Arrays.copyOf( world.solutions, world.solutions.length ),
+            world.num_rabbits,
+            world.num_to_save,
+            world.rabbit_delay,
+            world.music,
+            world.num_saved,
+            world.num_killed,
+            world.num_waiting,
+            world.getRabbitIndexCount(),
+            world.paused,
+            new Comment[] {},
+            new IgnoreWorldStatsListener(),
+            VoidMarkerStyle.Style.HIGHLIGHTER
+        );
+    }
+
+    private static List<Rabbit> rebuildRabbits( List<Rabbit> rabbits )
+    {
+        List<Rabbit> ret = new ArrayList<>();
+        for ( Rabbit rabbit : rabbits )
+        {
+            ret.add( rebuildRabbit( rabbit ) );
+        }
+        return ret;
+    }
+
+    private static Rabbit rebuildRabbit( Rabbit rabbit )
+    {
+        return new Rabbit( rabbit.x, rabbit.y, rabbit.dir, rabbit.type );
+    }
+
+    private static List<Thing> rebuildThings( List<Thing> things )
+    {
+        List<Thing> ret = new ArrayList<>();
+        for ( Thing thing : things )
+        {
+            if ( thing instanceof Entrance )
+            {
+                ret.add( new Entrance( thing.x, thing.y ) );
+            }
+            else if ( thing instanceof Exit )
+            {
+                ret.add( new Exit( thing.x, thing.y ) );
+            }
+            else if ( thing instanceof Rabbit )
+            {
+                ret.add( rebuildRabbit( (Rabbit)thing ) );
+            }
+            else if ( thing instanceof Token )
+            {
+                Token token = (Token)thing;
+                ret.add( new Token( token.x, token.y, token.type ) );
+            }
+            else if ( thing instanceof Fire )
+            {
+                Fire fire = (Fire)thing;
+                ret.add( new Fire( fire.x, fire.y, fire.variant ) );
+            }
+            else if ( thing instanceof Pipe )
+            {
+                ret.add( new Pipe( thing.x, thing.y ) );
+            }
+            else
+            {
+                throw new IllegalStateException(
+                    "Unrecognised type of Thing: " + thing );
+            }
+        }
+        return ret;
+    }
+}
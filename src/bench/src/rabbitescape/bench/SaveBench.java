@@ -0,0 +1,104 @@
+package rabbitescape.bench;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import rabbitescape.engine.World;
+import rabbitescape.engine.binaryworld.BinaryWorldManip;
+import rabbitescape.engine.textworld.TextWorldManip;
+
+/**
+ * Compare saving and loading the largest official levels, part way
+ * through, as text (as the game has always saved them) against the binary
+ * format of BinaryWorldManip. The size of each save is part of the param.
+ * Run by EngineBench.
+ */
+public class SaveBench
+{
+    /** How many of the largest levels to save and load. */
+    private static final int NUM_LEVELS = 2;
+
+    /** How many steps to run each level before saving it. */
+    private static final int STEPS = 20;
+
+    public static List<Benchmark> benchmarks()
+    {
+        List<Benchmark> ret = new ArrayList<>();
+        for ( OfficialLevels.Level level :
+            OfficialLevels.largest( NUM_LEVELS ) )
+        {
+            final World world = level.world();
+            for ( int i = 0; i < STEPS && running( world ); ++i )
+            {
+                world.step();
+            }
+
+            final String[] text =
+                TextWorldManip.renderCompleteWorld( world, true );
+            final byte[] binary = BinaryWorldManip.save( world );
+
+            String textParam =
+                level.path + " (" + textBytes( text ) + " bytes)";
+            String binaryParam =
+                level.path + " (" + binary.length + " bytes)";
+
+            ret.add( new Benchmark(
+                "TextWorldManip.renderCompleteWorld", textParam )
+            {
+                @Override
+                public long op()
+                {
+                    return TextWorldManip.renderCompleteWorld(
+                        world, true ).length;
+                }
+            } );
+
+            ret.add( new Benchmark( "TextWorldManip.createWorld", textParam )
+            {
+                @Override
+                public long op()
+                {
+                    return TextWorldManip.createWorld( text ).rabbits.size();
+                }
+            } );
+
+            ret.add( new Benchmark( "BinaryWorldManip.save", binaryParam )
+            {
+                @Override
+                public long op()
+                {
+                    return BinaryWorldManip.save( world ).length;
+                }
+            } );
+
+            ret.add( new Benchmark( "BinaryWorldManip.load", binaryParam )
+            {
+                @Override
+                public long op()
+                {
+                    return BinaryWorldManip.load( binary ).rabbits.size();
+                }
+            } );
+        }
+        return ret;
+    }
+
+    private static boolean running( World world )
+    {
+        return world.completionState() == World.CompletionState.RUNNING;
+    }
+
+    /**
+     * @return the size of the text, saved as UTF-8 with newlines.
+     */
+    private static int textBytes( String[] text )
+    {
+        int ret = 0;
+        for ( String line : text )
+        {
+            ret += line.getBytes( StandardCharsets.UTF_8 ).length + 1;
+        }
+        return ret;
+    }
+}
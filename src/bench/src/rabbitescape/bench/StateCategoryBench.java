@@ -0,0 +1,103 @@
+package rabbitescape.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import rabbitescape.engine.ChangeDescription.Category;
+import rabbitescape.engine.ChangeDescription.State;
+
+/**
+ * Compare asking whether a state is a falling state with a switch (as
+ * BehaviourTools.rabbitIsFalling used to) against State.is( FALLING ).
+ * Each op classifies every state in a fixed random sample. Run by
+ * EngineBench.
+ */
+public class StateCategoryBench
+{
+    /** How many states to classify in each op. */
+    private static final int NUM_STATES = 10000;
+
+    public static List<Benchmark> benchmarks()
+    {
+        // A fixed seed, so each run classifies the same states.
+        Random random = new Random( 1 );
+        State[] all = State.values();
+        final State[] states = new State[NUM_STATES];
+        for ( int i = 0; i < NUM_STATES; ++i )
+        {
+            states[i] = all[ random.nextInt( all.length ) ];
+        }
+        String param = NUM_STATES + " random states";
+
+        List<Benchmark> ret = new ArrayList<>();
+
+        ret.add( new Benchmark( "switch rabbitIsFalling", param )
+        {
+            @Override
+            public long op()
+            {
+                long found = 0;
+                for ( int i = 0; i < states.length; ++i )
+                {
+                    if ( isFallingSwitch( states[i] ) )
+                    {
+                        ++found;
+                    }
+                }
+                return found;
+            }
+        } );
+
+        ret.add( new Benchmark( "State.is FALLING", param )
+        {
+            @Override
+            public long op()
+            {
+                long found = 0;
+                for ( int i = 0; i < states.length; ++i )
+                {
+                    if ( states[i].is( Category.FALLING ) )
+                    {
+                        ++found;
+                    }
+                }
+                return found;
+            }
+        } );
+
+        return ret;
+    }
+
+    /** The switch BehaviourTools.rabbitIsFalling used before State.is. */
+    private static boolean isFallingSwitch( State state )
+    {
+        switch ( state )
+        {
+        case RABBIT_FALLING:
+        case RABBIT_FALLING_1:
+        case RABBIT_FALLING_1_TO_DEATH:
+        case RABBIT_DYING_OF_FALLING_2:
+        case RABBIT_DYING_OF_FALLING:
+        case RABBIT_FALLING_ONTO_LOWER_RIGHT:
+        case RABBIT_FALLING_ONTO_RISE_RIGHT:
+        case RABBIT_FALLING_ONTO_LOWER_LEFT:
+        case RABBIT_FALLING_ONTO_RISE_LEFT:
+        case RABBIT_FALLING_1_ONTO_LOWER_RIGHT:
+        case RABBIT_FALLING_1_ONTO_RISE_RIGHT:
+        case RABBIT_FALLING_1_ONTO_LOWER_LEFT:
+        case RABBIT_FALLING_1_ONTO_RISE_LEFT:
+        case RABBIT_DYING_OF_FALLING_SLOPE_RISE_RIGHT:
+        case RABBIT_DYING_OF_FALLING_SLOPE_RISE_RIGHT_2:
+        case RABBIT_DYING_OF_FALLING_2_SLOPE_RISE_RIGHT:
+        case RABBIT_DYING_OF_FALLING_2_SLOPE_RISE_RIGHT_2:
+        case RABBIT_DYING_OF_FALLING_SLOPE_RISE_LEFT:
+        case RABBIT_DYING_OF_FALLING_SLOPE_RISE_LEFT_2:
+        case RABBIT_DYING_OF_FALLING_2_SLOPE_RISE_LEFT:
+        case RABBIT_DYING_OF_FALLING_2_SLOPE_RISE_LEFT_2:
+            return true;
+        default:
+            return false;
+        }
+    }
+}
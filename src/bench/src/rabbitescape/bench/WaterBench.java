@@ -0,0 +1,114 @@
+package rabbitescape.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import rabbitescape.engine.World;
+import rabbitescape.engine.textworld.TextWorldManip;
+
+/**
+ * Time World.step() on a large, made-up flooded level: a walled box whose
+ * top rows are full of water, with shelves below for it to pour over. A
+ * rabbit shut in a dry cupboard in the corner keeps the level running.
+ *
+ * The level is run with water moved on 1 thread, then 2, 4 and so on up to
+ * the number of processors. Run by EngineBench.
+ */
+public class WaterBench
+{
+    public static final int SIZE = 200;
+
+    /**
+     * Start the level again after this many steps, so that the water is
+     * always still moving.
+     */
+    private static final int STEPS = 500;
+
+    public static List<Benchmark> benchmarks()
+    {
+        List<Benchmark> ret = new ArrayList<>();
+        int maxThreads = Runtime.getRuntime().availableProcessors();
+        for ( int threads = 1; threads <= maxThreads; threads *= 2 )
+        {
+            ret.add( step( threads ) );
+        }
+        return ret;
+    }
+
+    private static Benchmark step( final int threads )
+    {
+        final World start = TextWorldManip.createWorld( floodedBox( SIZE ) );
+
+        return new Benchmark(
+            "World.step", "flooded box " + SIZE + " threads=" + threads )
+        {
+            private World world = null;
+            private int steps = STEPS;
+
+            @Override
+            public long op()
+            {
+                if ( steps == STEPS )
+                {
+                    if ( world != null )
+                    {
+                        // Shut down the old world's threads.
+                        world.setWaterThreads( 1 );
+                    }
+                    world = start.snapshot();
+                    world.setWaterThreads( threads );
+                    steps = 0;
+                }
+                world.step();
+                ++steps;
+                return world.rabbits.size();
+            }
+        };
+    }
+
+    static String[] floodedBox( int size )
+    {
+        String[] lines = new String[size + 1];
+        for ( int y = 0; y < size; ++y )
+        {
+            StringBuilder line = new StringBuilder( size );
+            for ( int x = 0; x < size; ++x )
+            {
+                line.append( cell( x, y, size ) );
+            }
+            lines[y] = line.toString();
+        }
+        lines[size] = ":num_rabbits=0";
+        return lines;
+    }
+
+    private static char cell( int x, int y, int size )
+    {
+        if ( x == 0 || y == 0 || x == size - 1 || y == size - 1 )
+        {
+            return '#';
+        }
+        else if ( x == 1 && y == size - 2 )
+        {
+            return 'r';
+        }
+        else if ( ( x == 2 && y == size - 2 ) || ( x <= 2 && y == size - 3 ) )
+        {
+            // The cupboard
+            return '#';
+        }
+        else if ( y < size / 3 )
+        {
+            return 'N';
+        }
+        else if ( y % 10 == 0 && x % 20 != ( y / 10 ) % 20 )
+        {
+            // A shelf with one gap, in a different place on each shelf.
+            return '#';
+        }
+        else
+        {
+            return ' ';
+        }
+    }
+}
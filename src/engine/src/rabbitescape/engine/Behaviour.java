@@ -34,6 +34,16 @@ public abstract class Behaviour
 
     public abstract void cancel();
 
+    /**
+     * A number that changes whenever what saveState would save changes,
+     * and only then (so counts that have run out below zero are the same
+     * as zero), for StateHash. Called on every step, so must not allocate.
+     */
+    public int stateKey()
+    {
+        return 0;
+    }
+
     public void saveState( Map<String, String> saveState )
     {
     }
@@ -41,4 +51,14 @@ public abstract class Behaviour
     public void restoreFromState( Map<String, String> saveState )
     {
     }
+
+    /**
+     * Like restoreFromState, but for a rabbit whose state for this step has
+     * already been worked out, so newState will not be called again before
+     * it behaves.
+     */
+    public void restoreWorkedOutState( Map<String, String> saveState )
+    {
+        restoreFromState( saveState );
+    }
 }
@@ -0,0 +1,443 @@
+package rabbitescape.engine;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import rabbitescape.engine.Block.Shape;
+import rabbitescape.engine.util.Dimension;
+
+/**
+ * Dense storage for the blocks of a world. Like LookupTable2D this can hold
+ * items +/-1 outside the nominal size, but instead of a list per cell it
+ * keeps the oldest block of each cell in a flat array, with its shape packed
+ * into a byte array beside it, so looking up a block needs no allocation.
+ *
+ * Cells holding more than one block are rare (e.g. a bridge built over a
+ * ramp), so any blocks after the first are kept in a small overflow map.
+ *
+ * snapshot() makes a copy that shares this grid's storage. Whichever grid
+ * changes first takes its own copy of the storage before changing it.
+ * Nothing that only reads a grid, snapshot() included, changes its
+ * storage, so a grid that is not being changed may be read and
+ * snapshotted from several threads at once.
+ *
+ * Removing a block leaves a gap (null) in the list of all blocks instead
+ * of shuffling the rest down, and the gaps are squeezed out once they make
+ * up half the list, so removing k blocks costs O(k) on average however
+ * many blocks the world has. Reading the list skips the gaps.
+ */
+public class BlockGrid implements Iterable<Block>
+{
+    private static final Shape[] SHAPES = Shape.values();
+
+    /** Stored in shapes[] for a cell with no block. */
+    private static final byte NO_SHAPE = -1;
+
+    /**
+     * The size this grid was created with. Note that changing the dimensions
+     * will not change the size of an existing grid.
+     */
+    public final Dimension size;
+
+    private final int stride;
+    private Block[] blocks;
+    private byte[] shapes;
+    private int[] counts;
+    private Map<Integer, List<Block>> overflow;
+    /** Every block, oldest first, with null where blocks were removed. */
+    private List<Block> list;
+    /** Where in list the oldest block of each cell is, or -1. */
+    private int[] slots;
+    /** How many nulls are in list. */
+    private int numGaps;
+    /** The sum of the StateHash keys of every block. */
+    private long hash;
+
+    /**
+     * True if another grid may be using our storage. Volatile because
+     * snapshot() may set it from any thread.
+     */
+    private volatile boolean shared;
+
+    public BlockGrid( List<Block> list, Dimension size )
+    {
+        this.size = size;
+        this.stride = size.height + 2;
+
+        int cells = ( size.width + 2 ) * stride;
+        this.blocks = new Block[cells];
+        this.shapes = new byte[cells];
+        this.counts = new int[cells];
+        this.overflow = new HashMap<>();
+        this.list = new ArrayList<>( list.size() );
+        this.slots = new int[cells];
+        this.numGaps = 0;
+        this.hash = 0;
+
+        this.shared = false;
+
+        Arrays.fill( shapes, NO_SHAPE );
+        Arrays.fill( slots, -1 );
+
+        addAll( list );
+    }
+
+    private BlockGrid( BlockGrid other )
+    {
+        this.size = other.size;
+        this.stride = other.stride;
+        this.blocks = other.blocks;
+        this.shapes = other.shapes;
+        this.counts = other.counts;
+        this.overflow = other.overflow;
+        this.list = other.list;
+        this.slots = other.slots;
+        this.numGaps = other.numGaps;
+        this.hash = other.hash;
+        this.shared = true;
+    }
+
+    /**
+     * Create an empty grid.
+     *
+     * @param size The dimensions of the grid.
+     */
+    public BlockGrid( Dimension size )
+    {
+        this( new ArrayList<Block>(), size );
+    }
+
+    /**
+     * @return a grid holding the same blocks as this one, which can be
+     *         changed without affecting this one. Cheap: nothing is copied
+     *         until one of the grids is changed.
+     */
+    public BlockGrid snapshot()
+    {
+        if ( !shared )
+        {
+            shared = true;
+        }
+        return new BlockGrid( this );
+    }
+
+    /**
+     * @return a hash of the blocks in this grid, kept up to date as they
+     *         are added and removed.
+     */
+    public long hash()
+    {
+        return hash;
+    }
+
+    /**
+     * @return The oldest block at this position, or null if there is none.
+     */
+    public Block getItemAt( int x, int y )
+    {
+        return blocks[ i( x, y ) ];
+    }
+
+    /**
+     * @return The shape of the oldest block at this position, or null if
+     *         there is no block here.
+     */
+    public Shape shapeAt( int x, int y )
+    {
+        byte s = shapes[ i( x, y ) ];
+        return s == NO_SHAPE ? null : SHAPES[s];
+    }
+
+    /**
+     * @return The number of blocks at this position.
+     */
+    public int countAt( int x, int y )
+    {
+        return counts[ i( x, y ) ];
+    }
+
+    /**
+     * @return A copy of the list of all blocks at this position, oldest
+     *         first.
+     */
+    public List<Block> getItemsAt( int x, int y )
+    {
+        int i = i( x, y );
+        List<Block> ret = new ArrayList<>( counts[i] );
+        if ( blocks[i] != null )
+        {
+            ret.add( blocks[i] );
+            List<Block> extra = overflow.get( i );
+            if ( extra != null )
+            {
+                ret.addAll( extra );
+            }
+        }
+        return ret;
+    }
+
+    public void addAll( List<? extends Block> newItems )
+    {
+        for ( Block block : newItems )
+        {
+            add( block );
+        }
+    }
+
+    public void add( Block newItem )
+    {
+        unshare();
+        list.add( newItem );
+
+        int i = i( newItem.x, newItem.y );
+        if ( blocks[i] == null )
+        {
+            blocks[i] = newItem;
+            shapes[i] = (byte)newItem.shape.ordinal();
+            slots[i] = list.size() - 1;
+        }
+        else
+        {
+            List<Block> extra = overflow.get( i );
+            if ( extra == null )
+            {
+                extra = new ArrayList<>( 1 );
+                overflow.put( i, extra );
+            }
+            extra.add( newItem );
+        }
+        ++counts[i];
+        hash += StateHash.block( newItem );
+    }
+
+    public void removeAll( List<? extends Block> itemsGoing )
+    {
+        if ( itemsGoing.isEmpty() )
+        {
+            return;
+        }
+
+        unshare();
+        for ( int i = 0; i < itemsGoing.size(); ++i )
+        {
+            remove( itemsGoing.get( i ) );
+        }
+
+        if ( numGaps > MIN_GAPS_TO_CLOSE && numGaps * 2 > list.size() )
+        {
+            closeGaps();
+        }
+    }
+
+    /** Don't bother closing gaps in small lists. */
+    private static final int MIN_GAPS_TO_CLOSE = 32;
+
+    private void remove( Block block )
+    {
+        int i = i( block.x, block.y );
+        List<Block> extra = overflow.get( i );
+        if ( blocks[i] == block )
+        {
+            leaveGap( slots[i] );
+            if ( extra == null )
+            {
+                blocks[i] = null;
+                shapes[i] = NO_SHAPE;
+                slots[i] = -1;
+            }
+            else
+            {
+                // Promote the next oldest block.
+                blocks[i] = extra.remove( 0 );
+                shapes[i] = (byte)blocks[i].shape.ordinal();
+                slots[i] = slotOf( blocks[i] );
+            }
+        }
+        else if ( extra != null && extra.remove( block ) )
+        {
+            leaveGap( slotOf( block ) );
+        }
+        else
+        {
+            return;
+        }
+
+        if ( extra != null && extra.isEmpty() )
+        {
+            overflow.remove( i );
+        }
+        --counts[i];
+        hash -= StateHash.block( block );
+    }
+
+    private void leaveGap( int slot )
+    {
+        list.set( slot, null );
+        ++numGaps;
+    }
+
+    /**
+     * Find a block that is not the oldest in its cell. These are rare, so
+     * searching for them is fine.
+     */
+    private int slotOf( Block block )
+    {
+        for ( int slot = 0; slot < list.size(); ++slot )
+        {
+            if ( list.get( slot ) == block )
+            {
+                return slot;
+            }
+        }
+        throw new IllegalStateException( "Block not in list: " + block );
+    }
+
+    /**
+     * Squeeze the nulls out of list, and point slots at where the blocks
+     * have moved to. Must not be called while the storage is shared.
+     */
+    private void closeGaps()
+    {
+        list = withoutGaps();
+        for ( int slot = 0; slot < list.size(); ++slot )
+        {
+            Block block = list.get( slot );
+            int i = i( block.x, block.y );
+            if ( blocks[i] == block )
+            {
+                slots[i] = slot;
+            }
+        }
+        numGaps = 0;
+    }
+
+    /**
+     * @return a new list of the blocks in list, without the gaps.
+     */
+    private List<Block> withoutGaps()
+    {
+        List<Block> ret = new ArrayList<>( list.size() - numGaps );
+        for ( int slot = 0; slot < list.size(); ++slot )
+        {
+            Block block = list.get( slot );
+            if ( block != null )
+            {
+                ret.add( block );
+            }
+        }
+        return ret;
+    }
+
+    public List<Block> getListCopy()
+    {
+        return withoutGaps();
+    }
+
+    public Iterable<Block> getItems()
+    {
+        return this;
+    }
+
+    /**
+     * Iterate over every block, oldest first, skipping the gaps.
+     */
+    @Override
+    public Iterator<Block> iterator()
+    {
+        final List<Block> items = list;
+        return new Iterator<Block>()
+        {
+            private int slot = nextBlock( 0 );
+
+            @Override
+            public boolean hasNext()
+            {
+                return slot < items.size();
+            }
+
+            @Override
+            public Block next()
+            {
+                if ( !hasNext() )
+                {
+                    throw new NoSuchElementException();
+                }
+                Block ret = items.get( slot );
+                slot = nextBlock( slot + 1 );
+                return ret;
+            }
+
+            @Override
+            public void remove()
+            {
+                throw new UnsupportedOperationException();
+            }
+
+            private int nextBlock( int from )
+            {
+                while ( from < items.size() && items.get( from ) == null )
+                {
+                    ++from;
+                }
+                return from;
+            }
+        };
+    }
+
+    /**
+     * @return The number of blocks in the grid.
+     */
+    public int size()
+    {
+        return list.size() - numGaps;
+    }
+
+    /**
+     * Take our own copy of the storage, if it might be shared, so that
+     * changing it does not affect any other grid.
+     */
+    private void unshare()
+    {
+        if ( !shared )
+        {
+            return;
+        }
+
+        blocks = blocks.clone();
+        shapes = shapes.clone();
+        counts = counts.clone();
+        slots = slots.clone();
+        // Copying the list anyway, so leave the gaps behind.
+        closeGaps();
+
+        Map<Integer, List<Block>> newOverflow = new HashMap<>();
+        for ( Map.Entry<Integer, List<Block>> e : overflow.entrySet() )
+        {
+            newOverflow.put( e.getKey(), new ArrayList<>( e.getValue() ) );
+        }
+        overflow = newOverflow;
+
+        shared = false;
+    }
+
+    /**
+     * Convert coordinates to an index into the flat arrays. This allows the
+     * grid to store blocks 1 place outside the nominal size.
+     */
+    private int i( int x, int y )
+    {
+        if (
+               x < -1 || x > size.width
+            || y < -1 || y > size.height
+        )
+        {
+            throw new IndexOutOfBoundsException( "(" + x + ", " + y + ")" );
+        }
+        return ( x + 1 ) * stride + ( y + 1 );
+    }
+}
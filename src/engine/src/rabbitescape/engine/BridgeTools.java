@@ -1,5 +1,7 @@
 package rabbitescape.engine;
 
+import java.util.List;
+
 import rabbitescape.engine.util.Position;
 
 public class BridgeTools
@@ -7,11 +9,20 @@ public class BridgeTools
 
     public static boolean someoneIsBridgingAt( World world, int x, int y )
     {
-        for ( Rabbit rabbit : world.rabbits )
+        // A bridging rabbit is at most one cell across and one below the
+        // place where it is bridging (see RabbitStates.whereBridging).
+        for ( int rx = x - 1; rx <= x + 1; ++rx )
         {
-            if ( rabbitIsBridgingAt( rabbit, x, y ) )
+            for ( int ry = y; ry <= y + 1; ++ry )
             {
-                return true;
+                List<Rabbit> rabbits = world.rabbitsAt( rx, ry );
+                for ( int i = 0; i < rabbits.size(); ++i )
+                {
+                    if ( rabbitIsBridgingAt( rabbits.get( i ), x, y ) )
+                    {
+                        return true;
+                    }
+                }
             }
         }
         return false;
@@ -20,7 +31,7 @@ public class BridgeTools
     public static boolean rabbitIsBridgingAt( Rabbit rabbit, int x, int y )
     {
         Position bridging = RabbitStates.whereBridging(
-            new StateAndPosition( rabbit.state, rabbit.x, rabbit.y ) );
+            rabbit.state, rabbit.x, rabbit.y );
 
         if ( bridging == null )
         {
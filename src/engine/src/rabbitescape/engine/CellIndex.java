@@ -0,0 +1,281 @@
+package rabbitescape.engine;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import rabbitescape.engine.util.Dimension;
+
+/**
+ * Buckets things by the cell they are in, so that finding what is at a
+ * position does not mean scanning every thing in the world.
+ *
+ * Within a cell, things are kept in the order they were added to the index,
+ * which matches the order of the list they came from. Things outside the
+ * world (+/-1) are kept in a single list and searched when asked for.
+ *
+ * Things move by changing their x and y directly, so whoever moves one must
+ * call update() afterwards. sync() catches up with any changes made behind
+ * the index's back.
+ *
+ * The index also keeps a StateHash of the things in it, which update()
+ * keeps up to date when a thing moves or changes state.
+ */
+public class CellIndex<T extends Thing>
+{
+    private static final class Entry
+    {
+        /** Order in which this thing was added. */
+        public final int seq;
+        /** Cell this thing is filed under, or ELSEWHERE. */
+        public int cell;
+        /** This thing's StateHash key when it was last updated. */
+        public long key;
+
+        public Entry( int seq, int cell, long key )
+        {
+            this.seq = seq;
+            this.cell = cell;
+            this.key = key;
+        }
+    }
+
+    private static final int ELSEWHERE = -1;
+
+    private final Dimension size;
+    private final int stride;
+    // Arrays of generics not allowed, use ArrayList instead.  Cells with
+    // nothing ever in them stay null.
+    private final ArrayList<List<T>> cells;
+    private final List<T> elsewhere;
+    private final Map<T, Entry> entries;
+    private int nextSeq;
+    /** The sum of the keys of every entry. */
+    private long hash;
+
+    public CellIndex( Dimension size )
+    {
+        this.size = size;
+        this.stride = size.height + 2;
+
+        int numCells = Math.max( 0, ( size.width + 2 ) * stride );
+        this.cells = new ArrayList<>( numCells );
+        for ( int i = 0; i < numCells; ++i )
+        {
+            cells.add( null );
+        }
+        this.elsewhere = new ArrayList<>();
+        this.entries = new IdentityHashMap<>();
+        this.nextSeq = 0;
+        this.hash = 0;
+    }
+
+    /**
+     * @return the things at this position, in the order they were added.
+     *         The returned list belongs to the index and must not be
+     *         modified, or kept beyond the next change to the index.
+     */
+    public List<T> at( int x, int y )
+    {
+        int cell = cellAt( x, y );
+        if ( cell == ELSEWHERE )
+        {
+            List<T> ret = new ArrayList<>();
+            for ( T t : elsewhere )
+            {
+                if ( t.x == x && t.y == y )
+                {
+                    ret.add( t );
+                }
+            }
+            return ret;
+        }
+
+        List<T> bucket = cells.get( cell );
+        return bucket == null ? Collections.<T>emptyList() : bucket;
+    }
+
+    public void add( T t )
+    {
+        Entry entry = new Entry(
+            nextSeq++, cellAt( t.x, t.y ), StateHash.thing( t ) );
+        entries.put( t, entry );
+        hash += entry.key;
+        insert( t, entry );
+    }
+
+    public void addAll( Iterable<? extends T> ts )
+    {
+        for ( T t : ts )
+        {
+            add( t );
+        }
+    }
+
+    public void remove( T t )
+    {
+        Entry entry = entries.remove( t );
+        if ( entry != null )
+        {
+            removeFromBucket( t, entry.cell );
+            hash -= entry.key;
+        }
+    }
+
+    public void removeAll( Iterable<? extends T> ts )
+    {
+        for ( T t : ts )
+        {
+            remove( t );
+        }
+    }
+
+    /**
+     * Re-file a thing that may have moved, or changed state, since it was
+     * last indexed. Things not in the index are ignored.
+     */
+    public void update( T t )
+    {
+        Entry entry = entries.get( t );
+        if ( entry == null )
+        {
+            return;
+        }
+
+        int cell = cellAt( t.x, t.y );
+        if ( cell != entry.cell )
+        {
+            removeFromBucket( t, entry.cell );
+            entry.cell = cell;
+            insert( t, entry );
+        }
+
+        long key = StateHash.thing( t );
+        hash += key - entry.key;
+        entry.key = key;
+    }
+
+    /**
+     * Make the index match the supplied list, which must contain everything
+     * in the index. Cheap if only positions have changed.
+     *
+     * @return true if things had been added or removed, so the index was
+     *         rebuilt.
+     */
+    public boolean sync( List<? extends T> ts )
+    {
+        if ( ts.size() != entries.size() )
+        {
+            rebuild( ts );
+            return true;
+        }
+
+        for ( int i = 0; i < ts.size(); ++i )
+        {
+            T t = ts.get( i );
+            if ( !entries.containsKey( t ) )
+            {
+                rebuild( ts );
+                return true;
+            }
+            update( t );
+        }
+        return false;
+    }
+
+    /**
+     * Forget everything and index the supplied things, in order.
+     */
+    public void rebuild( Iterable<? extends T> ts )
+    {
+        for ( int i = 0; i < cells.size(); ++i )
+        {
+            List<T> bucket = cells.get( i );
+            if ( bucket != null )
+            {
+                bucket.clear();
+            }
+        }
+        elsewhere.clear();
+        entries.clear();
+        nextSeq = 0;
+        hash = 0;
+
+        addAll( ts );
+    }
+
+    /**
+     * @return a hash of the things in the index, as they were when last
+     *         added or updated.
+     */
+    public long hash()
+    {
+        return hash;
+    }
+
+    /**
+     * @return The number of things in the index.
+     */
+    public int size()
+    {
+        return entries.size();
+    }
+
+    private void insert( T t, Entry entry )
+    {
+        List<T> bucket = bucket( entry.cell );
+
+        // Things are nearly always added in order, so search from the end.
+        int i = bucket.size();
+        while ( i > 0 && entries.get( bucket.get( i - 1 ) ).seq > entry.seq )
+        {
+            --i;
+        }
+        bucket.add( i, t );
+    }
+
+    private void removeFromBucket( T t, int cell )
+    {
+        List<T> bucket = bucket( cell );
+
+        // Search by identity: Rabbit.equals compares indices.
+        for ( int i = 0; i < bucket.size(); ++i )
+        {
+            if ( bucket.get( i ) == t )
+            {
+                bucket.remove( i );
+                return;
+            }
+        }
+    }
+
+    private List<T> bucket( int cell )
+    {
+        if ( cell == ELSEWHERE )
+        {
+            return elsewhere;
+        }
+
+        List<T> bucket = cells.get( cell );
+        if ( bucket == null )
+        {
+            bucket = new ArrayList<>( 2 );
+            cells.set( cell, bucket );
+        }
+        return bucket;
+    }
+
+    private int cellAt( int x, int y )
+    {
+        if (
+               x < -1 || x > size.width
+            || y < -1 || y > size.height
+        )
+        {
+            return ELSEWHERE;
+        }
+        return ( x + 1 ) * stride + ( y + 1 );
+    }
+}
@@ -198,7 +198,148 @@ public class ChangeDescription
         WATER_REGION_FALLING,
 
         ENTRANCE,
-        EXIT,
+        EXIT;
+
+        /** Bits from Category, set up below. */
+        private int categories = 0;
+
+        /**
+         * @return true if this state is in the supplied category.  Cheaper
+         *         than a switch over the states, and all in one place.
+         */
+        public boolean is( Category category )
+        {
+            return ( categories & category.bit ) != 0;
+        }
+
+        private static void categorise( Category category, State... states )
+        {
+            for ( State state : states )
+            {
+                state.categories |= category.bit;
+            }
+        }
+
+        static
+        {
+            categorise(
+                Category.FALLING,
+                RABBIT_FALLING,
+                RABBIT_FALLING_1,
+                RABBIT_FALLING_1_TO_DEATH,
+                RABBIT_DYING_OF_FALLING_2,
+                RABBIT_DYING_OF_FALLING,
+                RABBIT_FALLING_ONTO_LOWER_RIGHT,
+                RABBIT_FALLING_ONTO_RISE_RIGHT,
+                RABBIT_FALLING_ONTO_LOWER_LEFT,
+                RABBIT_FALLING_ONTO_RISE_LEFT,
+                RABBIT_FALLING_1_ONTO_LOWER_RIGHT,
+                RABBIT_FALLING_1_ONTO_RISE_RIGHT,
+                RABBIT_FALLING_1_ONTO_LOWER_LEFT,
+                RABBIT_FALLING_1_ONTO_RISE_LEFT,
+                RABBIT_DYING_OF_FALLING_SLOPE_RISE_RIGHT,
+                RABBIT_DYING_OF_FALLING_SLOPE_RISE_RIGHT_2,
+                RABBIT_DYING_OF_FALLING_2_SLOPE_RISE_RIGHT,
+                RABBIT_DYING_OF_FALLING_2_SLOPE_RISE_RIGHT_2,
+                RABBIT_DYING_OF_FALLING_SLOPE_RISE_LEFT,
+                RABBIT_DYING_OF_FALLING_SLOPE_RISE_LEFT_2,
+                RABBIT_DYING_OF_FALLING_2_SLOPE_RISE_LEFT,
+                RABBIT_DYING_OF_FALLING_2_SLOPE_RISE_LEFT_2
+            );
+
+            categorise(
+                Category.CLIMBING,
+                RABBIT_ENTERING_EXIT_CLIMBING_RIGHT,
+                RABBIT_ENTERING_EXIT_CLIMBING_LEFT,
+                RABBIT_CLIMBING_LEFT_START,
+                RABBIT_CLIMBING_LEFT_CONTINUE_1,
+                RABBIT_CLIMBING_LEFT_CONTINUE_2,
+                RABBIT_CLIMBING_LEFT_END,
+                RABBIT_CLIMBING_LEFT_BANG_HEAD,
+                RABBIT_CLIMBING_RIGHT_START,
+                RABBIT_CLIMBING_RIGHT_CONTINUE_1,
+                RABBIT_CLIMBING_RIGHT_CONTINUE_2,
+                RABBIT_CLIMBING_RIGHT_END,
+                RABBIT_CLIMBING_RIGHT_BANG_HEAD
+            );
+
+            categorise(
+                Category.BASHING,
+                RABBIT_BASHING_RIGHT,
+                RABBIT_BASHING_LEFT,
+                RABBIT_BASHING_UP_RIGHT,
+                RABBIT_BASHING_UP_LEFT,
+                RABBIT_BASHING_USELESSLY_RIGHT,
+                RABBIT_BASHING_USELESSLY_LEFT,
+                RABBIT_BASHING_USELESSLY_RIGHT_UP,
+                RABBIT_BASHING_USELESSLY_LEFT_UP
+            );
+
+            categorise(
+                Category.DIGGING,
+                RABBIT_DIGGING,
+                RABBIT_DIGGING_2,
+                RABBIT_DIGGING_ON_SLOPE,
+                RABBIT_DIGGING_USELESSLY
+            );
+
+            categorise(
+                Category.BRIDGING,
+                RABBIT_BRIDGING_IN_CORNER_RIGHT_1,
+                RABBIT_BRIDGING_IN_CORNER_RIGHT_2,
+                RABBIT_BRIDGING_IN_CORNER_RIGHT_3,
+                RABBIT_BRIDGING_IN_CORNER_LEFT_1,
+                RABBIT_BRIDGING_IN_CORNER_LEFT_2,
+                RABBIT_BRIDGING_IN_CORNER_LEFT_3,
+                RABBIT_BRIDGING_IN_CORNER_UP_RIGHT_1,
+                RABBIT_BRIDGING_IN_CORNER_UP_RIGHT_2,
+                RABBIT_BRIDGING_IN_CORNER_UP_RIGHT_3,
+                RABBIT_BRIDGING_IN_CORNER_UP_LEFT_1,
+                RABBIT_BRIDGING_IN_CORNER_UP_LEFT_2,
+                RABBIT_BRIDGING_IN_CORNER_UP_LEFT_3,
+                RABBIT_BRIDGING_RIGHT_1,
+                RABBIT_BRIDGING_RIGHT_2,
+                RABBIT_BRIDGING_RIGHT_3,
+                RABBIT_BRIDGING_LEFT_1,
+                RABBIT_BRIDGING_LEFT_2,
+                RABBIT_BRIDGING_LEFT_3,
+                RABBIT_BRIDGING_UP_RIGHT_1,
+                RABBIT_BRIDGING_UP_RIGHT_2,
+                RABBIT_BRIDGING_UP_RIGHT_3,
+                RABBIT_BRIDGING_UP_LEFT_1,
+                RABBIT_BRIDGING_UP_LEFT_2,
+                RABBIT_BRIDGING_UP_LEFT_3,
+                RABBIT_BRIDGING_DOWN_UP_RIGHT_1,
+                RABBIT_BRIDGING_DOWN_UP_RIGHT_2,
+                RABBIT_BRIDGING_DOWN_UP_RIGHT_3,
+                RABBIT_BRIDGING_DOWN_UP_LEFT_1,
+                RABBIT_BRIDGING_DOWN_UP_LEFT_2,
+                RABBIT_BRIDGING_DOWN_UP_LEFT_3
+            );
+
+            categorise(
+                Category.BLOCKING,
+                RABBIT_BLOCKING,
+                RABBIT_BLOCKING_RISE_RIGHT,
+                RABBIT_BLOCKING_RISE_LEFT
+            );
+        }
+    }
+
+    /**
+     * Groups of states that behaviours and renderers need to ask about.
+     * See State.is().
+     */
+    public enum Category
+    {
+        FALLING,
+        CLIMBING,
+        BASHING,
+        DIGGING,
+        BRIDGING,
+        BLOCKING;
+
+        private final int bit = 1 << ordinal();
     }
 
     public static class Change
@@ -74,6 +74,15 @@ public class Entrance extends Thing
         BehaviourState.addToStateIfGtZero(
             ret, "Entrance.timeToNextRabbit", timeToNextRabbit
         );
+        if ( runtimeMeta )
+        {
+            // Past the end of delay, the count makes no more difference.
+            BehaviourState.addToStateIfGtZero(
+                ret,
+                "Entrance.rabbitEntranceCount",
+                Math.min( rabbitEntranceCount, delay.length - 1 )
+            );
+        }
         return ret;
     }
 
@@ -83,6 +92,10 @@ public class Entrance extends Thing
         timeToNextRabbit = BehaviourState.restoreFromState(
             state, "Entrance.timeToNextRabbit", timeToNextRabbit
         );
+
+        rabbitEntranceCount = BehaviourState.restoreFromState(
+            state, "Entrance.rabbitEntranceCount", rabbitEntranceCount
+        );
     }
 
     @Override
@@ -5,6 +5,7 @@ import java.io.IOException;
 
 import static rabbitescape.engine.util.Util.*;
 
+import rabbitescape.engine.binaryworld.LevelPack;
 import rabbitescape.engine.err.RabbitEscapeException;
 import rabbitescape.engine.textworld.TextWorldManip;
 import rabbitescape.engine.util.FileSystem;
@@ -69,6 +70,16 @@ public class LoadWorldFile
     {
         try
         {
+            if ( !fs.exists( fileName ) )
+            {
+                World packed = LevelPack.loadFromPacks(
+                    statsListener, fileName );
+                if ( packed != null )
+                {
+                    return packed;
+                }
+            }
+
             return TextWorldManip.createWorldWithName(
                 levelName( fileName ), statsListener, loadLines( fileName ) );
         }
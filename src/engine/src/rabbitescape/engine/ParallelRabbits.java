@@ -0,0 +1,166 @@
+package rabbitescape.engine;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Steps a world's rabbits on several threads, with exactly the same
+ * results as stepping them one at a time.
+ *
+ * While rabbits are stepped (as opposed to working out their new states),
+ * each one only changes itself, and reads blocks, things and water, which
+ * do not change until the world's changes are applied. Anything else a
+ * rabbit does goes through WorldChanges, and is held back in that rabbit's
+ * own WorldChanges.Deferred. Once every rabbit has stepped, the held back
+ * changes are made in rabbit order, just as they would have been made on
+ * one thread.
+ *
+ * The exception is a rabbit going through a portal: it uses up both
+ * portals, and a rabbit stepped after it in the same tick must see that
+ * they are gone (World.getTokenAt looks at the tokens waiting to be
+ * removed). So in any tick where a rabbit is going through a portal, all
+ * the rabbits are stepped on one thread.
+ *
+ * Working out new states stays on one thread: rabbits look at the states
+ * their neighbours have just been given (e.g. to see whether they are
+ * blocking), so the order in which that happens matters.
+ */
+class ParallelRabbits
+{
+    /** Don't split the rabbits into tasks smaller than this. */
+    private static final int MIN_RABBITS_PER_TASK = 8;
+
+    private final ForkJoinPool pool;
+    private final int minRabbits;
+    private final List<WorldChanges.Deferred> deferred = new ArrayList<>();
+
+    /**
+     * @param minRabbits step rabbits on one thread when there are fewer
+     *                   than this many.
+     */
+    public ParallelRabbits( int threads, int minRabbits )
+    {
+        this.pool = new ForkJoinPool( threads );
+        this.minRabbits = minRabbits;
+    }
+
+    public void step( World world )
+    {
+        List<Rabbit> rabbits = world.rabbits;
+        if ( rabbits.size() < minRabbits || anyPortaling( rabbits ) )
+        {
+            for ( Rabbit rabbit : rabbits )
+            {
+                rabbit.step( world );
+                world.rabbitIndex.update( rabbit );
+            }
+            return;
+        }
+
+        while ( deferred.size() < rabbits.size() )
+        {
+            deferred.add( new WorldChanges.Deferred() );
+        }
+
+        try
+        {
+            pool.invoke( new StepTask( world, 0, rabbits.size() ) );
+        }
+        finally
+        {
+            world.changes.doneDeferring();
+        }
+
+        for ( int i = 0; i < rabbits.size(); ++i )
+        {
+            Rabbit rabbit = rabbits.get( i );
+            WorldChanges.Deferred rabbitChanges = deferred.get( i );
+
+            world.changes.makeDeferred( rabbitChanges );
+            RuntimeException error = rabbitChanges.error;
+            if ( error != null )
+            {
+                // On one thread, no rabbits after this one would have
+                // stepped.
+                for ( int j = i; j < rabbits.size(); ++j )
+                {
+                    deferred.get( j ).clear();
+                }
+                throw error;
+            }
+
+            world.rabbitIndex.update( rabbit );
+        }
+    }
+
+    public void dispose()
+    {
+        pool.shutdown();
+    }
+
+    private static boolean anyPortaling( List<Rabbit> rabbits )
+    {
+        for ( int i = 0; i < rabbits.size(); ++i )
+        {
+            ChangeDescription.State state = rabbits.get( i ).state;
+            if (
+                   state == ChangeDescription.State.RABBIT_PORTALING_RIGHT
+                || state == ChangeDescription.State.RABBIT_PORTALING_LEFT
+            )
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private class StepTask extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final World world;
+        private final int start;
+        private final int end;
+
+        StepTask( World world, int start, int end )
+        {
+            this.world = world;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected void compute()
+        {
+            if ( end - start > MIN_RABBITS_PER_TASK )
+            {
+                int middle = ( start + end ) / 2;
+                invokeAll(
+                    new StepTask( world, start, middle ),
+                    new StepTask( world, middle, end )
+                );
+                return;
+            }
+
+            for ( int i = start; i < end; ++i )
+            {
+                WorldChanges.Deferred rabbitChanges = deferred.get( i );
+                world.changes.deferTo( rabbitChanges );
+                try
+                {
+                    world.rabbits.get( i ).step( world );
+                }
+                catch ( RuntimeException e )
+                {
+                    rabbitChanges.error = e;
+                }
+                finally
+                {
+                    world.changes.stopDeferring();
+                }
+            }
+        }
+    }
+}
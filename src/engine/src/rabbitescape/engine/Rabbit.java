@@ -26,6 +26,10 @@ public class Rabbit extends Thing implements Comparable<Rabbit>
 
     private Falling falling;
 
+    /** Reused by every behaviour, so working out what to do next does not
+     *  allocate. See tools(). */
+    private BehaviourTools tools;
+
     public Direction dir;
     public boolean onSlope;
     /** Rabbits move up 1 cell to bash from a slope.
@@ -115,13 +119,16 @@ public class Rabbit extends Thing implements Comparable<Rabbit>
     @Override
     public void calcNewState( World world )
     {
-        for ( Behaviour behaviour : behavioursTriggerOrder )
+        // Indexed loops: this runs for every rabbit on every step, so avoid
+        // creating iterators.
+        for ( int i = 0; i < behavioursTriggerOrder.size(); ++i )
         {
-            behaviour.triggered = false;
+            behavioursTriggerOrder.get( i ).triggered = false;
         }
 
-        for ( Behaviour behaviour : behavioursTriggerOrder )
+        for ( int i = 0; i < behavioursTriggerOrder.size(); ++i )
         {
+            Behaviour behaviour = behavioursTriggerOrder.get( i );
             behaviour.triggered = behaviour.checkTriggered( this, world );
             if ( behaviour.triggered )
             {
@@ -129,12 +136,12 @@ public class Rabbit extends Thing implements Comparable<Rabbit>
             }
         }
 
+        BehaviourTools t = tools( world );
         boolean done = false;
-        for ( Behaviour behaviour : behaviours )
+        for ( int i = 0; i < behaviours.size(); ++i )
         {
-
-            State thisState = behaviour.newState(
-                new BehaviourTools( this, world ), behaviour.triggered );
+            Behaviour behaviour = behaviours.get( i );
+            State thisState = behaviour.newState( t, behaviour.triggered );
 
             if ( thisState != null && !done )
             {
@@ -145,10 +152,24 @@ public class Rabbit extends Thing implements Comparable<Rabbit>
 
     }
 
+    /**
+     * @return a BehaviourTools for this rabbit in the supplied world.  The
+     *         same object is returned each time for the same world.
+     */
+    public BehaviourTools tools( World world )
+    {
+        if ( tools == null || tools.world != world )
+        {
+            tools = new BehaviourTools( this, world );
+        }
+        return tools;
+    }
+
     private void cancelAllBehavioursExcept( Behaviour exception )
     {
-        for ( Behaviour behaviour : behaviours )
+        for ( int i = 0; i < behaviours.size(); ++i )
         {
+            Behaviour behaviour = behaviours.get( i );
             if ( behaviour != exception )
             {
                 behaviour.cancel();
@@ -162,7 +183,7 @@ public class Rabbit extends Thing implements Comparable<Rabbit>
         {
             return;
         }
-        BehaviourTools t = new BehaviourTools( this, world );
+        BehaviourTools t = tools( world );
         if ( t.blockHere() != null ||
             !BehaviourTools.isSlope( t.blockBelow() ) )
         {
@@ -175,9 +196,9 @@ public class Rabbit extends Thing implements Comparable<Rabbit>
     @Override
     public void step( World world )
     {
-        for ( Behaviour behaviour : behaviours )
+        for ( int i = 0; i < behaviours.size(); ++i )
         {
-
+            Behaviour behaviour = behaviours.get( i );
             boolean handled = behaviour.behave( world, this, state );
             if ( handled )
             {
@@ -197,6 +218,7 @@ public class Rabbit extends Thing implements Comparable<Rabbit>
 
         BehaviourState.addToStateIfGtZero( ret, "index", index );
         BehaviourState.addToStateIfTrue( ret, "onSlope", onSlope );
+        BehaviourState.addToStateIfTrue( ret, "slopeBashHop", slopeBashHop );
 
         for ( Behaviour behaviour : behaviours )
         {
@@ -206,8 +228,36 @@ public class Rabbit extends Thing implements Comparable<Rabbit>
         return ret;
     }
 
+    /**
+     * Covers everything saveState saves apart from index, for StateHash.
+     * Called on every step, so creates no garbage.
+     */
+    public long behaviourKey()
+    {
+        long ret = ( onSlope ? 1 : 0 ) + ( slopeBashHop ? 2 : 0 );
+        for ( int i = 0; i < behaviours.size(); ++i )
+        {
+            ret = ret * 31 + behaviours.get( i ).stateKey();
+        }
+        return ret;
+    }
+
     @Override
     public void restoreFromState( Map<String, String> state )
+    {
+        restore( state, false );
+    }
+
+    /**
+     * Like restoreFromState, for a rabbit whose state for this step has
+     * already been worked out (see Behaviour.restoreWorkedOutState).
+     */
+    public void restoreWorkedOutState( Map<String, String> state )
+    {
+        restore( state, true );
+    }
+
+    private void restore( Map<String, String> state, boolean workedOut )
     {
         index = BehaviourState.restoreFromState( state, "index", -1 );
 
@@ -215,9 +265,20 @@ public class Rabbit extends Thing implements Comparable<Rabbit>
             state, "onSlope", false
         );
 
+        slopeBashHop = BehaviourState.restoreFromState(
+            state, "slopeBashHop", false
+        );
+
         for ( Behaviour behaviour : behaviours )
         {
-            behaviour.restoreFromState( state );
+            if ( workedOut )
+            {
+                behaviour.restoreWorkedOutState( state );
+            }
+            else
+            {
+                behaviour.restoreFromState( state );
+            }
         }
     }
 
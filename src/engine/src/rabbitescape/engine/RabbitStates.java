@@ -6,7 +6,18 @@ public class RabbitStates
 {
     public static Position whereBridging( StateAndPosition change )
     {
-        switch( change.state )
+        return whereBridging( change.state, change.x, change.y );
+    }
+
+    public static Position whereBridging(
+        ChangeDescription.State state, int x, int y )
+    {
+        if ( !state.is( ChangeDescription.Category.BRIDGING ) )
+        {
+            return null;
+        }
+
+        switch( state )
         {
             case RABBIT_BRIDGING_DOWN_UP_RIGHT_1:
             case RABBIT_BRIDGING_DOWN_UP_RIGHT_2:
@@ -14,7 +25,7 @@ public class RabbitStates
             case RABBIT_BRIDGING_RIGHT_1:
             case RABBIT_BRIDGING_RIGHT_2:
             case RABBIT_BRIDGING_RIGHT_3:
-                return new Position( change.x + 1, change.y );
+                return new Position( x + 1, y );
 
             case RABBIT_BRIDGING_DOWN_UP_LEFT_1:
             case RABBIT_BRIDGING_DOWN_UP_LEFT_2:
@@ -22,17 +33,17 @@ public class RabbitStates
             case RABBIT_BRIDGING_LEFT_1:
             case RABBIT_BRIDGING_LEFT_2:
             case RABBIT_BRIDGING_LEFT_3:
-                return new Position( change.x - 1, change.y );
+                return new Position( x - 1, y );
 
             case RABBIT_BRIDGING_UP_RIGHT_1:
             case RABBIT_BRIDGING_UP_RIGHT_2:
             case RABBIT_BRIDGING_UP_RIGHT_3:
-                return new Position( change.x + 1, change.y - 1 );
+                return new Position( x + 1, y - 1 );
 
             case RABBIT_BRIDGING_UP_LEFT_1:
             case RABBIT_BRIDGING_UP_LEFT_2:
             case RABBIT_BRIDGING_UP_LEFT_3:
-                return new Position( change.x - 1, change.y - 1 );
+                return new Position( x - 1, y - 1 );
 
             case RABBIT_BRIDGING_IN_CORNER_LEFT_1:
             case RABBIT_BRIDGING_IN_CORNER_LEFT_2:
@@ -40,14 +51,14 @@ public class RabbitStates
             case RABBIT_BRIDGING_IN_CORNER_RIGHT_1:
             case RABBIT_BRIDGING_IN_CORNER_RIGHT_2:
             case RABBIT_BRIDGING_IN_CORNER_RIGHT_3:
-                return new Position( change.x, change.y );
+                return new Position( x, y );
             case RABBIT_BRIDGING_IN_CORNER_UP_LEFT_1:
             case RABBIT_BRIDGING_IN_CORNER_UP_LEFT_2:
             case RABBIT_BRIDGING_IN_CORNER_UP_LEFT_3:
             case RABBIT_BRIDGING_IN_CORNER_UP_RIGHT_1:
             case RABBIT_BRIDGING_IN_CORNER_UP_RIGHT_2:
             case RABBIT_BRIDGING_IN_CORNER_UP_RIGHT_3:
-                return new Position( change.x, change.y - 1 );
+                return new Position( x, y - 1 );
             default:
                 return null;
         }
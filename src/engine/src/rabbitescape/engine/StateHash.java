@@ -0,0 +1,145 @@
+package rabbitescape.engine;
+
+import java.util.Map;
+
+/**
+ * Zobrist-style keys for the parts of a world's state. A world's hash is
+ * the sum of the keys of everything in it, so when one thing changes the
+ * hash is updated by taking away its old key and adding its new one,
+ * without looking at anything else. The keys are added rather than XORed
+ * so that two things the same in the same cell (e.g. two rabbits walking
+ * together) do not cancel each other out.
+ *
+ * Instead of tables of random numbers, which would need to be as big as
+ * the largest world, keys are made by mixing the fields of what is being
+ * hashed. The same state always gives the same key, in any world and any
+ * run of the game.
+ *
+ * Only things that affect what happens next are hashed: block variants,
+ * for example, are not.
+ */
+public final class StateHash
+{
+    private static final long BLOCK = 1;
+    private static final long RABBIT = 2;
+    private static final long TOKEN = 3;
+    private static final long FIRE = 4;
+    private static final long ENTRANCE = 5;
+    private static final long EXIT = 6;
+    private static final long PIPE = 7;
+    private static final long WATER = 8;
+    private static final long ABILITY = 9;
+    private static final long COUNTS = 10;
+
+    private StateHash()
+    {
+    }
+
+    public static long block( Block block )
+    {
+        return key(
+            BLOCK,
+            block.x,
+            block.y,
+            block.material.ordinal() * 8 + block.shape.ordinal()
+        );
+    }
+
+    /**
+     * Covers position and state, for rabbits direction, type and
+     * everything their behaviours remember (see Rabbit.behaviourKey), and
+     * for tokens type.
+     */
+    public static long thing( Thing thing )
+    {
+        long kind;
+        int extra = 0;
+        if ( thing instanceof Rabbit )
+        {
+            Rabbit rabbit = (Rabbit)thing;
+            kind = RABBIT;
+            extra = rabbit.dir.ordinal() * 8 + rabbit.type.ordinal();
+        }
+        else if ( thing instanceof Token )
+        {
+            kind = TOKEN;
+            extra = ( (Token)thing ).type.ordinal();
+        }
+        else if ( thing instanceof Fire )
+        {
+            kind = FIRE;
+        }
+        else if ( thing instanceof Entrance )
+        {
+            kind = ENTRANCE;
+        }
+        else if ( thing instanceof Exit )
+        {
+            kind = EXIT;
+        }
+        else
+        {
+            kind = PIPE;
+        }
+
+        int state = thing.state == null ? -1 : thing.state.ordinal();
+        long ret = key( kind, thing.x, thing.y, state * 64 + extra );
+        if ( thing instanceof Rabbit )
+        {
+            ret = mix( ret ^ ( (Rabbit)thing ).behaviourKey() );
+        }
+        return ret;
+    }
+
+    /**
+     * @return 0 for no water, so that dry cells can be left out.
+     */
+    public static long water( int x, int y, int contents )
+    {
+        if ( contents == 0 )
+        {
+            return 0;
+        }
+        return key( WATER, x, y, contents );
+    }
+
+    /**
+     * The parts of the state that are single numbers rather than things in
+     * cells: tokens left, and rabbits saved, killed and yet to enter.
+     */
+    public static long counts(
+        Map<Token.Type, Integer> abilities,
+        int numSaved,
+        int numKilled,
+        int numWaiting
+    )
+    {
+        long ret = key( COUNTS, numSaved, numKilled, numWaiting );
+        for ( Map.Entry<Token.Type, Integer> e : abilities.entrySet() )
+        {
+            ret += key( ABILITY, e.getKey().ordinal(), 0, e.getValue() );
+        }
+        return ret;
+    }
+
+    private static long key( long kind, int a, int b, int c )
+    {
+        long h = kind;
+        h = mix( h ^ ( a & 0xffffffffL ) );
+        h = mix( h ^ ( b & 0xffffffffL ) );
+        h = mix( h ^ ( c & 0xffffffffL ) );
+        return h;
+    }
+
+    /**
+     * The SplitMix64 finaliser: every bit of the input affects every bit
+     * of the output.
+     */
+    private static long mix( long z )
+    {
+        z += 0x9e3779b97f4a7c15L;
+        z = ( z ^ ( z >>> 30 ) ) * 0xbf58476d1ce4e5b9L;
+        z = ( z ^ ( z >>> 27 ) ) * 0x94d049bb133111ebL;
+        return z ^ ( z >>> 31 );
+    }
+}
@@ -0,0 +1,10 @@
+package rabbitescape.engine;
+
+/**
+ * Told about each token queued by WorldChanges.queueToken once it has
+ * really been added, on the thread that steps the world.
+ */
+public interface TokenPlacedListener
+{
+    void tokenPlaced( int x, int y, Token.Type type );
+}
@@ -0,0 +1,647 @@
+package rabbitescape.engine;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import rabbitescape.engine.util.Dimension;
+import rabbitescape.engine.util.WaterUtil;
+
+/**
+ * The water of a whole world, held in flat arrays with one slot per cell
+ * (including the cells one outside the world all round), so that stepping
+ * large flooded levels walks arrays instead of chasing WaterRegion objects.
+ *
+ * Each cell holds at most one water region. The WaterRegions in the world's
+ * waterTable are views onto this field: reading or setting their contents
+ * or flow reads or writes these arrays. The field only writes to a region
+ * object to keep its state (empty, half or full) up to date.
+ *
+ * Only cells that have water in them, or water flowing out of them, are
+ * simulated. A cell is woken when water is put into it, and dropped once
+ * it is dry with nothing flowing.
+ *
+ * If given more than one thread, the field splits large amounts of water
+ * into bands of rows and works on the bands in a fork-join pool. Working
+ * out flow only reads other cells, so every band runs at once. Water only
+ * moves one row at a time, so moving it runs the even bands together and
+ * then the odd ones, and no two bands running together touch the same
+ * cell. Contents only ever have whole amounts added and taken away, so the
+ * results are exactly the same as stepping the cells one by one.
+ */
+public class WaterField
+{
+    private static final int NUM_DIRECTIONS = WaterUtil.NUM_DIRECTIONS;
+    private static final CellularDirection[] DIRECTIONS =
+        CellularDirection.values();
+    private static final int HERE = CellularDirection.HERE.ordinal();
+    private static final int[] OPPOSITE = new int[NUM_DIRECTIONS];
+    static
+    {
+        for ( CellularDirection direction : DIRECTIONS )
+        {
+            OPPOSITE[direction.ordinal()] = direction == CellularDirection.HERE
+                ? HERE
+                : CellularDirection.opposite( direction ).ordinal();
+        }
+    }
+
+    private final int width;
+    private final int height;
+    /** Cells are stored a column at a time: cell = (x+1) * stride + y+1. */
+    private final int stride;
+
+    private final WaterRegion[] regions;
+    private final int[] capacity;
+    private final int[] contents;
+    /** Bit n is set if the cell is connected in DIRECTIONS[n]. */
+    private final byte[] connections;
+    private final boolean[] outsideWorld;
+    /** NUM_DIRECTIONS amounts per cell, indexed by direction ordinal. */
+    private final int[] flow;
+    private final boolean[] flowing;
+
+    /** Cells being simulated, in the order they woke up. */
+    private int[] active;
+    private int numActive;
+    private final boolean[] isActive;
+
+    private final WaterUtil.Scratch scratch = new WaterUtil.Scratch();
+
+    /** The sum of the StateHash keys of the contents of every cell. */
+    private long hash = 0;
+
+    /** Null unless we have been asked to use more than one thread. */
+    private ForkJoinPool pool = null;
+    /** Use the pool only when at least this many cells are active. */
+    private int minActiveForPool;
+    /** How many rows each band of a parallel step covers. */
+    private int bandRows;
+    private Band[] bands = new Band[0];
+    /** The active cells, grouped by band. */
+    private int[] bandCells = new int[0];
+
+    public WaterField( Dimension size )
+    {
+        this.width = Math.max( size.width, -1 );
+        this.height = Math.max( size.height, -1 );
+        this.stride = height + 2;
+
+        int numCells = ( width + 2 ) * stride;
+        this.regions = new WaterRegion[numCells];
+        this.capacity = new int[numCells];
+        this.contents = new int[numCells];
+        this.connections = new byte[numCells];
+        this.outsideWorld = new boolean[numCells];
+        this.flow = new int[numCells * NUM_DIRECTIONS];
+        this.flowing = new boolean[numCells];
+        this.active = new int[16];
+        this.numActive = 0;
+        this.isActive = new boolean[numCells];
+    }
+
+    /**
+     * Take over the storage of a region that has just joined the world's
+     * water table.
+     */
+    public void attach( WaterRegion region )
+    {
+        int cell = cell( region.x, region.y );
+        if ( regions[cell] != null && regions[cell] != region )
+        {
+            throw new IllegalStateException(
+                "There is currently no support for multiple WaterRegions "
+                    + "within a single cell." );
+        }
+
+        regions[cell] = region;
+        capacity[cell] = region.capacity;
+        contents[cell] = region.getContents();
+        hash += waterKey( cell, contents[cell] );
+        outsideWorld[cell] = region.outsideWorld;
+        flowing[cell] = region.isFlowing();
+
+        byte mask = 0;
+        for ( CellularDirection direction : DIRECTIONS )
+        {
+            flow[cell * NUM_DIRECTIONS + direction.ordinal()] =
+                region.getFlow( direction );
+            if ( region.isConnected( direction ) )
+            {
+                mask |= 1 << direction.ordinal();
+            }
+        }
+        connections[cell] = mask;
+
+        region.viewOf( this, cell );
+        wakeIfNeeded( cell );
+    }
+
+    /**
+     * Hand a region that has left the world's water table its storage
+     * back.
+     */
+    public void detach( WaterRegion region )
+    {
+        int cell = cell( region.x, region.y );
+        if ( regions[cell] != region )
+        {
+            return;
+        }
+
+        region.unview(
+            contents[cell],
+            Arrays.copyOfRange(
+                flow, cell * NUM_DIRECTIONS, ( cell + 1 ) * NUM_DIRECTIONS ),
+            flowing[cell]
+        );
+
+        hash -= waterKey( cell, contents[cell] );
+        regions[cell] = null;
+        capacity[cell] = 0;
+        contents[cell] = 0;
+        connections[cell] = 0;
+        outsideWorld[cell] = false;
+        flowing[cell] = false;
+        Arrays.fill(
+            flow, cell * NUM_DIRECTIONS, ( cell + 1 ) * NUM_DIRECTIONS, 0 );
+        // It stays in the active list until the next prune.
+    }
+
+    public int getContents( int cell )
+    {
+        return contents[cell];
+    }
+
+    public void setContents( int cell, int amount )
+    {
+        hash += waterKey( cell, amount ) - waterKey( cell, contents[cell] );
+        contents[cell] = amount;
+        regions[cell].updateState( amount );
+        wakeIfNeeded( cell );
+    }
+
+    public int getFlow( int cell, CellularDirection direction )
+    {
+        return flow[cell * NUM_DIRECTIONS + direction.ordinal()];
+    }
+
+    public boolean isFlowing( int cell )
+    {
+        return flowing[cell];
+    }
+
+    /**
+     * Work on the water with the given number of threads. With 1 or fewer
+     * everything happens on the calling thread.
+     *
+     * @param minActive only use more threads in ticks where at least this
+     *                  many cells have water in them, since smaller amounts
+     *                  are quicker to do alone.
+     */
+    public void setThreads( int threads, int minActive )
+    {
+        if ( pool != null )
+        {
+            pool.shutdown();
+            pool = null;
+        }
+
+        if ( threads > 1 )
+        {
+            pool = new ForkJoinPool( threads );
+            minActiveForPool = minActive;
+
+            // Several bands per thread, so that a thread with little water
+            // in its band can help with another, but at least two rows per
+            // band, so that water from bands running together never meets.
+            int numBands = threads * 4;
+            bandRows = Math.max( 2, ( stride + numBands - 1 ) / numBands );
+            numBands = ( stride + bandRows - 1 ) / bandRows;
+
+            bands = new Band[numBands];
+            for ( int i = 0; i < numBands; ++i )
+            {
+                bands[i] = new Band();
+            }
+        }
+        else
+        {
+            bands = new Band[0];
+        }
+    }
+
+    /**
+     * Move the water that was worked out to be flowing last tick.
+     */
+    public void step()
+    {
+        if ( usePool() )
+        {
+            groupIntoBands();
+            pool.invoke( new BandsTask( true, 0, bands.length, 2 ) );
+            pool.invoke( new BandsTask( true, 1, bands.length, 2 ) );
+            for ( Band band : bands )
+            {
+                band.addWokenToActive();
+                hash += band.hash;
+                band.hash = 0;
+            }
+            return;
+        }
+
+        // Cells woken while we go are dry, so have nothing to step.
+        for ( int i = 0, n = numActive; i < n; ++i )
+        {
+            int cell = active[i];
+            if ( regions[cell] != null )
+            {
+                step( cell );
+            }
+        }
+    }
+
+    /**
+     * Work out which way the water will flow next tick.
+     */
+    public void calcNewStates()
+    {
+        if ( usePool() )
+        {
+            groupIntoBands();
+            pool.invoke( new BandsTask( false, 0, bands.length, 1 ) );
+        }
+        else
+        {
+            for ( int i = 0; i < numActive; ++i )
+            {
+                int cell = active[i];
+                if ( regions[cell] != null )
+                {
+                    calcNewState( cell, scratch );
+                }
+            }
+        }
+        prune();
+    }
+
+    public void step( int cell )
+    {
+        step( cell, null );
+    }
+
+    /**
+     * @param band if not null, cells woken by water arriving are passed to
+     *             it instead of being added to the active list.
+     */
+    private void step( int cell, Band band )
+    {
+        if ( !flowing[cell] )
+        {
+            return;
+        }
+
+        int base = cell * NUM_DIRECTIONS;
+        for ( int d = 0; d < NUM_DIRECTIONS; ++d )
+        {
+            int amount = flow[base + d];
+            if ( amount <= 0 )
+            {
+                continue;
+            }
+
+            int neighbour = connectedNeighbour( cell, d );
+            if ( neighbour != -1 )
+            {
+                if ( !outsideWorld[neighbour] )
+                {
+                    setContents(
+                        neighbour, contents[neighbour] + amount, band );
+                }
+                setContents( cell, contents[cell] - amount, band );
+            }
+            else
+            {
+                System.out.println(
+                    "Something went wrong when " +
+                     "calculating water moving " +
+                     DIRECTIONS[d] + " from " + regions[cell] );
+            }
+        }
+        Arrays.fill( flow, base, base + NUM_DIRECTIONS, 0 );
+        flowing[cell] = false;
+    }
+
+    public void calcNewState( int cell )
+    {
+        calcNewState( cell, scratch );
+    }
+
+    private void calcNewState( int cell, WaterUtil.Scratch scratch )
+    {
+        if ( outsideWorld[cell] || contents[cell] <= 0 )
+        {
+            return;
+        }
+
+        int[] neighbourCapacity = scratch.neighbourCapacity;
+        int[] neighbourContents = scratch.neighbourContents;
+        for ( int d = 0; d < NUM_DIRECTIONS; ++d )
+        {
+            int neighbour = connectedNeighbour( cell, d );
+            if ( neighbour == -1 )
+            {
+                neighbourCapacity[d] = 0;
+                neighbourContents[d] = 0;
+            }
+            else
+            {
+                neighbourCapacity[d] = capacity[neighbour];
+                neighbourContents[d] = contents[neighbour];
+            }
+        }
+
+        WaterUtil.calculateFlowFromAmounts(
+            scratch, flow, cell * NUM_DIRECTIONS );
+        flowing[cell] = true;
+    }
+
+    /**
+     * @return a hash of how much water is in each cell, kept up to date as
+     *         it moves.
+     */
+    public long hash()
+    {
+        return hash;
+    }
+
+    /**
+     * @return how many cells are being simulated.
+     */
+    public int numActive()
+    {
+        return numActive;
+    }
+
+    /**
+     * @return the cell in direction d that water can flow to from cell,
+     *         or -1 if there is none. HERE is always connected.
+     */
+    private int connectedNeighbour( int cell, int d )
+    {
+        if ( d == HERE )
+        {
+            return cell;
+        }
+        if ( ( connections[cell] & ( 1 << d ) ) == 0 )
+        {
+            return -1;
+        }
+
+        CellularDirection direction = DIRECTIONS[d];
+        int x = cell / stride - 1 + direction.xOffset;
+        int y = cell % stride - 1 + direction.yOffset;
+        if ( x < -1 || x > width || y < -1 || y > height )
+        {
+            return -1;
+        }
+
+        int neighbour = cell( x, y );
+        if ( ( connections[neighbour] & ( 1 << OPPOSITE[d] ) ) == 0 )
+        {
+            return -1;
+        }
+        return neighbour;
+    }
+
+    private void setContents( int cell, int amount, Band band )
+    {
+        if ( band == null )
+        {
+            setContents( cell, amount );
+        }
+        else
+        {
+            band.hash +=
+                waterKey( cell, amount ) - waterKey( cell, contents[cell] );
+            contents[cell] = amount;
+            regions[cell].updateState( amount );
+            band.wakeIfNeeded( cell );
+        }
+    }
+
+    private boolean usePool()
+    {
+        return pool != null && numActive >= minActiveForPool;
+    }
+
+    /**
+     * Fill bandCells with the active cells, grouped by band, keeping their
+     * order within each band.
+     */
+    private void groupIntoBands()
+    {
+        if ( bandCells.length < numActive )
+        {
+            bandCells = new int[active.length];
+        }
+
+        for ( Band band : bands )
+        {
+            band.start = 0;
+            band.end = 0;
+        }
+        for ( int i = 0; i < numActive; ++i )
+        {
+            ++bands[bandOf( active[i] )].end;
+        }
+
+        int start = 0;
+        for ( Band band : bands )
+        {
+            band.start = start;
+            start += band.end;
+            band.end = band.start;
+        }
+        for ( int i = 0; i < numActive; ++i )
+        {
+            int cell = active[i];
+            bandCells[bands[bandOf( cell )].end++] = cell;
+        }
+    }
+
+    private int bandOf( int cell )
+    {
+        return ( cell % stride ) / bandRows;
+    }
+
+    /**
+     * The part of a parallel tick done by one band of rows.
+     */
+    private class Band
+    {
+        /** Where this band's cells are in bandCells. */
+        int start;
+        int end;
+        final WaterUtil.Scratch scratch = new WaterUtil.Scratch();
+        /** Cells woken during this step, to be added to the active list. */
+        int[] woken = new int[16];
+        int numWoken = 0;
+        /** How this band's changes alter the field's hash. */
+        long hash = 0;
+
+        void step()
+        {
+            for ( int i = start; i < end; ++i )
+            {
+                int cell = bandCells[i];
+                if ( regions[cell] != null )
+                {
+                    WaterField.this.step( cell, this );
+                }
+            }
+        }
+
+        void calcNewStates()
+        {
+            for ( int i = start; i < end; ++i )
+            {
+                int cell = bandCells[i];
+                if ( regions[cell] != null )
+                {
+                    calcNewState( cell, scratch );
+                }
+            }
+        }
+
+        /**
+         * Only called on cells in this band or the rows either side of it,
+         * which no band running at the same time touches.
+         */
+        void wakeIfNeeded( int cell )
+        {
+            if ( !isActive[cell] && needsStepping( cell ) )
+            {
+                if ( numWoken == woken.length )
+                {
+                    woken = Arrays.copyOf( woken, woken.length * 2 );
+                }
+                woken[numWoken++] = cell;
+                isActive[cell] = true;
+            }
+        }
+
+        void addWokenToActive()
+        {
+            for ( int i = 0; i < numWoken; ++i )
+            {
+                addActive( woken[i] );
+            }
+            numWoken = 0;
+        }
+    }
+
+    /**
+     * Run every every'th band from first up to end, splitting the work in
+     * half until there is one band per task.
+     */
+    private class BandsTask extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+
+        /** Move water if true, otherwise work out where it will flow. */
+        private final boolean step;
+        private final int first;
+        private final int end;
+        private final int every;
+
+        BandsTask( boolean step, int first, int end, int every )
+        {
+            this.step = step;
+            this.first = first;
+            this.end = end;
+            this.every = every;
+        }
+
+        @Override
+        protected void compute()
+        {
+            int count = ( end - first + every - 1 ) / every;
+            if ( count <= 0 )
+            {
+                return;
+            }
+            else if ( count == 1 )
+            {
+                if ( step )
+                {
+                    bands[first].step();
+                }
+                else
+                {
+                    bands[first].calcNewStates();
+                }
+            }
+            else
+            {
+                int middle = first + ( count / 2 ) * every;
+                invokeAll(
+                    new BandsTask( step, first, middle, every ),
+                    new BandsTask( step, middle, end, every )
+                );
+            }
+        }
+    }
+
+    private boolean needsStepping( int cell )
+    {
+        return ( !outsideWorld[cell] && contents[cell] > 0 ) || flowing[cell];
+    }
+
+    private void wakeIfNeeded( int cell )
+    {
+        if ( !isActive[cell] && needsStepping( cell ) )
+        {
+            addActive( cell );
+            isActive[cell] = true;
+        }
+    }
+
+    private void addActive( int cell )
+    {
+        if ( numActive == active.length )
+        {
+            active = Arrays.copyOf( active, active.length * 2 );
+        }
+        active[numActive++] = cell;
+    }
+
+    private void prune()
+    {
+        int kept = 0;
+        for ( int i = 0; i < numActive; ++i )
+        {
+            int cell = active[i];
+            if ( regions[cell] != null && needsStepping( cell ) )
+            {
+                active[kept++] = cell;
+            }
+            else
+            {
+                isActive[cell] = false;
+            }
+        }
+        numActive = kept;
+    }
+
+    private long waterKey( int cell, int contents )
+    {
+        return StateHash.water(
+            cell / stride - 1, cell % stride - 1, contents );
+    }
+
+    private int cell( int x, int y )
+    {
+        return ( x + 1 ) * stride + y + 1;
+    }
+}
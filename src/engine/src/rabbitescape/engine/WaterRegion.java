@@ -1,12 +1,12 @@
 package rabbitescape.engine;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
 import java.util.Set;
 
 import rabbitescape.engine.ChangeDescription.State;
@@ -17,6 +17,9 @@ import rabbitescape.engine.util.WaterUtil;
 
 public class WaterRegion extends Thing implements LookupItem2D
 {
+    private static final CellularDirection[] FLOW_ORDER =
+        CellularDirection.values();
+
     /**
      * The list of directions that this region is connected in. Note that this
      * does not mean that water can necessarily flow that way, because the cell
@@ -26,12 +29,30 @@ public class WaterRegion extends Thing implements LookupItem2D
     private Set<CellularDirection> connections;
     /** The amount of water that can stay here without being under pressure. */
     public int capacity;
-    /** The amount of water stored here. */
+    /**
+     * The amount of water stored here, while this region is not part of a
+     * WaterField.
+     */
     private int contents;
-    /** The water being transferred from here this tick. */
-    private Map<CellularDirection, Integer> flow = new HashMap<>();
+    /**
+     * The water being transferred from here this tick, indexed by
+     * CellularDirection.ordinal(), while this region is not part of a
+     * WaterField.
+     */
+    private final int[] flow = new int[WaterUtil.NUM_DIRECTIONS];
+    /** Has flow been worked out, and not yet carried out? */
+    private boolean flowing = false;
+    /** Where flow is worked out, made when this region first gets wet. */
+    private WaterUtil.Scratch scratch = null;
     /** Does this region need updating? */
     public final boolean outsideWorld;
+    /**
+     * The field holding this region's contents and flow, or null if this
+     * region holds them itself.
+     */
+    private WaterField field = null;
+    /** Where this region is in field. */
+    private int cell;
 
     public WaterRegion( 
         int x, 
@@ -71,6 +92,39 @@ public class WaterRegion extends Thing implements LookupItem2D
         this.outsideWorld = outsideWorld;
     }
 
+    /**
+     * @return a new region with the same shape and contents as this one.
+     *         The connections are shared, since they are never changed in
+     *         place.
+     */
+    public WaterRegion copy()
+    {
+        return new WaterRegion(
+            x, y, connections, capacity, getContents(), outsideWorld );
+    }
+
+    /**
+     * Called by a WaterField when it takes over storing this region's
+     * contents and flow.
+     */
+    void viewOf( WaterField field, int cell )
+    {
+        this.field = field;
+        this.cell = cell;
+    }
+
+    /**
+     * Called by a WaterField when it hands this region's contents and flow
+     * back to it.
+     */
+    void unview( int contents, int[] flow, boolean flowing )
+    {
+        this.field = null;
+        this.contents = contents;
+        System.arraycopy( flow, 0, this.flow, 0, this.flow.length );
+        this.flowing = flowing;
+    }
+
     @Override
     public Position getPosition()
     {
@@ -79,12 +133,28 @@ public class WaterRegion extends Thing implements LookupItem2D
 
     public int getContents()
     {
-        return contents;
+        return field == null ? contents : field.getContents( cell );
     }
 
     public void setContents( int contents )
     {
-        this.contents = contents;
+        if ( field == null )
+        {
+            this.contents = contents;
+            updateState( contents );
+        }
+        else
+        {
+            // The field calls updateState.
+            field.setContents( cell, contents );
+        }
+    }
+
+    /**
+     * Set this region's state to match the given contents.
+     */
+    void updateState( int contents )
+    {
         if ( contents == 0 )
         {
             state = State.WATER_REGION_EMPTY;
@@ -99,9 +169,18 @@ public class WaterRegion extends Thing implements LookupItem2D
         }
     }
 
+    /**
+     * @return true if flow has been worked out for this tick and not yet
+     *         carried out.
+     */
+    public boolean isFlowing()
+    {
+        return field == null ? flowing : field.isFlowing( cell );
+    }
+
     public void addContents( int delta )
     {
-        setContents( contents + delta );
+        setContents( getContents() + delta );
     }
 
     /**
@@ -133,45 +212,67 @@ public class WaterRegion extends Thing implements LookupItem2D
      */
     public int getFlow( CellularDirection direction )
     {
-        if ( flow.containsKey( direction ) )
+        if ( field != null )
         {
-            return flow.get( direction );
+            return field.getFlow( cell, direction );
         }
-        return 0;
+        return flow[direction.ordinal()];
     }
 
     @Override
     public void calcNewState( World world )
     {
+        if ( field != null )
+        {
+            field.calcNewState( cell );
+            return;
+        }
         if ( outsideWorld || contents <= 0 )
         {
             return;
         }
-        Map<CellularDirection, WaterRegion> neighbourhood = WaterUtil
-            .findNeighbourhood( this, world.waterTable );
-        flow = WaterUtil.calculateFlow( neighbourhood );
+        if ( scratch == null )
+        {
+            scratch = new WaterUtil.Scratch();
+        }
+        WaterUtil.findNeighbourhood(
+            this, world.waterTable, scratch.neighbourhood );
+        WaterUtil.calculateFlow( scratch, flow );
+        flowing = true;
     }
 
     @Override
     public void step( World world )
     {
-        if ( flow.size() > 0 )
+        if ( field != null )
+        {
+            field.step( cell );
+            return;
+        }
+        if ( flowing )
         {
-            Map<CellularDirection, WaterRegion> neighbourhood = WaterUtil
-                .findNeighbourhood( this, world.waterTable );
-            for ( Entry<CellularDirection, Integer> entry : flow.entrySet() )
+            // Calculated flow always has a scratch, but restored flow may
+            // not.
+            if ( scratch == null )
+            {
+                scratch = new WaterUtil.Scratch();
+            }
+            WaterRegion[] neighbourhood = scratch.neighbourhood;
+            WaterUtil.findNeighbourhood(
+                this, world.waterTable, neighbourhood );
+            for ( CellularDirection direction : FLOW_ORDER )
             {
-                CellularDirection direction = entry.getKey();
-                if ( entry.getValue() > 0 )
+                int amount = flow[direction.ordinal()];
+                if ( amount > 0 )
                 {
-                    if ( neighbourhood.keySet().contains( direction ) )
+                    WaterRegion neighbour = neighbourhood[direction.ordinal()];
+                    if ( neighbour != null )
                     {
-                        WaterRegion neighbour = neighbourhood.get( direction );
                         if ( !neighbour.outsideWorld )
                         {
-                            neighbour.addContents( entry.getValue() );
+                            neighbour.addContents( amount );
                         }
-                        setContents( contents - entry.getValue() );
+                        setContents( contents - amount );
                     }
                     else
                     {
@@ -182,7 +283,8 @@ public class WaterRegion extends Thing implements LookupItem2D
                     }
                 }
             }
-            flow = new HashMap<>();
+            Arrays.fill( flow, 0 );
+            flowing = false;
         }
     }
 
@@ -200,13 +302,16 @@ public class WaterRegion extends Thing implements LookupItem2D
         BehaviourState.addToStateIfNotDefault( 
             ret, 
             "WaterRegion.contents",
-            String.valueOf( contents ),
+            String.valueOf( getContents() ),
             "0" );
         List<String> flowBits = new ArrayList<>();
-        for ( Entry<CellularDirection, Integer> entry : flow.entrySet() )
+        if ( isFlowing() )
         {
-            flowBits.add( entry.getKey().toString() );
-            flowBits.add( entry.getValue().toString() );
+            for ( CellularDirection direction : FLOW_ORDER )
+            {
+                flowBits.add( direction.toString() );
+                flowBits.add( String.valueOf( getFlow( direction ) ) );
+            }
         }
         ret.put( "WaterRegion.flow", Util.join( ",", flowBits ) );
         return ret;
@@ -215,6 +320,12 @@ public class WaterRegion extends Thing implements LookupItem2D
     @Override
     public void restoreFromState( Map<String, String> state )
     {
+        WaterField attachedTo = field;
+        if ( attachedTo != null )
+        {
+            attachedTo.detach( this );
+        }
+
         connections = new HashSet<>();
         for ( String connection :
             Util.split( state.get( "WaterRegion.connections" ), "," ) )
@@ -225,14 +336,19 @@ public class WaterRegion extends Thing implements LookupItem2D
             state, "WaterRegion.capacity", 0 );
         contents = BehaviourState.restoreFromState(
             state, "WaterRegion.contents", 0 );
-        flow = new HashMap<>();
+        Arrays.fill( flow, 0 );
         String[] flowBits = Util.split( state.get( "WaterRegion.flow" ), "," );
+        flowing = flowBits.length >= 2;
         for ( int i : Util.range( flowBits.length / 2 ))
         {
             CellularDirection direction =
                 CellularDirection.valueOf( flowBits[i * 2] );
-            Integer amount = Integer.valueOf( flowBits[i * 2 + 1] );
-            flow.put( direction, amount );
+            flow[direction.ordinal()] = Integer.parseInt( flowBits[i * 2 + 1] );
+        }
+
+        if ( attachedTo != null )
+        {
+            attachedTo.attach( this );
         }
     }
 
@@ -243,8 +359,8 @@ public class WaterRegion extends Thing implements LookupItem2D
         hash = 31 * hash + y;
         hash = 31 * hash + connections.hashCode();
         hash = 31 * hash + capacity;
-        hash = 31 * hash + contents;
-        hash = 31 * hash + flow.hashCode();
+        hash = 31 * hash + getContents();
+        hash = 31 * hash + ( isFlowing() ? Arrays.hashCode( flowArray() ) : 0 );
         return hash;
     }
 
@@ -264,8 +380,9 @@ public class WaterRegion extends Thing implements LookupItem2D
             && y == other.y
             && connections.equals( other.connections )
             && capacity == other.capacity
-            && contents == other.contents
-            && flow.equals( other.flow );
+            && getContents() == other.getContents()
+            && isFlowing() == other.isFlowing()
+            && Arrays.equals( flowArray(), other.flowArray() );
     }
 
     @Override
@@ -277,14 +394,29 @@ public class WaterRegion extends Thing implements LookupItem2D
             .append( y ).append( ", " )
             .append( connections ).append( ", " )
             .append( capacity ).append( ", " )
-            .append( contents ).append( ", " )
-            .append( flow );
+            .append( getContents() ).append( ", " )
+            .append( isFlowing() ? Arrays.toString( flowArray() ) : "{}" );
         return sb.toString();
     }
 
     @Override
     public String overlayText()
     {
+        int contents = getContents();
         return 0 == contents ? "" : "~" + contents;
     }
+
+    private int[] flowArray()
+    {
+        if ( field == null )
+        {
+            return flow;
+        }
+        int[] ret = new int[WaterUtil.NUM_DIRECTIONS];
+        for ( CellularDirection direction : CellularDirection.values() )
+        {
+            ret[direction.ordinal()] = field.getFlow( cell, direction );
+        }
+        return ret;
+    }
 }
@@ -29,7 +29,7 @@ public class WaterRegionFactory
      *            Any water region contents that are currently known.
      */
     public static LookupTable2D<WaterRegion> generateWaterTable(
-        LookupTable2D<Block> blockTable, 
+        BlockGrid blockTable, 
         Map<Position, 
         Integer> waterAmounts 
     )
@@ -59,18 +59,13 @@ public class WaterRegionFactory
 
     /** Create water regions at a given point based on a 2D table of blocks. */
     public static void createWaterRegionsAtPoint(
-        LookupTable2D<Block> blockTable,
+        BlockGrid blockTable,
         LookupTable2D<WaterRegion> waterTable,
         int x,
         int y,
         int contents )
     {
-        List<Block> blocks = blockTable.getItemsAt( x, y );
-        Shape[] shapes = new Shape[blocks.size()];
-        for ( int i = 0; i < blocks.size(); i++ )
-        {
-            shapes[i] = blocks.get( i ).shape;
-        }
+        Shape[] shapes = shapesAt( blockTable, x, y );
 
         boolean outsideWorld = ( x == -1 || x == blockTable.size.width
             || y == -1 || y == blockTable.size.height );
@@ -80,6 +75,32 @@ public class WaterRegionFactory
         waterTable.addAll( waterRegions );
     }
 
+    private static final Shape[] NO_SHAPES = new Shape[0];
+
+    /**
+     * The shapes of all blocks at a point. Most cells hold at most one block,
+     * so read its shape straight from the grid and only build the full list
+     * of blocks when there are more.
+     */
+    private static Shape[] shapesAt( BlockGrid blockTable, int x, int y )
+    {
+        switch ( blockTable.countAt( x, y ) )
+        {
+            case 0:
+                return NO_SHAPES;
+            case 1:
+                return new Shape[] { blockTable.shapeAt( x, y ) };
+            default:
+                List<Block> blocks = blockTable.getItemsAt( x, y );
+                Shape[] shapes = new Shape[blocks.size()];
+                for ( int i = 0; i < blocks.size(); i++ )
+                {
+                    shapes[i] = blocks.get( i ).shape;
+                }
+                return shapes;
+        }
+    }
+
     /** Create a set of empty water regions from the given shaped blocks. */
     public static List<WaterRegion> makeWaterRegion( 
         int x, 
@@ -98,12 +98,34 @@ public class World
     }
 
     public final Dimension size;
-    public final LookupTable2D<Block> blockTable;
+    public final BlockGrid blockTable;
     /** A grid of water. Only one water object
      * should be stored in each location. */
     public final LookupTable2D<WaterRegion> waterTable;
+    /**
+     * Where the water in waterTable's regions is actually stored. Regions
+     * added to or removed from waterTable after the world is created must
+     * be attached to or detached from this too, as recalculateWaterRegions
+     * does.
+     */
+    private final WaterField waterField;
+    /**
+     * Below this many wet water regions, moving water on more than one
+     * thread costs more than it saves.
+     */
+    private static final int MIN_WATER_FOR_THREADS = 2000;
+    /** Null unless rabbits are to be stepped on more than one thread. */
+    private ParallelRabbits parallelRabbits = null;
+    /** As MIN_WATER_FOR_THREADS, for rabbits. */
+    private static final int MIN_RABBITS_FOR_THREADS = 64;
     public final List<Rabbit> rabbits;
     public final List<Thing> things;
+    /**
+     * Where the exits are, worked out again whenever thingIndex is rebuilt
+     * because things were added or removed. Replaced rather than changed,
+     * so unlike things this may be read from any thread.
+     */
+    private volatile boolean[] exits;
     public final Map<Token.Type, Integer> abilities;
     public final String name;
     public final String description;
@@ -124,6 +146,10 @@ public class World
     public boolean paused;
 
     public final WorldChanges changes;
+    /** Things (not rabbits) by position, kept up to date by step(). */
+    final CellIndex<Thing> thingIndex;
+    /** Rabbits by position, kept up to date by step(). */
+    final CellIndex<Rabbit> rabbitIndex;
     public final String music;
     public final VoidMarkerStyle.Style voidStyle;
 
@@ -153,6 +179,70 @@ public class World
         WorldStatsListener statsListener,
         VoidMarkerStyle.Style voidStyle
     )
+    {
+        this(
+            size,
+            blocks,
+            rabbits,
+            things,
+            waterAmounts,
+            abilities,
+            name,
+            description,
+            author_name,
+            author_url,
+            hints,
+            solutions,
+            num_rabbits,
+            num_to_save,
+            rabbit_delay,
+            music,
+            num_saved,
+            num_killed,
+            num_waiting,
+            rabbit_index_count,
+            paused,
+            comments,
+            statsListener,
+            voidStyle,
+            false
+        );
+    }
+
+    /**
+     * @param rabbitStatesKnown if true, the rabbits' states are as they
+     *        were saved at the end of a step, so they are used as they are
+     *        rather than being worked out again. Working them out again
+     *        moves each rabbit on, e.g. a digging rabbit to the next part
+     *        of digging, and picks up the tokens they stand on.
+     */
+    public World(
+        Dimension size,
+        List<Block> blocks,
+        List<Rabbit> rabbits,
+        List<Thing> things,
+        Map<Position, Integer> waterAmounts,
+        Map<Token.Type, Integer> abilities,
+        String name,
+        String description,
+        String author_name,
+        String author_url,
+        String[] hints,
+        String[] solutions,
+        int num_rabbits,
+        int num_to_save,
+        int[] rabbit_delay,
+        String music,
+        int num_saved,
+        int num_killed,
+        int num_waiting,
+        int rabbit_index_count,
+        boolean paused,
+        Comment[] comments,
+        WorldStatsListener statsListener,
+        VoidMarkerStyle.Style voidStyle,
+        boolean rabbitStatesKnown
+    )
     {
         this.size = size;
         this.rabbits = rabbits;
@@ -175,6 +265,9 @@ public class World
         this.paused = paused;
         this.comments = comments;
         this.voidStyle = voidStyle;
+        this.thingIndex = new CellIndex<>( size );
+        this.rabbitIndex = new CellIndex<>( size );
+        this.waterField = new WaterField( size );
 
 
         if ( -1 == size.width )
@@ -185,19 +278,19 @@ public class World
         }
         else
         {
-            this.blockTable = new LookupTable2D<Block>( blocks, size );
+            this.blockTable = new BlockGrid( blocks, size );
             this.waterTable = WaterRegionFactory.generateWaterTable( blockTable,
                 waterAmounts );
         }
 
         this.changes = new WorldChanges( this, statsListener );
 
-        init();
+        init( rabbitStatesKnown );
     }
 
     public World(
         Dimension size,
-        LookupTable2D<Block> blockTable,
+        BlockGrid blockTable,
         List<Rabbit> rabbits,
         List<Thing> things,
         LookupTable2D<WaterRegion> waterTable,
@@ -244,13 +337,16 @@ public class World
         this.paused = paused;
         this.comments = comments;
         this.voidStyle = voidStyle;
+        this.thingIndex = new CellIndex<>( size );
+        this.rabbitIndex = new CellIndex<>( size );
+        this.waterField = new WaterField( size );
 
         this.changes = new WorldChanges( this, statsListener );
 
-        init();
+        init( false );
     }
 
-    private void init()
+    private void init( boolean rabbitStatesKnown )
     {
         // Number the rabbits if necessary
         for ( Rabbit r: rabbits )
@@ -262,10 +358,54 @@ public class World
         // restored from state.
         Collections.sort( rabbits );
 
-        for ( Thing thing : allThings() )
+        rebuildThingIndex();
+        rabbitIndex.rebuild( rabbits );
+
+        for ( WaterRegion waterRegion : waterTable.getItems() )
         {
-            thing.calcNewState( this );
+            waterField.attach( waterRegion );
+        }
+
+        calcNewStates( !rabbitStatesKnown );
+    }
+
+    private void rebuildThingIndex()
+    {
+        thingIndex.rebuild( things );
+        exits = exitsIn( size, things );
+    }
+
+    /**
+     * @return a flag for each cell, row by row, set where there is an exit.
+     */
+    private static boolean[] exitsIn( Dimension size, List<Thing> things )
+    {
+        boolean[] ret = new boolean[ Math.max( 0, size.width * size.height ) ];
+        for ( Thing thing : things )
+        {
+            if ( thing instanceof Exit )
+            {
+                int cell = cellIn( size, thing.x, thing.y );
+                if ( cell != -1 )
+                {
+                    ret[ cell ] = true;
+                }
+            }
         }
+        return ret;
+    }
+
+    /**
+     * @return where (x,y) is in a row-by-row array of cells, or -1 if it is
+     *         outside the world.
+     */
+    private static int cellIn( Dimension size, int x, int y )
+    {
+        if ( x < 0 || y < 0 || x >= size.width || y >= size.height )
+        {
+            return -1;
+        }
+        return y * size.width + x;
     }
 
     public void rabbitIndex( Rabbit r )
@@ -303,23 +443,107 @@ public class World
             throw new DontStepAfterFinish( name );
         }
 
-        for ( Thing thing : allThings() )
+        changes.takeInput();
+
+        // Things may have been added, moved or removed since we last
+        // stepped (e.g. by tests or level editors).
+        if ( thingIndex.sync( things ) )
+        {
+            exits = exitsIn( size, things );
+        }
+        rabbitIndex.sync( rabbits );
+
+        waterField.step();
+
+        // Index loops here and below, so that a step in which nothing
+        // enters or leaves creates no garbage.
+        if ( parallelRabbits == null )
+        {
+            for ( int i = 0; i < rabbits.size(); ++i )
+            {
+                Rabbit rabbit = rabbits.get( i );
+                rabbit.step( this );
+                rabbitIndex.update( rabbit );
+            }
+        }
+        else
+        {
+            parallelRabbits.step( this );
+        }
+
+        for ( int i = 0; i < things.size(); ++i )
         {
+            Thing thing = things.get( i );
             thing.step( this );
+            thingIndex.update( thing );
         }
 
         changes.rememberWhatWillHappen();
 
         changes.apply();
 
-        for ( Thing thing : allThings() )
+        calcNewStates( true );
+
+        changes.blocksJustRemoved.clear();
+
+        changes.apply();
+    }
+
+    private void calcNewStates( boolean rabbitsToo )
+    {
+        waterField.calcNewStates();
+
+        if ( rabbitsToo )
+        {
+            for ( int i = 0; i < rabbits.size(); ++i )
+            {
+                Rabbit rabbit = rabbits.get( i );
+                // May move, e.g. undoing a slope bash hop.
+                rabbit.calcNewState( this );
+                rabbitIndex.update( rabbit );
+            }
+        }
+
+        for ( int i = 0; i < things.size(); ++i )
         {
+            Thing thing = things.get( i );
             thing.calcNewState( this );
+            thingIndex.update( thing );
         }
+    }
 
-        changes.blocksJustRemoved.clear();
+    /**
+     * A 64-bit hash of everything that affects what happens next: blocks,
+     * the position, direction and state of rabbits and other things, what
+     * each rabbit's behaviours remember, water contents, tokens left and
+     * rabbits saved, killed and waiting. Worlds in the same state have the
+     * same hash, so comparing hashes is a cheap way to tell whether two
+     * worlds are probably the same; different worlds may share a hash, so
+     * anything that needs to be sure must compare the worlds themselves.
+     *
+     * The hash is kept up to date by step() and WorldChanges.apply(), so
+     * this is O(1). Things moved by hand (e.g. by tests) since the last
+     * step are only seen once the world steps.
+     */
+    public long stateHash()
+    {
+        // Cheap check for things added to or removed from the lists
+        // directly (e.g. by tests) since the indexes were last updated.
+        if ( thingIndex.size() != things.size() )
+        {
+            rebuildThingIndex();
+        }
+        if ( rabbitIndex.size() != rabbits.size() )
+        {
+            rabbitIndex.rebuild( rabbits );
+        }
 
-        changes.apply();
+        return ( blockTable == null ? 0 : blockTable.hash() )
+            + rabbitIndex.hash()
+            + thingIndex.hash()
+            + waterField.hash()
+            + StateHash.counts(
+                abilities, num_saved, num_killed, num_waiting );
     }
 
     public ChangeDescription describeChanges()
@@ -372,16 +596,28 @@ public class World
         }
     }
 
+    /**
+     * The things (not rabbits) at a position, including any that are about
+     * to be removed. Must not be modified.
+     */
+    private List<Thing> thingsAt( int x, int y )
+    {
+        // Cheap check for things added to or removed from the list directly
+        // (e.g. by tests) since the index was last updated.
+        if ( thingIndex.size() != things.size() )
+        {
+            rebuildThingIndex();
+        }
+        return thingIndex.at( x, y );
+    }
+
     public Token getTokenAt( int x, int y )
     {
-        // Note it is not worth using LookupTable2D for things.
-        // Handling their movement would complicate the code.
-        // There are not as many instances of Thing as Block.
-        // Iterating to check through is not too time
-        // consuming.
-        for ( Thing thing : things )
+        List<Thing> here = thingsAt( x, y );
+        for ( int i = 0; i < here.size(); ++i )
         {
-            if ( thing.x == x && thing.y == y && thing instanceof Token )
+            Thing thing = here.get( i );
+            if ( thing instanceof Token )
             {
                 if ( !changes.tokensToRemove.contains( thing ) )
                 {
@@ -393,6 +629,8 @@ public class World
     }
 
     public Token getOtherPortalToken(int x, int y) {
+        // Only needed when a rabbit actually goes through a portal, so
+        // it is fine to look through all the things.
         List<Token> portalTokens = new ArrayList<>();
         for (Thing thing : things) {
             if (thing instanceof Token && !changes.tokensToRemove.contains( thing )) {
@@ -416,27 +654,25 @@ public class World
         return portalTokens.get(1);
     }
 
-    public boolean isExitHere(int x, int y) {
-        for (Thing thing : getThingsAt(x, y)) {
-            if (thing instanceof Exit) {
-                return true;
-            }
-        }
-        return false;
+    /**
+     * Safe to call from any thread, e.g. the UI's. Exits added to things
+     * directly are seen once the world next steps.
+     */
+    public boolean isExitHere( int x, int y )
+    {
+        int cell = cellIn( size, x, y );
+        return cell != -1 && exits[ cell ];
     }
 
     public List<Thing> getThingsAt( int x, int y )
     {
         ArrayList<Thing> ret = new ArrayList<Thing>();
-        for ( Thing thing : things )
+        for ( Thing thing : thingsAt( x, y ) )
         {
-            if ( thing.x == x && thing.y == y )
+            if ( !changes.tokensToRemove.contains( thing ) &&
+                 !changes.fireToRemove.contains( thing ) )
             {
-                if ( !changes.tokensToRemove.contains( thing ) &&
-                     !changes.fireToRemove.contains( thing ) )
-                {
-                    ret.add( thing );
-                }
+                ret.add( thing );
             }
         }
         return ret;
@@ -444,10 +680,11 @@ public class World
 
     public boolean fireAt( int x, int y )
     {
-        // See note for getTokenAt() about Thing storage.
-        for ( Thing thing : things )
+        List<Thing> here = thingsAt( x, y );
+        for ( int i = 0; i < here.size(); ++i )
         {
-            if ( thing.x == x && thing.y == y && thing instanceof Fire )
+            Thing thing = here.get( i );
+            if ( thing instanceof Fire )
             {
                 if ( !changes.fireToRemove.contains( thing ) )
                 {
@@ -460,24 +697,31 @@ public class World
 
     public Rabbit[] getRabbitsAt( int x, int y )
     {
-        List<Rabbit> ret = new ArrayList<Rabbit>();
+        List<Rabbit> ret = rabbitsAt( x, y );
+        return ret.toArray( new Rabbit[ret.size()] );
+    }
 
-        for ( Rabbit rabbit : rabbits )
+    /**
+     * The rabbits at a position, in index order. Unlike getRabbitsAt()
+     * this does not copy, so the returned list must not be modified or
+     * kept: it belongs to the world and changes as rabbits move.
+     */
+    public List<Rabbit> rabbitsAt( int x, int y )
+    {
+        // Cheap check for rabbits added to or removed from the list
+        // directly (e.g. by tests) since the index was last updated.
+        if ( rabbitIndex.size() != rabbits.size() )
         {
-            if ( rabbit.x == x && rabbit.y == y )
-            {
-                ret.add( rabbit );
-            }
+            rabbitIndex.rebuild( rabbits );
         }
-
-        return ret.toArray( new Rabbit[ret.size()] );
+        return rabbitIndex.at( x, y );
     }
 
     public int numRabbitsOut()
     {
         int count = 0;
-        for ( Rabbit r : rabbits ) {
-            if ( r.type == Type.RABBIT ) {
+        for ( int i = 0; i < rabbits.size(); ++i ) {
+            if ( rabbits.get( i ).type == Type.RABBIT ) {
                 ++count;
             }
         }
@@ -491,11 +735,17 @@ public class World
 
     public void recalculateWaterRegions( Position point )
     {
+        // Only this cell's regions are looked at, so this costs the same
+        // however much water the world holds.
         int contents = 0;
-        for (WaterRegion waterRegion :
-             waterTable.getItemsAt( point.x, point.y ))
+        WaterRegion waterRegion;
+        for ( int i = 0;
+            ( waterRegion = waterTable.getItemAt( point.x, point.y, i ) )
+                != null;
+            ++i )
         {
             contents += waterRegion.getContents();
+            waterField.detach( waterRegion );
         }
         waterTable.removeItemsAt( point.x, point.y );
         WaterRegionFactory.createWaterRegionsAtPoint(
@@ -505,6 +755,77 @@ public class World
             point.y, 
             contents 
         );
+        for ( int i = 0;
+            ( waterRegion = waterTable.getItemAt( point.x, point.y, i ) )
+                != null;
+            ++i )
+        {
+            waterField.attach( waterRegion );
+        }
+    }
+
+    /**
+     * Move water using the given number of threads, in ticks where there
+     * is enough of it to be worth sharing out. 1 means on the thread
+     * calling step(), and 0 means one per processor. The results are the
+     * same however many threads are used.
+     */
+    public void setWaterThreads( int threads )
+    {
+        if ( threads == 0 )
+        {
+            threads = Runtime.getRuntime().availableProcessors();
+        }
+        setWaterThreads( threads, MIN_WATER_FOR_THREADS );
+    }
+
+    /**
+     * As setWaterThreads( threads ), but sharing out the water whenever at
+     * least minActive regions have water in them.
+     */
+    void setWaterThreads( int threads, int minActive )
+    {
+        waterField.setThreads( threads, minActive );
+    }
+
+    /**
+     * Step rabbits using the given number of threads, in ticks where there
+     * are enough of them to be worth sharing out. 1 means on the thread
+     * calling step(), and 0 means one per processor. The results are the
+     * same however many threads are used.
+     */
+    public void setRabbitThreads( int threads )
+    {
+        if ( threads == 0 )
+        {
+            threads = Runtime.getRuntime().availableProcessors();
+        }
+        setRabbitThreads( threads, MIN_RABBITS_FOR_THREADS );
+    }
+
+    /**
+     * As setRabbitThreads( threads ), but sharing out the rabbits whenever
+     * there are at least minRabbits of them.
+     */
+    void setRabbitThreads( int threads, int minRabbits )
+    {
+        if ( parallelRabbits != null )
+        {
+            parallelRabbits.dispose();
+            parallelRabbits = null;
+        }
+        if ( threads > 1 )
+        {
+            parallelRabbits = new ParallelRabbits( threads, minRabbits );
+        }
+    }
+
+    /**
+     * @return how many water regions are being simulated each step.
+     */
+    public int numActiveWaterRegions()
+    {
+        return waterField.numActive();
     }
 
     public Map<Position, Integer> getWaterContents()
@@ -527,4 +848,106 @@ public class World
         }
         return waterAmounts;
     }
+
+    /**
+     * Make a copy of this world that can be played with without affecting
+     * this one, e.g. for a SandboxGame.
+     *
+     * The blocks are shared until one of the worlds changes them, and the
+     * water regions are copied instead of being worked out again from the
+     * blocks. Rabbits and things are copied as if newly placed, and the
+     * copy's statistics are not reported anywhere.
+     */
+    public World snapshot()
+    {
+        List<WaterRegion> waterRegions = new ArrayList<>();
+        for ( WaterRegion waterRegion : waterTable )
+        {
+            waterRegions.add( waterRegion.copy() );
+        }
+
+        return new World(
+            size,
+            blockTable == null ? null : blockTable.snapshot(),
+            snapshotRabbits( rabbits ),
+            snapshotThings( things ),
+            new LookupTable2D<WaterRegion>( waterRegions, waterTable.size ),
+            new HashMap<>( abilities ),
+            name,
+            description,
+            author_name,
+            author_url,
+            Arrays.copyOf( hints, hints.length ),
+            Arrays.copyOf( solutions, solutions.length ),
+            num_rabbits,
+            num_to_save,
+            rabbit_delay,
+            music,
+            num_saved,
+            num_killed,
+            num_waiting,
+            rabbit_index_count,
+            paused,
+            new Comment[] {},
+            new IgnoreWorldStatsListener(),
+            VoidMarkerStyle.Style.HIGHLIGHTER
+        );
+    }
+
+    private static List<Rabbit> snapshotRabbits( List<Rabbit> rabbits )
+    {
+        List<Rabbit> ret = new ArrayList<>( rabbits.size() );
+        for ( Rabbit rabbit : rabbits )
+        {
+            ret.add( snapshotRabbit( rabbit ) );
+        }
+        return ret;
+    }
+
+    private static Rabbit snapshotRabbit( Rabbit rabbit )
+    {
+        return new Rabbit( rabbit.x, rabbit.y, rabbit.dir, rabbit.type );
+    }
+
+    private static List<Thing> snapshotThings( List<Thing> things )
+    {
+        List<Thing> ret = new ArrayList<>( things.size() );
+        for ( Thing thing : things )
+        {
+            if ( thing instanceof Entrance )
+            {
+                ret.add( new Entrance( thing.x, thing.y ) );
+            }
+            else if ( thing instanceof Exit )
+            {
+                ret.add( new Exit( thing.x, thing.y ) );
+            }
+            else if ( thing instanceof Rabbit )
+            {
+                ret.add( snapshotRabbit( (Rabbit)thing ) );
+            }
+            else if ( thing instanceof Token )
+            {
+                Token token = (Token)thing;
+                ret.add( new Token( token.x, token.y, token.type ) );
+            }
+            else if ( thing instanceof Fire )
+            {
+                Fire fire = (Fire)thing;
+                ret.add( new Fire( fire.x, fire.y, fire.variant ) );
+            }
+            else if ( thing instanceof Pipe )
+            {
+                ret.add( new Pipe( thing.x, thing.y ) );
+            }
+            else
+            {
+                // We've created a new type of Thing, but haven't updated the
+                // code here to cope with it.
+                throw new IllegalStateException(
+                    "Unrecognised type of Thing: " + thing );
+            }
+        }
+        return ret;
+    }
 }
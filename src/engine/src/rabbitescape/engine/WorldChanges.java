@@ -1,7 +1,14 @@
 package rabbitescape.engine;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicIntegerArray;
 
 import rabbitescape.engine.ChangeDescription.State;
 import rabbitescape.engine.World.NoBlockFound;
@@ -9,6 +16,12 @@ import rabbitescape.engine.World.UnableToAddToken;
 import rabbitescape.engine.tokenPlacement.TokenPlacementStrategy;
 import rabbitescape.engine.util.Position;
 
+/**
+ * The changes things ask for while the world steps, made together by
+ * apply(). Only queueToken, explodeAllRabbits and numLeft may be called
+ * from other threads; everything else belongs to the thread stepping the
+ * world, so none of it takes a lock.
+ */
 public class WorldChanges
 {
 
@@ -19,15 +32,40 @@ public class WorldChanges
     private final List<Rabbit> rabbitsToKill  = new ArrayList<Rabbit>();
     private final List<Rabbit> rabbitsToSave  = new ArrayList<Rabbit>();
     private final List<Token>  tokensToAdd    = new ArrayList<Token>();
-    public  final List<Token>  tokensToRemove = new ArrayList<Token>();
-    public  final List<Fire>   fireToRemove   = new ArrayList<Fire>();
+    public  final Set<Token>   tokensToRemove = identitySet();
+    public  final Set<Fire>    fireToRemove   = identitySet();
     private final List<Block>  blocksToAdd    = new ArrayList<Block>();
     private final List<Block>  blocksToRemove = new ArrayList<Block>();
     public final List<Position>   blocksJustRemoved = new ArrayList<Position>();
     private final List<Position>  waterPointsToRecalculate = new ArrayList<>();
 
+    /**
+     * Used while applying changes. Rabbits are equal if their indexes are,
+     * and other things only to themselves, as when they were removed with
+     * List.removeAll.
+     */
+    private final Set<Rabbit>  rabbitsGoing = new HashSet<>();
+    private final Set<Thing>   thingsGoing  = identitySet();
+
     private boolean explodeAll = false;
 
+    /**
+     * Tokens and explosions asked for by the player, perhaps on another
+     * thread, waiting for the next step. Many threads may add to this
+     * without locking, and only the stepping thread takes from it.
+     */
+    private final Queue<Input> input = new ConcurrentLinkedQueue<>();
+    /** How many tokens of each type are in input. */
+    private final AtomicIntegerArray tokensQueued =
+        new AtomicIntegerArray( Token.Type.values().length );
+    /** Told when takeInput adds a queued token. */
+    private volatile TokenPlacedListener tokenPlacedListener = null;
+
+    /** Where changes made on each thread are being held back, if they are. */
+    private final ThreadLocal<Deferred> deferring = new ThreadLocal<>();
+    /** False unless some thread may be holding back changes. */
+    private volatile boolean anyDeferring = false;
+
     private List<Rabbit> rabbitsJustEntered = new ArrayList<Rabbit>();
 
     public WorldChanges( World world, WorldStatsListener statsListener )
@@ -37,34 +75,73 @@ public class WorldChanges
         updateStats();
     }
 
+    /**
+     * Things waiting to be removed are checked for on every lookup, so
+     * hash them by identity rather than searching a list.
+     */
+    private static <T> Set<T> identitySet()
+    {
+        return Collections.newSetFromMap( new IdentityHashMap<T, Boolean>() );
+    }
+
+    /**
+     * Remove everything in going from list in one pass, keeping the rest
+     * in order.
+     */
+    private static <T> void removeAll( List<T> list, Set<? extends T> going )
+    {
+        if ( !going.isEmpty() )
+        {
+            list.removeAll( going );
+        }
+    }
+
     public World getWorld() {
         return world;
     }
 
-    public synchronized void removeTokenFromAddQueue(Token token) {
+    public void removeTokenFromAddQueue(Token token) {
         tokensToAdd.remove(token);
     }
 
-    public synchronized void addTokenFromAddQueue(Token token) {
+    public void addTokenFromAddQueue(Token token) {
         tokensToAdd.add(token);
     }
 
-    public synchronized void apply()
+    public void apply()
     {
+        if ( nothingToApply() )
+        {
+            // Most of the time, so don't create iterators for nothing.
+            return;
+        }
+
         // Add any new things
         for ( Rabbit rabbit : rabbitsToEnter )
         {
             rabbit.calcNewState( world );
         }
         world.rabbits.addAll( rabbitsToEnter );
+        world.rabbitIndex.addAll( rabbitsToEnter );
         world.things.addAll( tokensToAdd );
+        world.thingIndex.addAll( tokensToAdd );
         world.blockTable.addAll( blocksToAdd );
 
-        // Remove dead/saved rabbits, used tokens, dug out blocks
-        world.rabbits.removeAll( rabbitsToKill );
-        world.rabbits.removeAll( rabbitsToSave );
-        world.things.removeAll(  tokensToRemove );
-        world.things.removeAll( fireToRemove );
+        // Remove dead/saved rabbits, used tokens, dug out blocks. Each list
+        // is walked once, however many things are leaving it, and not at
+        // all if nothing is.
+        rabbitsGoing.addAll( rabbitsToKill );
+        rabbitsGoing.addAll( rabbitsToSave );
+        removeAll( world.rabbits, rabbitsGoing );
+        rabbitsGoing.clear();
+        world.rabbitIndex.removeAll( rabbitsToKill );
+        world.rabbitIndex.removeAll( rabbitsToSave );
+        thingsGoing.addAll( tokensToRemove );
+        thingsGoing.addAll( fireToRemove );
+        removeAll( world.things, thingsGoing );
+        thingsGoing.clear();
+        world.thingIndex.removeAll( tokensToRemove );
+        world.thingIndex.removeAll( fireToRemove );
         world.blockTable.removeAll(  blocksToRemove );
 
         for ( Position point : waterPointsToRecalculate )
@@ -93,6 +170,20 @@ public class WorldChanges
         }
     }
 
+    private boolean nothingToApply()
+    {
+        return rabbitsToEnter.isEmpty()
+            && rabbitsToKill.isEmpty()
+            && rabbitsToSave.isEmpty()
+            && tokensToAdd.isEmpty()
+            && tokensToRemove.isEmpty()
+            && fireToRemove.isEmpty()
+            && blocksToAdd.isEmpty()
+            && blocksToRemove.isEmpty()
+            && waterPointsToRecalculate.isEmpty()
+            && !explodeAll;
+    }
+
     private void updateStats()
     {
         statsListener.worldStats( world.num_saved, world.num_to_save );
@@ -104,10 +195,11 @@ public class WorldChanges
         for ( Rabbit rabbit : world.rabbits )
         {
             rabbit.state = State.RABBIT_EXPLODING;
+            world.rabbitIndex.update( rabbit );
         }
     }
 
-    public synchronized void revert()
+    public void revert()
     {
         revertEnterRabbits();
         revertKillRabbits();
@@ -119,19 +211,27 @@ public class WorldChanges
         waterPointsToRecalculate.clear();
     }
 
-    private synchronized void revertEnterRabbits()
+    private void revertEnterRabbits()
     {
         world.num_waiting += rabbitsToEnter.size();
         rabbitsToEnter.clear();
     }
 
-    public synchronized void enterRabbit( Rabbit rabbit )
+    public void enterRabbit( Rabbit rabbit )
+    {
+        if ( !defer( Deferred.Kind.ENTER_RABBIT, rabbit ) )
+        {
+            doEnterRabbit( rabbit );
+        }
+    }
+
+    private void doEnterRabbit( Rabbit rabbit )
     {
         --world.num_waiting;
         rabbitsToEnter.add( rabbit );
     }
 
-    private synchronized void revertKillRabbits()
+    private void revertKillRabbits()
     {
         for ( Rabbit rabbit : rabbitsToKill )
         {
@@ -143,7 +243,15 @@ public class WorldChanges
         rabbitsToKill.clear();
     }
 
-    public synchronized void killRabbit( Rabbit rabbit )
+    public void killRabbit( Rabbit rabbit )
+    {
+        if ( !defer( Deferred.Kind.KILL_RABBIT, rabbit ) )
+        {
+            doKillRabbit( rabbit );
+        }
+    }
+
+    private void doKillRabbit( Rabbit rabbit )
     {
         if ( rabbit.type == Rabbit.Type.RABBIT )
         {
@@ -158,13 +266,21 @@ public class WorldChanges
         rabbitsToSave.clear();
     }
 
-    public synchronized void saveRabbit( Rabbit rabbit )
+    public void saveRabbit( Rabbit rabbit )
+    {
+        if ( !defer( Deferred.Kind.SAVE_RABBIT, rabbit ) )
+        {
+            doSaveRabbit( rabbit );
+        }
+    }
+
+    private void doSaveRabbit( Rabbit rabbit )
     {
         ++world.num_saved;
         rabbitsToSave.add( rabbit );
     }
 
-    private synchronized void revertAddTokens()
+    private void revertAddTokens()
     {
         for ( Token t : tokensToAdd )
         {
@@ -173,48 +289,310 @@ public class WorldChanges
         tokensToAdd.clear();
     }
 
-    public synchronized void addToken( int x, int y, Token.Type type ) throws UnableToAddToken
+    /**
+     * Add a token now. The thread stepping the world should call this; other
+     * threads, e.g. the UI's, should use queueToken instead.
+     *
+     * @return false if there was nothing to add it to, e.g. a wall.
+     */
+    public boolean addToken( int x, int y, Token.Type type ) throws UnableToAddToken
     {
         TokenPlacementStrategy strategy = TokenPlacementRegistry.getStrategy(type);
-        strategy.addToken(this, x, y, type);
+        return strategy.addToken(this, x, y, type);
     }
 
-    public synchronized void removeToken( Token thing )
+    public void removeToken( Token thing )
+    {
+        if ( !defer( Deferred.Kind.REMOVE_TOKEN, thing ) )
+        {
+            doRemoveToken( thing );
+        }
+    }
+
+    private void doRemoveToken( Token thing )
     {
         tokensToRemove.add( thing );
     }
 
-    public synchronized void removeFire( Fire thing )
+    public void removeFire( Fire thing )
+    {
+        if ( !defer( Deferred.Kind.REMOVE_FIRE, thing ) )
+        {
+            doRemoveFire( thing );
+        }
+    }
+
+    private void doRemoveFire( Fire thing )
     {
         fireToRemove.add( thing );
     }
 
-    public synchronized void addBlock( Block block )
+    public void addBlock( Block block )
+    {
+        if ( !defer( Deferred.Kind.ADD_BLOCK, block ) )
+        {
+            doAddBlock( block );
+        }
+    }
+
+    private void doAddBlock( Block block )
     {
         blocksToAdd.add( block );
         waterPointsToRecalculate.add( new Position( block.x, block.y ) );
     }
 
-    public synchronized void removeBlockAt( int x, int y )
+    public void removeBlockAt( int x, int y )
     {
+        // Blocks do not change until changes are applied, so this gives
+        // the same answer whenever it is asked.
         Block block = world.getBlockAt( x, y );
         if ( block == null )
         {
             throw new NoBlockFound( x, y );
         }
-        blocksJustRemoved.add( new Position( x, y ) );
+        if ( !defer( Deferred.Kind.REMOVE_BLOCK, block ) )
+        {
+            doRemoveBlock( block );
+        }
+    }
+
+    private void doRemoveBlock( Block block )
+    {
+        blocksJustRemoved.add( new Position( block.x, block.y ) );
         blocksToRemove.add( block );
-        waterPointsToRecalculate.add( new Position( x, y ) );
+        waterPointsToRecalculate.add( new Position( block.x, block.y ) );
     }
 
-    public synchronized List<Thing> tokensAboutToAppear()
+    public List<Thing> tokensAboutToAppear()
     {
         return new ArrayList<Thing>( tokensToAdd );
     }
 
-    public synchronized void explodeAllRabbits()
+    /**
+     * Blow up every rabbit at the end of the next step. Safe to call from
+     * any thread.
+     */
+    public void explodeAllRabbits()
+    {
+        input.add( Input.EXPLODE_ALL );
+    }
+
+    /**
+     * Add a token at the start of the next step, if it can be added then.
+     * Safe to call from any thread, e.g. the UI's. The step, rather than
+     * the caller, adds the token, so nothing here needs locking.
+     *
+     * Tokens that could never be added here whatever else happens, such as
+     * tokens on top of solid blocks, are not queued.
+     */
+    public void queueToken( int x, int y, Token.Type type )
+    {
+        TokenPlacementStrategy strategy =
+            TokenPlacementRegistry.getStrategy( type );
+        if ( !strategy.wouldPlace( world, x, y, type ) )
+        {
+            return;
+        }
+        tokensQueued.incrementAndGet( type.ordinal() );
+        input.add( new Input( x, y, type ) );
+    }
+
+    /**
+     * @param listener told about each queued token when it is added, e.g.
+     *                 to record it in a solution. May be null.
+     */
+    public void setTokenPlacedListener( TokenPlacedListener listener )
+    {
+        this.tokenPlacedListener = listener;
+    }
+
+    /**
+     * @return how many tokens of this type will be left once those queued
+     *         by queueToken have been added.
+     */
+    public int numLeft( Token.Type type )
+    {
+        Integer numLeft = world.abilities.get( type );
+        if ( numLeft == null )
+        {
+            return 0;
+        }
+        return numLeft - tokensQueued.get( type.ordinal() );
+    }
+
+    /**
+     * Add the tokens and explode rabbits as asked since this was last
+     * called. Only call on the thread that steps the world.
+     */
+    public void takeInput()
     {
-        explodeAll = true;
+        Input in;
+        while ( ( in = input.poll() ) != null )
+        {
+            if ( in == Input.EXPLODE_ALL )
+            {
+                explodeAll = true;
+                continue;
+            }
+
+            try
+            {
+                if (
+                       addToken( in.x, in.y, in.type )
+                    && tokenPlacedListener != null
+                )
+                {
+                    tokenPlacedListener.tokenPlaced( in.x, in.y, in.type );
+                }
+            }
+            catch ( UnableToAddToken e )
+            {
+                // Another token queued alongside this one took the last
+                // of this type. The player asked for what can't be done:
+                // do nothing, just as if they had asked one step later.
+            }
+            finally
+            {
+                tokensQueued.decrementAndGet( in.type.ordinal() );
+            }
+        }
+    }
+
+    /**
+     * Something the player asked for from another thread.
+     */
+    private static final class Input
+    {
+        static final Input EXPLODE_ALL = new Input( 0, 0, null );
+
+        final int x;
+        final int y;
+        final Token.Type type;
+
+        Input( int x, int y, Token.Type type )
+        {
+            this.x = x;
+            this.y = y;
+            this.type = type;
+        }
+    }
+
+    /**
+     * Changes asked for by one thing while things are being stepped on
+     * several threads, held back so that they can be made afterwards in
+     * the order they would have been made on one thread.
+     */
+    public static final class Deferred
+    {
+        enum Kind
+        {
+            ENTER_RABBIT,
+            KILL_RABBIT,
+            SAVE_RABBIT,
+            REMOVE_TOKEN,
+            REMOVE_FIRE,
+            ADD_BLOCK,
+            REMOVE_BLOCK
+        }
+
+        private final List<Kind> kinds = new ArrayList<>();
+        private final List<Object> args = new ArrayList<>();
+
+        /** Thrown by the thing while its changes were being held back. */
+        RuntimeException error = null;
+
+        void add( Kind kind, Object arg )
+        {
+            kinds.add( kind );
+            args.add( arg );
+        }
+
+        void clear()
+        {
+            kinds.clear();
+            args.clear();
+            error = null;
+        }
+    }
+
+    /**
+     * Until stopDeferring is called on this thread, hold back changes made
+     * on this thread in deferred instead of making them.
+     */
+    void deferTo( Deferred deferred )
+    {
+        deferring.set( deferred );
+        anyDeferring = true;
+    }
+
+    void stopDeferring()
+    {
+        deferring.remove();
+    }
+
+    /**
+     * Stop looking for held back changes. Only call once every thread has
+     * called stopDeferring.
+     */
+    void doneDeferring()
+    {
+        anyDeferring = false;
+    }
+
+    /**
+     * Make the changes held back in deferred, in the order they were asked
+     * for, and empty it.
+     */
+    void makeDeferred( Deferred deferred )
+    {
+        for ( int i = 0; i < deferred.kinds.size(); ++i )
+        {
+            Object arg = deferred.args.get( i );
+            switch ( deferred.kinds.get( i ) )
+            {
+                case ENTER_RABBIT:
+                    doEnterRabbit( (Rabbit)arg );
+                    break;
+                case KILL_RABBIT:
+                    doKillRabbit( (Rabbit)arg );
+                    break;
+                case SAVE_RABBIT:
+                    doSaveRabbit( (Rabbit)arg );
+                    break;
+                case REMOVE_TOKEN:
+                    doRemoveToken( (Token)arg );
+                    break;
+                case REMOVE_FIRE:
+                    doRemoveFire( (Fire)arg );
+                    break;
+                case ADD_BLOCK:
+                    doAddBlock( (Block)arg );
+                    break;
+                case REMOVE_BLOCK:
+                    doRemoveBlock( (Block)arg );
+                    break;
+            }
+        }
+        deferred.kinds.clear();
+        deferred.args.clear();
+    }
+
+    /**
+     * @return true if the change was held back for later.
+     */
+    private boolean defer( Deferred.Kind kind, Object arg )
+    {
+        if ( !anyDeferring )
+        {
+            return false;
+        }
+        Deferred deferred = deferring.get();
+        if ( deferred == null )
+        {
+            return false;
+        }
+        deferred.add( kind, arg );
+        return true;
     }
 
     public List<Rabbit> rabbitsJustEntered()
@@ -224,6 +602,8 @@ public class WorldChanges
 
     public void rememberWhatWillHappen()
     {
-        rabbitsJustEntered = new ArrayList<Rabbit>( rabbitsToEnter );
+        rabbitsJustEntered = rabbitsToEnter.isEmpty()
+            ? Collections.<Rabbit>emptyList()
+            : new ArrayList<Rabbit>( rabbitsToEnter );
     }
 }
@@ -22,7 +22,7 @@ public class Bashing extends Behaviour
     @Override
     public boolean checkTriggered( Rabbit rabbit, World world )
     {
-        BehaviourTools t = new BehaviourTools( rabbit, world );
+        BehaviourTools t = rabbit.tools( world );
 
         return t.pickUpToken( bash );
     }
@@ -143,6 +143,12 @@ public class Bashing extends Behaviour
         return ( rabbit.dir == RIGHT ) ? rabbit.x + 1 : rabbit.x - 1;
     }
 
+    @Override
+    public int stateKey()
+    {
+        return Math.max( 0, stepsOfBashing );
+    }
+
     @Override
     public void saveState( Map<String, String> saveState )
     {
@@ -154,13 +160,19 @@ public class Bashing extends Behaviour
     @Override
     public void restoreFromState( Map<String, String> saveState )
     {
-        stepsOfBashing = BehaviourState.restoreFromState(
-            saveState, "Bashing.stepsOfBashing", stepsOfBashing
-        );
+        restoreWorkedOutState( saveState );
 
         if ( stepsOfBashing > 0 )
         {
             ++stepsOfBashing;
         }
     }
+
+    @Override
+    public void restoreWorkedOutState( Map<String, String> saveState )
+    {
+        stepsOfBashing = BehaviourState.restoreFromState(
+            saveState, "Bashing.stepsOfBashing", stepsOfBashing
+        );
+    }
 }
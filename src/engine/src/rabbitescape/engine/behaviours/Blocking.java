@@ -3,9 +3,11 @@ package rabbitescape.engine.behaviours;
 import static rabbitescape.engine.ChangeDescription.State.*;
 import static rabbitescape.engine.Token.Type.*;
 
+import java.util.List;
 import java.util.Map;
 
 import rabbitescape.engine.*;
+import rabbitescape.engine.ChangeDescription.Category;
 import rabbitescape.engine.ChangeDescription.State;
 
 public class Blocking extends Behaviour
@@ -21,7 +23,7 @@ public class Blocking extends Behaviour
     @Override
     public boolean checkTriggered( Rabbit rabbit, World world )
     {
-        BehaviourTools t = new BehaviourTools( rabbit, world );
+        BehaviourTools t = rabbit.tools( world );
         return t.pickUpToken( block );
     }
 
@@ -56,6 +58,12 @@ public class Blocking extends Behaviour
         return isBlocking( state );
     }
 
+    @Override
+    public int stateKey()
+    {
+        return abilityActive ? 1 : 0;
+    }
+
     @Override
     public void saveState( Map<String, String> saveState )
     {
@@ -74,10 +82,12 @@ public class Blocking extends Behaviour
 
     public static boolean blockerAt( World world, int nextX, int nextY )
     {
-        Rabbit[] rabbits = world.getRabbitsAt( nextX, nextY );
-        for ( Rabbit r : rabbits )
+        // Called for every walking rabbit, every step, so don't create an
+        // iterator.
+        List<Rabbit> rabbits = world.rabbitsAt( nextX, nextY );
+        for ( int i = 0; i < rabbits.size(); ++i )
         {
-            if ( isBlocking( r.state ) )
+            if ( isBlocking( rabbits.get( i ).state ) )
             {
                 return true;
             }
@@ -87,13 +97,6 @@ public class Blocking extends Behaviour
 
     static boolean isBlocking( State s )
     {
-        switch ( s ) {
-        case RABBIT_BLOCKING:
-        case RABBIT_BLOCKING_RISE_RIGHT:
-        case RABBIT_BLOCKING_RISE_LEFT:
-            return true;
-        default:
-            return false;
-        }
+        return s.is( Category.BLOCKING );
     }
 }
@@ -38,7 +38,7 @@ public class Bridging extends Behaviour
         if ( bigSteps <= 0 )
             // Only pick up a token if we've finished, and we can bridge
         {
-            BehaviourTools t = new BehaviourTools( rabbit, world );
+            BehaviourTools t = rabbit.tools( world );
 
             State possibleState = bridgingState( t, 3, 3, bridgeType );
 
@@ -571,6 +571,15 @@ public class Bridging extends Behaviour
         }
     }
 
+    @Override
+    public int stateKey()
+    {
+        // Like saveState, which leaves out counts that have run out.
+        int big = Math.max( 0, bigSteps );
+        int small = Math.max( 0, smallSteps );
+        return ( big * 64 + small ) * 8 + bridgeType.ordinal();
+    }
+
     @Override
     public void saveState( Map<String, String> saveState )
     {
@@ -592,6 +601,17 @@ public class Bridging extends Behaviour
 
     @Override
     public void restoreFromState( Map<String, String> saveState )
+    {
+        restoreWorkedOutState( saveState );
+
+        if ( smallSteps > 0 )
+        {
+            ++smallSteps;
+        }
+    }
+
+    @Override
+    public void restoreWorkedOutState( Map<String, String> saveState )
     {
         bridgeType = BridgeType.valueOf(
             BehaviourState.restoreFromState(
@@ -606,10 +626,5 @@ public class Bridging extends Behaviour
         smallSteps = BehaviourState.restoreFromState(
             saveState, "Bridging.smallSteps", smallSteps
         );
-
-        if ( smallSteps > 0 )
-        {
-            ++smallSteps;
-        }
     }
 }
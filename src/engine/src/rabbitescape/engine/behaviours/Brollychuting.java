@@ -98,7 +98,7 @@ public class Brollychuting extends Behaviour
     @Override
     public boolean checkTriggered( Rabbit rabbit, World world )
     {
-        BehaviourTools t = new BehaviourTools( rabbit, world );
+        BehaviourTools t = rabbit.tools( world );
 
         if ( !hasAbility && t.pickUpToken( brolly, true ) )
         {
@@ -136,6 +136,12 @@ public class Brollychuting extends Behaviour
     {
     }
 
+    @Override
+    public int stateKey()
+    {
+        return hasAbility ? 1 : 0;
+    }
+
     @Override
     public void saveState( Map<String, String> saveState )
     {
@@ -23,7 +23,7 @@ public class Climbing extends Behaviour
     @Override
     public boolean checkTriggered( Rabbit rabbit, World world )
     {
-        BehaviourTools t = new BehaviourTools( rabbit, world );
+        BehaviourTools t = rabbit.tools( world );
 
         return !hasAbility && t.pickUpToken( climb, true );
     }
@@ -137,7 +137,7 @@ public class Climbing extends Behaviour
     @Override
     public boolean behave( World world, Rabbit rabbit, State state )
     {
-        BehaviourTools t = new BehaviourTools( rabbit, world );
+        BehaviourTools t = rabbit.tools( world );
 
         if( t.rabbitIsClimbing() )
         { // Can't be both on a wall and on a slope.
@@ -190,6 +190,12 @@ public class Climbing extends Behaviour
         }
     }
 
+    @Override
+    public int stateKey()
+    {
+        return ( hasAbility ? 1 : 0 ) + ( abilityActive ? 2 : 0 );
+    }
+
     @Override
     public void saveState( Map<String, String> saveState )
     {
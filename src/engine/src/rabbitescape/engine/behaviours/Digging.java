@@ -6,6 +6,7 @@ import static rabbitescape.engine.Token.Type.*;
 import java.util.Map;
 
 import rabbitescape.engine.*;
+import rabbitescape.engine.ChangeDescription.Category;
 import rabbitescape.engine.ChangeDescription.State;
 
 public class Digging extends Behaviour
@@ -21,7 +22,7 @@ public class Digging extends Behaviour
     @Override
     public boolean checkTriggered( Rabbit rabbit, World world )
     {
-        BehaviourTools t = new BehaviourTools( rabbit, world );
+        BehaviourTools t = rabbit.tools( world );
         return t.pickUpToken( dig );
     }
 
@@ -100,6 +101,12 @@ public class Digging extends Behaviour
         }
     }
 
+    @Override
+    public int stateKey()
+    {
+        return Math.max( 0, stepsOfDigging );
+    }
+
     @Override
     public void saveState( Map<String, String> saveState )
     {
@@ -116,16 +123,7 @@ public class Digging extends Behaviour
 
     public static boolean isDigging( State state )
     {
-        switch ( state )
-        {
-            case RABBIT_DIGGING:
-            case RABBIT_DIGGING_2:
-            case RABBIT_DIGGING_ON_SLOPE:
-            case RABBIT_DIGGING_USELESSLY:
-                return true;
-            default:
-                return false;
-        }
+        return state.is( Category.DIGGING );
     }
 
 }
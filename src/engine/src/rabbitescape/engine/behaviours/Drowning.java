@@ -40,8 +40,15 @@ public class Drowning extends Behaviour
         {
             return false;
         }
-        for ( WaterRegion waterRegion :
-              world.waterTable.getItemsAt( rabbit.x, yCoordinate ) )
+        // Avoid getItemsAt, which copies: this runs for every rabbit, every
+        // step.
+        WaterRegion waterRegion;
+        for (
+            int i = 0;
+            ( waterRegion = world.waterTable.getItemAt(
+                rabbit.x, yCoordinate, i ) ) != null;
+            ++i
+        )
         {
             if ( waterRegion.isConnected( directionToCheck ) )
             {
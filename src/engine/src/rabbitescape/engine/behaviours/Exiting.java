@@ -20,17 +20,7 @@ public class Exiting extends Behaviour
             return false;  // Rabbots ignore exits
         }
 
-        for ( Thing thing : world.things )
-        {
-            if (
-                   ( thing instanceof Exit )
-                && ( thing.x == rabbit.x && thing.y == rabbit.y )
-            )
-            {
-                return true;
-            }
-        }
-        return false;
+        return world.isExitHere( rabbit.x, rabbit.y );
     }
 
     @Override
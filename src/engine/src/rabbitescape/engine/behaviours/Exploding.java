@@ -16,7 +16,7 @@ public class Exploding extends Behaviour
     @Override
     public boolean checkTriggered( Rabbit rabbit, World world )
     {
-        BehaviourTools t = new BehaviourTools( rabbit, world );
+        BehaviourTools t = rabbit.tools( world );
         return t.pickUpToken( explode, true );
     }
 
@@ -116,7 +116,7 @@ public class Falling extends Behaviour
             return false;
         }
 
-        BehaviourTools t = new BehaviourTools( rabbit, world );
+        BehaviourTools t = rabbit.tools( world );
 
         //noinspection RedundantIfStatement
         if ( t.isFlat( t.blockBelow() ) )
@@ -256,6 +256,12 @@ public class Falling extends Behaviour
         }
     }
 
+    @Override
+    public int stateKey()
+    {
+        return Math.max( 0, heightFallen );
+    }
+
     @Override
     public void saveState( Map<String, String> saveState )
     {
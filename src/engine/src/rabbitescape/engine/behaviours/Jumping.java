@@ -15,7 +15,7 @@ public class Jumping extends Behaviour
     @Override
     public boolean checkTriggered(Rabbit rabbit, World world)
     {
-        BehaviourTools t = new BehaviourTools(rabbit, world);
+        BehaviourTools t = rabbit.tools( world );
         return t.pickUpToken( jump );
     }
 
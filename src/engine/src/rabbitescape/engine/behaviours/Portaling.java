@@ -20,6 +20,11 @@ public class Portaling extends Behaviour {
      */
     @Override
     public boolean checkTriggered(Rabbit rabbit, World world) {
+        // check the cheap per-cell lookup before counting portals
+        Token token = world.getTokenAt(rabbit.x, rabbit.y);
+        if (token == null || token.type != Token.Type.portal) {
+            return false;
+        }
         // if there are less than 2 tokens in the world, triggered <- false
         int portalCount = 0;
         for (Thing thing : world.things) {
@@ -28,11 +33,7 @@ public class Portaling extends Behaviour {
             }
         }
         // there need to be two portals in the map to be triggered
-        if (portalCount < 2) {
-            return false;
-        }
-        Token token = world.getTokenAt(rabbit.x, rabbit.y);
-        return token != null && token.type == Token.Type.portal;
+        return portalCount >= 2;
     }
 
     @Override
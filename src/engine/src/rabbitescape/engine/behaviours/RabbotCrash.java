@@ -1,5 +1,7 @@
 package rabbitescape.engine.behaviours;
 
+import java.util.List;
+
 import rabbitescape.engine.Behaviour;
 import rabbitescape.engine.BehaviourTools;
 import rabbitescape.engine.ChangeDescription.State;
@@ -18,12 +20,11 @@ public class RabbotCrash extends Behaviour
     {
         if ( rabbit.type == Rabbit.Type.RABBOT )
         {
-            for ( Rabbit otherRabbit : world.rabbits )
+            List<Rabbit> here = world.rabbitsAt( rabbit.x, rabbit.y );
+            for ( int i = 0; i < here.size(); ++i )
             {
-                if ( otherRabbit.type == Rabbit.Type.RABBIT &&
-                    otherRabbit.x == rabbit.x &&
-                    otherRabbit.y == rabbit.y
-                )
+                Rabbit otherRabbit = here.get( i );
+                if ( otherRabbit.type == Rabbit.Type.RABBIT )
                 {
                     world.changes.killRabbit( otherRabbit );
                     return true;
@@ -1,5 +1,7 @@
 package rabbitescape.engine.behaviours;
 
+import java.util.List;
+
 import rabbitescape.engine.Behaviour;
 import rabbitescape.engine.BehaviourTools;
 import rabbitescape.engine.ChangeDescription.State;
@@ -52,16 +54,25 @@ public class RabbotWait extends Behaviour
             !Digging.isDigging(rabbit.state)
         )
         {
-            for ( Rabbit otherRabbit : world.rabbits )
+            // Only rabbits in the columns either side can be nose to nose.
+            for ( int x = rabbit.x - 1; x <= rabbit.x + 1; x += 2 )
             {
-                if (
-                    otherRabbit.type == Rabbit.Type.RABBIT &&
-                    within1Vertically( otherRabbit, rabbit ) &&
-                    noseToNose( otherRabbit, rabbit ) &&
-                    !Blocking.isBlocking(otherRabbit.state)
-                )
+                for ( int y = rabbit.y - 1; y <= rabbit.y + 1; ++y )
                 {
-                    return true;
+                    List<Rabbit> there = world.rabbitsAt( x, y );
+                    for ( int i = 0; i < there.size(); ++i )
+                    {
+                        Rabbit otherRabbit = there.get( i );
+                        if (
+                            otherRabbit.type == Rabbit.Type.RABBIT &&
+                            within1Vertically( otherRabbit, rabbit ) &&
+                            noseToNose( otherRabbit, rabbit ) &&
+                            !Blocking.isBlocking(otherRabbit.state)
+                        )
+                        {
+                            return true;
+                        }
+                    }
                 }
             }
         }
@@ -9,6 +9,8 @@ import rabbitescape.engine.ChangeDescription.State;
 
 public class Walking extends Behaviour
 {
+    private StateCalc stateCalc;
+
     @Override
     public void cancel()
     {
@@ -185,7 +187,13 @@ public class Walking extends Behaviour
     @Override
     public State newState( BehaviourTools t, boolean triggered )
     {
-        return new StateCalc( t ).newState();
+        // Keep hold of the StateCalc: each rabbit always passes the same
+        // BehaviourTools, so there is no need to make a new one every step.
+        if ( stateCalc == null || stateCalc.t != t )
+        {
+            stateCalc = new StateCalc( t );
+        }
+        return stateCalc.newState();
     }
 
     @Override
@@ -0,0 +1,725 @@
+package rabbitescape.engine.binaryworld;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UTFDataFormatException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import rabbitescape.engine.Block;
+import rabbitescape.engine.ChangeDescription.State;
+import rabbitescape.engine.Direction;
+import rabbitescape.engine.Entrance;
+import rabbitescape.engine.Exit;
+import rabbitescape.engine.Fire;
+import rabbitescape.engine.IgnoreWorldStatsListener;
+import rabbitescape.engine.Pipe;
+import rabbitescape.engine.Rabbit;
+import rabbitescape.engine.Thing;
+import rabbitescape.engine.Token;
+import rabbitescape.engine.VoidMarkerStyle;
+import rabbitescape.engine.World;
+import rabbitescape.engine.WorldStatsListener;
+import rabbitescape.engine.err.RabbitEscapeException;
+import rabbitescape.engine.textworld.Comment;
+import rabbitescape.engine.util.Dimension;
+import rabbitescape.engine.util.Position;
+
+/**
+ * Saves worlds as compact binary, and loads them again, for saving a game
+ * in progress quickly. Holds everything TextWorldManip.renderCompleteWorld
+ * does (with meta and runtime meta), and also each rabbit's state, which
+ * text worlds work out again when they are loaded. So a world saved at the
+ * end of a step and loaded from here plays on exactly as the one saved
+ * would have, which a text world does not always do.
+ *
+ * Everything is written as unsigned or zig-zagged variable-length ints.
+ * Strings (including enum names, and the keys and values of things' saved
+ * states) are written in full the first time they appear and by number
+ * after that. Most blocks take one byte: see Writer.blocks.
+ *
+ * Data starts with MAGIC and the format's VERSION. Bump VERSION when the
+ * format changes: data saved by any other version is not loaded.
+ */
+public class BinaryWorldManip
+{
+    public static class NotABinaryWorld extends RabbitEscapeException
+    {
+        private static final long serialVersionUID = 1L;
+    }
+
+    public static class UnknownBinaryWorldVersion extends RabbitEscapeException
+    {
+        private static final long serialVersionUID = 1L;
+
+        public final int version;
+        public final int latestVersion;
+
+        public UnknownBinaryWorldVersion( int version )
+        {
+            this.version = version;
+            this.latestVersion = VERSION;
+        }
+    }
+
+    public static class BrokenBinaryWorld extends RabbitEscapeException
+    {
+        private static final long serialVersionUID = 1L;
+
+        public final String problem;
+
+        public BrokenBinaryWorld( Throwable cause )
+        {
+            super( cause );
+            this.problem = cause.toString();
+        }
+    }
+
+    /** "RESW": Rabbit Escape Saved World. */
+    private static final int MAGIC = 0x52455357;
+
+    /**
+     * States are saved as their place in ChangeDescription.State, to keep
+     * saves small, so changing the order of that list needs a new version.
+     */
+    public static final int VERSION = 1;
+
+    /**
+     * Far more cells than any level has. A damaged size could otherwise
+     * ask for more memory than there is, when the world is made.
+     */
+    private static final long MAX_CELLS = 1 << 24;
+
+    private static final int ENTRANCE = 0;
+    private static final int EXIT     = 1;
+    private static final int FIRE     = 2;
+    private static final int PIPE     = 3;
+    private static final int TOKEN    = 4;
+    private static final int RABBIT   = 5;
+
+    public static byte[] save( World world )
+    {
+        ByteArrayOutputStream ret = new ByteArrayOutputStream();
+        try
+        {
+            save( world, ret );
+        }
+        catch ( IOException e )
+        {
+            // Can't happen when writing to memory
+            throw new RuntimeException( e );
+        }
+        return ret.toByteArray();
+    }
+
+    public static void save( World world, OutputStream out )
+        throws IOException
+    {
+        Writer w = new Writer( new DataOutputStream( out ) );
+
+        w.out.writeInt( MAGIC );
+        w.uint( VERSION );
+
+        w.uint( world.size.width );
+        w.uint( world.size.height );
+
+        w.string( world.name );
+        w.string( world.description );
+        w.string( world.author_name );
+        w.string( world.author_url );
+        w.strings( world.hints );
+        w.strings( world.solutions );
+        w.sint( world.num_rabbits );
+        w.sint( world.num_to_save );
+        w.ints( world.rabbit_delay );
+        w.string( world.music );
+        w.sint( world.num_saved );
+        w.sint( world.num_killed );
+        w.sint( world.num_waiting );
+        w.sint( world.getRabbitIndexCount() );
+        w.bool( world.paused );
+        w.string( world.voidStyle.name() );
+
+        w.uint( world.comments.length );
+        for ( Comment comment : world.comments )
+        {
+            w.string( comment.text );
+            w.string( comment.keyFollowing );
+        }
+
+        w.uint( world.abilities.size() );
+        for ( Map.Entry<Token.Type, Integer> e : world.abilities.entrySet() )
+        {
+            w.string( e.getKey().name() );
+            w.sint( e.getValue() );
+        }
+
+        w.blocks( world );
+
+        Map<Position, Integer> water = world.getWaterContents();
+        w.uint( water.size() );
+        for ( Map.Entry<Position, Integer> e : water.entrySet() )
+        {
+            w.sint( e.getKey().x );
+            w.sint( e.getKey().y );
+            w.sint( e.getValue() );
+        }
+
+        w.uint( world.rabbits.size() );
+        for ( Rabbit rabbit : world.rabbits )
+        {
+            w.thing( rabbit );
+        }
+
+        w.uint( world.things.size() );
+        for ( Thing thing : world.things )
+        {
+            w.thing( thing );
+        }
+
+        w.out.flush();
+    }
+
+    public static World load( byte[] data )
+    {
+        return load( new IgnoreWorldStatsListener(), data );
+    }
+
+    public static World load( WorldStatsListener statsListener, byte[] data )
+    {
+        try
+        {
+            return load( statsListener, new ByteArrayInputStream( data ) );
+        }
+        catch ( IOException e )
+        {
+            // Can't happen when reading from memory
+            throw new RuntimeException( e );
+        }
+    }
+
+    /**
+     * @throws NotABinaryWorld if the data was not saved by save()
+     * @throws UnknownBinaryWorldVersion if it was saved by another version
+     * @throws BrokenBinaryWorld if it is cut short or damaged
+     */
+    public static World load( WorldStatsListener statsListener, InputStream in )
+        throws IOException
+    {
+        Reader r = new Reader( new DataInputStream( in ) );
+        try
+        {
+            return read( statsListener, r );
+        }
+        catch ( EOFException
+            | UTFDataFormatException
+            | IllegalArgumentException
+            | IndexOutOfBoundsException
+            | NegativeArraySizeException
+            | ArithmeticException
+            | ClassCastException e )
+        {
+            throw new BrokenBinaryWorld( e );
+        }
+    }
+
+    private static World read( WorldStatsListener statsListener, Reader r )
+        throws IOException
+    {
+        if ( r.in.readInt() != MAGIC )
+        {
+            throw new NotABinaryWorld();
+        }
+        int version = r.uint();
+        if ( version != VERSION )
+        {
+            throw new UnknownBinaryWorldVersion( version );
+        }
+
+        Dimension size = new Dimension( r.uint(), r.uint() );
+        if (
+               size.width < 0
+            || size.height < 0
+            || (long)size.width * size.height > MAX_CELLS
+        )
+        {
+            throw new IllegalArgumentException(
+                "Bad world size: " + size.width + "x" + size.height );
+        }
+
+        String name = r.string();
+        String description = r.string();
+        String author_name = r.string();
+        String author_url = r.string();
+        String[] hints = r.strings();
+        String[] solutions = r.strings();
+        int num_rabbits = r.sint();
+        int num_to_save = r.sint();
+        int[] rabbit_delay = r.ints();
+        String music = r.string();
+        int num_saved = r.sint();
+        int num_killed = r.sint();
+        int num_waiting = r.sint();
+        int rabbit_index_count = r.sint();
+        boolean paused = r.bool();
+        VoidMarkerStyle.Style voidStyle =
+            VoidMarkerStyle.Style.valueOf( r.string() );
+
+        List<Comment> comments = new ArrayList<>();
+        for ( int i = r.uint(); i > 0; --i )
+        {
+            Comment comment = Comment.createUnlinkedComment( r.string() );
+            String keyFollowing = r.string();
+            comments.add(
+                keyFollowing == null ? comment : comment.link( keyFollowing ) );
+        }
+
+        Map<Token.Type, Integer> abilities = new HashMap<>();
+        for ( int i = r.uint(); i > 0; --i )
+        {
+            abilities.put( Token.Type.valueOf( r.string() ), r.sint() );
+        }
+
+        List<Block> blocks = r.blocks( size );
+
+        Map<Position, Integer> water = new HashMap<>();
+        for ( int i = r.uint(); i > 0; --i )
+        {
+            water.put( new Position( r.sint(), r.sint() ), r.sint() );
+        }
+
+        List<Rabbit> rabbits = new ArrayList<>();
+        for ( int i = r.uint(); i > 0; --i )
+        {
+            rabbits.add( (Rabbit)r.thing() );
+        }
+
+        List<Thing> things = new ArrayList<>();
+        for ( int i = r.uint(); i > 0; --i )
+        {
+            things.add( r.thing() );
+        }
+
+        World world = new World(
+            size,
+            blocks,
+            rabbits,
+            things,
+            water,
+            abilities,
+            name,
+            description,
+            author_name,
+            author_url,
+            hints,
+            solutions,
+            num_rabbits,
+            num_to_save,
+            rabbit_delay,
+            music,
+            num_saved,
+            num_killed,
+            num_waiting,
+            rabbit_index_count,
+            paused,
+            comments.toArray( new Comment[comments.size()] ),
+            statsListener,
+            voidStyle,
+            true
+        );
+
+        // As TextWorldManip does
+        world.countRabbitsForIndex();
+
+        return world;
+    }
+
+    private static class Writer
+    {
+        public final DataOutputStream out;
+        private final Map<String, Integer> stringIds = new HashMap<>();
+
+        public Writer( DataOutputStream out )
+        {
+            this.out = out;
+        }
+
+        public void uint( int value ) throws IOException
+        {
+            while ( ( value & ~0x7F ) != 0 )
+            {
+                out.writeByte( ( value & 0x7F ) | 0x80 );
+                value >>>= 7;
+            }
+            out.writeByte( value );
+        }
+
+        public void sint( int value ) throws IOException
+        {
+            uint( ( value << 1 ) ^ ( value >> 31 ) );
+        }
+
+        public void bool( boolean value ) throws IOException
+        {
+            out.writeByte( value ? 1 : 0 );
+        }
+
+        /**
+         * 0 for null, otherwise the string's number. A number not seen
+         * before is followed by the string itself.
+         */
+        public void string( String value ) throws IOException
+        {
+            if ( value == null )
+            {
+                uint( 0 );
+                return;
+            }
+
+            Integer id = stringIds.get( value );
+            if ( id != null )
+            {
+                uint( id );
+                return;
+            }
+
+            id = stringIds.size() + 1;
+            stringIds.put( value, id );
+            uint( id );
+            out.writeUTF( value );
+        }
+
+        public void strings( String[] values ) throws IOException
+        {
+            uint( values.length );
+            for ( String value : values )
+            {
+                string( value );
+            }
+        }
+
+        public void ints( int[] values ) throws IOException
+        {
+            uint( values.length );
+            for ( int value : values )
+            {
+                sint( value );
+            }
+        }
+
+        /**
+         * The kinds of block in the world (material, shape and variant),
+         * then each block, in the order a text world lists them, as the
+         * number of cells on from the last block and the block's kind,
+         * which usually fit in one byte together.
+         */
+        public void blocks( World world ) throws IOException
+        {
+            List<Block> kinds = new ArrayList<>();
+            Map<Long, Integer> kindIds = new HashMap<>();
+            List<Block> blocks = new ArrayList<>( world.blockTable.size() );
+            List<Integer> blockKinds = new ArrayList<>( blocks.size() );
+
+            for ( int y = 0; y < world.size.height; ++y )
+            {
+                for ( int x = 0; x < world.size.width; ++x )
+                {
+                    if ( world.blockTable.countAt( x, y ) == 0 )
+                    {
+                        continue;
+                    }
+                    for ( Block block : world.blockTable.getItemsAt( x, y ) )
+                    {
+                        long kind = ( (long)block.material.ordinal() << 48 )
+                            | ( (long)block.shape.ordinal() << 32 )
+                            | ( block.variant & 0xFFFFFFFFL );
+                        Integer id = kindIds.get( kind );
+                        if ( id == null )
+                        {
+                            id = kinds.size();
+                            kindIds.put( kind, id );
+                            kinds.add( block );
+                        }
+                        blocks.add( block );
+                        blockKinds.add( id );
+                    }
+                }
+            }
+
+            uint( kinds.size() );
+            for ( Block kind : kinds )
+            {
+                string( kind.material.name() );
+                string( kind.shape.name() );
+                sint( kind.variant );
+            }
+
+            uint( blocks.size() );
+            int prevCell = -1;
+            for ( int i = 0; i < blocks.size(); ++i )
+            {
+                Block block = blocks.get( i );
+                int cell = block.y * world.size.width + block.x;
+                uint(
+                    ( cell - prevCell ) * kinds.size() + blockKinds.get( i ) );
+                prevCell = cell;
+            }
+        }
+
+        public void thing( Thing thing ) throws IOException
+        {
+            if ( thing instanceof Rabbit )
+            {
+                Rabbit rabbit = (Rabbit)thing;
+                uint( RABBIT );
+                xy( thing );
+                string( rabbit.dir.name() );
+                string( rabbit.type.name() );
+                uint( rabbit.state.ordinal() );
+            }
+            else if ( thing instanceof Token )
+            {
+                uint( TOKEN );
+                xy( thing );
+                string( ( (Token)thing ).type.name() );
+            }
+            else if ( thing instanceof Fire )
+            {
+                uint( FIRE );
+                xy( thing );
+                sint( ( (Fire)thing ).variant );
+            }
+            else if ( thing instanceof Entrance )
+            {
+                uint( ENTRANCE );
+                xy( thing );
+            }
+            else if ( thing instanceof Exit )
+            {
+                uint( EXIT );
+                xy( thing );
+            }
+            else if ( thing instanceof Pipe )
+            {
+                uint( PIPE );
+                xy( thing );
+            }
+            else
+            {
+                // We've created a new type of Thing, but haven't updated the
+                // code here to cope with it.
+                throw new IllegalStateException(
+                    "Unrecognised type of Thing: " + thing );
+            }
+
+            Map<String, String> state = thing.saveState( true );
+            uint( state.size() );
+            for ( Map.Entry<String, String> e : state.entrySet() )
+            {
+                string( e.getKey() );
+                string( e.getValue() );
+            }
+        }
+
+        private void xy( Thing thing ) throws IOException
+        {
+            sint( thing.x );
+            sint( thing.y );
+        }
+    }
+
+    /**
+     * Counts read from the data (of strings, blocks, things and so on) may
+     * be damaged, so nothing is made that size up front: each item read
+     * takes at least one byte, so a count that is too big runs out of data
+     * instead of memory.
+     */
+    private static class Reader
+    {
+        public final DataInputStream in;
+        private final List<String> strings = new ArrayList<>();
+
+        public Reader( DataInputStream in )
+        {
+            this.in = in;
+        }
+
+        public int uint() throws IOException
+        {
+            int ret = 0;
+            for ( int shift = 0; shift < 32; shift += 7 )
+            {
+                int b = in.readUnsignedByte();
+                ret |= ( b & 0x7F ) << shift;
+                if ( ( b & 0x80 ) == 0 )
+                {
+                    return ret;
+                }
+            }
+            throw new IllegalArgumentException( "Integer too long" );
+        }
+
+        public int sint() throws IOException
+        {
+            int value = uint();
+            return ( value >>> 1 ) ^ -( value & 1 );
+        }
+
+        public boolean bool() throws IOException
+        {
+            return in.readByte() != 0;
+        }
+
+        public String string() throws IOException
+        {
+            int id = uint();
+            if ( id == 0 )
+            {
+                return null;
+            }
+            if ( id == strings.size() + 1 )
+            {
+                strings.add( in.readUTF() );
+            }
+            return strings.get( id - 1 );
+        }
+
+        private static State state( int ordinal )
+        {
+            State[] states = State.values();
+            if ( ordinal < 0 || ordinal >= states.length )
+            {
+                throw new IllegalArgumentException(
+                    "Unknown state: " + ordinal );
+            }
+            return states[ ordinal ];
+        }
+
+        public String[] strings() throws IOException
+        {
+            List<String> ret = new ArrayList<>();
+            for ( int i = uint(); i > 0; --i )
+            {
+                ret.add( string() );
+            }
+            return ret.toArray( new String[ret.size()] );
+        }
+
+        public int[] ints() throws IOException
+        {
+            List<Integer> values = new ArrayList<>();
+            for ( int i = uint(); i > 0; --i )
+            {
+                values.add( sint() );
+            }
+            int[] ret = new int[values.size()];
+            for ( int i = 0; i < ret.length; ++i )
+            {
+                ret[i] = values.get( i );
+            }
+            return ret;
+        }
+
+        public List<Block> blocks( Dimension size ) throws IOException
+        {
+            List<Block> kinds = new ArrayList<>();
+            for ( int i = uint(); i > 0; --i )
+            {
+                kinds.add(
+                    new Block(
+                        0,
+                        0,
+                        Block.Material.valueOf( string() ),
+                        Block.Shape.valueOf( string() ),
+                        sint()
+                    )
+                );
+            }
+
+            List<Block> ret = new ArrayList<>();
+            int cell = -1;
+            for ( int i = uint(); i > 0; --i )
+            {
+                int value = uint();
+                Block kind = kinds.get( value % kinds.size() );
+                cell += value / kinds.size();
+                ret.add(
+                    new Block(
+                        cell % size.width,
+                        cell / size.width,
+                        kind.material,
+                        kind.shape,
+                        kind.variant
+                    )
+                );
+            }
+            return ret;
+        }
+
+        public Thing thing() throws IOException
+        {
+            int kind = uint();
+            int x = sint();
+            int y = sint();
+
+            Thing ret;
+            switch ( kind )
+            {
+                case RABBIT:
+                    ret = new Rabbit(
+                        x,
+                        y,
+                        Direction.valueOf( string() ),
+                        Rabbit.Type.valueOf( string() )
+                    );
+                    ret.state = state( uint() );
+                    break;
+                case TOKEN:
+                    ret = new Token( x, y, Token.Type.valueOf( string() ) );
+                    break;
+                case FIRE:
+                    ret = new Fire( x, y, sint() );
+                    break;
+                case ENTRANCE:
+                    ret = new Entrance( x, y );
+                    break;
+                case EXIT:
+                    ret = new Exit( x, y );
+                    break;
+                case PIPE:
+                    ret = new Pipe( x, y );
+                    break;
+                default:
+                    throw new IllegalArgumentException(
+                        "Unknown kind of thing: " + kind );
+            }
+
+            int stateSize = uint();
+            if ( stateSize > 0 )
+            {
+                Map<String, String> state = new HashMap<>();
+                for ( int i = 0; i < stateSize; ++i )
+                {
+                    state.put( string(), string() );
+                }
+                if ( ret instanceof Rabbit )
+                {
+                    ( (Rabbit)ret ).restoreWorkedOutState( state );
+                }
+                else
+                {
+                    ret.restoreFromState( state );
+                }
+            }
+            return ret;
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package rabbitescape.engine.binaryworld;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import rabbitescape.engine.IgnoreWorldStatsListener;
+import rabbitescape.engine.LoadWorldFile;
+import rabbitescape.engine.World;
+import rabbitescape.engine.menu.LevelsList;
+import rabbitescape.engine.menu.LoadLevelsList;
+import rabbitescape.engine.textworld.TextWorldManip;
+import rabbitescape.engine.util.RealFileSystem;
+
+/**
+ * Build a LevelPack from a level set's directory, using its levels.txt for
+ * the order and names of the levels. Run by "make levelpacks".
+ *
+ * Usage: BuildLevelPack SET_DIR OUT_FILE
+ */
+public class BuildLevelPack
+{
+    public static void main( String[] args ) throws IOException
+    {
+        if ( args.length != 2 )
+        {
+            System.err.println( "Usage: BuildLevelPack SET_DIR OUT_FILE" );
+            System.exit( 1 );
+        }
+
+        File setDir = new File( args[0] );
+        File outFile = new File( args[1] );
+
+        RealFileSystem fs = new RealFileSystem();
+        List<LevelsList.LevelInfo> infos = LoadLevelsList.levelInfos(
+            Arrays.asList(
+                fs.readLines( new File( setDir, "levels.txt" ).getPath() ) )
+        );
+
+        List<World> worlds = new ArrayList<>( infos.size() );
+        for ( LevelsList.LevelInfo info : infos )
+        {
+            String relFile = info.fileName + ".rel";
+
+            // Name levels just as LoadWorldFile would.
+            worlds.add(
+                TextWorldManip.createWorldWithName(
+                    LoadWorldFile.levelName(
+                        setDir.getName() + "/" + relFile ),
+                    new IgnoreWorldStatsListener(),
+                    fs.readLines( new File( setDir, relFile ).getPath() )
+                )
+            );
+        }
+
+        outFile.getParentFile().mkdirs();
+        try (
+            OutputStream out = new BufferedOutputStream(
+                new FileOutputStream( outFile ) )
+        )
+        {
+            LevelPack.write( out, infos, worlds );
+        }
+    }
+}
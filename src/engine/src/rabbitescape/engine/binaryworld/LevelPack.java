@@ -0,0 +1,313 @@
+package rabbitescape.engine.binaryworld;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import rabbitescape.engine.World;
+import rabbitescape.engine.WorldStatsListener;
+import rabbitescape.engine.err.RabbitEscapeException;
+import rabbitescape.engine.menu.LevelsList;
+
+/**
+ * All the levels of a level set in one file, levels.pack, next to the set's
+ * levels.txt, so that opening the menu or a level needs no text parsing.
+ *
+ * The file starts with an index of the levels in menu order: each level's
+ * file name (without ".rel"), its name, and how many bytes it takes. The
+ * levels follow in the same order, each saved by BinaryWorldManip, so one
+ * level is loaded by skipping the ones before it.
+ *
+ * Packs are built from the .rel files by BuildLevelPack, which
+ * "make levelpacks" runs after compiling. Where there is no pack, levels
+ * are read from their .rel files as before.
+ */
+public class LevelPack
+{
+    public static class BrokenLevelPack extends RabbitEscapeException
+    {
+        private static final long serialVersionUID = 1L;
+
+        public final String dirName;
+        public final String problem;
+
+        public BrokenLevelPack( String dirName, String problem )
+        {
+            this.dirName = dirName;
+            this.problem = problem;
+        }
+
+        public BrokenLevelPack( String dirName, Throwable cause )
+        {
+            super( cause );
+            this.dirName = dirName;
+            this.problem = cause.toString();
+        }
+    }
+
+    public static class Entry
+    {
+        public final String fileName;
+        public final String name;
+        public final int size;
+
+        public Entry( String fileName, String name, int size )
+        {
+            this.fileName = fileName;
+            this.name = name;
+            this.size = size;
+        }
+    }
+
+    /**
+     * Opens the pack's data from the start, each time a level is loaded.
+     */
+    interface Source
+    {
+        InputStream open() throws IOException;
+    }
+
+    public static final String FILE_NAME = "levels.pack";
+
+    /** "REPK": Rabbit Escape PacK. */
+    private static final int MAGIC = 0x5245504B;
+
+    public static final int VERSION = 1;
+
+    public final String dirName;
+    public final List<Entry> entries;
+
+    private final Source source;
+    private final int indexSize;
+
+    LevelPack( String dirName, Source source )
+    {
+        this.dirName = dirName;
+        this.source = source;
+
+        try ( InputStream in = source.open() )
+        {
+            CountingInputStream counted = new CountingInputStream( in );
+            this.entries = Collections.unmodifiableList(
+                readIndex( new DataInputStream( counted ) ) );
+            this.indexSize = counted.count;
+        }
+        catch ( IOException e )
+        {
+            throw new BrokenLevelPack( dirName, e );
+        }
+    }
+
+    /**
+     * @return the pack for the level set in the given directory of
+     *         /rabbitescape/levels, or null if it has none.
+     */
+    public static LevelPack fromResource( String dirName )
+    {
+        final String resourceName =
+            "/rabbitescape/levels/" + dirName + "/" + FILE_NAME;
+
+        if ( LevelPack.class.getResource( resourceName ) == null )
+        {
+            return null;
+        }
+
+        return new LevelPack(
+            dirName,
+            new Source()
+            {
+                @Override
+                public InputStream open() throws IOException
+                {
+                    InputStream ret =
+                        LevelPack.class.getResourceAsStream( resourceName );
+                    if ( ret == null )
+                    {
+                        throw new IOException( "Missing " + resourceName );
+                    }
+                    return new BufferedInputStream( ret );
+                }
+            }
+        );
+    }
+
+    /**
+     * Load a level by its path, as given to LoadWorldFile.load, from its
+     * set's pack.
+     *
+     * @param path e.g. "01_easy/01_Digging-practice.rel".
+     * @return the level, or null if it is not in a pack.
+     */
+    public static World loadFromPacks(
+        WorldStatsListener statsListener, String path )
+    {
+        int slash = path.indexOf( '/' );
+        if ( slash == -1 || !path.endsWith( ".rel" ) )
+        {
+            return null;
+        }
+
+        LevelPack pack = fromResource( path.substring( 0, slash ) );
+        if ( pack == null )
+        {
+            return null;
+        }
+
+        return pack.loadLevel(
+            statsListener,
+            path.substring( slash + 1, path.length() - ".rel".length() )
+        );
+    }
+
+    /**
+     * @param fileName the level's file name within the set, without ".rel".
+     * @return the level, or null if it is not in this pack.
+     */
+    public World loadLevel( WorldStatsListener statsListener, String fileName )
+    {
+        int offset = indexSize;
+        for ( Entry entry : entries )
+        {
+            if ( entry.fileName.equals( fileName ) )
+            {
+                return BinaryWorldManip.load(
+                    statsListener, readLevel( offset, entry.size ) );
+            }
+            offset += entry.size;
+        }
+        return null;
+    }
+
+    public List<LevelsList.LevelInfo> levelInfos()
+    {
+        List<LevelsList.LevelInfo> ret = new ArrayList<>( entries.size() );
+        for ( Entry entry : entries )
+        {
+            ret.add( new LevelsList.LevelInfo( entry.fileName, entry.name ) );
+        }
+        return ret;
+    }
+
+    /**
+     * Write a pack of the given levels, in the given order.
+     */
+    public static void write(
+        OutputStream out,
+        List<LevelsList.LevelInfo> infos,
+        List<World> worlds
+    )
+        throws IOException
+    {
+        List<byte[]> levels = new ArrayList<>( worlds.size() );
+        for ( World world : worlds )
+        {
+            levels.add( BinaryWorldManip.save( world ) );
+        }
+
+        DataOutputStream data = new DataOutputStream( out );
+        data.writeInt( MAGIC );
+        data.writeInt( VERSION );
+        data.writeInt( infos.size() );
+        for ( int i = 0; i < infos.size(); ++i )
+        {
+            data.writeUTF( infos.get( i ).fileName );
+            data.writeUTF( infos.get( i ).name );
+            data.writeInt( levels.get( i ).length );
+        }
+        for ( byte[] level : levels )
+        {
+            data.write( level );
+        }
+        data.flush();
+    }
+
+    private List<Entry> readIndex( DataInputStream in ) throws IOException
+    {
+        if ( in.readInt() != MAGIC )
+        {
+            throw new BrokenLevelPack( dirName, "not a level pack" );
+        }
+
+        int version = in.readInt();
+        if ( version != VERSION )
+        {
+            throw new BrokenLevelPack(
+                dirName, "unknown pack version " + version );
+        }
+
+        int count = in.readInt();
+        List<Entry> ret = new ArrayList<>( count );
+        for ( int i = 0; i < count; ++i )
+        {
+            ret.add( new Entry( in.readUTF(), in.readUTF(), in.readInt() ) );
+        }
+        return ret;
+    }
+
+    private byte[] readLevel( int offset, int size )
+    {
+        try ( InputStream in = source.open() )
+        {
+            DataInputStream data = new DataInputStream( in );
+            while ( offset > 0 )
+            {
+                int skipped = data.skipBytes( offset );
+                if ( skipped <= 0 )
+                {
+                    throw new BrokenLevelPack( dirName, "cut short" );
+                }
+                offset -= skipped;
+            }
+
+            byte[] ret = new byte[size];
+            data.readFully( ret );
+            return ret;
+        }
+        catch ( IOException e )
+        {
+            throw new BrokenLevelPack( dirName, e );
+        }
+    }
+
+    /**
+     * Counts the bytes read, to find where the index ends.
+     */
+    private static class CountingInputStream extends InputStream
+    {
+        private final InputStream in;
+        public int count = 0;
+
+        public CountingInputStream( InputStream in )
+        {
+            this.in = in;
+        }
+
+        @Override
+        public int read() throws IOException
+        {
+            int ret = in.read();
+            if ( ret != -1 )
+            {
+                ++count;
+            }
+            return ret;
+        }
+
+        @Override
+        public int read( byte[] b, int off, int len ) throws IOException
+        {
+            int ret = in.read( b, off, len );
+            if ( ret > 0 )
+            {
+                count += ret;
+            }
+            return ret;
+        }
+    }
+}
@@ -9,4 +9,6 @@ public class ConfigKeys
         CFG_WATER_DYN_CONTENTS_PER_PARTICLE = "water.dyncpp";
     public static final String
         CFG_WATER_CONTENTS_PER_PARTICLE = "water.cpp";
+    public static final String CFG_WATER_THREADS = "water.threads";
+    public static final String CFG_RABBIT_THREADS = "rabbit.threads";
 }
@@ -32,6 +32,20 @@ public class StandardConfigSchema
             String.valueOf( 4 ),
             "Smaller values lead to more particles"
         );
+
+        definition.set(
+            CFG_WATER_THREADS,
+            String.valueOf( 1 ),
+            "Threads used to move water on big, flooded levels. "
+                + "0 means one per processor."
+        );
+
+        definition.set(
+            CFG_RABBIT_THREADS,
+            String.valueOf( 1 ),
+            "Threads used to move rabbits on crowded levels. "
+                + "0 means one per processor."
+        );
     }
 
 }
@@ -0,0 +1,395 @@
+package rabbitescape.engine.menu;
+
+import static rabbitescape.engine.util.Util.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.zip.CRC32;
+
+import rabbitescape.engine.Token;
+import rabbitescape.engine.World;
+import rabbitescape.engine.err.RabbitEscapeException;
+import rabbitescape.engine.textworld.TextWorldManip;
+import rabbitescape.engine.util.FileSystem;
+
+/**
+ * Remembers the name, size, rabbits, abilities and number of solutions of
+ * level files, so that showing many levels (e.g. a directory of levels
+ * from the community) doesn't mean loading every one of them each time.
+ *
+ * Entries are keyed by file name, and hold a hash of the file's contents,
+ * so a level is only loaded again once it has changed. update() loads new
+ * and changed levels on several threads. The cache is kept in a properties
+ * file, usually next to the config file.
+ */
+public class LevelMetadataCache
+{
+    public static class UnableToSave extends RabbitEscapeException
+    {
+        private static final long serialVersionUID = 1L;
+
+        public final String filePath;
+
+        public UnableToSave( String filePath, Exception cause )
+        {
+            super( cause );
+            this.filePath = filePath;
+        }
+    }
+
+    public static class LevelMetadata
+    {
+        public final String fileName;
+        public final long hash;
+        public final String name;
+        public final int width;
+        public final int height;
+        public final int numRabbits;
+        public final int numSolutions;
+        public final Map<Token.Type, Integer> abilities;
+
+        public LevelMetadata(
+            String fileName,
+            long hash,
+            String name,
+            int width,
+            int height,
+            int numRabbits,
+            int numSolutions,
+            Map<Token.Type, Integer> abilities
+        )
+        {
+            this.fileName = fileName;
+            this.hash = hash;
+            this.name = name;
+            this.width = width;
+            this.height = height;
+            this.numRabbits = numRabbits;
+            this.numSolutions = numSolutions;
+
+            Map<Token.Type, Integer> sorted = new EnumMap<>( Token.Type.class );
+            sorted.putAll( abilities );
+            this.abilities = Collections.unmodifiableMap( sorted );
+        }
+    }
+
+    /** Don't split the files into tasks smaller than this. */
+    private static final int MIN_FILES_PER_TASK = 4;
+
+    private final FileSystem fs;
+    private final String filePath;
+    private final Map<String, LevelMetadata> entries = new HashMap<>();
+    private boolean changed = false;
+
+    /**
+     * @param filePath where the cache is kept. If it can't be read, the
+     *                 cache starts empty.
+     */
+    public LevelMetadataCache( FileSystem fs, String filePath )
+    {
+        this.fs = fs;
+        this.filePath = filePath;
+        load();
+    }
+
+    /**
+     * @return the metadata of the level in the given file, loading it only
+     *         if it is new or has changed, or null if it can't be read or
+     *         is not a valid level.
+     */
+    public LevelMetadata get( String fileName )
+    {
+        String contents;
+        try
+        {
+            contents = fs.read( fileName );
+        }
+        catch ( IOException e )
+        {
+            remove( fileName );
+            return null;
+        }
+
+        long hash = hash( contents );
+        synchronized ( this )
+        {
+            LevelMetadata ret = entries.get( fileName );
+            if ( ret != null && ret.hash == hash )
+            {
+                return ret;
+            }
+        }
+
+        LevelMetadata ret = readMetadata( fileName, hash, contents );
+        synchronized ( this )
+        {
+            if ( ret == null )
+            {
+                changed |= ( entries.remove( fileName ) != null );
+            }
+            else
+            {
+                entries.put( fileName, ret );
+                changed = true;
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Bring the given files' entries up to date, loading levels on up to
+     * the given number of threads, and forget any files that no longer
+     * exist.
+     */
+    public void update( List<String> fileNames, int threads )
+    {
+        forgetMissing();
+
+        List<String> toUpdate = new ArrayList<>( fileNames );
+        ForkJoinPool pool = new ForkJoinPool( threads );
+        try
+        {
+            pool.invoke( new UpdateTask( toUpdate, 0, toUpdate.size() ) );
+        }
+        finally
+        {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Save the cache, if anything in it has changed.
+     */
+    public synchronized void save()
+    {
+        if ( !changed )
+        {
+            return;
+        }
+
+        Properties props = new Properties();
+        for ( LevelMetadata entry : entries.values() )
+        {
+            props.setProperty( entry.fileName, toValue( entry ) );
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try
+        {
+            props.store( bytes, "Rabbit Escape level metadata cache" );
+            fs.mkdirs( fs.parent( filePath ) );
+            fs.write(
+                filePath,
+                new String( bytes.toByteArray(), StandardCharsets.ISO_8859_1 )
+            );
+        }
+        catch ( IOException e )
+        {
+            throw new UnableToSave( filePath, e );
+        }
+        changed = false;
+    }
+
+    private synchronized void remove( String fileName )
+    {
+        changed |= ( entries.remove( fileName ) != null );
+    }
+
+    private synchronized void forgetMissing()
+    {
+        Iterator<String> it = entries.keySet().iterator();
+        while ( it.hasNext() )
+        {
+            if ( !fs.exists( it.next() ) )
+            {
+                it.remove();
+                changed = true;
+            }
+        }
+    }
+
+    private void load()
+    {
+        if ( filePath == null || !fs.exists( filePath ) )
+        {
+            return;
+        }
+
+        Properties props = new Properties();
+        try
+        {
+            props.load(
+                new ByteArrayInputStream(
+                    fs.read( filePath ).getBytes( StandardCharsets.ISO_8859_1 )
+                )
+            );
+        }
+        catch ( IOException | IllegalArgumentException e )
+        {
+            // It's only a cache: start again.
+            return;
+        }
+
+        for ( String fileName : stringPropertyNames( props ) )
+        {
+            LevelMetadata entry = fromValue(
+                fileName, props.getProperty( fileName ) );
+            if ( entry != null )
+            {
+                entries.put( fileName, entry );
+            }
+        }
+    }
+
+    private static LevelMetadata readMetadata(
+        String fileName, long hash, String contents )
+    {
+        World world;
+        try
+        {
+            world = TextWorldManip.createWorld( contents.split( "\n" ) );
+        }
+        catch ( RabbitEscapeException e )
+        {
+            return null;
+        }
+
+        return new LevelMetadata(
+            fileName,
+            hash,
+            world.name,
+            world.size.width,
+            world.size.height,
+            world.num_rabbits,
+            world.solutions.length,
+            world.abilities
+        );
+    }
+
+    private static long hash( String contents )
+    {
+        CRC32 ret = new CRC32();
+        ret.update( contents.getBytes( StandardCharsets.UTF_8 ) );
+        return ret.getValue();
+    }
+
+    /**
+     * e.g. "1c291ca3 20 10 5 1 bash:2,dig:1 My level", with "-" for no
+     * abilities. The name goes last, since it may contain spaces.
+     */
+    private static String toValue( LevelMetadata entry )
+    {
+        StringBuilder abilities = new StringBuilder();
+        for ( Map.Entry<Token.Type, Integer> ability :
+            entry.abilities.entrySet() )
+        {
+            if ( abilities.length() > 0 )
+            {
+                abilities.append( ',' );
+            }
+            abilities.append( ability.getKey().name() );
+            abilities.append( ':' );
+            abilities.append( ability.getValue() );
+        }
+
+        return Long.toHexString( entry.hash )
+            + " " + entry.width
+            + " " + entry.height
+            + " " + entry.numRabbits
+            + " " + entry.numSolutions
+            + " " + ( abilities.length() == 0 ? "-" : abilities )
+            + " " + entry.name;
+    }
+
+    /**
+     * @return the entry, or null if it was not understood (e.g. it was
+     *         saved by a different version of the game).
+     */
+    private static LevelMetadata fromValue( String fileName, String value )
+    {
+        String[] parts = value.split( " ", 7 );
+        if ( parts.length != 7 )
+        {
+            return null;
+        }
+
+        try
+        {
+            Map<Token.Type, Integer> abilities =
+                new EnumMap<>( Token.Type.class );
+            if ( !parts[5].equals( "-" ) )
+            {
+                for ( String ability : parts[5].split( "," ) )
+                {
+                    String[] nameNum = ability.split( ":" );
+                    abilities.put(
+                        Token.Type.valueOf( nameNum[0] ),
+                        Integer.valueOf( nameNum[1] )
+                    );
+                }
+            }
+
+            return new LevelMetadata(
+                fileName,
+                Long.parseLong( parts[0], 16 ),
+                parts[6],
+                Integer.parseInt( parts[1] ),
+                Integer.parseInt( parts[2] ),
+                Integer.parseInt( parts[3] ),
+                Integer.parseInt( parts[4] ),
+                abilities
+            );
+        }
+        catch ( IllegalArgumentException | IndexOutOfBoundsException e )
+        {
+            return null;
+        }
+    }
+
+    private class UpdateTask extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final List<String> fileNames;
+        private final int start;
+        private final int end;
+
+        UpdateTask( List<String> fileNames, int start, int end )
+        {
+            this.fileNames = fileNames;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected void compute()
+        {
+            if ( end - start > MIN_FILES_PER_TASK )
+            {
+                int middle = ( start + end ) / 2;
+                invokeAll(
+                    new UpdateTask( fileNames, start, middle ),
+                    new UpdateTask( fileNames, middle, end )
+                );
+                return;
+            }
+
+            for ( int i = start; i < end; ++i )
+            {
+                LevelMetadataCache.this.get( fileNames.get( i ) );
+            }
+        }
+    }
+}
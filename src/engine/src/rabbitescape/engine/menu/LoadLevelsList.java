@@ -1,5 +1,6 @@
 package rabbitescape.engine.menu;
 
+import rabbitescape.engine.binaryworld.LevelPack;
 import rabbitescape.engine.err.RabbitEscapeException;
 import rabbitescape.engine.menu.LevelsList.LevelSetInfo;
 import rabbitescape.engine.util.Util.ReadingResourceFailed;
@@ -49,23 +50,18 @@ public class LoadLevelsList
     private static List<LevelsList.LevelInfo> findLevelsInDir(
         String levelsDir )
     {
-        List<LevelsList.LevelInfo> ret = new ArrayList<LevelsList.LevelInfo>();
+        LevelPack pack = LevelPack.fromResource( levelsDir );
+        if ( pack != null )
+        {
+            return pack.levelInfos();
+        }
 
         String resourceFileName =
             "/rabbitescape/levels/" + levelsDir + "/levels.txt";
 
         try
         {
-            for ( String line : resourceLines( resourceFileName ) )
-            {
-                LevelsList.LevelInfo inf = findLevelInfo( line );
-                if ( inf != null )
-                {
-                    ret.add( inf );
-                }
-            }
-
-            return ret;
+            return levelInfos( resourceLines( resourceFileName ) );
         }
         catch ( ReadingResourceFailed e )
         {
@@ -73,6 +69,24 @@ public class LoadLevelsList
         }
     }
 
+    /**
+     * @param lines the lines of a levels.txt file.
+     */
+    public static List<LevelsList.LevelInfo> levelInfos(
+        Iterable<String> lines )
+    {
+        List<LevelsList.LevelInfo> ret = new ArrayList<LevelsList.LevelInfo>();
+        for ( String line : lines )
+        {
+            LevelsList.LevelInfo inf = findLevelInfo( line );
+            if ( inf != null )
+            {
+                ret.add( inf );
+            }
+        }
+        return ret;
+    }
+
     private static final Pattern infoLine = Pattern.compile(
         "(.*)\\.rel \"(.*)\"\\s*" );
 
@@ -0,0 +1,135 @@
+package rabbitescape.engine.rewind;
+
+/**
+ * Holds saved worlds in tick order in a fixed-size array, like
+ * LongRingBuffer, overwriting the oldest when the array is full. It also
+ * drops the oldest once the saved worlds together would take more than a
+ * set number of bytes.
+ */
+class KeyframeRing
+{
+    static final class Keyframe
+    {
+        final int tick;
+        final byte[] world;
+
+        Keyframe( int tick, byte[] world )
+        {
+            this.tick = tick;
+            this.world = world;
+        }
+    }
+
+    private final Keyframe[] buf;
+    private final long maxBytes;
+    /** Where the oldest keyframe is. */
+    private int first;
+    private int size;
+    private long bytes;
+
+    /**
+     * @param capacity the most keyframes to hold.
+     * @param maxBytes the most bytes of saved world to hold.
+     */
+    KeyframeRing( int capacity, long maxBytes )
+    {
+        this.buf = new Keyframe[capacity];
+        this.maxBytes = maxBytes;
+        this.first = 0;
+        this.size = 0;
+        this.bytes = 0;
+    }
+
+    /**
+     * Add a keyframe later than all those already held, dropping the oldest
+     * to make room.
+     */
+    void add( Keyframe keyframe )
+    {
+        while (
+               size > 0
+            && ( size == buf.length
+                || bytes + keyframe.world.length > maxBytes )
+        )
+        {
+            dropOldest();
+        }
+
+        if ( buf.length == 0 || keyframe.world.length > maxBytes )
+        {
+            return;
+        }
+
+        buf[index( size )] = keyframe;
+        ++size;
+        bytes += keyframe.world.length;
+    }
+
+    /**
+     * @return the latest keyframe at or before tick, or null if there is
+     *         none.
+     */
+    Keyframe atOrBefore( int tick )
+    {
+        // Binary search: the keyframes are in tick order.
+        int lo = 0;
+        int hi = size;
+        while ( lo < hi )
+        {
+            int mid = ( lo + hi ) >>> 1;
+            if ( get( mid ).tick <= tick )
+            {
+                lo = mid + 1;
+            }
+            else
+            {
+                hi = mid;
+            }
+        }
+        return lo == 0 ? null : get( lo - 1 );
+    }
+
+    /**
+     * Forget all keyframes after tick.
+     */
+    void dropAfter( int tick )
+    {
+        while ( size > 0 && get( size - 1 ).tick > tick )
+        {
+            bytes -= get( size - 1 ).world.length;
+            buf[index( size - 1 )] = null;
+            --size;
+        }
+    }
+
+    int size()
+    {
+        return size;
+    }
+
+    long bytes()
+    {
+        return bytes;
+    }
+
+    /**
+     * @param i counting from the oldest.
+     */
+    Keyframe get( int i )
+    {
+        return buf[index( i )];
+    }
+
+    private void dropOldest()
+    {
+        bytes -= buf[first].world.length;
+        buf[first] = null;
+        first = index( 1 );
+        --size;
+    }
+
+    private int index( int i )
+    {
+        return ( first + i ) % buf.length;
+    }
+}
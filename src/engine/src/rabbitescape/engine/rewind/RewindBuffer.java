@@ -0,0 +1,238 @@
+package rabbitescape.engine.rewind;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import rabbitescape.engine.Token;
+import rabbitescape.engine.World;
+import rabbitescape.engine.World.UnableToAddToken;
+import rabbitescape.engine.binaryworld.BinaryWorldManip;
+import rabbitescape.engine.err.RabbitEscapeException;
+import rabbitescape.engine.rewind.KeyframeRing.Keyframe;
+
+/**
+ * Plays a world forward while remembering enough to go back to any
+ * earlier tick quickly, without replaying from the start.
+ *
+ * Every keyframeInterval ticks the world is saved with BinaryWorldManip
+ * into a ring of keyframes limited to a number of bytes, and every token
+ * placed is logged with its tick. To see an earlier tick, the nearest
+ * keyframe before it (or the world as it was at the start, which is
+ * always kept) is loaded and stepped forward, placing the logged tokens
+ * as it goes. A world loaded with BinaryWorldManip carries on exactly as
+ * the one saved would have, so this gives back the world as it was.
+ *
+ * Tokens must be placed through placeToken() and the world stepped
+ * through step(), so that they are recorded.
+ */
+public class RewindBuffer
+{
+    public static class TickNotRecorded extends RabbitEscapeException
+    {
+        private static final long serialVersionUID = 1L;
+
+        public final int tick;
+        public final int latest;
+
+        public TickNotRecorded( int tick, int latest )
+        {
+            this.tick = tick;
+            this.latest = latest;
+        }
+    }
+
+    /**
+     * A token placed just before the world was stepped from tick.
+     */
+    private static final class Placement
+    {
+        final int tick;
+        final int x;
+        final int y;
+        final Token.Type type;
+
+        Placement( int tick, int x, int y, Token.Type type )
+        {
+            this.tick = tick;
+            this.x = x;
+            this.y = y;
+            this.type = type;
+        }
+    }
+
+    public static final int DEFAULT_KEYFRAME_INTERVAL = 25;
+    public static final long DEFAULT_MEMORY_BUDGET = 4 * 1024 * 1024;
+
+    /** Most worlds save in a few hundred bytes, so this is rarely reached. */
+    private static final int MAX_KEYFRAMES = 4096;
+
+    private final int keyframeInterval;
+    private final Keyframe start;
+    private final KeyframeRing keyframes;
+    private final List<Placement> placements = new ArrayList<>();
+
+    private World world;
+    private int tick;
+    private int lastKeyframe;
+
+    /**
+     * @param world            The world to play. It must not have been
+     *                         stepped by anything else while this is
+     *                         playing it.
+     * @param keyframeInterval Save a keyframe every this many ticks. Fewer
+     *                         ticks make going back quicker, but use more
+     *                         memory.
+     * @param memoryBudget     The most bytes of keyframes to keep. Once
+     *                         reached, the oldest are dropped, and going
+     *                         back before the oldest one left replays from
+     *                         the start.
+     */
+    public RewindBuffer( World world, int keyframeInterval, long memoryBudget )
+    {
+        this.world = world;
+        this.keyframeInterval = Math.max( 1, keyframeInterval );
+        this.start = new Keyframe( 0, BinaryWorldManip.save( world ) );
+        this.keyframes = new KeyframeRing( MAX_KEYFRAMES, memoryBudget );
+        this.tick = 0;
+        this.lastKeyframe = 0;
+    }
+
+    public RewindBuffer( World world )
+    {
+        this( world, DEFAULT_KEYFRAME_INTERVAL, DEFAULT_MEMORY_BUDGET );
+    }
+
+    /**
+     * @return the world at the latest tick.
+     */
+    public World world()
+    {
+        return world;
+    }
+
+    /**
+     * @return the latest tick: how many times the world has been stepped.
+     */
+    public int tick()
+    {
+        return tick;
+    }
+
+    /**
+     * Place a token now, to take effect when the world next steps.
+     */
+    public void placeToken( int x, int y, Token.Type type )
+        throws UnableToAddToken
+    {
+        world.changes.addToken( x, y, type );
+        placements.add( new Placement( tick, x, y, type ) );
+    }
+
+    public void step()
+    {
+        world.step();
+        ++tick;
+
+        if ( tick - lastKeyframe >= keyframeInterval )
+        {
+            keyframes.add(
+                new Keyframe( tick, BinaryWorldManip.save( world ) ) );
+            lastKeyframe = tick;
+        }
+    }
+
+    /**
+     * @return a new world as this one was at the supplied tick. This
+     *         buffer and its world are not changed.
+     */
+    public World worldAt( int target )
+    {
+        if ( target < 0 || target > tick )
+        {
+            throw new TickNotRecorded( target, tick );
+        }
+
+        Keyframe keyframe = keyframes.atOrBefore( target );
+        return replay( keyframe == null ? start : keyframe, target );
+    }
+
+    /**
+     * Go back to the supplied tick, forgetting everything after it, so that
+     * play carries on from there.
+     */
+    public void rewindTo( int target )
+    {
+        world = worldAt( target );
+        tick = target;
+
+        keyframes.dropAfter( target );
+        Keyframe latest = keyframes.atOrBefore( target );
+        lastKeyframe = latest == null ? 0 : latest.tick;
+
+        int i = placements.size();
+        while ( i > 0 && placements.get( i - 1 ).tick >= target )
+        {
+            --i;
+        }
+        placements.subList( i, placements.size() ).clear();
+    }
+
+    /**
+     * @return how many keyframes are held, not counting the start.
+     */
+    public int numKeyframes()
+    {
+        return keyframes.size();
+    }
+
+    /**
+     * @return how many bytes the keyframes take, not counting the start.
+     */
+    public long keyframeBytes()
+    {
+        return keyframes.bytes();
+    }
+
+    private World replay( Keyframe keyframe, int target )
+    {
+        World ret = BinaryWorldManip.load( keyframe.world );
+
+        int next = firstPlacementAt( keyframe.tick );
+        for ( int t = keyframe.tick; t < target; ++t )
+        {
+            for (
+                ;
+                next < placements.size() && placements.get( next ).tick == t;
+                ++next
+            )
+            {
+                Placement p = placements.get( next );
+                ret.changes.addToken( p.x, p.y, p.type );
+            }
+            ret.step();
+        }
+        return ret;
+    }
+
+    /**
+     * @return the index of the first placement made at or after tick.
+     */
+    private int firstPlacementAt( int tick )
+    {
+        int lo = 0;
+        int hi = placements.size();
+        while ( lo < hi )
+        {
+            int mid = ( lo + hi ) >>> 1;
+            if ( placements.get( mid ).tick < tick )
+            {
+                lo = mid + 1;
+            }
+            else
+            {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+}
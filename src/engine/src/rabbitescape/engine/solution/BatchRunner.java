@@ -0,0 +1,173 @@
+package rabbitescape.engine.solution;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+import rabbitescape.engine.IgnoreWorldStatsListener;
+import rabbitescape.engine.LoadWorldFile;
+import rabbitescape.engine.World;
+
+/**
+ * Runs one batch of jobs at once across a fork-join pool, for
+ * LevelValidator and SolutionVerifier.
+ *
+ * Results come back in the order the jobs were given, whatever order they
+ * finish in. A job may run more jobs with runAll(), in the same pool.
+ *
+ * level() loads each level once per batch, and every job asking for it
+ * gets the same World. Jobs only ever snapshot it (e.g. with SandboxGame),
+ * never change it, so sharing it is safe.
+ */
+public class BatchRunner
+{
+    /**
+     * One kind of job. Called on many threads at once.
+     */
+    public interface Task<J, R>
+    {
+        /**
+         * @param index Where the job is in the list, counting from 0.
+         */
+        R run( int index, J job );
+    }
+
+    /**
+     * The results of all the jobs, in the order they were given.
+     */
+    public static class Results<R>
+    {
+        public final List<R> results;
+        /** Time from start to finish of all the jobs. */
+        public final long nanos;
+
+        public Results( List<R> results, long nanos )
+        {
+            this.results = results;
+            this.nanos = nanos;
+        }
+    }
+
+    private final LoadWorldFile loader;
+    private final int parallelism;
+    private final ConcurrentHashMap<String, World> levels =
+        new ConcurrentHashMap<>();
+
+    /**
+     * @param loader      Used to load each level.
+     * @param parallelism The number of threads to use.
+     */
+    public BatchRunner( LoadWorldFile loader, int parallelism )
+    {
+        this.loader = loader;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Run the task on every job. Called from inside a job, runs them in
+     * the pool already running it, otherwise in a new pool.
+     */
+    public <J, R> Results<R> runAll( List<J> jobs, Task<J, R> task )
+    {
+        long start = System.nanoTime();
+        AllJobs<J, R> all = new AllJobs<>( jobs, task );
+
+        List<R> results;
+        if ( ForkJoinTask.inForkJoinPool() )
+        {
+            results = all.compute();
+        }
+        else
+        {
+            ForkJoinPool pool = new ForkJoinPool( parallelism );
+            try
+            {
+                results = pool.invoke( all );
+            }
+            finally
+            {
+                pool.shutdown();
+            }
+        }
+
+        return new Results<>( results, System.nanoTime() - start );
+    }
+
+    /**
+     * @return the level, loaded by the first job to ask for it.
+     */
+    public World level( String path )
+    {
+        World ret = levels.get( path );
+        if ( ret == null )
+        {
+            // If two jobs load the same level at once, both are loaded
+            // but only one is kept: it does no harm.
+            ret = loader.load( new IgnoreWorldStatsListener(), path );
+            World before = levels.putIfAbsent( path, ret );
+            if ( before != null )
+            {
+                ret = before;
+            }
+        }
+        return ret;
+    }
+
+    private static class AllJobs<J, R> extends RecursiveTask<List<R>>
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final List<J> jobs;
+        private final Task<J, R> task;
+
+        public AllJobs( List<J> jobs, Task<J, R> task )
+        {
+            this.jobs = jobs;
+            this.task = task;
+        }
+
+        @Override
+        protected List<R> compute()
+        {
+            List<OneJob<J, R>> tasks = new ArrayList<>();
+            for ( int i = 0; i < jobs.size(); ++i )
+            {
+                tasks.add( new OneJob<>( i, jobs.get( i ), task ) );
+            }
+            invokeAll( tasks );
+
+            List<R> ret = new ArrayList<>();
+            for ( OneJob<J, R> one : tasks )
+            {
+                ret.add( one.join() );
+            }
+            return Collections.unmodifiableList( ret );
+        }
+    }
+
+    private static class OneJob<J, R> extends RecursiveTask<R>
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final int index;
+        private final J job;
+        private final Task<J, R> task;
+
+        public OneJob( int index, J job, Task<J, R> task )
+        {
+            this.index = index;
+            this.job = job;
+            this.task = task;
+        }
+
+        @Override
+        protected R compute()
+        {
+            return task.run( index, job );
+        }
+    }
+}
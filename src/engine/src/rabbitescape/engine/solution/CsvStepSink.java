@@ -0,0 +1,42 @@
+package rabbitescape.engine.solution;
+
+import java.io.PrintStream;
+
+import rabbitescape.engine.World.CompletionState;
+
+/**
+ * Writes one line of comma-separated values per step, after a header line.
+ */
+public class CsvStepSink implements SolutionStepListener
+{
+    public static final String HEADER =
+        "tick,rabbits_out,saved,killed,waiting,tokens_left,nanos";
+
+    private final PrintStream out;
+
+    public CsvStepSink( PrintStream out )
+    {
+        this.out = out;
+        out.println( HEADER );
+    }
+
+    @Override
+    public void stepped( SolutionStep step )
+    {
+        out.println(
+            step.tick
+            + "," + step.rabbitsOut
+            + "," + step.saved
+            + "," + step.killed
+            + "," + step.waiting
+            + "," + step.tokensLeft
+            + "," + step.nanos
+        );
+    }
+
+    @Override
+    public void finished( CompletionState state )
+    {
+        out.flush();
+    }
+}
@@ -0,0 +1,47 @@
+package rabbitescape.engine.solution;
+
+import java.io.PrintStream;
+
+import rabbitescape.engine.World.CompletionState;
+
+/**
+ * Writes one JSON object per line for each step, then a last one giving
+ * the final state of the world, e.g.
+ *
+ * {"tick":1,"rabbits_out":1,"saved":0,"killed":0,"waiting":9,
+ *  "tokens_left":3,"nanos":10412}
+ * {"finished":"WON"}
+ *
+ * (with each object on one line).
+ */
+public class JsonLinesStepSink implements SolutionStepListener
+{
+    private final PrintStream out;
+
+    public JsonLinesStepSink( PrintStream out )
+    {
+        this.out = out;
+    }
+
+    @Override
+    public void stepped( SolutionStep step )
+    {
+        out.println(
+            "{\"tick\":" + step.tick
+            + ",\"rabbits_out\":" + step.rabbitsOut
+            + ",\"saved\":" + step.saved
+            + ",\"killed\":" + step.killed
+            + ",\"waiting\":" + step.waiting
+            + ",\"tokens_left\":" + step.tokensLeft
+            + ",\"nanos\":" + step.nanos
+            + "}"
+        );
+    }
+
+    @Override
+    public void finished( CompletionState state )
+    {
+        out.println( "{\"finished\":\"" + state.name() + "\"}" );
+        out.flush();
+    }
+}
@@ -0,0 +1,83 @@
+package rabbitescape.engine.solution;
+
+import java.io.PrintStream;
+
+import rabbitescape.engine.solution.SolutionVerifier.Report;
+import rabbitescape.engine.solution.SolutionVerifier.Verdict;
+
+/**
+ * Writes one JSON object per line for each verdict as it arrives, then a
+ * last one summing up the batch, e.g.
+ *
+ * {"job":0,"level":"levels/easy.rel","status":"WON","ticks":57,"saved":3,
+ *  "killed":0,"state":"WON","problem":null,"nanos":1803112}
+ * {"finished":1,"won":1,"nanos":2406315}
+ *
+ * (with each object on one line). "problem" is the name of what went
+ * wrong, e.g. "DidNotWin".
+ */
+public class JsonLinesVerdictSink implements SolutionVerifier.Listener
+{
+    private final PrintStream out;
+
+    public JsonLinesVerdictSink( PrintStream out )
+    {
+        this.out = out;
+    }
+
+    @Override
+    public void verdict( Verdict verdict )
+    {
+        out.println(
+            "{\"job\":" + verdict.index
+            + ",\"level\":" + quote( verdict.job.level )
+            + ",\"status\":\"" + verdict.status.name() + "\""
+            + ",\"ticks\":" + verdict.ticks
+            + ",\"saved\":" + verdict.saved
+            + ",\"killed\":" + verdict.killed
+            + ",\"state\":" + (
+                verdict.state == null
+                    ? "null" : "\"" + verdict.state.name() + "\"" )
+            + ",\"problem\":" + (
+                verdict.problem == null
+                    ? "null"
+                    : quote( verdict.problem.getClass().getSimpleName() ) )
+            + ",\"nanos\":" + verdict.nanos
+            + "}"
+        );
+        out.flush();
+    }
+
+    @Override
+    public void finished( Report report )
+    {
+        out.println(
+            "{\"finished\":" + report.verdicts.size()
+            + ",\"won\":" + report.numWon()
+            + ",\"nanos\":" + report.nanos
+            + "}"
+        );
+        out.flush();
+    }
+
+    private static String quote( String s )
+    {
+        StringBuilder ret = new StringBuilder( "\"" );
+        for ( char c : s.toCharArray() )
+        {
+            if ( c == '"' || c == '\\' )
+            {
+                ret.append( '\\' ).append( c );
+            }
+            else if ( c < 0x20 )
+            {
+                ret.append( String.format( "\\u%04x", (int)c ) );
+            }
+            else
+            {
+                ret.append( c );
+            }
+        }
+        return ret.append( '"' ).toString();
+    }
+}
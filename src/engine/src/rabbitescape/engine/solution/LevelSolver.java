@@ -0,0 +1,584 @@
+package rabbitescape.engine.solution;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import rabbitescape.engine.Direction;
+import rabbitescape.engine.Exit;
+import rabbitescape.engine.Rabbit;
+import rabbitescape.engine.Thing;
+import rabbitescape.engine.Token;
+import rabbitescape.engine.TokenPlacementRegistry;
+import rabbitescape.engine.World;
+import rabbitescape.engine.World.CompletionState;
+import rabbitescape.engine.World.UnableToAddToken;
+import rabbitescape.engine.binaryworld.BinaryWorldManip;
+import rabbitescape.engine.util.Position;
+
+/**
+ * Looks for a solution to a level by trying token placements and waits,
+ * with a beam search spread across a fork-join pool.
+ *
+ * Each search state is a world saved with BinaryWorldManip, so that any
+ * number of them can be expanded side by side, each in its own World,
+ * which plays on exactly as the world saved would have.
+ * Every depth of the search moves the world on by ticksPerMove ticks,
+ * either just waiting or after placing one token near a rabbit. States
+ * already reached are remembered in a transposition table keyed by
+ * World.stateHash(), which compares the saved bytes of states whose
+ * hashes match, and only the beamWidth most promising new states are
+ * kept at each depth.
+ *
+ * A solution is only returned once SolutionRunner has checked that it
+ * wins when played from the start.
+ */
+public class LevelSolver
+{
+    /**
+     * What the search found.
+     */
+    public static class Result
+    {
+        /** A winning solution, or null if none was found. */
+        public final Solution solution;
+        /** How many states were expanded. */
+        public final long expanded;
+        /** How many different states the search reached. */
+        public final int statesSeen;
+        public final long nanos;
+
+        public Result(
+            Solution solution, long expanded, int statesSeen, long nanos )
+        {
+            this.solution = solution;
+            this.expanded = expanded;
+            this.statesSeen = statesSeen;
+            this.nanos = nanos;
+        }
+
+        public boolean solved()
+        {
+            return solution != null;
+        }
+
+        /**
+         * @return the solution as it would be written in a level file, or
+         *         null if there isn't one.
+         */
+        public String solutionString()
+        {
+            return solution == null
+                ? null
+                : SolutionParser.serialise( solution );
+        }
+    }
+
+    /** How far along their row in front of a rabbit tokens are tried. */
+    private static final int LOOK_AHEAD = 2;
+
+    private final int beamWidth;
+    private final int ticksPerMove;
+    private final int maxTicks;
+    private final int parallelism;
+
+    /**
+     * @param beamWidth    How many states to keep at each depth.
+     * @param ticksPerMove How many ticks each move waits for. Larger is
+     *                     faster, but misses solutions that need tokens
+     *                     placed in between.
+     * @param maxTicks     Give up once the world has run this long.
+     * @param parallelism  The number of threads to use.
+     */
+    public LevelSolver(
+        int beamWidth, int ticksPerMove, int maxTicks, int parallelism )
+    {
+        this.beamWidth = beamWidth;
+        this.ticksPerMove = ticksPerMove;
+        this.maxTicks = maxTicks;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Use one thread per processor.
+     */
+    public LevelSolver( int beamWidth, int ticksPerMove, int maxTicks )
+    {
+        this(
+            beamWidth,
+            ticksPerMove,
+            maxTicks,
+            Runtime.getRuntime().availableProcessors()
+        );
+    }
+
+    /**
+     * Search for a solution to the level in its current state. The world
+     * is not changed.
+     */
+    public Result solve( World world )
+    {
+        long start = System.nanoTime();
+
+        Seen seen = new Seen();
+        long expanded = 0;
+
+        byte[] startState = BinaryWorldManip.save( world );
+        seen.add( world.stateHash(), startState );
+
+        List<Node> frontier = new ArrayList<>();
+        frontier.add(
+            new Node(
+                null,
+                null,
+                startState,
+                world.stateHash(),
+                0,
+                0,
+                0,
+                world.completionState()
+            )
+        );
+
+        ForkJoinPool pool = new ForkJoinPool( parallelism );
+        try
+        {
+            while ( !frontier.isEmpty() )
+            {
+                List<Node> children = pool.invoke(
+                    new ExpandAll( frontier, seen ) );
+                expanded += frontier.size();
+
+                List<Node> next = new ArrayList<>();
+                for ( Node child : children )
+                {
+                    // Added here rather than while expanding, so that the
+                    // same states survive whatever order threads finish in.
+                    if ( !seen.add( child.hash, child.state ) )
+                    {
+                        continue;
+                    }
+
+                    if ( child.completionState == CompletionState.WON )
+                    {
+                        Solution solution = child.solution();
+                        if ( wins( solution, world ) )
+                        {
+                            return new Result(
+                                solution,
+                                expanded,
+                                seen.size(),
+                                System.nanoTime() - start
+                            );
+                        }
+                    }
+                    else if (
+                           child.completionState == CompletionState.RUNNING
+                        && child.tick < maxTicks
+                    )
+                    {
+                        next.add( child );
+                    }
+                }
+
+                Collections.sort( next, BEST_FIRST );
+                frontier = next.subList(
+                    0, Math.min( beamWidth, next.size() ) );
+            }
+        }
+        finally
+        {
+            pool.shutdown();
+        }
+
+        return new Result(
+            null, expanded, seen.size(), System.nanoTime() - start );
+    }
+
+    /**
+     * Play the solution from the start. A world loaded with BinaryWorldManip
+     * carries on exactly as the one saved would have, so this only guards
+     * against a bug there handing back a solution that does not win.
+     */
+    private static boolean wins( Solution solution, World world )
+    {
+        try
+        {
+            return SolutionRunner.runSolution( solution, world );
+        }
+        catch ( SolutionExceptions.ProblemRunningSolution e )
+        {
+            return false;
+        }
+    }
+
+    /**
+     * Higher is better: every rabbit saved or killed outweighs any
+     * difference in how far the others have left to go.
+     */
+    static int score( World world )
+    {
+        List<Position> exits = new ArrayList<>();
+        for ( Thing thing : world.things )
+        {
+            if ( thing instanceof Exit )
+            {
+                exits.add( new Position( thing.x, thing.y ) );
+            }
+        }
+
+        int distance = 0;
+        for ( Rabbit rabbit : world.rabbits )
+        {
+            if ( rabbit.type != Rabbit.Type.RABBIT )
+            {
+                continue;
+            }
+            int nearest = world.size.width + world.size.height;
+            for ( Position exit : exits )
+            {
+                nearest = Math.min(
+                    nearest,
+                      Math.abs( exit.x - rabbit.x )
+                    + Math.abs( exit.y - rabbit.y )
+                );
+            }
+            distance += nearest;
+        }
+
+        int cells = world.size.width * world.size.height;
+        return ( world.num_saved - world.num_killed ) * cells - distance;
+    }
+
+    private static final Comparator<Node> BEST_FIRST = new Comparator<Node>()
+    {
+        @Override
+        public int compare( Node a, Node b )
+        {
+            // Stable sort, so equal scores stay in the order they were made
+            return Integer.compare( b.score, a.score );
+        }
+    };
+
+    /**
+     * One state reached by the search, and how it was reached.
+     */
+    private static class Node
+    {
+        final Node parent;
+        /** The token placed before waiting, or null if we only waited. */
+        final Token move;
+        final byte[] state;
+        final long hash;
+        /** How many ticks were stepped to reach here from parent. */
+        final int ticks;
+        /** How many ticks from the start of the search. */
+        final int tick;
+        final int score;
+        final CompletionState completionState;
+
+        Node(
+            Node parent,
+            Token move,
+            byte[] state,
+            long hash,
+            int ticks,
+            int tick,
+            int score,
+            CompletionState completionState
+        )
+        {
+            this.parent = parent;
+            this.move = move;
+            this.state = state;
+            this.hash = hash;
+            this.ticks = ticks;
+            this.tick = tick;
+            this.score = score;
+            this.completionState = completionState;
+        }
+
+        /**
+         * @return the moves from the start to here, as a solution.
+         */
+        Solution solution()
+        {
+            List<Node> path = new ArrayList<>();
+            for ( Node n = this; n.parent != null; n = n.parent )
+            {
+                path.add( n );
+            }
+            Collections.reverse( path );
+
+            List<SolutionCommand> commands = new ArrayList<>();
+            Token.Type selected = null;
+            int waiting = 0;
+            for ( Node n : path )
+            {
+                int ticks = n.ticks;
+                if ( n.move != null )
+                {
+                    if ( waiting > 0 )
+                    {
+                        commands.add(
+                            new SolutionCommand( new WaitAction( waiting ) ) );
+                        waiting = 0;
+                    }
+
+                    PlaceTokenAction place =
+                        new PlaceTokenAction( n.move.x, n.move.y );
+                    if ( n.move.type == selected )
+                    {
+                        commands.add( new SolutionCommand( place ) );
+                    }
+                    else
+                    {
+                        commands.add(
+                            new SolutionCommand(
+                                new SelectAction( n.move.type ), place )
+                        );
+                        selected = n.move.type;
+                    }
+                    // Placing a token steps the world once
+                    --ticks;
+                }
+                waiting += ticks;
+            }
+            if ( waiting > 0 )
+            {
+                commands.add(
+                    new SolutionCommand( new WaitAction( waiting ) ) );
+            }
+
+            return new Solution(
+                commands.toArray( new SolutionCommand[ commands.size() ] ) );
+        }
+    }
+
+    /**
+     * The transposition table: every state reached so far. Two states are
+     * only the same if their saved bytes are, so states whose hashes
+     * collide are both kept.
+     *
+     * Only the thread running the search adds states, while no others are
+     * looking, so the lists need no locks.
+     */
+    private static class Seen
+    {
+        private final Map<Long, List<byte[]>> states =
+            new ConcurrentHashMap<>();
+        private int size = 0;
+
+        /**
+         * @return true if the state had not been seen before.
+         */
+        public boolean add( long hash, byte[] state )
+        {
+            List<byte[]> same = states.get( hash );
+            if ( same == null )
+            {
+                same = new ArrayList<>( 1 );
+                states.put( hash, same );
+            }
+            else if ( contains( same, state ) )
+            {
+                return false;
+            }
+            same.add( state );
+            ++size;
+            return true;
+        }
+
+        public boolean contains( long hash, byte[] state )
+        {
+            List<byte[]> same = states.get( hash );
+            return same != null && contains( same, state );
+        }
+
+        public int size()
+        {
+            return size;
+        }
+
+        private static boolean contains( List<byte[]> same, byte[] state )
+        {
+            for ( byte[] s : same )
+            {
+                if ( Arrays.equals( s, state ) )
+                {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private class ExpandAll extends RecursiveTask<List<Node>>
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final List<Node> frontier;
+        private final Seen seen;
+
+        public ExpandAll( List<Node> frontier, Seen seen )
+        {
+            this.frontier = frontier;
+            this.seen = seen;
+        }
+
+        @Override
+        protected List<Node> compute()
+        {
+            List<Expand> tasks = new ArrayList<>();
+            for ( Node node : frontier )
+            {
+                tasks.add( new Expand( node, seen ) );
+            }
+            invokeAll( tasks );
+
+            List<Node> ret = new ArrayList<>();
+            for ( Expand task : tasks )
+            {
+                ret.addAll( task.join() );
+            }
+            return ret;
+        }
+    }
+
+    private class Expand extends RecursiveTask<List<Node>>
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final Node node;
+        private final Seen seen;
+
+        public Expand( Node node, Seen seen )
+        {
+            this.node = node;
+            this.seen = seen;
+        }
+
+        @Override
+        protected List<Node> compute()
+        {
+            List<Node> ret = new ArrayList<>();
+
+            addChild( ret, null );
+
+            World world = BinaryWorldManip.load( node.state );
+            for ( Token move : candidateMoves( world ) )
+            {
+                addChild( ret, move );
+            }
+
+            return ret;
+        }
+
+        /**
+         * Play the move (or just wait, if it is null) in a fresh copy of
+         * the world, and add the state it leads to unless it was reached
+         * at an earlier depth.
+         */
+        private void addChild( List<Node> ret, Token move )
+        {
+            World world = BinaryWorldManip.load( node.state );
+
+            if ( move != null )
+            {
+                try
+                {
+                    world.changes.addToken( move.x, move.y, move.type );
+                }
+                catch ( UnableToAddToken e )
+                {
+                    return;
+                }
+            }
+
+            int ticks = 0;
+            while (
+                   ticks < ticksPerMove
+                && world.completionState() == CompletionState.RUNNING
+            )
+            {
+                world.step();
+                ++ticks;
+            }
+
+            Node child = new Node(
+                node,
+                move,
+                BinaryWorldManip.save( world ),
+                world.stateHash(),
+                ticks,
+                node.tick + ticks,
+                score( world ),
+                world.completionState()
+            );
+
+            if ( !seen.contains( child.hash, child.state ) )
+            {
+                ret.add( child );
+            }
+        }
+    }
+
+    /**
+     * Tokens worth trying: each kind we have left, in each cell at or just
+     * in front of a rabbit where it would be placed.
+     */
+    static List<Token> candidateMoves( World world )
+    {
+        Set<Position> cells = new LinkedHashSet<>();
+        for ( Rabbit rabbit : world.rabbits )
+        {
+            if ( rabbit.type != Rabbit.Type.RABBIT )
+            {
+                continue;
+            }
+            int dx = ( rabbit.dir == Direction.LEFT ) ? -1 : 1;
+            for ( int i = 0; i <= LOOK_AHEAD; ++i )
+            {
+                int x = rabbit.x + i * dx;
+                if (
+                       x >= 0
+                    && x < world.size.width
+                    && rabbit.y >= 0
+                    && rabbit.y < world.size.height
+                )
+                {
+                    cells.add( new Position( x, rabbit.y ) );
+                }
+            }
+        }
+
+        List<Token> ret = new ArrayList<>();
+        for ( Token.Type type : Token.Type.values() )
+        {
+            Integer numLeft = world.abilities.get( type );
+            if ( numLeft == null || numLeft <= 0 )
+            {
+                continue;
+            }
+            for ( Position cell : cells )
+            {
+                if (
+                    TokenPlacementRegistry.getStrategy( type )
+                        .wouldPlace( world, cell.x, cell.y, type )
+                )
+                {
+                    ret.add( new Token( cell.x, cell.y, type ) );
+                }
+            }
+        }
+        return ret;
+    }
+}
@@ -0,0 +1,255 @@
+package rabbitescape.engine.solution;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import rabbitescape.engine.LoadWorldFile;
+import rabbitescape.engine.World;
+
+/**
+ * Runs the solutions of many levels at once, with a BatchRunner spreading
+ * the levels, and the solutions within each level, across its threads.
+ *
+ * Worlds never share anything that changes, and each solution runs in its
+ * own SandboxGame, so levels and solutions can safely run side by side.
+ */
+public class LevelValidator
+{
+    /**
+     * The outcome of running one solution.
+     */
+    public static class SolutionResult
+    {
+        /** Counting from 1, as in the level file. */
+        public final int solutionId;
+        public final boolean solved;
+        /** What went wrong, or null if the solution ran to the end. */
+        public final Throwable problem;
+
+        public SolutionResult(
+            int solutionId, boolean solved, Throwable problem )
+        {
+            this.solutionId = solutionId;
+            this.solved = solved;
+            this.problem = problem;
+        }
+    }
+
+    /**
+     * The outcome of loading a level and running all its solutions.
+     */
+    public static class LevelResult
+    {
+        public final String path;
+        public final List<SolutionResult> solutions;
+        /** Why the level could not be loaded, or null if it loaded. */
+        public final Throwable loadProblem;
+        /** Time spent loading the level and running its solutions. */
+        public final long nanos;
+
+        public LevelResult(
+            String path,
+            List<SolutionResult> solutions,
+            Throwable loadProblem,
+            long nanos
+        )
+        {
+            this.path = path;
+            this.solutions = solutions;
+            this.loadProblem = loadProblem;
+            this.nanos = nanos;
+        }
+
+        public boolean solved()
+        {
+            for ( SolutionResult solution : solutions )
+            {
+                if ( solution.solved )
+                {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * @return the first thing that went wrong with this level, or null
+         *         if it loaded and all its solutions ran.
+         */
+        public Throwable firstProblem()
+        {
+            if ( loadProblem != null )
+            {
+                return loadProblem;
+            }
+            for ( SolutionResult solution : solutions )
+            {
+                if ( solution.problem != null )
+                {
+                    return solution.problem;
+                }
+            }
+            return null;
+        }
+
+        /**
+         * @param mustWin if true, a level with no winning solution fails.
+         */
+        public boolean passed( boolean mustWin )
+        {
+            return firstProblem() == null && ( !mustWin || solved() );
+        }
+    }
+
+    /**
+     * The outcomes of all the levels, in the order they were asked for.
+     */
+    public static class Report
+    {
+        public final List<LevelResult> levels;
+        /** Time from start to finish of the whole run. */
+        public final long nanos;
+
+        public Report( List<LevelResult> levels, long nanos )
+        {
+            this.levels = levels;
+            this.nanos = nanos;
+        }
+
+        public List<LevelResult> failures( boolean mustWin )
+        {
+            List<LevelResult> ret = new ArrayList<>();
+            for ( LevelResult level : levels )
+            {
+                if ( !level.passed( mustWin ) )
+                {
+                    ret.add( level );
+                }
+            }
+            return ret;
+        }
+
+        /**
+         * @return the time spent on all the levels, added together. Divide
+         *         by nanos to see how much running in parallel helped.
+         */
+        public long levelNanos()
+        {
+            long ret = 0;
+            for ( LevelResult level : levels )
+            {
+                ret += level.nanos;
+            }
+            return ret;
+        }
+    }
+
+    private final LoadWorldFile loader;
+    private final int parallelism;
+
+    /**
+     * @param loader      Used to load each level.
+     * @param parallelism The number of threads to use.
+     */
+    public LevelValidator( LoadWorldFile loader, int parallelism )
+    {
+        this.loader = loader;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Use one thread per processor.
+     */
+    public LevelValidator( LoadWorldFile loader )
+    {
+        this( loader, Runtime.getRuntime().availableProcessors() );
+    }
+
+    /**
+     * Load each level and run all its solutions.
+     *
+     * @param paths The levels to load, as understood by LoadWorldFile.
+     */
+    public Report validate( List<String> paths )
+    {
+        final BatchRunner runner = new BatchRunner( loader, parallelism );
+
+        BatchRunner.Results<LevelResult> levels = runner.runAll(
+            paths,
+            new BatchRunner.Task<String, LevelResult>()
+            {
+                @Override
+                public LevelResult run( int index, String path )
+                {
+                    return level( runner, path );
+                }
+            }
+        );
+
+        return new Report( levels.results, levels.nanos );
+    }
+
+    private static LevelResult level(
+        BatchRunner runner, final String path )
+    {
+        long start = System.nanoTime();
+
+        final World world;
+        try
+        {
+            world = runner.level( path );
+        }
+        catch ( Throwable e )
+        {
+            return new LevelResult(
+                path,
+                Collections.<SolutionResult>emptyList(),
+                e,
+                System.nanoTime() - start
+            );
+        }
+
+        BatchRunner.Results<SolutionResult> solutions = runner.runAll(
+            Arrays.asList( world.solutions ),
+            new BatchRunner.Task<String, SolutionResult>()
+            {
+                @Override
+                public SolutionResult run( int index, String solution )
+                {
+                    return solution( world, path, index + 1, solution );
+                }
+            }
+        );
+
+        return new LevelResult(
+            path, solutions.results, null, System.nanoTime() - start );
+    }
+
+    private static SolutionResult solution(
+        World world, String path, int solutionId, String solution )
+    {
+        try
+        {
+            boolean solved = SolutionRunner.runSolution(
+                SolutionParser.parse( solution ), world );
+
+            return new SolutionResult( solutionId, solved, null );
+        }
+        catch ( SolutionExceptions.ProblemRunningSolution e )
+        {
+            e.solutionId = solutionId;
+            e.level = path;
+            return new SolutionResult( solutionId, false, e );
+        }
+        catch ( Throwable e )
+        {
+            SolutionExceptions.UnknownProblem u =
+                new SolutionExceptions.UnknownProblem( e );
+            u.solutionId = solutionId;
+            u.level = path;
+            return new SolutionResult( solutionId, false, u );
+        }
+    }
+}
@@ -176,6 +176,21 @@ public class SolutionExceptions
         }
     }
 
+    /**
+     * The solution needed the world to step more times than we allowed.
+     */
+    public static class StepBudgetExceeded extends ProblemRunningSolution
+    {
+        private static final long serialVersionUID = 1L;
+
+        public final int maxSteps;
+
+        public StepBudgetExceeded( int maxSteps )
+        {
+            this.maxSteps = maxSteps;
+        }
+    }
+
     /**
      * Some other exception was thrown.
      */
@@ -18,6 +18,8 @@ import rabbitescape.engine.util.Util;
 
 public class SolutionRunner
 {
+    private static final int NO_STEP_LIMIT = Integer.MAX_VALUE;
+
     /**
      * @return true if the supplied solution solved the level
      * @param output  A stream (eg System.out) to print to.
@@ -37,7 +39,9 @@ public class SolutionRunner
             interpreter, 
             sandboxGame, 
             output, 
-            genTest 
+            genTest,
+            null,
+            NO_STEP_LIMIT
         );
     }
 
@@ -46,6 +50,53 @@ public class SolutionRunner
         return runSolution( solution, world, null, false);
     }
 
+    /**
+     * @return true if the supplied solution solved the level
+     * @param listener told about every step of the world as it happens.
+     */
+    public static boolean runSolution(
+        Solution solution,
+        World world,
+        SolutionStepListener listener
+    ) throws SolutionExceptions.ProblemRunningSolution
+    {
+        return runSolutionInSandbox(
+            new SolutionInterpreter( solution ),
+            new SandboxGame( world ),
+            null,
+            false,
+            listener,
+            NO_STEP_LIMIT
+        );
+    }
+
+    /**
+     * Run a solution in a sandbox supplied by the caller, so that the world
+     * can be examined afterwards, giving up if the world would be stepped
+     * more than maxSteps times.
+     *
+     * @return true if the supplied solution solved the level
+     * @param listener may be null.
+     * @throws SolutionExceptions.StepBudgetExceeded if the solution would
+     *         need more than maxSteps steps.
+     */
+    public static boolean runSolution(
+        Solution solution,
+        SandboxGame sandboxGame,
+        int maxSteps,
+        SolutionStepListener listener
+    ) throws SolutionExceptions.ProblemRunningSolution
+    {
+        return runSolutionInSandbox(
+            new SolutionInterpreter( solution ),
+            sandboxGame,
+            null,
+            false,
+            listener,
+            maxSteps
+        );
+    }
+
     public static void runPartialSolution(
         Solution solution,
         final SandboxGame sandboxGame
@@ -56,46 +107,63 @@ public class SolutionRunner
             false 
         );
 
-        runSolutionInSandbox( interpreter, sandboxGame, null, false );
+        runSolutionInSandbox(
+            interpreter, sandboxGame, null, false, null, NO_STEP_LIMIT );
     }
 
+    /**
+     * @param listener may be null.
+     */
     private static boolean runSolutionInSandbox(
         SolutionInterpreter interpreter,
         SandboxGame sandboxGame,
         PrintStream output,
-        boolean genTest
+        boolean genTest,
+        SolutionStepListener listener,
+        int maxSteps
     )
     {
-        SolutionTimeStep step = interpreter.next(
-            sandboxGame.getWorld().completionState() );
-        while ( step != null )
+        Stepper stepper = new Stepper( listener, maxSteps );
+        try
         {
-            try
+            SolutionTimeStep step = interpreter.next(
+                sandboxGame.getWorld().completionState() );
+            while ( step != null )
             {
-                SolutionTimeStep nextStep = interpreter.next(
-                    sandboxGame.getWorld().completionState() );
-
-                if ( null != output )
+                try
                 {
-                    printStep( output,  sandboxGame.getWorld(), genTest );
-                }
+                    SolutionTimeStep nextStep = interpreter.next(
+                        sandboxGame.getWorld().completionState() );
 
-                runTimeStep( sandboxGame, step, nextStep );
+                    if ( null != output )
+                    {
+                        printStep( output,  sandboxGame.getWorld(), genTest );
+                    }
 
-                step = nextStep;
+                    runTimeStep( sandboxGame, step, nextStep, stepper );
+
+                    step = nextStep;
+                }
+                catch ( SolutionExceptions.ProblemRunningSolution e )
+                {
+                    e.commandIndex = step.commandIndex;
+                    e.world = join(
+                        "\n",
+                        TextWorldManip.renderWorld(
+                            sandboxGame.getWorld(), 
+                            false, 
+                            false 
+                        )
+                    );
+                    throw e;
+                }
             }
-            catch ( SolutionExceptions.ProblemRunningSolution e )
+        }
+        finally
+        {
+            if ( listener != null )
             {
-                e.commandIndex = step.commandIndex;
-                e.world = join(
-                    "\n",
-                    TextWorldManip.renderWorld(
-                        sandboxGame.getWorld(), 
-                        false, 
-                        false 
-                    )
-                );
-                throw e;
+                listener.finished( sandboxGame.getWorld().completionState() );
             }
         }
 
@@ -103,6 +171,44 @@ public class SolutionRunner
             CompletionState.WON );
     }
 
+    /**
+     * Steps the world, timing each step and telling the listener, if
+     * there is one, and refusing to step more than maxSteps times.
+     */
+    private static class Stepper
+    {
+        private final SolutionStepListener listener;
+        private final int maxSteps;
+        private int tick = 0;
+
+        public Stepper( SolutionStepListener listener, int maxSteps )
+        {
+            this.listener = listener;
+            this.maxSteps = maxSteps;
+        }
+
+        public void step( World world )
+        {
+            if ( tick == maxSteps )
+            {
+                throw new SolutionExceptions.StepBudgetExceeded( maxSteps );
+            }
+
+            if ( listener == null )
+            {
+                world.step();
+                ++tick;
+                return;
+            }
+
+            long start = System.nanoTime();
+            world.step();
+            long nanos = System.nanoTime() - start;
+
+            listener.stepped( SolutionStep.of( ++tick, world, nanos ) );
+        }
+    }
+
     private static void printStep(PrintStream s, World w, boolean genTest )
     {
         if ( genTest )
@@ -126,7 +232,8 @@ public class SolutionRunner
     private static void runTimeStep(
         SandboxGame sandboxGame,
         SolutionTimeStep step,
-        SolutionTimeStep nextStep
+        SolutionTimeStep nextStep,
+        Stepper stepper
     )
     {
         for ( TimeStepAction action : step.actions )
@@ -138,7 +245,7 @@ public class SolutionRunner
         {
             if ( shouldStepWorld( nextStep, sandboxGame ) )
             {
-                sandboxGame.getWorld().step();
+                stepper.step( sandboxGame.getWorld() );
             }
         }
         catch ( DontStepAfterFinish e )
@@ -0,0 +1,64 @@
+package rabbitescape.engine.solution;
+
+import rabbitescape.engine.World;
+
+/**
+ * What the world looked like just after one step of a solution, and how
+ * long the step took.
+ */
+public class SolutionStep
+{
+    /** How many times the world has stepped, starting at 1. */
+    public final int tick;
+
+    /** Rabbits that have come out of the entrance and are still going. */
+    public final int rabbitsOut;
+
+    public final int saved;
+    public final int killed;
+    public final int waiting;
+
+    /** All the tokens of every type still left to place. */
+    public final int tokensLeft;
+
+    /** Wall time of World.step() alone, in nanoseconds. */
+    public final long nanos;
+
+    public SolutionStep(
+        int tick,
+        int rabbitsOut,
+        int saved,
+        int killed,
+        int waiting,
+        int tokensLeft,
+        long nanos
+    )
+    {
+        this.tick = tick;
+        this.rabbitsOut = rabbitsOut;
+        this.saved = saved;
+        this.killed = killed;
+        this.waiting = waiting;
+        this.tokensLeft = tokensLeft;
+        this.nanos = nanos;
+    }
+
+    public static SolutionStep of( int tick, World world, long nanos )
+    {
+        int tokensLeft = 0;
+        for ( int num : world.abilities.values() )
+        {
+            tokensLeft += num;
+        }
+
+        return new SolutionStep(
+            tick,
+            world.rabbits.size(),
+            world.num_saved,
+            world.num_killed,
+            world.num_waiting,
+            tokensLeft,
+            nanos
+        );
+    }
+}
@@ -0,0 +1,18 @@
+package rabbitescape.engine.solution;
+
+import rabbitescape.engine.World.CompletionState;
+
+/**
+ * Told about each step of the world while SolutionRunner runs a solution,
+ * e.g. to profile long solutions without rendering the world as text.
+ */
+public interface SolutionStepListener
+{
+    void stepped( SolutionStep step );
+
+    /**
+     * Called once the solution has stopped running, whether or not it
+     * succeeded.
+     */
+    void finished( CompletionState state );
+}
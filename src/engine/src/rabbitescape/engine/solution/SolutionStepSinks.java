@@ -0,0 +1,56 @@
+package rabbitescape.engine.solution;
+
+import java.io.PrintStream;
+
+import rabbitescape.engine.err.RabbitEscapeException;
+
+/**
+ * Choose how to write out the steps of a solution by name, e.g. from the
+ * command line.
+ */
+public class SolutionStepSinks
+{
+    public static class UnknownFormat extends RabbitEscapeException
+    {
+        private static final long serialVersionUID = 1L;
+
+        public final String format;
+        public final String knownFormats;
+
+        public UnknownFormat( String format )
+        {
+            this.format = format;
+            this.knownFormats = KNOWN_FORMATS;
+        }
+    }
+
+    public static final String KNOWN_FORMATS = "csv, json, histogram";
+
+    /**
+     * @param format "csv", "json" (one object per line) or "histogram"
+     *               (of step times, printed at the end).
+     */
+    public static SolutionStepListener create(
+        String format, PrintStream out )
+    {
+        switch ( format )
+        {
+            case "csv":
+            {
+                return new CsvStepSink( out );
+            }
+            case "json":
+            {
+                return new JsonLinesStepSink( out );
+            }
+            case "histogram":
+            {
+                return new StepTimeHistogram( out );
+            }
+            default:
+            {
+                throw new UnknownFormat( format );
+            }
+        }
+    }
+}
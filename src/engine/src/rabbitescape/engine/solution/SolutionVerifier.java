@@ -0,0 +1,313 @@
+package rabbitescape.engine.solution;
+
+import java.util.List;
+
+import rabbitescape.engine.LoadWorldFile;
+import rabbitescape.engine.World;
+import rabbitescape.engine.World.CompletionState;
+
+/**
+ * Checks solutions sent in by players, many at once, with a BatchRunner.
+ *
+ * Each solution runs in its own SandboxGame, and is stopped if it needs
+ * more than a set number of steps, so a solution that waits for a very
+ * long time (which SolutionInterpreter's limit on until actions does not
+ * catch) cannot hold up the others.
+ *
+ * Each level is loaded once for all the solutions to it (see
+ * BatchRunner.level), and verdicts are passed to a Listener as soon as
+ * they are known, as well as being returned together at the end.
+ */
+public class SolutionVerifier
+{
+    /**
+     * A solution to check, and the level it solves.
+     */
+    public static class Job
+    {
+        /** The level, as understood by LoadWorldFile. */
+        public final String level;
+        /** The solution, as understood by SolutionParser. */
+        public final String solution;
+
+        public Job( String level, String solution )
+        {
+            this.level = level;
+            this.solution = solution;
+        }
+    }
+
+    public enum Status
+    {
+        /** The solution ran and won the level. */
+        WON,
+        /** The solution ran, but did not win or went wrong part way. */
+        FAILED,
+        /** The solution needed more steps than we allowed. */
+        OUT_OF_STEPS,
+        /** The level would not load, or the solution would not parse. */
+        INVALID
+    }
+
+    /**
+     * The outcome of checking one solution.
+     */
+    public static class Verdict
+    {
+        /** Where the job was in the batch, counting from 0. */
+        public final int index;
+        public final Job job;
+        public final Status status;
+        /** How many times the world was stepped. */
+        public final int ticks;
+        public final int saved;
+        public final int killed;
+        /** The state the world ended in, or null if it never ran. */
+        public final CompletionState state;
+        /** What went wrong, or null if the solution won. */
+        public final Throwable problem;
+        /** Time spent loading the level and running the solution. */
+        public final long nanos;
+
+        public Verdict(
+            int index,
+            Job job,
+            Status status,
+            int ticks,
+            int saved,
+            int killed,
+            CompletionState state,
+            Throwable problem,
+            long nanos
+        )
+        {
+            this.index = index;
+            this.job = job;
+            this.status = status;
+            this.ticks = ticks;
+            this.saved = saved;
+            this.killed = killed;
+            this.state = state;
+            this.problem = problem;
+            this.nanos = nanos;
+        }
+
+        public boolean won()
+        {
+            return status == Status.WON;
+        }
+    }
+
+    /**
+     * The verdicts on all the jobs, in the order they were asked for.
+     */
+    public static class Report
+    {
+        public final List<Verdict> verdicts;
+        /** Time from start to finish of the whole batch. */
+        public final long nanos;
+
+        public Report( List<Verdict> verdicts, long nanos )
+        {
+            this.verdicts = verdicts;
+            this.nanos = nanos;
+        }
+
+        public int numWon()
+        {
+            int ret = 0;
+            for ( Verdict verdict : verdicts )
+            {
+                if ( verdict.won() )
+                {
+                    ++ret;
+                }
+            }
+            return ret;
+        }
+    }
+
+    /**
+     * Told about each verdict as soon as it is known. Only one method is
+     * called at a time, but not always on the same thread, and verdicts
+     * arrive in the order they finish, not the order they were asked for.
+     */
+    public interface Listener
+    {
+        void verdict( Verdict verdict );
+
+        void finished( Report report );
+    }
+
+    private final LoadWorldFile loader;
+    private final int maxSteps;
+    private final int parallelism;
+
+    /**
+     * @param loader      Used to load each level.
+     * @param maxSteps    The most times to step the world for one solution.
+     * @param parallelism The number of threads to use.
+     */
+    public SolutionVerifier(
+        LoadWorldFile loader, int maxSteps, int parallelism )
+    {
+        this.loader = loader;
+        this.maxSteps = maxSteps;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Use one thread per processor.
+     */
+    public SolutionVerifier( LoadWorldFile loader, int maxSteps )
+    {
+        this( loader, maxSteps, Runtime.getRuntime().availableProcessors() );
+    }
+
+    /**
+     * @param listener may be null.
+     */
+    public Report verify( List<Job> jobs, Listener listener )
+    {
+        final BatchRunner runner = new BatchRunner( loader, parallelism );
+        final Listener oneAtATime = new OneAtATime( listener );
+
+        BatchRunner.Results<Verdict> verdicts = runner.runAll(
+            jobs,
+            new BatchRunner.Task<Job, Verdict>()
+            {
+                @Override
+                public Verdict run( int index, Job job )
+                {
+                    Verdict ret = verdict( runner, index, job );
+                    oneAtATime.verdict( ret );
+                    return ret;
+                }
+            }
+        );
+
+        Report report = new Report( verdicts.results, verdicts.nanos );
+        oneAtATime.finished( report );
+        return report;
+    }
+
+    private Verdict verdict( BatchRunner runner, int index, Job job )
+    {
+        long start = System.nanoTime();
+
+        World world;
+        Solution solution;
+        try
+        {
+            world = runner.level( job.level );
+            solution = SolutionParser.parse( job.solution );
+        }
+        catch ( RuntimeException e )
+        {
+            return new Verdict(
+                index,
+                job,
+                Status.INVALID,
+                0,
+                0,
+                0,
+                null,
+                e,
+                System.nanoTime() - start
+            );
+        }
+
+        SandboxGame sandbox = new SandboxGame( world );
+        TickCounter ticks = new TickCounter();
+        Status status;
+        Throwable problem = null;
+        try
+        {
+            boolean won = SolutionRunner.runSolution(
+                solution, sandbox, maxSteps, ticks );
+
+            status = won ? Status.WON : Status.FAILED;
+        }
+        catch ( SolutionExceptions.StepBudgetExceeded e )
+        {
+            status = Status.OUT_OF_STEPS;
+            problem = e;
+        }
+        catch ( SolutionExceptions.ProblemRunningSolution e )
+        {
+            status = Status.FAILED;
+            problem = e;
+        }
+        catch ( RuntimeException e )
+        {
+            status = Status.FAILED;
+            problem = new SolutionExceptions.UnknownProblem( e );
+        }
+
+        if ( problem instanceof SolutionExceptions.ProblemRunningSolution )
+        {
+            ( (SolutionExceptions.ProblemRunningSolution)problem ).level =
+                job.level;
+        }
+
+        World end = sandbox.getWorld();
+        return new Verdict(
+            index,
+            job,
+            status,
+            ticks.tick,
+            end.num_saved,
+            end.num_killed,
+            end.completionState(),
+            problem,
+            System.nanoTime() - start
+        );
+    }
+
+    /**
+     * Passes verdicts on to a listener, which may be null, one at a time.
+     */
+    private static class OneAtATime implements Listener
+    {
+        private final Listener listener;
+
+        OneAtATime( Listener listener )
+        {
+            this.listener = listener;
+        }
+
+        @Override
+        public synchronized void verdict( Verdict verdict )
+        {
+            if ( listener != null )
+            {
+                listener.verdict( verdict );
+            }
+        }
+
+        @Override
+        public synchronized void finished( Report report )
+        {
+            if ( listener != null )
+            {
+                listener.finished( report );
+            }
+        }
+    }
+
+    private static class TickCounter implements SolutionStepListener
+    {
+        int tick = 0;
+
+        @Override
+        public void stepped( SolutionStep step )
+        {
+            tick = step.tick;
+        }
+
+        @Override
+        public void finished( CompletionState state )
+        {
+        }
+    }
+}
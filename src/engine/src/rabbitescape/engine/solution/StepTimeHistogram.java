@@ -0,0 +1,161 @@
+package rabbitescape.engine.solution;
+
+import java.io.PrintStream;
+
+import rabbitescape.engine.World.CompletionState;
+
+/**
+ * Counts steps by how long they took, in buckets that double in size:
+ * under 1us, 1-2us, 2-4us and so on. Keeps nothing else from each step, so
+ * any length of solution can be profiled in a fixed amount of memory.
+ */
+public class StepTimeHistogram implements SolutionStepListener
+{
+    /** The last bucket holds everything from about 17 minutes up. */
+    private static final int NUM_BUCKETS = 32;
+
+    private final PrintStream out;
+    private final long[] buckets = new long[NUM_BUCKETS];
+    private long count = 0;
+    private long totalNanos = 0;
+    private long maxNanos = 0;
+    private CompletionState finalState = null;
+
+    public StepTimeHistogram()
+    {
+        this( null );
+    }
+
+    /**
+     * @param out where to print the histogram once the solution has
+     *            finished, or null not to.
+     */
+    public StepTimeHistogram( PrintStream out )
+    {
+        this.out = out;
+    }
+
+    @Override
+    public void stepped( SolutionStep step )
+    {
+        ++buckets[ bucket( step.nanos ) ];
+        ++count;
+        totalNanos += step.nanos;
+        maxNanos = Math.max( maxNanos, step.nanos );
+    }
+
+    @Override
+    public void finished( CompletionState state )
+    {
+        finalState = state;
+        if ( out != null )
+        {
+            print( out );
+        }
+    }
+
+    public long count()
+    {
+        return count;
+    }
+
+    public long totalNanos()
+    {
+        return totalNanos;
+    }
+
+    public long maxNanos()
+    {
+        return maxNanos;
+    }
+
+    /**
+     * @return the number of steps that took at least 2^(i-1) microseconds,
+     *         but less than 2^i, or under 1us for bucket 0.
+     */
+    public long bucketCount( int i )
+    {
+        return buckets[i];
+    }
+
+    /**
+     * @return the state of the world when the solution stopped, or null if
+     *         it is still running.
+     */
+    public CompletionState finalState()
+    {
+        return finalState;
+    }
+
+    /**
+     * @return an upper bound on the time in microseconds within which the
+     *         given fraction (e.g. 0.99) of steps finished, to the nearest
+     *         bucket.
+     */
+    public long percentileUs( double fraction )
+    {
+        long needed = (long)Math.ceil( count * fraction );
+        long seen = 0;
+        for ( int i = 0; i < NUM_BUCKETS; ++i )
+        {
+            seen += buckets[i];
+            if ( seen >= needed )
+            {
+                return 1L << i;
+            }
+        }
+        return 1L << NUM_BUCKETS;
+    }
+
+    public void print( PrintStream out )
+    {
+        out.println(
+            String.format(
+                "%d steps, %.1f us mean, %.1f us max, 99%% under %d us, %s",
+                count,
+                count == 0 ? 0.0 : totalNanos / 1000.0 / count,
+                maxNanos / 1000.0,
+                percentileUs( 0.99 ),
+                finalState
+            )
+        );
+
+        long most = 1;
+        for ( long n : buckets )
+        {
+            most = Math.max( most, n );
+        }
+        for ( int i = 0; i < NUM_BUCKETS; ++i )
+        {
+            if ( buckets[i] == 0 )
+            {
+                continue;
+            }
+            out.println(
+                String.format(
+                    "%10s %8d %s",
+                    "< " + ( 1L << i ) + " us",
+                    buckets[i],
+                    bar( 40 * buckets[i] / most )
+                )
+            );
+        }
+    }
+
+    static int bucket( long nanos )
+    {
+        long us = nanos / 1000;
+        int ret = 64 - Long.numberOfLeadingZeros( us );
+        return Math.min( ret, NUM_BUCKETS - 1 );
+    }
+
+    private static String bar( long length )
+    {
+        StringBuilder ret = new StringBuilder();
+        for ( long i = 0; i < Math.max( 1, length ); ++i )
+        {
+            ret.append( '#' );
+        }
+        return ret.toString();
+    }
+}
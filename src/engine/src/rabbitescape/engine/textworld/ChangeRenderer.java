@@ -1,9 +1,9 @@
 package rabbitescape.engine.textworld;
 
 import rabbitescape.engine.ChangeDescription;
+import rabbitescape.engine.ChangeDescription.Category;
 import rabbitescape.engine.ChangeDescription.Change;
 import rabbitescape.engine.RabbitStates;
-import rabbitescape.engine.StateAndPosition;
 import rabbitescape.engine.util.Position;
 
 public class ChangeRenderer
@@ -19,11 +19,11 @@ public class ChangeRenderer
     private static void charForChange( Change change, Chars chars )
     {
         // Handle bridging specially
-        Position bridgingPos = RabbitStates.whereBridging(
-            new StateAndPosition( change.state, change.x, change.y ) );
-
-        if ( bridgingPos != null )
+        if ( change.state.is( Category.BRIDGING ) )
         {
+            Position bridgingPos = RabbitStates.whereBridging(
+                change.state, change.x, change.y );
+
             chars.set(
                 bridgingPos.x,
                 bridgingPos.y,
@@ -4,7 +4,7 @@ import rabbitescape.engine.*;
 
 public class BreakBlockTokenPlacementStrategy implements  TokenPlacementStrategy{
     @Override
-    public void addToken(WorldChanges changes, int x, int y, Token.Type type) throws World.UnableToAddToken {
+    public boolean addToken(WorldChanges changes, int x, int y, Token.Type type) throws World.UnableToAddToken {
         World world = changes.getWorld();
         Integer numLeft = world.abilities.get( type );
 
@@ -23,20 +23,20 @@ public class BreakBlockTokenPlacementStrategy implements  TokenPlacementStrategy
             throw new World.CantAddTokenOutsideWorld( type, x, y, world.size );
         }
 
-        Block block = world.getBlockAt( x, y );
-
-        // check if there's a block on target
-        if ( BehaviourTools.s_isFlat( block ) )
+        if ( !wouldPlace( world, x, y, type ) )
         {
-            // place breakblock token on existing Block
-            if(type == Token.Type.breakblock) {
-                changes.addTokenFromAddQueue( new Token( x, y, type, world ) );
-                world.abilities.put( type, numLeft - 1 );
-            }
-            return;
+            return false;
         }
         // add new tokens to tokensToAdd
         changes.addTokenFromAddQueue( new Token( x, y, type, world) );
         world.abilities.put( type, numLeft - 1 );
+        return true;
+    }
+
+    @Override
+    public boolean wouldPlace(World world, int x, int y, Token.Type type) {
+        // breakblock tokens go on existing blocks; other tokens don't
+        return type == Token.Type.breakblock
+            || !BehaviourTools.s_isFlat( world.getBlockAt( x, y ) );
     }
 }
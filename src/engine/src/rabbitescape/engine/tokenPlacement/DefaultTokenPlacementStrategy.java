@@ -4,7 +4,7 @@ import rabbitescape.engine.*;
 
 public class DefaultTokenPlacementStrategy implements TokenPlacementStrategy{
     @Override
-    public void addToken(WorldChanges changes, int x, int y, Token.Type type) throws World.UnableToAddToken {
+    public boolean addToken(WorldChanges changes, int x, int y, Token.Type type) throws World.UnableToAddToken {
         World world = changes.getWorld();
         Integer numLeft = world.abilities.get( type );
 
@@ -23,14 +23,19 @@ public class DefaultTokenPlacementStrategy implements TokenPlacementStrategy{
             throw new World.CantAddTokenOutsideWorld( type, x, y, world.size );
         }
 
-        Block block = world.getBlockAt( x, y );
-        if ( BehaviourTools.s_isFlat( block ) )
+        if ( !wouldPlace( world, x, y, type ) )
         {
-            return;
+            return false;
         }
 
         // add new tokens to tokensToAdd
         changes.addTokenFromAddQueue( new Token( x, y, type, world) );
         world.abilities.put( type, numLeft - 1 );
+        return true;
     }
-}
\ No newline at end of file
+
+    @Override
+    public boolean wouldPlace(World world, int x, int y, Token.Type type) {
+        return !BehaviourTools.s_isFlat( world.getBlockAt( x, y ) );
+    }
+}
@@ -8,7 +8,7 @@ import java.util.List;
 public class PortalTokenPlacementStrategy implements TokenPlacementStrategy {
 
     @Override
-    public void addToken(WorldChanges changes, int x, int y, Token.Type type) throws World.UnableToAddToken {
+    public boolean addToken(WorldChanges changes, int x, int y, Token.Type type) throws World.UnableToAddToken {
         World world = changes.getWorld();
         Integer numLeft = world.abilities.get(type);
 
@@ -25,15 +25,9 @@ public class PortalTokenPlacementStrategy implements TokenPlacementStrategy {
             throw new World.CantAddTokenOutsideWorld( type, x, y, world.size );
         }
 
-        Block block = world.getBlockAt( x, y );
-        if ( BehaviourTools.s_isFlat( block ) )
+        if ( !wouldPlace( world, x, y, type ) )
         {
-            return;
-        }
-
-        // Check if placing on Exit
-        if (world.isExitHere(x, y)) {
-            return;
+            return false;
         }
 
         // Limit of 2 portals
@@ -66,5 +60,13 @@ public class PortalTokenPlacementStrategy implements TokenPlacementStrategy {
         // add new tokens to tokensToAdd
         changes.addTokenFromAddQueue( new Token( x, y, type, world) );
         world.abilities.put( type, numLeft - 1 );
+        return true;
+    }
+
+    @Override
+    public boolean wouldPlace(World world, int x, int y, Token.Type type) {
+        // Not on an exit, either
+        return !BehaviourTools.s_isFlat( world.getBlockAt( x, y ) )
+            && !world.isExitHere( x, y );
     }
-}
\ No newline at end of file
+}
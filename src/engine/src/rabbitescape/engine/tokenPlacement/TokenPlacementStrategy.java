@@ -1,6 +1,7 @@
 package rabbitescape.engine.tokenPlacement;
 
 import rabbitescape.engine.Token;
+import rabbitescape.engine.World;
 import rabbitescape.engine.World.UnableToAddToken;
 import rabbitescape.engine.WorldChanges;
 
@@ -8,6 +9,16 @@ public interface TokenPlacementStrategy {
     /**
      * Attempt to add the token of the specified type at (x,y).
      * Throws the appropriate exceptions if not possible
+     *
+     * @return false if the token was not added because wouldPlace said no
      */
-    void addToken(WorldChanges changes, int x, int y, Token.Type type) throws UnableToAddToken;
+    boolean addToken(WorldChanges changes, int x, int y, Token.Type type) throws UnableToAddToken;
+
+    /**
+     * False if a token of this type would not be added at (x,y), because
+     * of the block or exit there. This must cover every case where addToken
+     * quietly adds nothing. Only looks at blocks and exits, so it may be
+     * asked from any thread.
+     */
+    boolean wouldPlace(World world, int x, int y, Token.Type type);
 }
\ No newline at end of file
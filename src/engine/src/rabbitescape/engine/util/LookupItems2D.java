@@ -20,9 +20,19 @@ public class LookupItems2D <T extends LookupItem2D>
         items.add( item );
     }
 
-    public void remove( T item )
+    /**
+     * Remove the oldest item here that equals the one given.
+     *
+     * @return the item removed, or null if there was none.
+     */
+    public T remove( T item )
     {
-        items.remove( item );
+        int index = items.indexOf( item );
+        if ( index == -1 )
+        {
+            return null;
+        }
+        return items.remove( index );
     }
 
     public T getItem( int index )
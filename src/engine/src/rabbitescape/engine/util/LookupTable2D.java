@@ -2,25 +2,46 @@ package rabbitescape.engine.util;
 
 import java.io.PrintStream;
 import java.util.ArrayList;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
 
+/**
+ * Items looked up by position, which can also be stepped through in the
+ * order they were added.
+ *
+ * The items are kept in a linked list, so adding or removing an item
+ * costs the same however many there are.
+ */
 public class LookupTable2D <T extends LookupItem2D> implements Iterable<T>
 {
+    private static final class Node<T>
+    {
+        final T item;
+        Node<T> prev = null;
+        Node<T> next = null;
+
+        Node( T item )
+        {
+            this.item = item;
+        }
+    }
+
     private final class ItemIterator implements Iterator<T>
     {
-        private int cursor;
+        private Node<T> cursor;
 
         public ItemIterator()
         {
-            this.cursor = 0;
+            this.cursor = head;
         }
 
         @Override
         public boolean hasNext()
         {
-            return cursor < list.size();
+            return cursor != null;
         }
 
         @Override
@@ -28,7 +49,9 @@ public class LookupTable2D <T extends LookupItem2D> implements Iterable<T>
         {
             if( this.hasNext() )
             {
-                return list.get( cursor++ );
+                T ret = cursor.item;
+                cursor = cursor.next;
+                return ret;
             }
             throw new NoSuchElementException();
         }
@@ -48,7 +71,12 @@ public class LookupTable2D <T extends LookupItem2D> implements Iterable<T>
 
     // Arrays of generics not allowed, use ArrayList instead
     private final ArrayList<ArrayList<LookupItems2D<T>>> table;
-    private final List<T> list;
+    /** The items, oldest first. */
+    private Node<T> head = null;
+    private Node<T> tail = null;
+    private int count = 0;
+    /** Where each item is in the list. */
+    private final Map<T, Node<T>> nodes = new IdentityHashMap<>();
     /**
      * The size this table was created with. Note that changing the dimensions
      * will not change the size of an existing table.
@@ -68,13 +96,8 @@ public class LookupTable2D <T extends LookupItem2D> implements Iterable<T>
                     new LookupItems2D<T>( new Position( x, y ) ) );
             }
         }
-        for ( T item: list)
-        {
-            Position position = item.getPosition();
-            table.get( i( position.x ) ).get( i( position.y ) ).add( item );
-        }
-        this.list = list;
         this.size = size;
+        addAll( list );
     }
 
     /**
@@ -92,51 +115,126 @@ public class LookupTable2D <T extends LookupItem2D> implements Iterable<T>
      */
     public T getItemAt( int x, int y )
     {
-        return table.get( i( x ) ).get( i( y ) ).getItem( 0 );
+        return getItemAt( x, y, 0 );
+    }
+
+    /**
+     * Step through the items at a position without copying them.
+     *
+     * @return The index'th oldest item at this position, or null if there
+     *         are not that many.
+     */
+    public T getItemAt( int x, int y, int index )
+    {
+        return table.get( i( x ) ).get( i( y ) ).getItem( index );
     }
 
     public List<T> getItemsAt( int x, int y )
     {
-        ArrayList<T> ret = new ArrayList<T>(
-            table.get( i( x ) ).get( i( y ) ).getItems() );
-        return ret;
+        return cell( x, y ).getItems();
     }
 
     public void addAll( List<? extends T> newItems )
     {
-        list.addAll( newItems );
         for ( T item: newItems)
         {
-            Position position = item.getPosition();
-            table.get( i( position.x ) ).get( i( position.y ) ).add( item );
+            add( item );
         }
     }
 
     public void add( T newItem )
     {
-        list.add( newItem );
         Position position = newItem.getPosition();
-        table.get( i( position.x ) ).get( i( position.y ) ).add( newItem );
+        cell( position.x, position.y ).add( newItem );
+        link( newItem );
     }
 
     public void removeAll( List<? extends T> itemsGoing )
     {
-        list.removeAll( itemsGoing );
         for ( T item: itemsGoing )
         {
             Position position = item.getPosition();
-            table.get( i ( position.x ) ).get( i( position.y ) ).remove( item );
+            T removed = cell( position.x, position.y ).remove( item );
+            if ( removed != null )
+            {
+                unlink( removed );
+            }
         }
     }
 
+    /**
+     * Remove all the items at a position, without looking at any others.
+     */
     public void removeItemsAt( int x, int y )
     {
-        removeAll( getItemsAt( x, y ) );
+        LookupItems2D<T> cell = cell( x, y );
+        T item = cell.getItem( 0 );
+        while ( item != null )
+        {
+            cell.remove( item );
+            unlink( item );
+            item = cell.getItem( 0 );
+        }
     }
 
     public List<T> getListCopy()
     {
-        return new ArrayList<T>( list );
+        List<T> ret = new ArrayList<T>( count );
+        for ( T item : this )
+        {
+            ret.add( item );
+        }
+        return ret;
+    }
+
+    private LookupItems2D<T> cell( int x, int y )
+    {
+        return table.get( i( x ) ).get( i( y ) );
+    }
+
+    private void link( T item )
+    {
+        Node<T> node = new Node<T>( item );
+        if ( tail == null )
+        {
+            head = node;
+        }
+        else
+        {
+            tail.next = node;
+            node.prev = tail;
+        }
+        tail = node;
+        ++count;
+        nodes.put( item, node );
+    }
+
+    private void unlink( T item )
+    {
+        Node<T> node = nodes.remove( item );
+        if ( node == null )
+        {
+            return;
+        }
+
+        if ( node.prev == null )
+        {
+            head = node.next;
+        }
+        else
+        {
+            node.prev.next = node.next;
+        }
+
+        if ( node.next == null )
+        {
+            tail = node.prev;
+        }
+        else
+        {
+            node.next.prev = node.prev;
+        }
+        --count;
     }
 
     /**
@@ -150,7 +248,7 @@ public class LookupTable2D <T extends LookupItem2D> implements Iterable<T>
 
     public Iterable<T> getItems()
     {
-        return list;
+        return this;
     }
 
     /**
@@ -158,7 +256,7 @@ public class LookupTable2D <T extends LookupItem2D> implements Iterable<T>
      */
     public int size()
     {
-        return list.size();
+        return count;
     }
 
     public void debugPrint()
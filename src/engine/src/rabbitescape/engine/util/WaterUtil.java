@@ -8,17 +8,25 @@ import static rabbitescape.engine.CellularDirection.UP;
 import static rabbitescape.engine.util.MathUtil.constrain;
 import static rabbitescape.engine.util.MathUtil.max;
 import static rabbitescape.engine.util.MathUtil.min;
-import static rabbitescape.engine.util.MathUtil.sum;
 
+import java.util.Arrays;
 import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Iterator;
 import java.util.Map;
-import java.util.Set;
 
 import rabbitescape.engine.CellularDirection;
 import rabbitescape.engine.WaterRegion;
 
+/**
+ * Works out how water flows between a region and its neighbours.
+ *
+ * Amounts and neighbours are held in arrays indexed by
+ * CellularDirection.ordinal(), so that working out the flow of a region
+ * allocates nothing. The flow itself only looks at the capacity and
+ * contents of each neighbour, so WaterField can work it out straight from
+ * its arrays without any WaterRegion objects. The Map versions of
+ * findNeighbourhood and calculateFlow wrap the array versions for callers
+ * that prefer them.
+ */
 public class WaterUtil
 {
     /** The maximum capacity of water that can be held in a quarter
@@ -38,147 +46,224 @@ public class WaterUtil
     /** A magic constant for encouraging water to flow upwards. */
     private static final int MAGIC_UP_NUMERATOR = 11;
     private static final int MAGIC_UP_DENOMINATOR = 20;
-    /** A fake water region, for referencing in situations where there
-     *  is no water region in a given direction. */
-    private static final WaterRegion FAKE_REGION =
-        new WaterRegion(0, 0, null, 0);
+
+    private static final CellularDirection[] DIRECTIONS =
+        CellularDirection.values();
+    /** The directions water can flow in from a region, i.e. not HERE. */
+    private static final CellularDirection[] NEIGHBOURS =
+        { UP, RIGHT, DOWN, LEFT };
+
+    /** The length of every per-direction array. */
+    public static final int NUM_DIRECTIONS = DIRECTIONS.length;
+
+    private static final int iUP = UP.ordinal();
+    private static final int iRIGHT = RIGHT.ordinal();
+    private static final int iDOWN = DOWN.ordinal();
+    private static final int iLEFT = LEFT.ordinal();
+    private static final int iHERE = HERE.ordinal();
+
+    /**
+     * Space to work out one region's flow in, so it can be reused from
+     * tick to tick. Each thread working out flows needs its own.
+     */
+    public static class Scratch
+    {
+        /** The connected region in each direction, or null if none. */
+        public final WaterRegion[] neighbourhood =
+            new WaterRegion[NUM_DIRECTIONS];
+        /**
+         * The capacity of the connected region in each direction, or 0 if
+         * there is none.
+         */
+        public final int[] neighbourCapacity = new int[NUM_DIRECTIONS];
+        /**
+         * The contents of the connected region in each direction, or 0 if
+         * there is none.
+         */
+        public final int[] neighbourContents = new int[NUM_DIRECTIONS];
+        private final int[] contents = new int[NUM_DIRECTIONS];
+        private final int[] capacity = new int[NUM_DIRECTIONS];
+        private final int[] target = new int[NUM_DIRECTIONS];
+        private final int[] out = new int[NUM_DIRECTIONS];
+
+        /**
+         * Fill neighbourCapacity and neighbourContents from neighbourhood.
+         */
+        public void loadNeighbourhood()
+        {
+            for ( int i = 0; i < NUM_DIRECTIONS; ++i )
+            {
+                WaterRegion region = neighbourhood[i];
+                neighbourCapacity[i] = region == null ? 0 : region.capacity;
+                neighbourContents[i] =
+                    region == null ? 0 : region.getContents();
+            }
+        }
+    }
 
     /** Find all WaterRegions connected to the current region. */
     public static Map<CellularDirection, WaterRegion> findNeighbourhood(
         WaterRegion region,
         LookupTable2D<WaterRegion> waterTable )
     {
-        Position position = region.getPosition();
+        WaterRegion[] found = new WaterRegion[NUM_DIRECTIONS];
+        findNeighbourhood( region, waterTable, found );
+
         Map<CellularDirection, WaterRegion> neighbourhood = new HashMap<>();
-        neighbourhood.put( CellularDirection.HERE, region );
-        Iterator<CellularDirection> connectionsIterator = region
-            .getConnectionsIterator();
-        while ( connectionsIterator.hasNext() )
+        for ( CellularDirection direction : DIRECTIONS )
         {
-            CellularDirection connection = connectionsIterator.next();
-            Position otherPosition = connection.offset( position );
-            for ( WaterRegion otherRegion : waterTable
-                .getItemsAt( otherPosition.x, otherPosition.y ) )
+            if ( found[direction.ordinal()] != null )
             {
-                if ( otherRegion
-                    .isConnected( CellularDirection.opposite( connection ) ) )
+                neighbourhood.put( direction, found[direction.ordinal()] );
+            }
+        }
+        return neighbourhood;
+    }
+
+    /**
+     * Find all WaterRegions connected to the current region, and put each
+     * into neighbourhood at the index of its direction. Directions with no
+     * connected region are set to null.
+     */
+    public static void findNeighbourhood(
+        WaterRegion region,
+        LookupTable2D<WaterRegion> waterTable,
+        WaterRegion[] neighbourhood )
+    {
+        Arrays.fill( neighbourhood, null );
+        neighbourhood[iHERE] = region;
+        for ( CellularDirection connection : NEIGHBOURS )
+        {
+            if ( !region.isConnected( connection ) )
+            {
+                continue;
+            }
+            int otherX = region.x + connection.xOffset;
+            int otherY = region.y + connection.yOffset;
+            CellularDirection back = CellularDirection.opposite( connection );
+            WaterRegion otherRegion;
+            for (
+                int i = 0;
+                ( otherRegion = waterTable.getItemAt( otherX, otherY, i ) )
+                    != null;
+                ++i
+            )
+            {
+                if ( otherRegion.isConnected( back ) )
                 {
-                    if ( neighbourhood.containsKey( connection ) )
+                    if ( neighbourhood[connection.ordinal()] != null )
                     {
                         throw new IllegalStateException(
                             "There are two water regions connected " +
                             "on the same side of " + region );
                     }
-                    neighbourhood.put( connection, otherRegion );
+                    neighbourhood[connection.ordinal()] = otherRegion;
                 }
             }
         }
-        return neighbourhood;
     }
 
     /** Update the flow given some contents to split between some directions
-     *  in ratio with the capacities. */
+     *  in ratio with the capacities. Directions with zero capacity and
+     *  contents take no part. */
     private static int updateFlow(
-        Map<CellularDirection, Integer> flow,
-        Map<CellularDirection, Integer> relevantContents,
-        Map<CellularDirection, Integer> relevantCapacity )
+        int[] flow,
+        int[] relevantContents,
+        int[] relevantCapacity,
+        int[] targetFlow )
     {
-        int totalCapacity = sum( relevantCapacity.values() );
-        int totalContents = sum( relevantContents.values() );
-        Map<CellularDirection, Integer> targetFlow = new HashMap<>();
-        Set<CellularDirection> connectedOrdinals = new HashSet<>();
-        for ( CellularDirection direction : relevantCapacity.keySet() )
+        int totalCapacity = 0;
+        int totalContents = 0;
+        for ( int i = 0; i < NUM_DIRECTIONS; ++i )
         {
-            int target = relevantCapacity.get( direction ) * totalContents
-                         / totalCapacity;
-            targetFlow.put( direction,
-                            max( target - relevantContents.get( direction ),
-                                 0 ) );
-            if ( direction != HERE )
-            {
-                connectedOrdinals.add( direction );
-            }
+            totalCapacity += relevantCapacity[i];
+            totalContents += relevantContents[i];
         }
         int totalTargetOutFlow = 0;
-        for ( CellularDirection direction : connectedOrdinals )
+        for ( int i = 0; i < NUM_DIRECTIONS; ++i )
         {
-            totalTargetOutFlow += targetFlow.get( direction );
+            int target = relevantCapacity[i] * totalContents / totalCapacity;
+            targetFlow[i] = max( target - relevantContents[i], 0 );
+            if ( i != iHERE )
+            {
+                totalTargetOutFlow += targetFlow[i];
+            }
         }
         if ( totalTargetOutFlow <= 0 )
         {
             return 0;
         }
-        int actualOutFlow =min( 
-            totalTargetOutFlow, 
-            relevantContents.get( HERE ) 
+        int actualOutFlow = min(
+            totalTargetOutFlow,
+            relevantContents[iHERE]
         );
         int totalFlowed = 0;
-        for ( CellularDirection ordinal : connectedOrdinals )
+        for ( int i = 0; i < NUM_DIRECTIONS; ++i )
         {
-            int amount = ( targetFlow.get( ordinal ) * actualOutFlow ) /
+            if ( i == iHERE )
+            {
+                continue;
+            }
+            int amount = ( targetFlow[i] * actualOutFlow ) /
                          totalTargetOutFlow;
-            flow.put( ordinal, flow.get( ordinal ) + amount );
+            flow[i] += amount;
             totalFlowed += amount;
         }
         return totalFlowed;
     }
 
     private static int updateFlowDown(
-        Map<CellularDirection, Integer> flow,
+        int[] flow,
         int contentsHere,
-        Map<CellularDirection, WaterRegion> neighbourhood )
+        Scratch scratch )
     {
-        WaterRegion down = neighbourhood.get( DOWN );
-        int flowDown = constrain( 
-            down.capacity - down.getContents(), 
-            0, 
-            contentsHere 
+        int flowDown = constrain(
+            scratch.neighbourCapacity[iDOWN]
+                - scratch.neighbourContents[iDOWN],
+            0,
+            contentsHere
         );
-        flow.put( DOWN, flow.get( DOWN ) + flowDown );
+        flow[iDOWN] += flowDown;
         return contentsHere - flowDown;
     }
 
     /** Update flow across and a bit down to simulate pressure at
      *  this level. */
-    private static int updateFlowAcross( Map<CellularDirection, Integer> flow,
+    private static int updateFlowAcross(
+        int[] flow,
         int contentsHere,
-        Map<CellularDirection, WaterRegion> neighbourhood )
+        Scratch scratch )
     {
-        Map<CellularDirection, Integer> relevantCapacity = new HashMap<>();
-        relevantCapacity.put( LEFT, neighbourhood.get( LEFT ).capacity );
-        relevantCapacity.put( HERE, neighbourhood.get( HERE ).capacity );
-        relevantCapacity.put( RIGHT, neighbourhood.get( RIGHT ).capacity );
-        relevantCapacity.put(
-            DOWN, neighbourhood.get( DOWN ).capacity / COMPRESSION_FACTOR 
-        );
+        int[] cap = scratch.neighbourCapacity;
+        int[] con = scratch.neighbourContents;
 
-        Map<CellularDirection, Integer> relevantContents = new HashMap<>();
-        int contentsLeft = constrain(neighbourhood.get( LEFT ).getContents(),
-                                     0, neighbourhood.get( LEFT ).capacity);
-        relevantContents.put( LEFT, contentsLeft);
-        int constrainedHere = constrain(contentsHere,
-                                        0, neighbourhood.get( HERE ).capacity);
-        relevantContents.put( HERE, constrainedHere );
-        int contentsRight = constrain(neighbourhood.get( RIGHT ).getContents(),
-                                      0, neighbourhood.get( RIGHT ).capacity);
-        relevantContents.put( RIGHT, contentsRight );
-        int contentsDown = max(neighbourhood.get( DOWN ).getContents() -
-                               neighbourhood.get( DOWN ).capacity,
-                               0);
-        relevantContents.put( DOWN, contentsDown );
+        int[] relevantCapacity = scratch.capacity;
+        relevantCapacity[iUP] = 0;
+        relevantCapacity[iLEFT] = cap[iLEFT];
+        relevantCapacity[iHERE] = cap[iHERE];
+        relevantCapacity[iRIGHT] = cap[iRIGHT];
+        relevantCapacity[iDOWN] = cap[iDOWN] / COMPRESSION_FACTOR;
 
-        int totalFlowed = updateFlow(flow, relevantContents, relevantCapacity);
+        int[] relevantContents = scratch.contents;
+        relevantContents[iUP] = 0;
+        relevantContents[iLEFT] = constrain( con[iLEFT], 0, cap[iLEFT] );
+        relevantContents[iHERE] = constrain( contentsHere, 0, cap[iHERE] );
+        relevantContents[iRIGHT] = constrain( con[iRIGHT], 0, cap[iRIGHT] );
+        relevantContents[iDOWN] = max( con[iDOWN] - cap[iDOWN], 0 );
+
+        int totalFlowed = updateFlow(
+            flow, relevantContents, relevantCapacity, scratch.target );
         return contentsHere - totalFlowed;
     }
 
     /** Create a 'flow' to the current cell.
      *  Any remaining can be pushed upwards. */
-    private static int updateFlowHere( Map<CellularDirection, Integer> flow,
+    private static int updateFlowHere(
         int contentsHere,
-        Map<CellularDirection, WaterRegion> neighbourhood )
+        Scratch scratch )
     {
-        int constrained =
-            constrain( contentsHere, 0, neighbourhood.get( HERE ).capacity );
+        int constrained = constrain(
+            contentsHere, 0, scratch.neighbourCapacity[iHERE] );
         // The water will not actually leave the cell, so no need to
         // add an explicit flow
         return contentsHere - constrained;
@@ -186,95 +271,112 @@ public class WaterUtil
 
     /** Update flow up and a bit across and down to simulate pressure
      *  at the level above. */
-    private static int updateFlowUp( Map<CellularDirection, Integer> flow,
+    private static int updateFlowUp(
+        int[] flow,
         int contentsHere,
-        Map<CellularDirection, WaterRegion> neighbourhood )
+        Scratch scratch )
     {
-        WaterRegion nUP = neighbourhood.get( UP );
-        WaterRegion nDOWN = neighbourhood.get( DOWN );
-        WaterRegion nLEFT = neighbourhood.get( LEFT ) ;
-        WaterRegion nRIGHT = neighbourhood.get( RIGHT );
-        WaterRegion nHERE = neighbourhood.get( HERE );
-        Map<CellularDirection, Integer> relevantCapacity = new HashMap<>();
-        relevantCapacity.put( 
-            UP,
-            ( nUP.capacity * MAGIC_UP_NUMERATOR ) / MAGIC_UP_DENOMINATOR 
-        );
-        relevantCapacity.put( 
-            LEFT,
-            nLEFT.capacity / COMPRESSION_FACTOR 
-        );
-        relevantCapacity.put( 
-            HERE,
-            nHERE.capacity / COMPRESSION_FACTOR 
-        );
-        relevantCapacity.put( 
-            RIGHT,
-            nRIGHT.capacity / COMPRESSION_FACTOR 
-        );
-        relevantCapacity.put( 
-            DOWN,
-            ( nDOWN.capacity * ( COMPRESSION_FACTOR + 1 ) /
-            ( COMPRESSION_FACTOR * COMPRESSION_FACTOR ) ) 
-        );
+        int[] cap = scratch.neighbourCapacity;
+        int[] con = scratch.neighbourContents;
+
+        int[] relevantCapacity = scratch.capacity;
+        relevantCapacity[iUP] =
+            ( cap[iUP] * MAGIC_UP_NUMERATOR ) / MAGIC_UP_DENOMINATOR;
+        relevantCapacity[iLEFT] = cap[iLEFT] / COMPRESSION_FACTOR;
+        relevantCapacity[iHERE] = cap[iHERE] / COMPRESSION_FACTOR;
+        relevantCapacity[iRIGHT] = cap[iRIGHT] / COMPRESSION_FACTOR;
+        relevantCapacity[iDOWN] =
+            ( cap[iDOWN] * ( COMPRESSION_FACTOR + 1 ) /
+            ( COMPRESSION_FACTOR * COMPRESSION_FACTOR ) );
 
-        Map<CellularDirection, Integer> relevantContents = new HashMap<>();
-        relevantContents.put( UP, nUP.getContents() );
-        relevantContents.put( LEFT,
-            max( nLEFT.getContents() - nLEFT.capacity, 0 ) );
-        relevantContents.put( HERE, contentsHere );
-        relevantContents.put( RIGHT,
-            max( nRIGHT.getContents() - nRIGHT.capacity, 0 ) );
-        relevantContents.put( DOWN,
-            max( nDOWN.getContents() -
-                 ( nDOWN.capacity * ( COMPRESSION_FACTOR + 1 ) )
-                 / COMPRESSION_FACTOR, 0) );
+        int[] relevantContents = scratch.contents;
+        relevantContents[iUP] = con[iUP];
+        relevantContents[iLEFT] = max( con[iLEFT] - cap[iLEFT], 0 );
+        relevantContents[iHERE] = contentsHere;
+        relevantContents[iRIGHT] = max( con[iRIGHT] - cap[iRIGHT], 0 );
+        relevantContents[iDOWN] =
+            max( con[iDOWN] -
+                 ( cap[iDOWN] * ( COMPRESSION_FACTOR + 1 ) )
+                 / COMPRESSION_FACTOR, 0 );
 
-        int totalFlowed = updateFlow(flow, relevantContents, relevantCapacity);
+        int totalFlowed = updateFlow(
+            flow, relevantContents, relevantCapacity, scratch.target );
         return contentsHere - totalFlowed;
     }
 
     public static Map<CellularDirection, Integer> calculateFlow(
         Map<CellularDirection, WaterRegion> neighbourhood )
     {
+        Scratch scratch = new Scratch();
+        for ( CellularDirection direction : DIRECTIONS )
+        {
+            scratch.neighbourhood[direction.ordinal()] =
+                neighbourhood.get( direction );
+        }
+
+        int[] amounts = new int[NUM_DIRECTIONS];
+        calculateFlow( scratch, amounts );
+
         Map<CellularDirection, Integer> flow = new HashMap<>();
-        for ( CellularDirection direction : CellularDirection.values() )
+        for ( CellularDirection direction : DIRECTIONS )
         {
-            flow.put( direction, 0 );
-            if ( !neighbourhood.keySet().contains( direction ) )
-            {
-                neighbourhood.put( direction, FAKE_REGION );
-            }
+            flow.put( direction, amounts[direction.ordinal()] );
         }
-        int contentsHere = neighbourhood.get( HERE ).getContents();
+        return flow;
+    }
 
-        contentsHere = updateFlowDown( 
-            flow, 
-            contentsHere, 
-            neighbourhood 
+    /**
+     * Work out how much water moves from the region at HERE in
+     * scratch.neighbourhood to each of its neighbours.
+     *
+     * @param flow Filled with the amount moving in each direction.
+     */
+    public static void calculateFlow( Scratch scratch, int[] flow )
+    {
+        scratch.loadNeighbourhood();
+        calculateFlowFromAmounts( scratch, flow, 0 );
+    }
+
+    /**
+     * Work out how much water moves from HERE to each of its neighbours,
+     * given only scratch.neighbourCapacity and scratch.neighbourContents.
+     *
+     * @param flow   Receives the amount moving in each direction.
+     * @param offset Where in flow to put the amount for the first direction.
+     */
+    public static void calculateFlowFromAmounts(
+        Scratch scratch, int[] flow, int offset )
+    {
+        int[] out = scratch.out;
+        Arrays.fill( out, 0 );
+        int contentsHere = scratch.neighbourContents[iHERE];
+
+        contentsHere = updateFlowDown(
+            out,
+            contentsHere,
+            scratch
         );
         if ( contentsHere > 0 )
         {
-            contentsHere = updateFlowAcross( 
-                flow, 
+            contentsHere = updateFlowAcross(
+                out,
                 contentsHere,
-                neighbourhood 
+                scratch
             );
-            contentsHere = updateFlowHere( 
-                flow, 
-                contentsHere, 
-                neighbourhood 
+            contentsHere = updateFlowHere(
+                contentsHere,
+                scratch
             );
             if ( contentsHere > 0 )
             {
-                contentsHere = updateFlowUp( 
-                    flow, 
+                contentsHere = updateFlowUp(
+                    out,
                     contentsHere,
-                    neighbourhood 
+                    scratch
                 );
             }
         }
 
-        return flow;
+        System.arraycopy( out, 0, flow, offset, NUM_DIRECTIONS );
     }
 }
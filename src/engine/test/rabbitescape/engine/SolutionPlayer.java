@@ -0,0 +1,159 @@
+package rabbitescape.engine;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import rabbitescape.engine.World.CompletionState;
+import rabbitescape.engine.menu.LevelsList;
+import rabbitescape.engine.menu.LoadLevelsList;
+import rabbitescape.engine.menu.MenuDefinition;
+import rabbitescape.engine.solution.PlaceTokenAction;
+import rabbitescape.engine.solution.SelectAction;
+import rabbitescape.engine.solution.SolutionInterpreter;
+import rabbitescape.engine.solution.SolutionParser;
+import rabbitescape.engine.solution.SolutionTimeStep;
+import rabbitescape.engine.solution.TimeStepAction;
+import rabbitescape.engine.textworld.TextWorldManip;
+
+/**
+ * Plays a solution on a world directly (not in a sandbox copy), so tests
+ * can look at the world after every step, and helps tests that play the
+ * solutions of all the official levels.
+ */
+public class SolutionPlayer
+{
+    public interface AfterStep
+    {
+        void run( World world );
+    }
+
+    /**
+     * Gives the world to carry on playing after each step, e.g. a copy of
+     * the one just stepped.
+     */
+    public interface Swap
+    {
+        World next( World world );
+    }
+
+    /**
+     * Adds the parts of a world a test cares about to a checksum.
+     */
+    public interface Summary
+    {
+        void add( CRC32 crc, World world );
+    }
+
+    public static void play(
+        World world, String solution, final AfterStep after )
+    {
+        playSwapping(
+            world,
+            solution,
+            new Swap()
+            {
+                @Override
+                public World next( World world )
+                {
+                    after.run( world );
+                    return world;
+                }
+            }
+        );
+    }
+
+    public static void playSwapping(
+        World world, String solution, Swap swap )
+    {
+        SolutionInterpreter interpreter =
+            new SolutionInterpreter( SolutionParser.parse( solution ), false );
+
+        Token.Type selected = null;
+
+        SolutionTimeStep step = interpreter.next( world.completionState() );
+        while ( step != null )
+        {
+            for ( TimeStepAction action : step.actions )
+            {
+                if ( action instanceof SelectAction )
+                {
+                    selected = ( (SelectAction)action ).type;
+                }
+                else if ( action instanceof PlaceTokenAction )
+                {
+                    PlaceTokenAction place = (PlaceTokenAction)action;
+                    world.changes.addToken( place.x, place.y, selected );
+                }
+            }
+
+            if ( world.completionState() == CompletionState.RUNNING )
+            {
+                world.step();
+                world = swap.next( world );
+            }
+
+            step = interpreter.next( world.completionState() );
+        }
+    }
+
+    /**
+     * Play the solution, summing up the world after every step.
+     *
+     * @return the checksum of all the steps, in hex.
+     */
+    public static String checksum(
+        World world, String solution, final Summary summary )
+    {
+        final CRC32 crc = new CRC32();
+        play(
+            world,
+            solution,
+            new AfterStep()
+            {
+                @Override
+                public void run( World world )
+                {
+                    summary.add( crc, world );
+                }
+            }
+        );
+        return Long.toHexString( crc.getValue() );
+    }
+
+    public static void addInt( CRC32 crc, int value )
+    {
+        crc.update( value >>> 24 );
+        crc.update( value >>> 16 );
+        crc.update( value >>> 8 );
+        crc.update( value );
+    }
+
+    /**
+     * @return the paths of all the levels in the non-hidden sets, e.g.
+     *         "01_easy/01_Digging-practice.rel".
+     */
+    public static List<String> officialLevels()
+    {
+        List<String> ret = new ArrayList<>();
+        for ( LevelsList.LevelSetInfo set :
+            LoadLevelsList.load( MenuDefinition.allLevels ) )
+        {
+            if ( set.hidden )
+            {
+                continue;
+            }
+            for ( LevelsList.LevelInfo level : set.levels )
+            {
+                ret.add( set.dirName + "/" + level.fileName + ".rel" );
+            }
+        }
+        return ret;
+    }
+
+    public static World loadLevel( String path )
+    {
+        return TextWorldManip.createWorld(
+            LoadWorldFile.readLinesFromResource( path ) );
+    }
+}
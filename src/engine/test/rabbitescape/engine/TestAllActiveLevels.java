@@ -7,17 +7,15 @@ import static rabbitescape.engine.textworld.TextWorldManip.*;
 
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 import org.junit.Test;
 
 import rabbitescape.engine.menu.*;
-import rabbitescape.engine.solution.Solution;
-import rabbitescape.engine.solution.SolutionExceptions;
-import rabbitescape.engine.solution.SolutionExceptions.UnknownProblem;
-import rabbitescape.engine.solution.SolutionParser;
-import rabbitescape.engine.solution.SolutionRunner;
+import rabbitescape.engine.solution.LevelValidator;
 import rabbitescape.engine.util.FileSystem;
 
 public class TestAllActiveLevels
@@ -31,25 +29,25 @@ public class TestAllActiveLevels
     @Test
     public void All_official_levels_work_and_have_winning_solutions()
     {
-        forEachOfficialLevel( assertItsSolutionsWorkAndYouCanWin() );
+        assertSolutionsWork( officialLevelPaths(), true );
     }
 
     @Test
     public void All_staging_levels_work_and_have_winning_solutions()
     {
-        forEachStagingLevel( assertItsSolutionsWorkAndYouCanWin() );
+        assertSolutionsWork( unofficialLevelPaths( "staging" ), true );
     }
 
     @Test
     public void All_development_levels_work_and_any_solutions_are_correct()
     {
-        forEachDevelopmentLevel( assertItsSolutionsWork() );
+        assertSolutionsWork( unofficialLevelPaths( "development" ), false );
     }
 
     // @Test dejavu is now official - left as an example
     // public void All_dejavu_levels_work_and_any_solutions_are_correct()
     // {
-    //     forEachUnofficialLevel( assertItsSolutionsWork(), "07_dejavu" );
+    //     assertSolutionsWork( unofficialLevelPaths( "07_dejavu" ), false );
     // }
 
     @Test
@@ -137,45 +135,60 @@ public class TestAllActiveLevels
         } };
     }
 
-    private T assertItsSolutionsWork()
+    /**
+     * Run all the solutions of all the levels, several at once, and fail
+     * with the first problem found.
+     */
+    private void assertSolutionsWork( List<String> paths, boolean mustWin )
     {
-        return assertTheSolutionsWorkAndYouCanWin( false );
-    }
-
-    private T assertItsSolutionsWorkAndYouCanWin()
-    {
-        return assertTheSolutionsWorkAndYouCanWin( true );
-    }
+        LevelValidator.Report report = new LevelValidator(
+            new LoadWorldFile( new NothingExistsFileSystem() ) )
+                .validate( paths );
 
-    private T assertTheSolutionsWorkAndYouCanWin( final boolean mustWin )
-    {
-        return new T() {
-            @Override public void run( World world, String fileName )
+        for ( LevelValidator.LevelResult level : report.levels )
         {
-
-            boolean solved = false;
-            int i = 1;
-            for ( String s : world.solutions )
+            Throwable problem = level.firstProblem();
+            if ( problem instanceof RuntimeException )
             {
-                boolean thisS = runSolutionString( world, fileName, i, s );
-                if ( thisS )
-                {
-                    solved = true;
-                }
-                ++i;
+                throw (RuntimeException)problem;
             }
-
-            if ( mustWin && !solved )
+            else if ( problem != null )
             {
                 throw new AssertionError(
-                    "Level " + fileName + " has no solution!" );
+                    "Level " + level.path + " failed.", problem );
             }
 
-        } };
+            if ( mustWin && !level.solved() )
+            {
+                throw new AssertionError(
+                    "Level " + level.path + " has no solution!" );
+            }
+        }
     }
 
     private void forEachOfficialLevel( T test )
     {
+        for ( String path : officialLevelPaths() )
+        {
+            try
+            {
+                World world = new LoadWorldFile( new NothingExistsFileSystem() )
+                    .load( new IgnoreWorldStatsListener(), path );
+
+                test.run( world, path );
+            }
+            catch (AssertionError e) {
+                throw new AssertionError(
+                    "Level " + path + " failed.",
+                    e
+                );
+            }
+        }
+    }
+
+    private List<String> officialLevelPaths()
+    {
+        List<String> ret = new ArrayList<>();
         for ( LevelsList.LevelSetInfo set :
             LoadLevelsList.load( MenuDefinition.allLevels ) )
         {
@@ -185,35 +198,13 @@ public class TestAllActiveLevels
             }
             for ( LevelsList.LevelInfo level : set.levels )
             {
-                try
-                {
-                    String path = set.dirName + "/" + level.fileName + ".rel";
-                    World world = new LoadWorldFile( new NothingExistsFileSystem() )
-                        .load( new IgnoreWorldStatsListener(), path );
-
-                    test.run( world, path );
-                }
-                catch (AssertionError e) {
-                    throw new AssertionError(
-                        "Level " + level.fileName + " failed.",
-                        e
-                    );
-                }
+                ret.add( set.dirName + "/" + level.fileName + ".rel" );
             }
         }
+        return ret;
     }
 
-    private void forEachStagingLevel( T test )
-    {
-        forEachUnofficialLevel( test, "staging" );
-    }
-
-    private void forEachDevelopmentLevel( T test )
-    {
-        forEachUnofficialLevel( test, "development" );
-    }
-
-    private void forEachUnofficialLevel( T test, String levelsDir )
+    private List<String> unofficialLevelPaths( String levelsDir )
     {
         LevelsList levelsList = LoadLevelsList.load(
             new LevelsList(
@@ -221,44 +212,15 @@ public class TestAllActiveLevels
             )
         );
 
+        List<String> ret = new ArrayList<>();
         for ( LevelsList.LevelSetInfo set : levelsList )
         {
             for ( LevelsList.LevelInfo level : set.levels )
             {
-                String path = levelsDir + "/" + level.fileName + ".rel";
-                World world = new LoadWorldFile( new NothingExistsFileSystem() )
-                    .load( new IgnoreWorldStatsListener(), path );
-
-                test.run( world, path );
+                ret.add( levelsDir + "/" + level.fileName + ".rel" );
             }
         }
-    }
-
-    private boolean runSolutionString(
-        World world,
-        String worldFileName,
-        int solutionId,
-        String solutionString
-    )
-    {
-        try
-        {
-            Solution solution = SolutionParser.parse( solutionString );
-            return SolutionRunner.runSolution( solution, world );
-        }
-        catch ( SolutionExceptions.ProblemRunningSolution e )
-        {
-            e.solutionId = solutionId;
-            e.level = worldFileName;
-            throw e;
-        }
-        catch ( Throwable e )
-        {
-            UnknownProblem u = new SolutionExceptions.UnknownProblem( e );
-            u.solutionId = solutionId;
-            u.level = worldFileName;
-            throw u;
-        }
+        return ret;
     }
 
     private static class NothingExistsFileSystem implements FileSystem
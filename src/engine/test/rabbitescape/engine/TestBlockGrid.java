@@ -0,0 +1,251 @@
+package rabbitescape.engine;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static rabbitescape.engine.util.Util.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import rabbitescape.engine.Block.Material;
+import rabbitescape.engine.Block.Shape;
+import rabbitescape.engine.util.Dimension;
+
+public class TestBlockGrid
+{
+    @Test
+    public void Empty_cells_have_no_block_or_shape()
+    {
+        BlockGrid grid = new BlockGrid( new Dimension( 3, 2 ) );
+
+        assertThat( grid.getItemAt( 1, 1 ), nullValue() );
+        assertThat( grid.shapeAt( 1, 1 ), nullValue() );
+        assertThat( grid.countAt( 1, 1 ), equalTo( 0 ) );
+        assertThat( grid.getItemsAt( 1, 1 ).size(), equalTo( 0 ) );
+    }
+
+    @Test
+    public void Blocks_can_be_found_inside_and_just_outside_the_world()
+    {
+        Block inside = block( 2, 1, Shape.UP_LEFT );
+        Block outside = block( -1, 2, Shape.FLAT );
+        BlockGrid grid = new BlockGrid(
+            Arrays.asList( inside, outside ), new Dimension( 3, 2 ) );
+
+        assertThat( grid.getItemAt( 2, 1 ), sameInstance( inside ) );
+        assertThat( grid.shapeAt( 2, 1 ), equalTo( Shape.UP_LEFT ) );
+        assertThat( grid.getItemAt( -1, 2 ), sameInstance( outside ) );
+        assertThat( grid.shapeAt( -1, 2 ), equalTo( Shape.FLAT ) );
+        assertThat( grid.getItemAt( 1, 2 ), nullValue() );
+        assertThat( grid.size(), equalTo( 2 ) );
+    }
+
+    @Test
+    public void The_oldest_block_in_a_cell_is_returned_first()
+    {
+        Block ramp = block( 1, 1, Shape.UP_RIGHT );
+        Block bridge = block( 1, 1, Shape.BRIDGE_UP_LEFT );
+        BlockGrid grid = new BlockGrid( new Dimension( 3, 3 ) );
+
+        grid.add( ramp );
+        grid.add( bridge );
+
+        assertThat( grid.getItemAt( 1, 1 ), sameInstance( ramp ) );
+        assertThat( grid.countAt( 1, 1 ), equalTo( 2 ) );
+        assertThat(
+            grid.getItemsAt( 1, 1 ),
+            equalTo( Arrays.asList( ramp, bridge ) )
+        );
+    }
+
+    @Test
+    public void Hundreds_of_blocks_can_be_in_one_cell()
+    {
+        BlockGrid grid = new BlockGrid( new Dimension( 1, 1 ) );
+        List<Block> added = new ArrayList<>();
+        for ( int i = 0; i < 300; ++i )
+        {
+            Block block = block( 0, 0, Shape.FLAT );
+            added.add( block );
+            grid.add( block );
+        }
+
+        assertThat( grid.countAt( 0, 0 ), equalTo( 300 ) );
+        assertThat( grid.getItemsAt( 0, 0 ), equalTo( added ) );
+
+        grid.removeAll( added.subList( 0, 299 ) );
+
+        assertThat( grid.countAt( 0, 0 ), equalTo( 1 ) );
+        assertThat( grid.getItemAt( 0, 0 ), sameInstance( added.get( 299 ) ) );
+    }
+
+    @Test
+    public void Removing_the_oldest_block_promotes_the_next()
+    {
+        Block ramp = block( 1, 1, Shape.UP_RIGHT );
+        Block bridge = block( 1, 1, Shape.BRIDGE_UP_LEFT );
+        BlockGrid grid = new BlockGrid(
+            Arrays.asList( ramp, bridge ), new Dimension( 3, 3 ) );
+
+        grid.removeAll( Arrays.asList( ramp ) );
+
+        assertThat( grid.getItemAt( 1, 1 ), sameInstance( bridge ) );
+        assertThat( grid.shapeAt( 1, 1 ), equalTo( Shape.BRIDGE_UP_LEFT ) );
+        assertThat( grid.countAt( 1, 1 ), equalTo( 1 ) );
+
+        grid.removeAll( Arrays.asList( bridge ) );
+
+        assertThat( grid.getItemAt( 1, 1 ), nullValue() );
+        assertThat( grid.shapeAt( 1, 1 ), nullValue() );
+        assertThat( grid.countAt( 1, 1 ), equalTo( 0 ) );
+        assertThat( grid.size(), equalTo( 0 ) );
+    }
+
+    @Test
+    public void Iterating_returns_blocks_in_the_order_added()
+    {
+        Block a = block( 0, 0, Shape.FLAT );
+        Block b = block( 2, 0, Shape.UP_LEFT );
+        Block c = block( 1, 0, Shape.FLAT );
+        BlockGrid grid = new BlockGrid(
+            Arrays.asList( a, b ), new Dimension( 3, 1 ) );
+        grid.add( c );
+
+        assertThat( list( grid ), equalTo( Arrays.asList( a, b, c ) ) );
+    }
+
+    @Test
+    public void Changing_a_snapshot_does_not_change_the_original()
+    {
+        Block a = block( 0, 0, Shape.FLAT );
+        Block b = block( 1, 0, Shape.UP_LEFT );
+        Block c = block( 2, 0, Shape.FLAT );
+        BlockGrid grid = new BlockGrid(
+            Arrays.asList( a, b ), new Dimension( 3, 1 ) );
+
+        BlockGrid snapshot = grid.snapshot();
+        snapshot.removeAll( Arrays.asList( a ) );
+        snapshot.add( c );
+
+        assertThat( list( grid ), equalTo( Arrays.asList( a, b ) ) );
+        assertThat( grid.getItemAt( 0, 0 ), sameInstance( a ) );
+        assertThat( grid.getItemAt( 2, 0 ), nullValue() );
+
+        assertThat( list( snapshot ), equalTo( Arrays.asList( b, c ) ) );
+        assertThat( snapshot.getItemAt( 0, 0 ), nullValue() );
+        assertThat( snapshot.getItemAt( 2, 0 ), sameInstance( c ) );
+    }
+
+    @Test
+    public void Changing_the_original_does_not_change_a_snapshot()
+    {
+        Block ramp = block( 1, 1, Shape.UP_RIGHT );
+        Block bridge = block( 1, 1, Shape.BRIDGE_UP_LEFT );
+        BlockGrid grid = new BlockGrid(
+            Arrays.asList( ramp, bridge ), new Dimension( 3, 3 ) );
+
+        BlockGrid snapshot = grid.snapshot();
+        grid.removeAll( Arrays.asList( ramp ) );
+
+        assertThat( grid.getItemAt( 1, 1 ), sameInstance( bridge ) );
+        assertThat( snapshot.getItemAt( 1, 1 ), sameInstance( ramp ) );
+        assertThat(
+            snapshot.getItemsAt( 1, 1 ),
+            equalTo( Arrays.asList( ramp, bridge ) )
+        );
+    }
+
+    @Test
+    public void Reading_and_snapshotting_skip_gaps_without_closing_them()
+    {
+        Block a = block( 0, 0, Shape.FLAT );
+        Block b = block( 1, 0, Shape.FLAT );
+        Block c = block( 2, 0, Shape.FLAT );
+        BlockGrid grid = new BlockGrid(
+            Arrays.asList( a, b, c ), new Dimension( 3, 1 ) );
+        grid.removeAll( Arrays.asList( b ) );
+
+        BlockGrid snapshot = grid.snapshot();
+
+        assertThat( list( grid ), equalTo( Arrays.asList( a, c ) ) );
+        assertThat( grid.getListCopy(), equalTo( Arrays.asList( a, c ) ) );
+        assertThat( list( snapshot ), equalTo( Arrays.asList( a, c ) ) );
+
+        snapshot.removeAll( Arrays.asList( c ) );
+        grid.removeAll( Arrays.asList( a ) );
+
+        assertThat( list( grid ), equalTo( Arrays.asList( c ) ) );
+        assertThat( list( snapshot ), equalTo( Arrays.asList( a ) ) );
+        assertThat( grid.size(), equalTo( 1 ) );
+        assertThat( snapshot.size(), equalTo( 1 ) );
+    }
+
+    @Test
+    public void Removing_many_blocks_keeps_the_rest_in_order()
+    {
+        Block ramp = block( 0, 1, Shape.UP_RIGHT );
+        Block bridge = block( 0, 1, Shape.BRIDGE_UP_LEFT );
+        List<Block> row = new ArrayList<>();
+        for ( int x = 0; x < 100; ++x )
+        {
+            row.add( block( x, 0, Shape.FLAT ) );
+        }
+        BlockGrid grid = new BlockGrid( row, new Dimension( 100, 2 ) );
+        grid.add( ramp );
+        grid.add( bridge );
+
+        // Remove three blocks in four, a few at a time, so that the gaps
+        // left behind are closed part way through.
+        List<Block> expected = new ArrayList<>();
+        for ( int x = 0; x < 100; x += 10 )
+        {
+            List<Block> going = new ArrayList<>();
+            for ( int i = x; i < x + 10; ++i )
+            {
+                if ( i % 4 == 0 )
+                {
+                    expected.add( row.get( i ) );
+                }
+                else
+                {
+                    going.add( row.get( i ) );
+                }
+            }
+            grid.removeAll( going );
+            assertThat(
+                grid.size(),
+                equalTo( expected.size() + ( 100 - x - 10 ) + 2 )
+            );
+        }
+        grid.removeAll( Arrays.asList( ramp ) );
+        expected.add( bridge );
+
+        assertThat( list( grid ), equalTo( expected ) );
+        assertThat( grid.getItemAt( 0, 1 ), sameInstance( bridge ) );
+
+        // Blocks moved up the list by closing gaps can still be removed.
+        grid.removeAll( Arrays.asList( bridge, row.get( 96 ) ) );
+        expected.remove( bridge );
+        expected.remove( row.get( 96 ) );
+
+        assertThat( list( grid ), equalTo( expected ) );
+        assertThat( grid.getItemAt( 96, 0 ), nullValue() );
+        assertThat( grid.getItemAt( 0, 1 ), nullValue() );
+    }
+
+    @Test( expected = IndexOutOfBoundsException.class )
+    public void Looking_further_outside_than_the_border_is_an_error()
+    {
+        new BlockGrid( new Dimension( 3, 2 ) ).getItemAt( 1, 4 );
+    }
+
+    // ---
+
+    private static Block block( int x, int y, Shape shape )
+    {
+        return new Block( x, y, Material.EARTH, shape, 0 );
+    }
+}
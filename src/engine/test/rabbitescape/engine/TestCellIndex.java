@@ -0,0 +1,110 @@
+package rabbitescape.engine;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import rabbitescape.engine.util.Dimension;
+
+public class TestCellIndex
+{
+    @Test
+    public void Things_are_found_in_their_cell()
+    {
+        Token a = new Token( 1, 1, Token.Type.bash );
+        Token b = new Token( 2, 1, Token.Type.dig );
+        CellIndex<Thing> index = index( a, b );
+
+        assertThat( index.at( 1, 1 ), equalTo( things( a ) ) );
+        assertThat( index.at( 2, 1 ), equalTo( things( b ) ) );
+        assertThat( index.at( 0, 1 ).size(), equalTo( 0 ) );
+    }
+
+    @Test
+    public void Things_in_one_cell_keep_the_order_they_were_added()
+    {
+        Token a = new Token( 1, 1, Token.Type.bash );
+        Token b = new Token( 1, 1, Token.Type.dig );
+        Token c = new Token( 1, 1, Token.Type.block );
+        CellIndex<Thing> index = index( a, b );
+        index.add( c );
+
+        assertThat( index.at( 1, 1 ), equalTo( things( a, b, c ) ) );
+    }
+
+    @Test
+    public void Moved_things_are_refiled_in_their_original_order()
+    {
+        Token a = new Token( 1, 0, Token.Type.bash );
+        Token b = new Token( 1, 1, Token.Type.dig );
+        CellIndex<Thing> index = index( a, b );
+
+        a.y = 1;
+        index.update( a );
+
+        assertThat( index.at( 1, 0 ).size(), equalTo( 0 ) );
+        assertThat( index.at( 1, 1 ), equalTo( things( a, b ) ) );
+    }
+
+    @Test
+    public void Things_outside_the_world_can_be_found()
+    {
+        Fire fire = new Fire( 1, 3, 0 );
+        CellIndex<Thing> index = index( fire );
+
+        fire.y = 7;
+        index.update( fire );
+
+        assertThat( index.at( 1, 3 ).size(), equalTo( 0 ) );
+        assertThat( index.at( 1, 7 ), equalTo( things( fire ) ) );
+    }
+
+    @Test
+    public void Removed_things_are_not_found()
+    {
+        Token a = new Token( 1, 1, Token.Type.bash );
+        Token b = new Token( 1, 1, Token.Type.dig );
+        CellIndex<Thing> index = index( a, b );
+
+        index.remove( a );
+
+        assertThat( index.at( 1, 1 ), equalTo( things( b ) ) );
+        assertThat( index.size(), equalTo( 1 ) );
+    }
+
+    @Test
+    public void Sync_catches_up_with_changes_to_the_list()
+    {
+        Token a = new Token( 1, 1, Token.Type.bash );
+        Token b = new Token( 2, 1, Token.Type.dig );
+        List<Thing> list = new ArrayList<>( things( a ) );
+        CellIndex<Thing> index = new CellIndex<>( new Dimension( 3, 3 ) );
+        index.sync( list );
+
+        list.add( b );
+        a.x = 2;
+        index.sync( list );
+
+        assertThat( index.at( 1, 1 ).size(), equalTo( 0 ) );
+        assertThat( index.at( 2, 1 ), equalTo( things( a, b ) ) );
+    }
+
+    // ---
+
+    private static CellIndex<Thing> index( Thing... things )
+    {
+        CellIndex<Thing> index = new CellIndex<>( new Dimension( 3, 3 ) );
+        index.addAll( Arrays.asList( things ) );
+        return index;
+    }
+
+    private static List<Thing> things( Thing... things )
+    {
+        return Arrays.asList( things );
+    }
+}
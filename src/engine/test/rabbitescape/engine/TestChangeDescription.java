@@ -0,0 +1,64 @@
+package rabbitescape.engine;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static rabbitescape.engine.ChangeDescription.Category.*;
+import static rabbitescape.engine.ChangeDescription.State.*;
+
+import org.junit.Test;
+
+import rabbitescape.engine.ChangeDescription.Category;
+import rabbitescape.engine.ChangeDescription.State;
+
+public class TestChangeDescription
+{
+    @Test
+    public void States_know_their_categories()
+    {
+        assertThat( RABBIT_FALLING_1_ONTO_RISE_LEFT.is( FALLING ), is( true ) );
+        assertThat( RABBIT_CLIMBING_RIGHT_END.is( CLIMBING ), is( true ) );
+        assertThat( RABBIT_BASHING_UP_LEFT.is( BASHING ), is( true ) );
+        assertThat( RABBIT_DIGGING_2.is( DIGGING ), is( true ) );
+        assertThat( RABBIT_BLOCKING_RISE_LEFT.is( BLOCKING ), is( true ) );
+
+        assertThat( RABBIT_WALKING_LEFT.is( FALLING ), is( false ) );
+        assertThat( RABBIT_BROLLYCHUTING.is( FALLING ), is( false ) );
+        assertThat( RABBIT_ENTERING_EXIT.is( CLIMBING ), is( false ) );
+        assertThat( TOKEN_FALLING.is( FALLING ), is( false ) );
+    }
+
+    @Test
+    public void Exactly_the_bridging_states_have_a_bridging_position()
+    {
+        for ( State state : State.values() )
+        {
+            assertThat(
+                state.name(),
+                state.is( BRIDGING ),
+                equalTo( RabbitStates.bridgingStage( state ) != ' ' )
+            );
+            assertThat(
+                state.name(),
+                state.is( BRIDGING ),
+                equalTo( RabbitStates.whereBridging( state, 3, 3 ) != null )
+            );
+        }
+    }
+
+    @Test
+    public void A_state_is_in_at_most_one_category()
+    {
+        for ( State state : State.values() )
+        {
+            int count = 0;
+            for ( Category category : Category.values() )
+            {
+                if ( state.is( category ) )
+                {
+                    ++count;
+                }
+            }
+            assertThat( state.name(), count <= 1, is( true ) );
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package rabbitescape.engine;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static rabbitescape.engine.SolutionPlayer.addInt;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+import org.junit.Test;
+
+import rabbitescape.engine.textworld.TextWorldManip;
+import rabbitescape.engine.util.Position;
+
+public class TestParallelRabbits
+{
+    private static final SolutionPlayer.Summary EVERYTHING =
+        new SolutionPlayer.Summary()
+    {
+        @Override
+        public void add( CRC32 crc, World world )
+        {
+            addInt( crc, world.num_saved );
+            addInt( crc, world.num_killed );
+            addInt( crc, world.num_waiting );
+            for ( Rabbit rabbit : world.rabbits )
+            {
+                addInt( crc, rabbit.index );
+                addInt( crc, rabbit.x );
+                addInt( crc, rabbit.y );
+                addInt( crc, rabbit.dir.ordinal() );
+                addInt( crc, rabbit.state.ordinal() );
+            }
+            for ( Thing thing : world.things )
+            {
+                addInt( crc, thing.x );
+                addInt( crc, thing.y );
+                addInt( crc, thing.state.ordinal() );
+            }
+            for ( Block block : world.blockTable )
+            {
+                addInt( crc, block.x );
+                addInt( crc, block.y );
+            }
+            for ( WaterRegion region : world.waterTable )
+            {
+                addInt( crc, region.getContents() );
+            }
+        }
+    };
+
+    @Test
+    public void All_official_solutions_play_the_same_on_several_threads()
+    {
+        Map<String, String> serial = new LinkedHashMap<>();
+        Map<String, String> parallel = new LinkedHashMap<>();
+
+        for ( String path : SolutionPlayer.officialLevels() )
+        {
+            String[] solutions = SolutionPlayer.loadLevel( path ).solutions;
+            for ( int i = 0; i < solutions.length; ++i )
+            {
+                String key = path + " " + ( i + 1 );
+
+                serial.put(
+                    key,
+                    SolutionPlayer.checksum(
+                        SolutionPlayer.loadLevel( path ),
+                        solutions[i],
+                        EVERYTHING
+                    )
+                );
+
+                World world = SolutionPlayer.loadLevel( path );
+                // Share out the rabbits however few there are.
+                world.setRabbitThreads( 3, 0 );
+                parallel.put(
+                    key,
+                    SolutionPlayer.checksum( world, solutions[i], EVERYTHING )
+                );
+            }
+        }
+
+        assertThat( parallel, equalTo( serial ) );
+    }
+
+    @Test
+    public void Changes_are_made_in_rabbit_order()
+    {
+        // Two diggers dig on the same steps, all the way out of the world:
+        // the blocks must be removed, and their water worked out, in the
+        // same order every time.
+        String[] lines = {
+            "#r  r  #",
+            "#d##d###",
+            "#   #  #",
+            "########",
+            ":num_rabbits=0"
+        };
+        World serial = TextWorldManip.createWorld( lines );
+        World parallel = TextWorldManip.createWorld( lines );
+        parallel.setRabbitThreads( 2, 0 );
+
+        while ( serial.completionState() == World.CompletionState.RUNNING )
+        {
+            serial.step();
+            parallel.step();
+            assertThat(
+                TextWorldManip.renderWorld( parallel, true, false ),
+                equalTo( TextWorldManip.renderWorld( serial, true, false ) )
+            );
+            assertThat(
+                blockPositions( parallel ),
+                equalTo( blockPositions( serial ) )
+            );
+        }
+    }
+
+    @Test
+    public void Only_one_rabbit_goes_through_a_pair_of_portals()
+    {
+        // Two rabbits reach the same portal on the same step. The first
+        // uses up both portals, so the second walks on past.
+        String[] lines = {
+            "#*u     u  #",
+            "############",
+            ":*=rr",
+            ":num_rabbits=0"
+        };
+        World serial = TextWorldManip.createWorld( lines );
+        World parallel = TextWorldManip.createWorld( lines );
+        parallel.setRabbitThreads( 2, 0 );
+
+        for ( int i = 0; i < 6; ++i )
+        {
+            serial.step();
+            parallel.step();
+            assertThat(
+                TextWorldManip.renderCompleteWorld( parallel, false ),
+                equalTo( TextWorldManip.renderCompleteWorld( serial, false ) )
+            );
+        }
+        // One went through, and one didn't.
+        assertThat(
+            serial.rabbits.get( 0 ).x,
+            not( equalTo( serial.rabbits.get( 1 ).x ) )
+        );
+    }
+
+    // ---
+
+    private static List<Position> blockPositions( World world )
+    {
+        List<Position> ret = new ArrayList<>();
+        for ( Block block : world.blockTable )
+        {
+            ret.add( new Position( block.x, block.y ) );
+        }
+        return ret;
+    }
+}
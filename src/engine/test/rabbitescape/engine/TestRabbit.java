@@ -2,7 +2,11 @@ package rabbitescape.engine;
 
 import static org.hamcrest.CoreMatchers.*;
 import static org.hamcrest.MatcherAssert.*;
+import static org.junit.Assume.*;
 import static rabbitescape.engine.ChangeDescription.State.*;
+import static rabbitescape.engine.textworld.TextWorldManip.*;
+
+import java.lang.management.ManagementFactory;
 
 import org.junit.Test;
 
@@ -23,4 +27,53 @@ public class TestRabbit
         r.state = RABBIT_WALKING_LEFT;
         assertThat(r.stateName(), equalTo("rabbot_walking_left"));
     }
+
+    @Test
+    public void A_step_in_a_settled_world_creates_no_garbage()
+    {
+        assumeTrue(
+            ManagementFactory.getThreadMXBean()
+                instanceof com.sun.management.ThreadMXBean
+        );
+
+        World world = createWorld(
+            "#     #     #",
+            "# r j # t y #",
+            "#############"
+        );
+
+        // Let everyone settle into walking back and forth
+        for ( int i = 0; i < 20; ++i )
+        {
+            world.step();
+        }
+
+        // Warm up, then measure
+        int times = 10000;
+        step( world, times );
+        long before = allocatedBytes();
+        step( world, times );
+        long allocated = allocatedBytes() - before;
+
+        // This is what we are testing: less than 1 byte per step (allowing
+        // for the measurement itself)
+        assertThat(allocated < times, is(true));
+    }
+
+    private static void step( World world, int times )
+    {
+        for ( int i = 0; i < times; ++i )
+        {
+            world.step();
+        }
+    }
+
+    private static long allocatedBytes()
+    {
+        com.sun.management.ThreadMXBean bean =
+            (com.sun.management.ThreadMXBean)
+                ManagementFactory.getThreadMXBean();
+
+        return bean.getThreadAllocatedBytes( Thread.currentThread().getId() );
+    }
 }
@@ -0,0 +1,238 @@
+package rabbitescape.engine;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+import rabbitescape.engine.textworld.TextWorldManip;
+
+public class TestStateHash
+{
+    @Test
+    public void Kept_up_to_date_through_all_official_solutions()
+    {
+        for ( final String path : SolutionPlayer.officialLevels() )
+        {
+            String[] solutions = SolutionPlayer.loadLevel( path ).solutions;
+            for ( int i = 0; i < solutions.length; ++i )
+            {
+                SolutionPlayer.play(
+                    SolutionPlayer.loadLevel( path ),
+                    solutions[i],
+                    new SolutionPlayer.AfterStep()
+                    {
+                        @Override
+                        public void run( World world )
+                        {
+                            assertThat(
+                                path,
+                                world.stateHash(),
+                                equalTo( fromScratch( world ) )
+                            );
+                        }
+                    }
+                );
+            }
+        }
+    }
+
+    @Test
+    public void Same_for_worlds_in_the_same_state()
+    {
+        World world1 = TextWorldManip.createWorld( diggingIntoWater() );
+        World world2 = TextWorldManip.createWorld( diggingIntoWater() );
+
+        assertThat( world1.stateHash(), equalTo( world2.stateHash() ) );
+
+        while ( world1.completionState() == World.CompletionState.RUNNING )
+        {
+            world1.step();
+            world2.step();
+            assertThat( world1.stateHash(), equalTo( world2.stateHash() ) );
+        }
+    }
+
+    @Test
+    public void Changes_as_the_world_changes()
+    {
+        World world = TextWorldManip.createWorld( diggingIntoWater() );
+
+        long before = world.stateHash();
+        world.step();
+
+        assertThat( world.stateHash(), not( equalTo( before ) ) );
+    }
+
+    @Test
+    public void Tokens_and_direction_count()
+    {
+        World left = TextWorldManip.createWorld(
+            "#  j  #",
+            "#######",
+            ":num_rabbits=0",
+            ":bash=1"
+        );
+        World right = TextWorldManip.createWorld(
+            "#  r  #",
+            "#######",
+            ":num_rabbits=0",
+            ":bash=1"
+        );
+        World token = TextWorldManip.createWorld(
+            "#  j  #",
+            "#######",
+            ":num_rabbits=0",
+            ":bash=1"
+        );
+        token.changes.addToken( 1, 0, Token.Type.bash );
+        token.changes.apply();
+
+        assertThat( left.stateHash(), not( equalTo( right.stateHash() ) ) );
+        assertThat( left.stateHash(), not( equalTo( token.stateHash() ) ) );
+    }
+
+    @Test
+    public void Things_the_same_in_the_same_cell_do_not_cancel_out()
+    {
+        World none = TextWorldManip.createWorld(
+            "#      #",
+            "########",
+            ":num_rabbits=0"
+        );
+        World rabbitsHere = TextWorldManip.createWorld(
+            "# *    #",
+            "########",
+            ":num_rabbits=0",
+            ":*=rr"
+        );
+        World rabbitsThere = TextWorldManip.createWorld(
+            "#    * #",
+            "########",
+            ":num_rabbits=0",
+            ":*=rr"
+        );
+        World tokensHere = TextWorldManip.createWorld(
+            "# *    #",
+            "########",
+            ":num_rabbits=0",
+            ":*=dd"
+        );
+        World tokensThere = TextWorldManip.createWorld(
+            "#    * #",
+            "########",
+            ":num_rabbits=0",
+            ":*=dd"
+        );
+
+        assertThat(
+            rabbitsHere.stateHash(), not( equalTo( none.stateHash() ) ) );
+        assertThat(
+            rabbitsHere.stateHash(),
+            not( equalTo( rabbitsThere.stateHash() ) )
+        );
+        assertThat(
+            tokensHere.stateHash(), not( equalTo( none.stateHash() ) ) );
+        assertThat(
+            tokensHere.stateHash(),
+            not( equalTo( tokensThere.stateHash() ) )
+        );
+    }
+
+    @Test
+    public void What_rabbits_remember_counts()
+    {
+        String[][] states = {
+            { "Climbing.hasAbility", "true" },
+            { "Brollychuting.hasAbility", "true" },
+            { "Bridging.bigSteps", "2" },
+            { "Bridging.smallSteps", "1" },
+            { "Bashing.stepsOfBashing", "1" },
+            { "onSlope", "true" },
+            { "slopeBashHop", "true" },
+        };
+
+        long plain = StateHash.thing( rabbit() );
+        for ( String[] state : states )
+        {
+            Map<String, String> saved = new HashMap<String, String>();
+            saved.put( state[0], state[1] );
+            Rabbit rabbit = rabbit();
+            rabbit.restoreWorkedOutState( saved );
+
+            assertThat(
+                state[0],
+                StateHash.thing( rabbit ),
+                not( equalTo( plain ) )
+            );
+        }
+    }
+
+    @Test
+    public void Same_on_several_threads()
+    {
+        World serial = TextWorldManip.createWorld( diggingIntoWater() );
+        World parallel = TextWorldManip.createWorld( diggingIntoWater() );
+        parallel.setWaterThreads( 3, 0 );
+        parallel.setRabbitThreads( 2, 0 );
+
+        while ( serial.completionState() == World.CompletionState.RUNNING )
+        {
+            serial.step();
+            parallel.step();
+            assertThat( parallel.stateHash(), equalTo( serial.stateHash() ) );
+        }
+    }
+
+    // ---
+
+    private static Rabbit rabbit()
+    {
+        return new Rabbit( 1, 0, Direction.RIGHT, Rabbit.Type.RABBIT );
+    }
+
+    private static String[] diggingIntoWater()
+    {
+        return new String[] {
+            "#r  r  #",
+            "#d##d###",
+            "#NNN#  #",
+            "########",
+            ":num_rabbits=0"
+        };
+    }
+
+    /**
+     * The hash worked out from everything in the world, rather than kept
+     * up to date as it changes.
+     */
+    private static long fromScratch( World world )
+    {
+        long ret = StateHash.counts(
+            world.abilities,
+            world.num_saved,
+            world.num_killed,
+            world.num_waiting
+        );
+        for ( Block block : world.blockTable )
+        {
+            ret += StateHash.block( block );
+        }
+        for ( Rabbit rabbit : world.rabbits )
+        {
+            ret += StateHash.thing( rabbit );
+        }
+        for ( Thing thing : world.things )
+        {
+            ret += StateHash.thing( thing );
+        }
+        for ( WaterRegion region : world.waterTable )
+        {
+            ret += StateHash.water( region.x, region.y, region.getContents() );
+        }
+        return ret;
+    }
+}
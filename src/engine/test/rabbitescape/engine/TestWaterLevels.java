@@ -0,0 +1,208 @@
+package rabbitescape.engine;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static rabbitescape.engine.SolutionPlayer.addInt;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+import org.junit.Test;
+
+import rabbitescape.engine.textworld.TextWorldManip;
+
+/**
+ * Play the solutions of every official level with water or pipes in it,
+ * and check that the water, and the rabbits, are exactly where they always
+ * were at every step.
+ *
+ * The expected values are checksums of every water region's contents and
+ * every rabbit's position and state after each step, recorded from the
+ * original, simulate-every-cell water code.
+ */
+public class TestWaterLevels
+{
+    private static final SolutionPlayer.Summary WATER_AND_RABBITS =
+        new SolutionPlayer.Summary()
+    {
+        @Override
+        public void add( CRC32 crc, World world )
+        {
+            for ( WaterRegion region : world.waterTable )
+            {
+                addInt( crc, region.x );
+                addInt( crc, region.y );
+                addInt( crc, region.getContents() );
+            }
+            for ( Rabbit rabbit : world.rabbits )
+            {
+                addInt( crc, rabbit.x );
+                addInt( crc, rabbit.y );
+                addInt( crc, rabbit.state.ordinal() );
+            }
+        }
+    };
+
+    @Test
+    public void Water_levels_play_out_exactly_as_they_always_did()
+    {
+        assertThat( playAll( 1 ), equalTo( expectedChecksums() ) );
+    }
+
+    @Test
+    public void Water_moves_the_same_when_shared_between_threads()
+    {
+        assertThat( playAll( 4 ), equalTo( expectedChecksums() ) );
+    }
+
+    @Test
+    public void Big_floods_move_the_same_when_shared_between_threads()
+    {
+        World serial = TextWorldManip.createWorld( floodedBox( 60 ) );
+        World parallel = TextWorldManip.createWorld( floodedBox( 60 ) );
+        parallel.setWaterThreads( 3, 0 );
+
+        for ( int i = 0; i < 200; ++i )
+        {
+            serial.step();
+            parallel.step();
+            assertThat(
+                parallel.getWaterContents(),
+                equalTo( serial.getWaterContents() )
+            );
+        }
+    }
+
+    // ---
+
+    /**
+     * @param threads how many threads to move water on, even when there
+     *                is very little of it.
+     */
+    private static Map<String, String> playAll( int threads )
+    {
+        Map<String, String> actual = new LinkedHashMap<>();
+
+        for ( String path : SolutionPlayer.officialLevels() )
+        {
+            World world = SolutionPlayer.loadLevel( path );
+            if ( !hasWater( world ) )
+            {
+                continue;
+            }
+            for ( int i = 0; i < world.solutions.length; ++i )
+            {
+                World playWorld = SolutionPlayer.loadLevel( path );
+                playWorld.setWaterThreads( threads, 0 );
+                actual.put(
+                    path + " " + ( i + 1 ),
+                    SolutionPlayer.checksum(
+                        playWorld, world.solutions[i], WATER_AND_RABBITS )
+                );
+            }
+        }
+        return actual;
+    }
+
+    /**
+     * A walled box with its top third full of water, shelves with gaps in
+     * below, and a rabbit in a dry cupboard to keep the level running.
+     */
+    private static String[] floodedBox( int size )
+    {
+        String[] lines = new String[size + 1];
+        for ( int y = 0; y < size; ++y )
+        {
+            StringBuilder line = new StringBuilder( size );
+            for ( int x = 0; x < size; ++x )
+            {
+                if ( x == 0 || y == 0 || x == size - 1 || y == size - 1 )
+                {
+                    line.append( '#' );
+                }
+                else if ( x == 1 && y == size - 2 )
+                {
+                    line.append( 'r' );
+                }
+                else if ( ( x == 2 && y == size - 2 )
+                    || ( x <= 2 && y == size - 3 ) )
+                {
+                    line.append( '#' );
+                }
+                else if ( y < size / 3 )
+                {
+                    line.append( 'N' );
+                }
+                else if ( y % 7 == 0 && x % 9 != ( y / 7 ) % 9 )
+                {
+                    line.append( '#' );
+                }
+                else
+                {
+                    line.append( ' ' );
+                }
+            }
+            lines[y] = line.toString();
+        }
+        lines[size] = ":num_rabbits=0";
+        return lines;
+    }
+
+    private static boolean hasWater( World world )
+    {
+        if ( !world.getWaterContents().isEmpty() )
+        {
+            return true;
+        }
+        for ( Thing thing : world.things )
+        {
+            if ( thing instanceof Pipe )
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Map<String, String> expectedChecksums()
+    {
+        Map<String, String> ret = new LinkedHashMap<>();
+        ret.put( "09_water/01_Jack-n-Jill.rel 1", "63a22f24" );
+        ret.put( "09_water/02_Waterfalls.rel 1", "7bc1d415" );
+        ret.put( "09_water/03_Underfloor-heating.rel 1", "e5812028" );
+        ret.put( "09_water/04_Dambusters.rel 1", "10fa96d4" );
+        ret.put( "09_water/05_Escape-from-Shurrapak.rel 1", "b173e9f5" );
+        ret.put( "09_water/06_Fiery-finish.rel 1", "1e37e44e" );
+        ret.put( "09_water/07_Aquifer.rel 1", "a95e8eb9" );
+        ret.put( "09_water/07_Aquifer.rel 2", "72083799" );
+        ret.put( "09_water/08_Geyser.rel 1", "2a0aefb2" );
+        ret.put( "09_water/09_Quick-Dig.rel 1", "900522a1" );
+        ret.put( "09_water/09_Quick-Dig.rel 2", "c4a739bb" );
+        ret.put( "09_water/09_Quick-Dig.rel 3", "3232f234" );
+        ret.put( "09_water/10_Nice-cup-of-tea.rel 1", "a2e19beb" );
+        ret.put( "09_water/10_Nice-cup-of-tea.rel 2", "78a923d3" );
+        ret.put( "09_water/10_Nice-cup-of-tea.rel 3", "9f91899f" );
+        ret.put( "09_water/10_Nice-cup-of-tea.rel 4", "4666f461" );
+        ret.put( "09_water/11_Under-pressure.rel 1", "22b3c56b" );
+        ret.put( "09_water/11_Under-pressure.rel 2", "e5391758" );
+        ret.put( "09_water/12_Water-tower.rel 1", "648bb4ee" );
+        ret.put( "09_water/13_Underworld.rel 1", "d68909f8" );
+        ret.put( "09_water/13_Underworld.rel 2", "5d0c9e19" );
+        ret.put( "09_water/14_The-Gauntlet.rel 1", "b97c19e3" );
+        ret.put( "09_water/14_The-Gauntlet.rel 2", "90e4a21b" );
+        ret.put( "09_water/14_The-Gauntlet.rel 3", "1b6cb091" );
+        ret.put( "09_water/15_Dive.rel 1", "5c669bb3" );
+        ret.put( "09_water/16_Out-of-the-frying-pan.code.rel 1", "d6519de7" );
+        ret.put( "09_water/16_Out-of-the-frying-pan.code.rel 2", "23df34e" );
+        ret.put( "09_water/17_Burst-water-main.rel 1", "252b8a25" );
+        ret.put( "09_water/18_Infiltrate.rel 1", "6cbdab40" );
+        ret.put( "09_water/19_Nasty-cup-of-tea.rel 1", "b257c412" );
+        ret.put( "09_water/19_Nasty-cup-of-tea.rel 2", "816b773" );
+        ret.put( "09_water/20_Glass-half-full.code.rel 1", "d054fa07" );
+        ret.put( "10_super_easy/03_Firehose.rel 1", "899dd716" );
+        ret.put( "10_super_easy/12_Save-Jem.rel 1", "4a23e34a" );
+        ret.put( "10_super_easy/19_Save-Bob.rel 1", "77313a9d" );
+        return ret;
+    }
+}
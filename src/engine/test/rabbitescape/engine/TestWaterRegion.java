@@ -101,4 +101,56 @@ public class TestWaterRegion
         assertThat( "The water should disappear off the bottom of the world",
             waterRegionOffBottom.getContents(), equalTo( 0 ) );
     }
+
+    @Test
+    public void only_regions_with_water_are_simulated()
+    {
+        String[] worldString = {
+            "#   #",
+            "#   #",
+            "#####"
+        };
+        World world = createWorld( worldString );
+        assertThat( world.numActiveWaterRegions(), equalTo( 0 ) );
+
+        // Water added from outside wakes the region up.
+        world.waterTable.getItemAt( 2, 0 ).addContents( 100 );
+        assertThat( world.numActiveWaterRegions(), equalTo( 1 ) );
+
+        // As it flows, the regions it reaches are woken, and the ones it
+        // leaves fall asleep.
+        world.step();
+        world.step();
+        assertThat( world.waterTable.getItemAt( 2, 0 ).getContents(),
+            equalTo( 0 ) );
+        assertThat( world.waterTable.getItemAt( 2, 1 ).getContents(),
+            equalTo( 100 ) );
+        assertThat( world.numActiveWaterRegions(), equalTo( 1 ) );
+
+        // Then it spreads out along the floor.
+        world.step();
+        assertThat( world.waterTable.getItemAt( 1, 1 ).getContents() > 0,
+            equalTo( true ) );
+        assertThat( world.waterTable.getItemAt( 3, 1 ).getContents() > 0,
+            equalTo( true ) );
+        assertThat( world.numActiveWaterRegions(), equalTo( 3 ) );
+    }
+
+    @Test
+    public void regions_that_drain_are_no_longer_simulated()
+    {
+        String[] worldString = {
+            "# #"
+        };
+        World world = createWorld( worldString );
+        world.waterTable.getItemAt( 1, 0 ).addContents( 1 );
+        world.step();
+        assertThat( world.numActiveWaterRegions(), equalTo( 1 ) );
+
+        // The water falls out of the bottom of the world.
+        world.step();
+        assertThat( world.waterTable.getItemAt( 1, 0 ).getContents(),
+            equalTo( 0 ) );
+        assertThat( world.numActiveWaterRegions(), equalTo( 0 ) );
+    }
 }
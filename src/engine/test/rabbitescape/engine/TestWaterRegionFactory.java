@@ -39,7 +39,7 @@ public class TestWaterRegionFactory
         Block leftRamp = new Block( 0, 1, Material.EARTH, Shape.UP_LEFT, 0 );
         Block rightRamp = new Block( 1, 0, Material.EARTH, Shape.UP_RIGHT, 0 );
         List<Block> blocks = Arrays.asList( block , leftRamp, rightRamp );
-        LookupTable2D<Block> blockTable = new LookupTable2D<>( blocks , new Dimension( 2, 2 ) );
+        BlockGrid blockTable = new BlockGrid( blocks , new Dimension( 2, 2 ) );
 
         LookupTable2D<WaterRegion> waterTable = WaterRegionFactory
             .generateWaterTable( blockTable, new HashMap<Position, Integer>() );
@@ -113,7 +113,7 @@ public class TestWaterRegionFactory
     public void Water_table_can_contain_standing_water()
     {
         List<Block> blocks = Collections.emptyList();
-        LookupTable2D<Block> blockTable = new LookupTable2D<>( blocks , new Dimension( 2, 2 ) );
+        BlockGrid blockTable = new BlockGrid( blocks , new Dimension( 2, 2 ) );
 
         HashMap<Position, Integer> waterAmounts = new HashMap<Position, Integer>();
         waterAmounts.put( new Position(0, 0), WaterUtil.HALF_CAPACITY );
@@ -0,0 +1,249 @@
+package rabbitescape.engine.binaryworld;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.fail;
+import static rabbitescape.engine.SolutionPlayer.addInt;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import org.junit.Test;
+
+import rabbitescape.engine.Block;
+import rabbitescape.engine.SolutionPlayer;
+import rabbitescape.engine.Thing;
+import rabbitescape.engine.World;
+import rabbitescape.engine.binaryworld.BinaryWorldManip.BrokenBinaryWorld;
+import rabbitescape.engine.binaryworld.BinaryWorldManip.NotABinaryWorld;
+import rabbitescape.engine.binaryworld.BinaryWorldManip.UnknownBinaryWorldVersion;
+import rabbitescape.engine.textworld.TextWorldManip;
+
+public class TestBinaryWorldManip
+{
+    @Test
+    public void Round_trip_a_world_with_everything_in_it()
+    {
+        String[] lines = {
+            ":name=Every thing",
+            ":description=Lots\nof lines",
+            ":author_name=Me",
+            ":author_url=http://example.com",
+            ":hint.1=Dig",
+            ":solution.1=dig;(2,1);10",
+            "% A comment before num_rabbits",
+            ":num_rabbits=3",
+            ":num_to_save=2",
+            ":rabbit_delay=2,3",
+            ":music=tune",
+            ":num_saved=1",
+            ":num_killed=1",
+            ":num_waiting=1",
+            ":rabbit_index_count=5",
+            ":paused=false",
+            ":bash=2",
+            ":dig=1",
+            "#########",
+            "#Q i O  #",
+            "# r*jdA #",
+            "#/ N\\ Pb#",
+            "####M####",
+            ":*=r{index:3}",
+            "% A comment at the end"
+        };
+        World world = TextWorldManip.createWorld( lines );
+
+        World loaded = BinaryWorldManip.load( BinaryWorldManip.save( world ) );
+
+        assertThat(
+            TextWorldManip.renderCompleteWorld( loaded, true ),
+            equalTo( TextWorldManip.renderCompleteWorld( world, true ) )
+        );
+        assertThat( blocks( loaded ), equalTo( blocks( world ) ) );
+        assertThat( loaded.voidStyle, equalTo( world.voidStyle ) );
+    }
+
+    @Test
+    public void Loaded_worlds_play_on_exactly_as_the_world_saved()
+    {
+        for ( String path : SolutionPlayer.officialLevels() )
+        {
+            World level = SolutionPlayer.loadLevel( path );
+            for ( String solution : level.solutions )
+            {
+                assertThat(
+                    path,
+                    playReloading( path, solution, true ),
+                    equalTo( playReloading( path, solution, false ) )
+                );
+            }
+        }
+    }
+
+    @Test
+    public void Binary_saves_are_smaller_than_text_saves()
+    {
+        for ( String path : SolutionPlayer.officialLevels() )
+        {
+            World world = SolutionPlayer.loadLevel( path );
+            int textSize = joined(
+                TextWorldManip.renderCompleteWorld( world, true ) ).length();
+
+            assertThat(
+                path,
+                BinaryWorldManip.save( world ).length < textSize,
+                is( true )
+            );
+        }
+    }
+
+    @Test( expected = NotABinaryWorld.class )
+    public void Text_is_not_a_binary_world()
+    {
+        BinaryWorldManip.load(
+            joined( new String[] { "#####", "# r #", "#####" } ).getBytes() );
+    }
+
+    @Test( expected = UnknownBinaryWorldVersion.class )
+    public void Later_versions_are_not_loaded()
+    {
+        byte[] data = BinaryWorldManip.save(
+            TextWorldManip.createWorld( "# r #" ) );
+
+        // The version follows the 4 byte magic number
+        data[4] = (byte)( BinaryWorldManip.VERSION + 1 );
+
+        BinaryWorldManip.load( data );
+    }
+
+    @Test( expected = BrokenBinaryWorld.class )
+    public void Huge_counts_are_reported_as_broken()
+    {
+        BinaryWorldManip.load(
+            new byte[] {
+                'R', 'E', 'S', 'W',
+                BinaryWorldManip.VERSION,
+                1, 1,       // 1x1
+                0, 0, 0, 0, // No name, description or author
+                (byte)0xFF, (byte)0xFF, (byte)0xFF, (byte)0xFF, 0x07, // Hints
+            }
+        );
+    }
+
+    @Test( expected = BrokenBinaryWorld.class )
+    public void Huge_worlds_are_reported_as_broken()
+    {
+        BinaryWorldManip.load(
+            new byte[] {
+                'R', 'E', 'S', 'W',
+                BinaryWorldManip.VERSION,
+                (byte)0xFF, (byte)0xFF, 0x7F, // Width
+                (byte)0xFF, (byte)0xFF, 0x7F, // Height
+            }
+        );
+    }
+
+    @Test
+    public void Cut_short_worlds_are_reported_as_broken()
+    {
+        String path = SolutionPlayer.officialLevels().get( 0 );
+        byte[] data = BinaryWorldManip.save( SolutionPlayer.loadLevel( path ) );
+
+        for ( int len = 4; len < data.length; ++len )
+        {
+            try
+            {
+                BinaryWorldManip.load( Arrays.copyOf( data, len ) );
+                fail( "Loaded a world cut short to " + len + " bytes" );
+            }
+            catch ( BrokenBinaryWorld e )
+            {
+                // Expected
+            }
+        }
+    }
+
+    // ---
+
+    /**
+     * Everything about a world that affects what happens next, including
+     * the rabbits' states, which text worlds leave out.
+     */
+    private static final SolutionPlayer.Summary EVERYTHING =
+        new SolutionPlayer.Summary()
+        {
+            @Override
+            public void add( CRC32 crc, World world )
+            {
+                crc.update( joined(
+                    TextWorldManip.renderCompleteWorld( world, true )
+                ).getBytes() );
+
+                List<Thing> things = new ArrayList<Thing>( world.rabbits );
+                things.addAll( world.things );
+                for ( Thing thing : things )
+                {
+                    addInt( crc, thing.x );
+                    addInt( crc, thing.y );
+                    addInt( crc, thing.state.ordinal() );
+                }
+            }
+        };
+
+    /**
+     * Play the solution, summing up the world after every step.
+     *
+     * @param reload if true, carry on after every step with a copy of the
+     *               world, saved and loaded again.
+     * @return the checksum of all the steps, in hex.
+     */
+    private static String playReloading(
+        String path, String solution, final boolean reload )
+    {
+        final CRC32 crc = new CRC32();
+        SolutionPlayer.playSwapping(
+            SolutionPlayer.loadLevel( path ),
+            solution,
+            new SolutionPlayer.Swap()
+            {
+                @Override
+                public World next( World world )
+                {
+                    EVERYTHING.add( crc, world );
+                    if ( !reload )
+                    {
+                        return world;
+                    }
+                    return BinaryWorldManip.load(
+                        BinaryWorldManip.save( world ) );
+                }
+            }
+        );
+        return Long.toHexString( crc.getValue() );
+    }
+
+    private static List<String> blocks( World world )
+    {
+        List<String> ret = new ArrayList<>();
+        for ( Block block : world.blockTable )
+        {
+            ret.add(
+                block.x + "," + block.y + " " + block.material + " "
+                    + block.shape + " " + block.variant
+            );
+        }
+        return ret;
+    }
+
+    private static String joined( String[] lines )
+    {
+        StringBuilder ret = new StringBuilder();
+        for ( String line : lines )
+        {
+            ret.append( line ).append( '\n' );
+        }
+        return ret.toString();
+    }
+}
@@ -0,0 +1,137 @@
+package rabbitescape.engine.binaryworld;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static rabbitescape.engine.util.Util.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import rabbitescape.engine.IgnoreWorldStatsListener;
+import rabbitescape.engine.LoadWorldFile;
+import rabbitescape.engine.World;
+import rabbitescape.engine.binaryworld.LevelPack.BrokenLevelPack;
+import rabbitescape.engine.menu.LevelsList;
+import rabbitescape.engine.menu.LoadLevelsList;
+import rabbitescape.engine.menu.MenuDefinition;
+import rabbitescape.engine.textworld.TextWorldManip;
+
+public class TestLevelPack
+{
+    @Test
+    public void Every_level_loads_from_a_pack_as_it_does_from_text()
+    {
+        for ( LevelsList.LevelSetInfo set : MenuDefinition.allLevels )
+        {
+            List<LevelsList.LevelInfo> infos = LoadLevelsList.levelInfos(
+                resourceLines(
+                    "/rabbitescape/levels/" + set.dirName + "/levels.txt" )
+            );
+
+            LevelPack pack = packOf( set.dirName, infos );
+
+            assertThat(
+                pack.levelInfos().toString(), equalTo( infos.toString() ) );
+
+            for ( LevelsList.LevelInfo info : infos )
+            {
+                String path = set.dirName + "/" + info.fileName + ".rel";
+
+                World fromPack = pack.loadLevel(
+                    new IgnoreWorldStatsListener(), info.fileName );
+
+                assertThat(
+                    path,
+                    TextWorldManip.renderCompleteWorld( fromPack, true ),
+                    equalTo(
+                        TextWorldManip.renderCompleteWorld(
+                            textLevel( path ), true )
+                    )
+                );
+            }
+        }
+    }
+
+    @Test
+    public void Levels_not_in_a_pack_are_not_loaded()
+    {
+        LevelPack pack = packOf(
+            "test",
+            Arrays.asList( new LevelsList.LevelInfo( "level_01", "One" ) )
+        );
+
+        assertThat(
+            pack.loadLevel( new IgnoreWorldStatsListener(), "level_02" ),
+            nullValue()
+        );
+    }
+
+    @Test
+    public void Sets_without_packs_have_none()
+    {
+        assertThat( LevelPack.fromResource( "no_such_set" ), nullValue() );
+        assertThat(
+            LevelPack.loadFromPacks(
+                new IgnoreWorldStatsListener(), "no_such_set/level.rel" ),
+            nullValue()
+        );
+    }
+
+    @Test( expected = BrokenLevelPack.class )
+    public void Other_files_are_not_packs()
+    {
+        new LevelPack( "test", source( "#####\n# r #\n#####\n".getBytes() ) );
+    }
+
+    // ---
+
+    private static LevelPack packOf(
+        String dirName, List<LevelsList.LevelInfo> infos )
+    {
+        List<World> worlds = new ArrayList<>();
+        for ( LevelsList.LevelInfo info : infos )
+        {
+            worlds.add( textLevel( dirName + "/" + info.fileName + ".rel" ) );
+        }
+
+        ByteArrayOutputStream data = new ByteArrayOutputStream();
+        try
+        {
+            LevelPack.write( data, infos, worlds );
+        }
+        catch ( IOException e )
+        {
+            throw new RuntimeException( e );
+        }
+
+        return new LevelPack( dirName, source( data.toByteArray() ) );
+    }
+
+    private static World textLevel( String path )
+    {
+        return TextWorldManip.createWorldWithName(
+            LoadWorldFile.levelName( path ),
+            new IgnoreWorldStatsListener(),
+            LoadWorldFile.readLinesFromResource( path )
+        );
+    }
+
+    private static LevelPack.Source source( final byte[] data )
+    {
+        return new LevelPack.Source()
+        {
+            @Override
+            public InputStream open()
+            {
+                return new ByteArrayInputStream( data );
+            }
+        };
+    }
+}
@@ -8,10 +8,31 @@ import static rabbitescape.engine.util.WorldAssertions.*;
 
 import org.junit.Test;
 
+import rabbitescape.engine.Exit;
 import rabbitescape.engine.World;
 
 public class TestExit
 {
+    @Test
+    public void Exit_added_after_the_world_was_made_is_used()
+    {
+        World world = createWorld(
+            "r    ",
+            "#####"
+        );
+
+        world.things.add( new Exit( 3, 0 ) );
+        world.step();
+
+        assertThat( world.isExitHere( 3, 0 ), is( true ) );
+
+        world.step();
+        world.step();
+        world.step();
+
+        assertThat( world.num_saved, equalTo( 1 ) );
+    }
+
     @Test
     public void Rabbit_disappears_into_exit()
     {
@@ -400,6 +400,46 @@ public class TestWorld
         assertThat( rabbits.length, equalTo( 2 ) );
     }
 
+    @Test
+    public void Rabbits_are_found_where_they_have_walked_to()
+    {
+        World world = createWorld(
+            "r   ",
+            "####"
+        );
+
+        world.step();
+        world.step();
+
+        // This is what we are testing: the rabbit is found in its new place
+        assertThat( world.getRabbitsAt( 0, 0 ).length, equalTo( 0 ) );
+        assertThat( world.getRabbitsAt( 2, 0 ).length, equalTo( 1 ) );
+        assertThat( world.rabbitsAt( 2, 0 ).get( 0 ), is( world.rabbits.get( 0 ) ) );
+    }
+
+    @Test
+    public void Entering_and_leaving_rabbits_are_tracked()
+    {
+        World world = createWorld(
+            ":num_rabbits=1",
+            " Q  ",
+            "  O ",
+            "####"
+        );
+
+        world.step();
+
+        // Sanity: a rabbit has appeared under the entrance
+        assertThat( world.getRabbitsAt( 1, 1 ).length, equalTo( 1 ) );
+
+        world.step();
+        world.step();
+
+        // This is what we are testing: it has gone once it was saved
+        assertThat( world.num_saved, equalTo( 1 ) );
+        assertThat( world.getRabbitsAt( 2, 1 ).length, equalTo( 0 ) );
+    }
+
     @Test
     public void Explode_all_rabbits_explodes_all_rabbits()
     {
@@ -433,6 +473,57 @@ public class TestWorld
         assertThat( world.rabbits.size(), equalTo( 0 ) );
     }
 
+    @Test
+    public void A_snapshot_looks_the_same_as_the_original()
+    {
+        World world = createWorld(
+            "#   Q  #",
+            "#N r  j#",
+            "########"
+        );
+
+        World snapshot = world.snapshot();
+
+        assertThat(
+            TextWorldManip.renderWorld( snapshot, true, false ),
+            equalTo( TextWorldManip.renderWorld( world, true, false ) )
+        );
+    }
+
+    @Test
+    public void Changing_a_snapshot_does_not_change_the_original()
+    {
+        World world = createWorld(
+            "  d   ",
+            " r    ",
+            "######",
+            "######"
+        );
+        String[] before = TextWorldManip.renderWorld( world, false, false );
+
+        World snapshot = world.snapshot();
+        snapshot.step();
+        snapshot.step();
+        snapshot.step();
+
+        // Sanity: the rabbit in the snapshot has dug a hole
+        assertThat(
+            TextWorldManip.renderWorld( snapshot, false, false ),
+            equalTo(
+                "      ",
+                "      ",
+                "##r###",
+                "######"
+            )
+        );
+
+        // This is what we are testing: the original still has its blocks
+        assertThat(
+            TextWorldManip.renderWorld( world, false, false ),
+            equalTo( before )
+        );
+    }
+
     @Test
     public void We_are_notified_when_rabbits_are_saved()
     {
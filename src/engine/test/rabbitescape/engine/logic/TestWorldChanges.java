@@ -3,6 +3,10 @@ package rabbitescape.engine.logic;
 import static org.hamcrest.CoreMatchers.*;
 import static org.hamcrest.MatcherAssert.*;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
 import org.junit.*;
 
 import rabbitescape.engine.Block;
@@ -10,6 +14,7 @@ import rabbitescape.engine.Direction;
 import rabbitescape.engine.Rabbit;
 import rabbitescape.engine.Block.Shape;
 import rabbitescape.engine.Token;
+import rabbitescape.engine.TokenPlacedListener;
 import rabbitescape.engine.World;
 import rabbitescape.engine.textworld.TextWorldManip;
 
@@ -34,6 +39,25 @@ public class TestWorldChanges
         }
     }
 
+    class QueueTokens implements Runnable
+    {
+        private final World world;
+
+        public QueueTokens( World world )
+        {
+            this.world = world;
+        }
+
+        @Override
+        public void run()
+        {
+            for ( int i = 0; i < 100; ++i )
+            {
+                world.changes.queueToken( 3, 0, Token.Type.bash );
+            }
+        }
+    }
+
     class StepAlot implements Runnable
     {
         private final World world;
@@ -95,6 +119,138 @@ public class TestWorldChanges
         assertThat( world.things.size(), equalTo( 200 ) );
     }
 
+    @Test
+    public void Tokens_queued_on_many_threads_are_all_added() throws Exception
+    {
+        final World world = TextWorldManip.createWorld(
+            "    ",
+            "    ",
+            "  r ",
+            "####"
+        );
+
+        world.abilities.put( Token.Type.bash, 201 );
+
+        // This is what we're testing: queue tokens in 2 simultaneous threads
+        Thread t1 = new Thread( new QueueTokens( world ) );
+        Thread t2 = new Thread( new QueueTokens( world ) );
+        StepAlot stepalot = new StepAlot( world );
+        Thread t3 = new Thread( stepalot );
+        t1.start();
+        t2.start();
+        t3.start();
+        t1.join();
+        t2.join();
+        stepalot.pleaseStop();
+        t3.join();
+
+        // Last step to take any tokens still queued
+        world.step();
+
+        assertThat( world.changes.numLeft( Token.Type.bash ), equalTo( 1 ) );
+        assertThat( world.abilities.get( Token.Type.bash ), equalTo( 1 ) );
+        assertThat( world.things.size(), equalTo( 200 ) );
+    }
+
+    @Test
+    public void Queued_tokens_count_as_used_until_the_next_step()
+    {
+        World world = TextWorldManip.createWorld(
+            "    ",
+            "  r ",
+            "####",
+            ":bash=3"
+        );
+
+        world.changes.queueToken( 0, 0, Token.Type.bash );
+        world.changes.queueToken( 1, 0, Token.Type.bash );
+
+        // Not added yet, but already spoken for
+        assertThat( world.things.size(), equalTo( 0 ) );
+        assertThat( world.abilities.get( Token.Type.bash ), equalTo( 3 ) );
+        assertThat( world.changes.numLeft( Token.Type.bash ), equalTo( 1 ) );
+
+        // A token on a block would never be added, so is not queued
+        world.changes.queueToken( 0, 2, Token.Type.bash );
+        assertThat( world.changes.numLeft( Token.Type.bash ), equalTo( 1 ) );
+
+        world.step();
+
+        assertThat( world.things.size(), equalTo( 2 ) );
+        assertThat( world.abilities.get( Token.Type.bash ), equalTo( 1 ) );
+        assertThat( world.changes.numLeft( Token.Type.bash ), equalTo( 1 ) );
+    }
+
+    @Test
+    public void Portals_on_exits_are_not_queued()
+    {
+        World world = TextWorldManip.createWorld(
+            "  O ",
+            "  r ",
+            "####",
+            ":portal=2"
+        );
+
+        world.changes.queueToken( 2, 0, Token.Type.portal );
+        assertThat( world.changes.numLeft( Token.Type.portal ), equalTo( 2 ) );
+
+        world.step();
+
+        assertThat( world.things.size(), equalTo( 1 ) );
+        assertThat( world.abilities.get( Token.Type.portal ), equalTo( 2 ) );
+    }
+
+    @Test
+    public void Listener_hears_only_about_tokens_really_added()
+    {
+        World world = TextWorldManip.createWorld(
+            "    ",
+            "  r ",
+            "####",
+            ":bash=1"
+        );
+
+        final List<String> placed = new ArrayList<>();
+        world.changes.setTokenPlacedListener( new TokenPlacedListener()
+        {
+            @Override
+            public void tokenPlaced( int x, int y, Token.Type type )
+            {
+                placed.add( type + " at " + x + "," + y );
+            }
+        } );
+
+        // Two players race for the last token
+        world.changes.queueToken( 0, 0, Token.Type.bash );
+        world.changes.queueToken( 1, 0, Token.Type.bash );
+
+        assertThat( placed.size(), equalTo( 0 ) );
+
+        world.step();
+
+        assertThat( placed, equalTo( Arrays.asList( "bash at 0,0" ) ) );
+    }
+
+    @Test
+    public void Tokens_queued_beyond_those_left_are_dropped()
+    {
+        World world = TextWorldManip.createWorld(
+            "    ",
+            "  r ",
+            "####",
+            ":bash=1"
+        );
+
+        // Two players race for the last token
+        world.changes.queueToken( 0, 0, Token.Type.bash );
+        world.changes.queueToken( 1, 0, Token.Type.bash );
+
+        world.step();
+
+        assertThat( world.things.size(), equalTo( 1 ) );
+        assertThat( world.changes.numLeft( Token.Type.bash ), equalTo( 0 ) );
+    }
+
     @Test
     public void Changes_can_be_reverted()
     {
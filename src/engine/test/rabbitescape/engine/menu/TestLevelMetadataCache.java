@@ -0,0 +1,164 @@
+package rabbitescape.engine.menu;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import rabbitescape.engine.menu.LevelMetadataCache.LevelMetadata;
+import rabbitescape.engine.util.FakeFileSystem;
+
+public class TestLevelMetadataCache
+{
+    @Test
+    public void Metadata_is_read_from_the_level()
+    {
+        FakeFileSystem fs = new FakeFileSystem( "a.rel", levelA() );
+
+        LevelMetadata a =
+            new LevelMetadataCache( fs, "cache.properties" ).get( "a.rel" );
+
+        assertThat( describe( a ), equalTo( "My level 7x3 5 rabbits 2 "
+            + "solutions {bash=2, dig=1}" ) );
+    }
+
+    @Test
+    public void Saved_metadata_is_used_until_the_level_changes()
+    {
+        FakeFileSystem fs = new FakeFileSystem( "a.rel", levelA() );
+
+        LevelMetadataCache cache = new LevelMetadataCache( fs, "c/cache" );
+        cache.get( "a.rel" );
+        cache.save();
+
+        // Doctor the saved cache to show where the metadata comes from
+        fs.write(
+            "c/cache",
+            read( fs, "c/cache" ).replace( "My level", "From cache" )
+        );
+
+        assertThat(
+            new LevelMetadataCache( fs, "c/cache" ).get( "a.rel" ).name,
+            equalTo( "From cache" )
+        );
+
+        fs.write( "a.rel", read( fs, "a.rel" ).replace( "bash=2", "bash=3" ) );
+
+        assertThat(
+            describe( new LevelMetadataCache( fs, "c/cache" ).get( "a.rel" ) ),
+            equalTo( "My level 7x3 5 rabbits 2 solutions {bash=3, dig=1}" )
+        );
+    }
+
+    @Test
+    public void Broken_and_missing_levels_have_no_metadata()
+    {
+        FakeFileSystem fs = new FakeFileSystem(
+            "broken.rel", new String[] { "#####", "#" } );
+
+        LevelMetadataCache cache = new LevelMetadataCache( fs, "cache" );
+
+        assertThat( cache.get( "broken.rel" ), nullValue() );
+        assertThat( cache.get( "missing.rel" ), nullValue() );
+    }
+
+    @Test
+    public void Updating_forgets_deleted_levels()
+    {
+        FakeFileSystem fs = new FakeFileSystem(
+            "a.rel", levelA(),
+            "b.rel", levelA()
+        );
+
+        LevelMetadataCache cache = new LevelMetadataCache( fs, "cache" );
+        cache.update( Arrays.asList( "a.rel", "b.rel" ), 2 );
+        cache.save();
+
+        FakeFileSystem fs2 = new FakeFileSystem(
+            "a.rel", levelA(),
+            "cache", read( fs, "cache" ).split( "\n" )
+        );
+        LevelMetadataCache cache2 = new LevelMetadataCache( fs2, "cache" );
+        cache2.update( Arrays.asList( "a.rel" ), 2 );
+        cache2.save();
+
+        String saved = read( fs2, "cache" );
+        assertThat( saved, containsString( "a.rel=" ) );
+        assertThat( saved, not( containsString( "b.rel=" ) ) );
+    }
+
+    @Test
+    public void Many_levels_are_read_the_same_on_several_threads()
+    {
+        List<Object> files = new ArrayList<>();
+        List<String> fileNames = new ArrayList<>();
+        for ( int i = 0; i < 50; ++i )
+        {
+            String fileName = "level" + i + ".rel";
+            files.add( fileName );
+            files.add(
+                new String[] {
+                    ":name=Level " + i,
+                    ":num_rabbits=" + i,
+                    "#####",
+                    "#   #",
+                    "#####"
+                }
+            );
+            fileNames.add( fileName );
+        }
+        FakeFileSystem fs = new FakeFileSystem( files.toArray() );
+
+        LevelMetadataCache cache = new LevelMetadataCache( fs, "cache" );
+        cache.update( fileNames, 4 );
+
+        for ( int i = 0; i < 50; ++i )
+        {
+            assertThat(
+                describe( cache.get( fileNames.get( i ) ) ),
+                equalTo(
+                    "Level " + i + " 5x3 " + i + " rabbits 0 solutions {}" )
+            );
+        }
+    }
+
+    // ---
+
+    private static String[] levelA()
+    {
+        return new String[] {
+            ":name=My level",
+            ":num_rabbits=5",
+            ":bash=2",
+            ":dig=1",
+            ":solution.1=1",
+            ":solution.2=2",
+            "#######",
+            "#r   O#",
+            "#######"
+        };
+    }
+
+    private static String describe( LevelMetadata m )
+    {
+        return m.name + " " + m.width + "x" + m.height + " " + m.numRabbits
+            + " rabbits " + m.numSolutions + " solutions " + m.abilities;
+    }
+
+    private static String read( FakeFileSystem fs, String fileName )
+    {
+        try
+        {
+            return fs.read( fileName );
+        }
+        catch ( IOException e )
+        {
+            throw new RuntimeException( e );
+        }
+    }
+}
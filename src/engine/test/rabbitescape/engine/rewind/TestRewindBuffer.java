@@ -0,0 +1,218 @@
+package rabbitescape.engine.rewind;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import rabbitescape.engine.Token;
+import rabbitescape.engine.World;
+import rabbitescape.engine.textworld.TextWorldManip;
+
+public class TestRewindBuffer
+{
+    @Test
+    public void Any_earlier_tick_matches_the_world_as_it_was()
+    {
+        for ( int interval : new int[] { 1, 3, 25 } )
+        {
+            World world = TextWorldManip.createWorld( diggingIntoWater() );
+            RewindBuffer buffer = new RewindBuffer(
+                world, interval, RewindBuffer.DEFAULT_MEMORY_BUDGET );
+
+            List<Long> hashes = new ArrayList<>();
+            List<String> rendered = new ArrayList<>();
+            record( world, hashes, rendered );
+            while ( world.completionState() == World.CompletionState.RUNNING )
+            {
+                buffer.step();
+                record( world, hashes, rendered );
+            }
+
+            for ( int t = 0; t <= buffer.tick(); ++t )
+            {
+                World then = buffer.worldAt( t );
+                assertThat( then.stateHash(), equalTo( hashes.get( t ) ) );
+                assertThat( render( then ), equalTo( rendered.get( t ) ) );
+            }
+        }
+    }
+
+    @Test
+    public void Placed_tokens_are_replayed()
+    {
+        World world = TextWorldManip.createWorld( bashingOut() );
+        RewindBuffer buffer = new RewindBuffer( world, 2, 1024 * 1024 );
+
+        List<Long> hashes = new ArrayList<>();
+        hashes.add( world.stateHash() );
+        buffer.step();
+        hashes.add( world.stateHash() );
+        buffer.placeToken( 3, 0, Token.Type.bash );
+        while ( world.completionState() == World.CompletionState.RUNNING )
+        {
+            buffer.step();
+            hashes.add( world.stateHash() );
+        }
+
+        assertThat( world.num_saved, equalTo( 1 ) );
+        for ( int t = 0; t <= buffer.tick(); ++t )
+        {
+            assertThat(
+                buffer.worldAt( t ).stateHash(), equalTo( hashes.get( t ) ) );
+        }
+    }
+
+    @Test
+    public void Rabbits_part_way_through_bashing_are_rewound_exactly()
+    {
+        for ( int interval : new int[] { 1, 2, 3 } )
+        {
+            World world = TextWorldManip.createWorld( bashingOut() );
+            RewindBuffer buffer = new RewindBuffer( world, interval, 1024 );
+
+            List<String> saved = new ArrayList<>();
+            saved.add( renderComplete( world ) );
+            buffer.step();
+            saved.add( renderComplete( world ) );
+            buffer.placeToken( 3, 0, Token.Type.bash );
+            while ( world.completionState() == World.CompletionState.RUNNING )
+            {
+                buffer.step();
+                saved.add( renderComplete( world ) );
+            }
+            assertThat( world.num_saved, equalTo( 1 ) );
+
+            for ( int t = 0; t <= buffer.tick(); ++t )
+            {
+                assertThat(
+                    renderComplete( buffer.worldAt( t ) ),
+                    equalTo( saved.get( t ) )
+                );
+            }
+        }
+    }
+
+    @Test
+    public void Play_carries_on_after_rewinding()
+    {
+        World world = TextWorldManip.createWorld( bashingOut() );
+        RewindBuffer buffer = new RewindBuffer( world, 2, 1024 * 1024 );
+
+        buffer.step();
+        buffer.placeToken( 3, 0, Token.Type.bash );
+        for ( int i = 0; i < 4; ++i )
+        {
+            buffer.step();
+        }
+        long afterBash = world.stateHash();
+
+        // Go back to before the token was placed, and don't place it.
+        buffer.rewindTo( 1 );
+        assertThat( buffer.tick(), equalTo( 1 ) );
+        assertThat( buffer.world(), not( sameInstance( world ) ) );
+        for ( int i = 0; i < 4; ++i )
+        {
+            buffer.step();
+        }
+        assertThat( buffer.world().stateHash(), not( equalTo( afterBash ) ) );
+
+        // The forgotten token is not replayed when looking back either.
+        assertThat(
+            buffer.worldAt( 5 ).stateHash(),
+            equalTo( buffer.world().stateHash() )
+        );
+    }
+
+    @Test
+    public void Old_keyframes_are_dropped_to_stay_in_budget()
+    {
+        World world = TextWorldManip.createWorld( diggingIntoWater() );
+        long start = world.stateHash();
+        RewindBuffer buffer = new RewindBuffer( world, 1, 400 );
+
+        while ( world.completionState() == World.CompletionState.RUNNING )
+        {
+            buffer.step();
+        }
+
+        assertThat( buffer.keyframeBytes() <= 400, is( true ) );
+        assertThat( buffer.numKeyframes() < buffer.tick(), is( true ) );
+
+        // Ticks before the oldest keyframe are replayed from the start.
+        assertThat( buffer.worldAt( 0 ).stateHash(), equalTo( start ) );
+    }
+
+    @Test
+    public void Ticks_not_played_cannot_be_seen()
+    {
+        World world = TextWorldManip.createWorld( bashingOut() );
+        RewindBuffer buffer = new RewindBuffer( world );
+        buffer.step();
+
+        try
+        {
+            buffer.worldAt( 2 );
+            fail( "Expected TickNotRecorded" );
+        }
+        catch ( RewindBuffer.TickNotRecorded e )
+        {
+            assertThat( e.tick, equalTo( 2 ) );
+            assertThat( e.latest, equalTo( 1 ) );
+        }
+    }
+
+    // ---
+
+    private static void record(
+        World world, List<Long> hashes, List<String> rendered )
+    {
+        hashes.add( world.stateHash() );
+        rendered.add( render( world ) );
+    }
+
+    /**
+     * Leaves out the rabbits' private counters, some of which are left set
+     * after they stop mattering, and so are not saved with the world.
+     */
+    private static String render( World world )
+    {
+        return String.join(
+            "\n", TextWorldManip.renderWorld( world, false, false ) );
+    }
+
+    /**
+     * Includes the rabbits' private counters.
+     */
+    private static String renderComplete( World world )
+    {
+        return String.join(
+            "\n", TextWorldManip.renderCompleteWorld( world, true ) );
+    }
+
+    private static String[] diggingIntoWater()
+    {
+        return new String[] {
+            "#r  r  #",
+            "#d##d###",
+            "#NNN#  #",
+            "########",
+            ":num_rabbits=0"
+        };
+    }
+
+    private static String[] bashingOut()
+    {
+        return new String[] {
+            "#r  #O#",
+            "#######",
+            ":num_rabbits=0",
+            ":num_to_save=1",
+            ":bash=1"
+        };
+    }
+}
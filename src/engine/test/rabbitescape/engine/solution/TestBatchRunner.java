@@ -0,0 +1,112 @@
+package rabbitescape.engine.solution;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.hamcrest.MatcherAssert.*;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import rabbitescape.engine.LoadWorldFile;
+import rabbitescape.engine.World;
+import rabbitescape.engine.util.FakeFileSystem;
+
+public class TestBatchRunner
+{
+    @Test
+    public void Results_come_back_in_the_order_asked_for()
+    {
+        BatchRunner.Results<String> results = runner().runAll(
+            Arrays.asList( "a", "b", "c", "d" ),
+            new BatchRunner.Task<String, String>()
+            {
+                @Override
+                public String run( int index, String job )
+                {
+                    return index + job;
+                }
+            }
+        );
+
+        assertThat(
+            results.results,
+            equalTo( Arrays.asList( "0a", "1b", "2c", "3d" ) )
+        );
+    }
+
+    @Test
+    public void Jobs_can_run_more_jobs()
+    {
+        final BatchRunner runner = runner();
+
+        BatchRunner.Results<List<Integer>> results = runner.runAll(
+            Arrays.asList( 10, 20 ),
+            new BatchRunner.Task<Integer, List<Integer>>()
+            {
+                @Override
+                public List<Integer> run( int index, final Integer job )
+                {
+                    return runner.runAll(
+                        Arrays.asList( 1, 2, 3 ),
+                        new BatchRunner.Task<Integer, Integer>()
+                        {
+                            @Override
+                            public Integer run( int i, Integer inner )
+                            {
+                                return job + inner;
+                            }
+                        }
+                    ).results;
+                }
+            }
+        );
+
+        assertThat(
+            results.results,
+            equalTo(
+                Arrays.asList(
+                    Arrays.asList( 11, 12, 13 ),
+                    Arrays.asList( 21, 22, 23 )
+                )
+            )
+        );
+    }
+
+    @Test
+    public void Each_level_is_loaded_once()
+    {
+        final BatchRunner runner = runner();
+
+        BatchRunner.Results<World> results = runner.runAll(
+            Arrays.asList( "a.rel", "a.rel", "a.rel" ),
+            new BatchRunner.Task<String, World>()
+            {
+                @Override
+                public World run( int index, String path )
+                {
+                    return runner.level( path );
+                }
+            }
+        );
+
+        assertThat(
+            results.results.get( 1 ),
+            sameInstance( results.results.get( 0 ) )
+        );
+        assertThat(
+            results.results.get( 2 ),
+            sameInstance( results.results.get( 0 ) )
+        );
+    }
+
+    // ---
+
+    private static BatchRunner runner()
+    {
+        FakeFileSystem fs = new FakeFileSystem(
+            "a.rel", new String[] { ":num_rabbits=0", "r  O", "####" }
+        );
+        return new BatchRunner( new LoadWorldFile( fs ), 2 );
+    }
+}
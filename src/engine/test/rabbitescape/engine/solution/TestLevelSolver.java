@@ -0,0 +1,126 @@
+package rabbitescape.engine.solution;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.hamcrest.MatcherAssert.*;
+import static rabbitescape.engine.textworld.TextWorldManip.*;
+
+import org.junit.Test;
+
+import rabbitescape.engine.SolutionPlayer;
+import rabbitescape.engine.World;
+
+public class TestLevelSolver
+{
+    @Test
+    public void Finds_a_solution_that_needs_a_token()
+    {
+        World world = bashLevel();
+
+        LevelSolver.Result result =
+            new LevelSolver( 16, 1, 100, 2 ).solve( world );
+
+        assertThat( result.solved(), is( true ) );
+        assertThat(
+            SolutionRunner.runSolution(
+                SolutionParser.parse( result.solutionString() ), world ),
+            is( true )
+        );
+    }
+
+    @Test
+    public void Solves_an_official_level_that_needs_bashing()
+    {
+        // Rabbits part way through bashing must carry on as they were
+        // when each search state is loaded again.
+        World world =
+            SolutionPlayer.loadLevel( "01_easy/02_Bashing-practice.rel" );
+
+        LevelSolver.Result result =
+            new LevelSolver( 16, 4, 300, 2 ).solve( world );
+
+        assertThat( result.solved(), is( true ) );
+        assertThat(
+            SolutionRunner.runSolution(
+                SolutionParser.parse( result.solutionString() ), world ),
+            is( true )
+        );
+    }
+
+    @Test
+    public void Solution_is_written_as_in_a_level_file()
+    {
+        LevelSolver.Result result =
+            new LevelSolver( 16, 1, 100, 1 ).solve( bashLevel() );
+
+        assertThat( result.solutionString(), equalTo( ";bash&(3,0);4" ) );
+    }
+
+    @Test
+    public void Same_solution_whatever_the_number_of_threads()
+    {
+        assertThat(
+            new LevelSolver( 16, 1, 100, 4 ).solve( bashLevel() )
+                .solutionString(),
+            equalTo(
+                new LevelSolver( 16, 1, 100, 1 ).solve( bashLevel() )
+                    .solutionString()
+            )
+        );
+    }
+
+    @Test
+    public void Solving_does_not_change_the_world()
+    {
+        World world = bashLevel();
+        String[] before = renderCompleteWorld( world, true );
+
+        new LevelSolver( 16, 1, 100, 2 ).solve( world );
+
+        assertThat( renderCompleteWorld( world, true ), equalTo( before ) );
+    }
+
+    @Test
+    public void Unsolvable_level_gives_no_solution()
+    {
+        World world = createWorld(
+            "#r  #O#",
+            "#######",
+            ":num_rabbits=0",
+            ":num_to_save=1"
+        );
+
+        LevelSolver.Result result =
+            new LevelSolver( 16, 1, 100, 2 ).solve( world );
+
+        assertThat( result.solved(), is( false ) );
+        assertThat( result.solutionString(), nullValue() );
+        assertThat( result.expanded > 0, is( true ) );
+    }
+
+    @Test
+    public void Gives_up_after_max_ticks()
+    {
+        World world = createWorld(
+            "#r     #",
+            "########",
+            ":num_rabbits=0",
+            ":num_to_save=1"
+        );
+
+        LevelSolver.Result result =
+            new LevelSolver( 16, 1, 30, 2 ).solve( world );
+
+        assertThat( result.solved(), is( false ) );
+    }
+
+    private static World bashLevel()
+    {
+        return createWorld(
+            "#r  #O#",
+            "#######",
+            ":num_rabbits=0",
+            ":num_to_save=1",
+            ":bash=1"
+        );
+    }
+}
@@ -0,0 +1,102 @@
+package rabbitescape.engine.solution;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.hamcrest.MatcherAssert.*;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import rabbitescape.engine.LoadWorldFile;
+import rabbitescape.engine.solution.LevelValidator.LevelResult;
+import rabbitescape.engine.solution.LevelValidator.Report;
+import rabbitescape.engine.util.FakeFileSystem;
+
+public class TestLevelValidator
+{
+    @Test
+    public void Results_come_back_in_the_order_asked_for()
+    {
+        Report report = validate( "lose.rel", "win.rel", "bad.rel" );
+
+        assertThat( report.levels.get( 0 ).path, equalTo( "lose.rel" ) );
+        assertThat( report.levels.get( 1 ).path, equalTo( "win.rel" ) );
+        assertThat( report.levels.get( 2 ).path, equalTo( "bad.rel" ) );
+    }
+
+    @Test
+    public void Level_whose_solutions_all_work_passes()
+    {
+        LevelResult level = validate( "win.rel" ).levels.get( 0 );
+
+        assertThat( level.solutions.size(), equalTo( 2 ) );
+        assertThat( level.solved(), is( true ) );
+        assertThat( level.firstProblem(), nullValue() );
+        assertThat( level.passed( true ), is( true ) );
+    }
+
+    @Test
+    public void Failing_solution_is_reported_with_its_level_and_number()
+    {
+        LevelResult level = validate( "lose.rel" ).levels.get( 0 );
+
+        assertThat( level.passed( false ), is( false ) );
+        assertThat(
+            level.solutions.get( 1 ).problem,
+            instanceOf( SolutionExceptions.DidNotWin.class )
+        );
+
+        SolutionExceptions.ProblemRunningSolution problem =
+            (SolutionExceptions.ProblemRunningSolution)level.firstProblem();
+
+        assertThat( problem.solutionId, equalTo( 2 ) );
+        assertThat( problem.level, equalTo( "lose.rel" ) );
+    }
+
+    @Test
+    public void Level_that_does_not_load_fails()
+    {
+        Report report = validate( "win.rel", "bad.rel" );
+
+        assertThat( report.levels.get( 1 ).loadProblem, notNullValue() );
+        assertThat( report.failures( false ).size(), equalTo( 1 ) );
+        assertThat(
+            report.failures( false ).get( 0 ).path, equalTo( "bad.rel" ) );
+    }
+
+    @Test
+    public void Level_with_no_winning_solution_fails_only_if_it_must_win()
+    {
+        LevelResult level = validate( "nosolution.rel" ).levels.get( 0 );
+
+        assertThat( level.passed( false ), is( true ) );
+        assertThat( level.passed( true ), is( false ) );
+    }
+
+    // ---
+
+    private static Report validate( String... paths )
+    {
+        FakeFileSystem fs = new FakeFileSystem(
+            "win.rel", level( "until:WON", "1;until:WON" ),
+            "lose.rel", level( "until:WON", "1" ),
+            "nosolution.rel", new String[] { ":num_rabbits=0", "r  O", "####" },
+            "bad.rel", new String[] { "not a level" }
+        );
+
+        return new LevelValidator( new LoadWorldFile( fs ), 2 )
+            .validate( Arrays.asList( paths ) );
+    }
+
+    private static String[] level( String solution1, String solution2 )
+    {
+        return new String[] {
+            ":solution.1=" + solution1,
+            ":solution.2=" + solution2,
+            ":num_rabbits=0",
+            ":num_to_save=1",
+            "r  O",
+            "####"
+        };
+    }
+}
@@ -7,6 +7,9 @@ import static org.hamcrest.CoreMatchers.*;
 import java.io.ByteArrayOutputStream;
 import java.io.PrintStream;
 import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 import org.junit.Test;
 
@@ -400,6 +403,93 @@ public class TestSolutionRunner
         assertThat( solved, is( false ) );
     }
 
+    @Test
+    public void Step_listener_hears_about_every_step()
+    {
+        World world = TextWorldManip.createWorld(
+            ":num_rabbits=2",
+            ":num_to_save=1",
+            ":rabbit_delay=2",
+            ":bash=1",
+            "Q    ",
+            "    O",
+            "#####"
+        );
+
+        final List<String> heard = new ArrayList<>();
+        boolean solved = SolutionRunner.runSolution(
+            SolutionParser.parse( "bash;until:WON" ),
+            world,
+            new SolutionStepListener()
+            {
+                @Override
+                public void stepped( SolutionStep step )
+                {
+                    heard.add(
+                        step.tick + ": out " + step.rabbitsOut
+                        + " saved " + step.saved
+                        + " killed " + step.killed
+                        + " waiting " + step.waiting
+                        + " tokens " + step.tokensLeft
+                    );
+                    assertThat( step.nanos >= 0, is( true ) );
+                }
+
+                @Override
+                public void finished( CompletionState state )
+                {
+                    heard.add( state.name() );
+                }
+            }
+        );
+
+        assertThat( solved, is( true ) );
+        assertThat(
+            heard,
+            equalTo(
+                Arrays.asList(
+                    "1: out 1 saved 0 killed 0 waiting 1 tokens 1",
+                    "2: out 1 saved 0 killed 0 waiting 1 tokens 1",
+                    "3: out 2 saved 0 killed 0 waiting 0 tokens 1",
+                    "4: out 2 saved 0 killed 0 waiting 0 tokens 1",
+                    "5: out 2 saved 0 killed 0 waiting 0 tokens 1",
+                    "6: out 1 saved 1 killed 0 waiting 0 tokens 1",
+                    "7: out 1 saved 1 killed 0 waiting 0 tokens 1",
+                    "8: out 0 saved 2 killed 0 waiting 0 tokens 1",
+                    "WON"
+                )
+            )
+        );
+    }
+
+    @Test
+    public void Step_listener_hears_the_end_even_when_the_solution_fails()
+    {
+        final List<CompletionState> heard = new ArrayList<>();
+        try
+        {
+            SolutionRunner.runSolution(
+                expectingSolution( CompletionState.WON ),
+                neverEndingWorld(),
+                new StepTimeHistogram()
+                {
+                    @Override
+                    public void finished( CompletionState state )
+                    {
+                        heard.add( state );
+                    }
+                }
+            );
+            fail( "Expected exception!" );
+        }
+        catch ( SolutionExceptions.DidNotWin e )
+        {
+            // Expected
+        }
+
+        assertThat( heard, equalTo( Arrays.asList( CompletionState.RUNNING ) ) );
+    }
+
     @Test
     public void Print_step() throws UnsupportedEncodingException // for the UTF8
     {
@@ -0,0 +1,112 @@
+package rabbitescape.engine.solution;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.io.UnsupportedEncodingException;
+
+import org.junit.Test;
+
+import rabbitescape.engine.World.CompletionState;
+
+public class TestSolutionStepSinks
+{
+    @Test
+    public void Csv_has_a_header_then_a_row_per_step()
+        throws UnsupportedEncodingException
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        SolutionStepListener sink = SolutionStepSinks.create(
+            "csv", new PrintStream( bytes, true, "UTF-8" ) );
+
+        sink.stepped( new SolutionStep( 1, 1, 0, 0, 9, 3, 1500 ) );
+        sink.stepped( new SolutionStep( 2, 2, 1, 0, 8, 2, 2500 ) );
+        sink.finished( CompletionState.WON );
+
+        assertThat(
+            bytes.toString( "UTF-8" ),
+            equalTo(
+                "tick,rabbits_out,saved,killed,waiting,tokens_left,nanos\n"
+                + "1,1,0,0,9,3,1500\n"
+                + "2,2,1,0,8,2,2500\n"
+            )
+        );
+    }
+
+    @Test
+    public void Json_lines_end_with_the_final_state()
+        throws UnsupportedEncodingException
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        SolutionStepListener sink = SolutionStepSinks.create(
+            "json", new PrintStream( bytes, true, "UTF-8" ) );
+
+        sink.stepped( new SolutionStep( 1, 1, 0, 2, 9, 3, 1500 ) );
+        sink.finished( CompletionState.LOST );
+
+        assertThat(
+            bytes.toString( "UTF-8" ),
+            equalTo(
+                "{\"tick\":1,\"rabbits_out\":1,\"saved\":0,\"killed\":2,"
+                + "\"waiting\":9,\"tokens_left\":3,\"nanos\":1500}\n"
+                + "{\"finished\":\"LOST\"}\n"
+            )
+        );
+    }
+
+    @Test
+    public void Histogram_buckets_double_in_size()
+    {
+        assertThat( StepTimeHistogram.bucket( 0 ), equalTo( 0 ) );
+        assertThat( StepTimeHistogram.bucket( 999 ), equalTo( 0 ) );
+        assertThat( StepTimeHistogram.bucket( 1000 ), equalTo( 1 ) );
+        assertThat( StepTimeHistogram.bucket( 1999 ), equalTo( 1 ) );
+        assertThat( StepTimeHistogram.bucket( 2000 ), equalTo( 2 ) );
+        assertThat( StepTimeHistogram.bucket( 3999 ), equalTo( 2 ) );
+        assertThat( StepTimeHistogram.bucket( 4000 ), equalTo( 3 ) );
+        assertThat(
+            StepTimeHistogram.bucket( Long.MAX_VALUE ), equalTo( 31 ) );
+    }
+
+    @Test
+    public void Histogram_counts_steps_and_finds_percentiles()
+    {
+        StepTimeHistogram histogram = new StepTimeHistogram();
+
+        for ( int i = 0; i < 98; ++i )
+        {
+            histogram.stepped( new SolutionStep( i + 1, 0, 0, 0, 0, 0, 500 ) );
+        }
+        histogram.stepped( new SolutionStep( 99, 0, 0, 0, 0, 0, 3000 ) );
+        histogram.stepped( new SolutionStep( 100, 0, 0, 0, 0, 0, 50000 ) );
+        histogram.finished( CompletionState.WON );
+
+        assertThat( histogram.count(), equalTo( 100L ) );
+        assertThat( histogram.maxNanos(), equalTo( 50000L ) );
+        assertThat( histogram.totalNanos(), equalTo( 102000L ) );
+        assertThat( histogram.bucketCount( 0 ), equalTo( 98L ) );
+        assertThat( histogram.bucketCount( 2 ), equalTo( 1L ) );
+        assertThat( histogram.bucketCount( 6 ), equalTo( 1L ) );
+        assertThat( histogram.percentileUs( 0.5 ), equalTo( 1L ) );
+        assertThat( histogram.percentileUs( 0.99 ), equalTo( 4L ) );
+        assertThat( histogram.percentileUs( 1.0 ), equalTo( 64L ) );
+        assertThat( histogram.finalState(), equalTo( CompletionState.WON ) );
+    }
+
+    @Test
+    public void Unknown_formats_are_rejected()
+    {
+        try
+        {
+            SolutionStepSinks.create( "xml", System.out );
+            fail( "Expected exception!" );
+        }
+        catch ( SolutionStepSinks.UnknownFormat e )
+        {
+            assertThat( e.format, equalTo( "xml" ) );
+        }
+    }
+}
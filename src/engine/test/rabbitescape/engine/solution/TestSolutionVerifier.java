@@ -0,0 +1,217 @@
+package rabbitescape.engine.solution;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.hamcrest.MatcherAssert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import rabbitescape.engine.LoadWorldFile;
+import rabbitescape.engine.World.CompletionState;
+import rabbitescape.engine.solution.SolutionVerifier.Job;
+import rabbitescape.engine.solution.SolutionVerifier.Report;
+import rabbitescape.engine.solution.SolutionVerifier.Status;
+import rabbitescape.engine.solution.SolutionVerifier.Verdict;
+import rabbitescape.engine.util.FakeFileSystem;
+
+public class TestSolutionVerifier
+{
+    @Test
+    public void Verdicts_come_back_in_the_order_asked_for()
+    {
+        Report report = verify(
+            100,
+            null,
+            "exit.rel", "1",
+            "exit.rel", "until:WON",
+            "bad.rel", "1"
+        );
+
+        assertThat( report.verdicts.size(), equalTo( 3 ) );
+        for ( int i = 0; i < 3; ++i )
+        {
+            assertThat( report.verdicts.get( i ).index, equalTo( i ) );
+        }
+        assertThat( report.verdicts.get( 2 ).job.level, equalTo( "bad.rel" ) );
+        assertThat( report.numWon(), equalTo( 1 ) );
+    }
+
+    @Test
+    public void Winning_solution_gives_its_ticks_and_counts()
+    {
+        Verdict verdict = verify( 100, null, "exit.rel", "until:WON" )
+            .verdicts.get( 0 );
+
+        assertThat( verdict.status, equalTo( Status.WON ) );
+        assertThat( verdict.won(), is( true ) );
+        assertThat( verdict.ticks, equalTo( 4 ) );
+        assertThat( verdict.saved, equalTo( 1 ) );
+        assertThat( verdict.killed, equalTo( 0 ) );
+        assertThat( verdict.state, equalTo( CompletionState.WON ) );
+        assertThat( verdict.problem, nullValue() );
+    }
+
+    @Test
+    public void Solution_that_stops_early_fails()
+    {
+        Verdict verdict = verify( 100, null, "exit.rel", "1" )
+            .verdicts.get( 0 );
+
+        assertThat( verdict.status, equalTo( Status.FAILED ) );
+        assertThat( verdict.ticks, equalTo( 1 ) );
+        assertThat( verdict.state, equalTo( CompletionState.RUNNING ) );
+        assertThat(
+            verdict.problem,
+            instanceOf( SolutionExceptions.DidNotWin.class )
+        );
+        assertThat(
+            ( (SolutionExceptions.ProblemRunningSolution)verdict.problem )
+                .level,
+            equalTo( "exit.rel" )
+        );
+    }
+
+    @Test
+    public void Solutions_that_go_on_too_long_are_stopped()
+    {
+        Report report = verify(
+            50,
+            null,
+            "noexit.rel", "100000",
+            "noexit.rel", "until:WON",
+            "exit.rel", "until:WON"
+        );
+
+        for ( int i = 0; i < 2; ++i )
+        {
+            Verdict verdict = report.verdicts.get( i );
+            assertThat( verdict.status, equalTo( Status.OUT_OF_STEPS ) );
+            assertThat( verdict.ticks, equalTo( 50 ) );
+            assertThat(
+                verdict.problem,
+                instanceOf( SolutionExceptions.StepBudgetExceeded.class )
+            );
+        }
+        assertThat( report.verdicts.get( 2 ).won(), is( true ) );
+    }
+
+    @Test
+    public void Missing_levels_and_bad_solutions_are_invalid()
+    {
+        Report report = verify(
+            100,
+            null,
+            "bad.rel", "until:WON",
+            "missing.rel", "until:WON",
+            "exit.rel", "(1,"
+        );
+
+        for ( Verdict verdict : report.verdicts )
+        {
+            assertThat( verdict.status, equalTo( Status.INVALID ) );
+            assertThat( verdict.state, nullValue() );
+            assertThat( verdict.problem, notNullValue() );
+        }
+    }
+
+    @Test
+    public void Listener_hears_every_verdict_then_the_end()
+    {
+        final List<Integer> heard = new ArrayList<>();
+        SolutionVerifier.Listener listener = new SolutionVerifier.Listener()
+        {
+            @Override
+            public void verdict( Verdict verdict )
+            {
+                heard.add( verdict.index );
+            }
+
+            @Override
+            public void finished( Report report )
+            {
+                heard.add( -1 );
+            }
+        };
+
+        verify(
+            100,
+            listener,
+            "exit.rel", "1",
+            "exit.rel", "until:WON",
+            "noexit.rel", "until:WON",
+            "bad.rel", "1"
+        );
+
+        assertThat( heard.size(), equalTo( 5 ) );
+        assertThat( heard.get( 4 ), equalTo( -1 ) );
+        assertThat( heard.contains( 0 ), is( true ) );
+        assertThat( heard.contains( 3 ), is( true ) );
+    }
+
+    @Test
+    public void Json_lines_give_each_verdict_and_a_summary()
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        verify(
+            100,
+            new JsonLinesVerdictSink( new PrintStream( bytes ) ),
+            "exit.rel", "until:WON"
+        );
+
+        String[] lines = bytes.toString().split( "\n" );
+        assertThat( lines.length, equalTo( 2 ) );
+        assertThat(
+            lines[0].replaceAll( "\"nanos\":[0-9]+", "\"nanos\":0" ),
+            equalTo(
+                "{\"job\":0,\"level\":\"exit.rel\",\"status\":\"WON\""
+                + ",\"ticks\":4,\"saved\":1,\"killed\":0,\"state\":\"WON\""
+                + ",\"problem\":null,\"nanos\":0}"
+            )
+        );
+        assertThat(
+            lines[1].replaceAll( "\"nanos\":[0-9]+", "\"nanos\":0" ),
+            equalTo( "{\"finished\":1,\"won\":1,\"nanos\":0}" )
+        );
+    }
+
+    // ---
+
+    /**
+     * @param levelsAndSolutions pairs of level path and solution.
+     */
+    private static Report verify(
+        int maxSteps,
+        SolutionVerifier.Listener listener,
+        String... levelsAndSolutions
+    )
+    {
+        FakeFileSystem fs = new FakeFileSystem(
+            "exit.rel", new String[] {
+                ":num_rabbits=0",
+                ":num_to_save=1",
+                "r  O",
+                "####"
+            },
+            "noexit.rel", new String[] {
+                ":num_rabbits=0",
+                "#r  #",
+                "#####"
+            },
+            "bad.rel", new String[] { "not a level" }
+        );
+
+        List<Job> jobs = new ArrayList<>();
+        for ( int i = 0; i < levelsAndSolutions.length; i += 2 )
+        {
+            jobs.add(
+                new Job( levelsAndSolutions[i], levelsAndSolutions[i + 1] ) );
+        }
+
+        return new SolutionVerifier( new LoadWorldFile( fs ), maxSteps, 2 )
+            .verify( jobs, listener );
+    }
+}
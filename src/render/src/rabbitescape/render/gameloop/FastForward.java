@@ -0,0 +1,83 @@
+package rabbitescape.render.gameloop;
+
+import rabbitescape.engine.World;
+
+/**
+ * Run a world without rendering or waiting for the frame clock, for
+ * replay checks and automated tests.
+ */
+public class FastForward
+{
+    public static class Stats
+    {
+        public final long ticks;
+        public final long nanos;
+        public final World.CompletionState completionState;
+
+        public Stats(
+            long ticks, long nanos, World.CompletionState completionState )
+        {
+            this.ticks = ticks;
+            this.nanos = nanos;
+            this.completionState = completionState;
+        }
+
+        public double ticksPerSecond()
+        {
+            if ( nanos == 0 )
+            {
+                return 0;
+            }
+            return ticks * 1e9 / nanos;
+        }
+
+        /**
+         * @return the average time taken by one tick, in microseconds.
+         */
+        public double usPerTick()
+        {
+            if ( ticks == 0 )
+            {
+                return 0;
+            }
+            return nanos / 1000.0 / ticks;
+        }
+    }
+
+    /**
+     * Step the world until it is won or lost, or maxTicks have passed.
+     */
+    public static Stats run( HeadlessPhysics physics, long maxTicks )
+    {
+        physics.init();
+
+        long startTicks = physics.ticks();
+        long simulation_time = 0;
+        long start = System.nanoTime();
+
+        while (
+               physics.gameRunning()
+            && physics.ticks() - startTicks < maxTicks
+        )
+        {
+            simulation_time = physics.step( simulation_time, simulation_time );
+        }
+
+        long nanos = System.nanoTime() - start;
+        physics.dispose();
+
+        return new Stats(
+            physics.ticks() - startTicks,
+            nanos,
+            physics.world().completionState()
+        );
+    }
+
+    /**
+     * Step the world until it is won or lost.
+     */
+    public static Stats run( HeadlessPhysics physics )
+    {
+        return run( physics, Long.MAX_VALUE );
+    }
+}
@@ -13,21 +13,32 @@ import rabbitescape.engine.solution.TimeStepAction;
 import rabbitescape.engine.solution.UiPlayback;
 import rabbitescape.engine.LevelWinListener;
 import rabbitescape.engine.Token;
+import rabbitescape.engine.TokenPlacedListener;
 import rabbitescape.engine.World;
 import rabbitescape.engine.World.CompletionState;
 
 public class GeneralPhysics implements Physics
 {
     /**
-     * Everything that modifies the world goes through here, with
-     * synchronization.
+     * Everything that modifies the world goes through here. Steps are
+     * synchronized; tokens are queued without locking, and added by the
+     * next step.
+     *
+     * Tokens are recorded in the solution on the stepping thread when they
+     * are really added, not when they are queued, so a token that is
+     * dropped is not recorded, and each one lands in the step it was added
+     * in. The token type is selected in the solution just before it is
+     * needed, so a choice made on the UI thread in between cannot be
+     * recorded out of order.
      *
      * Public for test
      */
-    public static class WorldModifier
+    public static class WorldModifier implements TokenPlacedListener
     {
         private final World world;
         public final SolutionRecorderTemplate solutionRecorder;
+        /** The type last selected in the solution, or null. */
+        private Token.Type selected = null;
 
         public WorldModifier( 
             World world,
@@ -36,6 +47,10 @@ public class GeneralPhysics implements Physics
         {
             this.world = world;
             this.solutionRecorder = solutionRecorder;
+            if ( world != null ) // Some tests have no world
+            {
+                world.changes.setTokenPlacedListener( this );
+            }
         }
 
         public synchronized void step()
@@ -44,10 +59,20 @@ public class GeneralPhysics implements Physics
             solutionRecorder.appendStepEnd( );
         }
 
-        public synchronized void addToken(
-            int tileX, int tileY, Token.Type type )
+        public void addToken( int tileX, int tileY, Token.Type type )
         {
-            world.changes.addToken( tileX, tileY, type );
+            world.changes.queueToken( tileX, tileY, type );
+        }
+
+        @Override
+        public void tokenPlaced( int x, int y, Token.Type type )
+        {
+            if ( type != selected )
+            {
+                solutionRecorder.append( new SelectAction( type ) );
+                selected = type;
+            }
+            solutionRecorder.append( new PlaceTokenAction( x, y ) );
         }
     }
 
@@ -139,6 +164,10 @@ public class GeneralPhysics implements Physics
 
             frame += fast ? FAST_FRAME_SKIP : 1;
 
+            // Add any tokens placed since the last frame now, so they
+            // are drawn straight away.
+            world.changes.takeInput();
+
             if ( frame >= 10 )
             {
                 frame -= 10;
@@ -208,13 +237,13 @@ public class GeneralPhysics implements Physics
             && tileX < world.size.width
             && tileY >= 0
             && tileY < world.size.height
-            && world.abilities.get( ability ) > 0
+            && world.changes.numLeft( ability ) > 0
         )
         {
             worldModifier.addToken( tileX, tileY, ability );
         }
 
-        return world.abilities.get( ability );
+        return world.changes.numLeft( ability );
     }
 
     public void addStatsChangedListener( StatsChangedListener listener )
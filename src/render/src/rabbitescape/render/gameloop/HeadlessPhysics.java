@@ -0,0 +1,68 @@
+package rabbitescape.render.gameloop;
+
+import rabbitescape.engine.World;
+
+/**
+ * Physics with no frames and no water animation: each call to step()
+ * moves the world on by exactly one tick, however much time has passed.
+ * Use with FastForward to run a world as fast as the CPU allows.
+ */
+public class HeadlessPhysics implements Physics
+{
+    public final World world;
+    private long ticks;
+
+    public HeadlessPhysics( World world )
+    {
+        this.world = world;
+        this.ticks = 0;
+    }
+
+    @Override
+    public long step( long simulation_time, long frame_start_time )
+    {
+        if ( gameRunning() )
+        {
+            world.step();
+            ++ticks;
+        }
+
+        return simulation_time + GeneralPhysics.simulation_time_step_ms;
+    }
+
+    /**
+     * @return how many times the world has been stepped.
+     */
+    public long ticks()
+    {
+        return ticks;
+    }
+
+    @Override
+    public int frameNumber()
+    {
+        return 0;
+    }
+
+    @Override
+    public boolean gameRunning()
+    {
+        return ( world.completionState() == World.CompletionState.RUNNING );
+    }
+
+    @Override
+    public void dispose()
+    {
+    }
+
+    @Override
+    public World world()
+    {
+        return world;
+    }
+
+    @Override
+    public void init()
+    {
+    }
+}
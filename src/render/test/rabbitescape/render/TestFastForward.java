@@ -0,0 +1,54 @@
+package rabbitescape.render;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import org.junit.Test;
+
+import rabbitescape.engine.World;
+import rabbitescape.engine.World.CompletionState;
+import rabbitescape.engine.textworld.TextWorldManip;
+import rabbitescape.render.gameloop.FastForward;
+import rabbitescape.render.gameloop.HeadlessPhysics;
+
+public class TestFastForward
+{
+    @Test
+    public void Runs_until_the_level_is_won()
+    {
+        World world = TextWorldManip.createWorld(
+            "r  O",
+            "####",
+            ":num_rabbits=0",
+            ":num_to_save=1"
+        );
+
+        FastForward.Stats stats = FastForward.run( new HeadlessPhysics( world ) );
+
+        assertThat( stats.completionState, equalTo( CompletionState.WON ) );
+        assertThat( world.num_saved, equalTo( 1 ) );
+        assertThat( stats.ticks, equalTo( 4L ) );
+    }
+
+    @Test
+    public void Stops_after_the_requested_number_of_ticks()
+    {
+        World world = TextWorldManip.createWorld(
+            "#      #",
+            "# r    #",
+            "########",
+            ":num_rabbits=0"
+        );
+
+        HeadlessPhysics physics = new HeadlessPhysics( world );
+        FastForward.Stats stats = FastForward.run( physics, 25 );
+
+        assertThat( stats.ticks, equalTo( 25L ) );
+        assertThat( physics.ticks(), equalTo( 25L ) );
+        assertThat( stats.completionState, equalTo( CompletionState.RUNNING ) );
+
+        // Running again carries on where we left off
+        assertThat( FastForward.run( physics, 5 ).ticks, equalTo( 5L ) );
+        assertThat( physics.ticks(), equalTo( 30L ) );
+    }
+}
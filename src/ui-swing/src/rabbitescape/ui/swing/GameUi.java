@@ -28,7 +28,6 @@ import rabbitescape.engine.Token;
 import rabbitescape.engine.config.Config;
 import rabbitescape.engine.config.ConfigTools;
 import rabbitescape.engine.config.TapTimer;
-import rabbitescape.engine.solution.SelectAction;
 import rabbitescape.render.BitmapCache;
 import rabbitescape.render.gameloop.Physics.StatsChangedListener;
 
@@ -349,8 +348,6 @@ public class GameUi implements StatsChangedListener
             public void abilityChosen( Token.Type ability )
             {
                 chooseAbility( ability );
-                gameLaunch.solutionRecorder.append(
-                    new SelectAction( ability ) );
             }
         } );
 
@@ -673,7 +670,7 @@ public class GameUi implements StatsChangedListener
     private void updateChosenAbility()
     {
         topBar.abilityChanged(
-            chosenAbility, gameLaunch.world.abilities.get( chosenAbility ) );
+            chosenAbility, gameLaunch.world.changes.numLeft( chosenAbility ) );
     }
 
     @Override
@@ -0,0 +1,192 @@
+package rabbitescape.ui.swing;
+
+import static rabbitescape.engine.i18n.Translation.*;
+import static rabbitescape.engine.util.Util.*;
+
+import java.awt.BorderLayout;
+import java.awt.Dimension;
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import javax.swing.BorderFactory;
+import javax.swing.JFileChooser;
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.SwingConstants;
+import javax.swing.SwingWorker;
+
+import rabbitescape.engine.Token;
+import rabbitescape.engine.menu.LevelMetadataCache;
+import rabbitescape.engine.menu.LevelMetadataCache.LevelMetadata;
+
+/**
+ * Shows the name, size, rabbits and abilities of the level chosen in a
+ * JFileChooser, from a LevelMetadataCache. Whenever the chooser moves to
+ * a directory, all the levels in it are brought up to date in the
+ * background, so moving between them is instant.
+ */
+public class LevelMetadataPanel extends JPanel
+    implements PropertyChangeListener
+{
+    private static final long serialVersionUID = 1L;
+
+    private final LevelMetadataCache cache;
+    private final JLabel label;
+
+    public LevelMetadataPanel( JFileChooser chooser, LevelMetadataCache cache )
+    {
+        super( new BorderLayout() );
+        this.cache = cache;
+
+        label = new JLabel();
+        label.setVerticalAlignment( SwingConstants.TOP );
+        label.setPreferredSize( new Dimension( 200, 150 ) );
+        label.setBorder( BorderFactory.createEmptyBorder( 0, 10, 0, 0 ) );
+        add( label, BorderLayout.CENTER );
+
+        chooser.addPropertyChangeListener( this );
+        updateDir( chooser.getCurrentDirectory() );
+    }
+
+    @Override
+    public void propertyChange( PropertyChangeEvent evt )
+    {
+        String property = evt.getPropertyName();
+        if ( JFileChooser.DIRECTORY_CHANGED_PROPERTY.equals( property ) )
+        {
+            updateDir( (File)evt.getNewValue() );
+        }
+        else if ( JFileChooser.SELECTED_FILE_CHANGED_PROPERTY.equals(
+            property ) )
+        {
+            show( (File)evt.getNewValue() );
+        }
+    }
+
+    private void updateDir( File dir )
+    {
+        final List<String> fileNames = levelsIn( dir );
+        if ( fileNames.isEmpty() )
+        {
+            return;
+        }
+
+        new SwingWorker<Void, Void>()
+        {
+            @Override
+            protected Void doInBackground() throws Exception
+            {
+                cache.update(
+                    fileNames, Runtime.getRuntime().availableProcessors() );
+                cache.save();
+                return null;
+            }
+        }.execute();
+    }
+
+    private void show( final File file )
+    {
+        label.setText( "" );
+        if ( file == null || !file.getName().endsWith( ".rel" ) )
+        {
+            return;
+        }
+
+        new SwingWorker<LevelMetadata, Void>()
+        {
+            @Override
+            protected LevelMetadata doInBackground() throws Exception
+            {
+                return cache.get( file.getAbsolutePath() );
+            }
+
+            @Override
+            protected void done()
+            {
+                try
+                {
+                    label.setText( describe( get() ) );
+                }
+                catch ( Exception e )
+                {
+                    label.setText( "" );
+                }
+            }
+        }.execute();
+    }
+
+    private static List<String> levelsIn( File dir )
+    {
+        List<String> ret = new ArrayList<>();
+        File[] files = dir == null ? null : dir.listFiles();
+        if ( files == null )
+        {
+            return ret;
+        }
+        for ( File file : files )
+        {
+            if ( file.isFile() && file.getName().endsWith( ".rel" ) )
+            {
+                ret.add( file.getAbsolutePath() );
+            }
+        }
+        return ret;
+    }
+
+    private static String describe( LevelMetadata level )
+    {
+        if ( level == null )
+        {
+            return "<html>" + t( "Not a valid level." ) + "</html>";
+        }
+
+        StringBuilder abilities = new StringBuilder();
+        for ( Map.Entry<Token.Type, Integer> ability :
+            level.abilities.entrySet() )
+        {
+            abilities.append( "<br>" );
+            abilities.append(
+                t(
+                    "${ability}: ${num}",
+                    newMap(
+                        "ability", t( ability.getKey().name() ),
+                        "num", String.valueOf( ability.getValue() )
+                    )
+                )
+            );
+        }
+
+        return "<html><b>" + escape( level.name ) + "</b><br>"
+            + t(
+                "${width} x ${height}",
+                newMap(
+                    "width", String.valueOf( level.width ),
+                    "height", String.valueOf( level.height )
+                )
+            )
+            + "<br>"
+            + t(
+                "${num} rabbits",
+                newMap( "num", String.valueOf( level.numRabbits ) )
+            )
+            + abilities
+            + "<br>"
+            + t(
+                "${num} solutions",
+                newMap( "num", String.valueOf( level.numSolutions ) )
+            )
+            + "</html>";
+    }
+
+    private static String escape( String text )
+    {
+        return text
+            .replace( "&", "&amp;" )
+            .replace( "<", "&lt;" )
+            .replace( ">", "&gt;" );
+    }
+}
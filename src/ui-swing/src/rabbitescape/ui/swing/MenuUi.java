@@ -143,6 +143,7 @@ public class MenuUi
     private JScrollPane scrollPane;
     private final JPanel menuPanel;
     private final LevelsCompleted levelsCompleted;
+    private final LevelMetadataCache levelMetadata;
     private SideMenu sidemenu;
     private Theme theme;
 
@@ -172,6 +173,9 @@ public class MenuUi
         this.levelsCompleted = new ByNameConfigBasedLevelsCompleted(
             uiConfig, levelsList );
 
+        this.levelMetadata = new LevelMetadataCache(
+            fs, LEVEL_METADATA_PATH );
+
         stack.push(
             MenuDefinition.mainMenu( this.levelsCompleted, levelsList, true )
         );
@@ -345,6 +349,7 @@ public class MenuUi
         fc.setDialogTitle( t( "Open a level file" ) );
 
         fc.setCurrentDirectory( new File( path ) );
+        fc.setAccessory( new LevelMetadataPanel( fc, levelMetadata ) );
         fc.addChoosableFileFilter( relFilter );
         fc.setFileFilter( relFilter );
         int chooserVal = fc.showOpenDialog( frame );
@@ -18,6 +18,10 @@ public class SwingConfigSetup
         "~/.rabbitescape/config/ui.properties"
             .replace( "~", System.getProperty( "user.home" ) );
 
+    public static final String LEVEL_METADATA_PATH =
+        "~/.rabbitescape/config/levelmetadata.properties"
+            .replace( "~", System.getProperty( "user.home" ) );
+
     public static final String CFG_GAME_WINDOW_LEFT   = "game.window.left";
     public static final String CFG_GAME_WINDOW_TOP    = "game.window.top";
     public static final String CFG_GAME_WINDOW_WIDTH  = "game.window.width";
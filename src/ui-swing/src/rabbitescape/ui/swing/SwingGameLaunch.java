@@ -14,9 +14,10 @@ import rabbitescape.engine.LevelWinListener;
 import rabbitescape.engine.Token;
 import rabbitescape.engine.World;
 import rabbitescape.engine.config.Config;
+import rabbitescape.engine.config.ConfigKeys;
+import rabbitescape.engine.config.ConfigTools;
 import rabbitescape.engine.menu.LevelMenuItem;
 import rabbitescape.engine.menu.LevelsMenu;
-import rabbitescape.engine.solution.PlaceTokenAction;
 import rabbitescape.engine.solution.SolutionDemo;
 import rabbitescape.engine.solution.SolutionInterpreter;
 import rabbitescape.engine.solution.SolutionRecorder;
@@ -87,6 +88,10 @@ public class SwingGameLaunch implements GameLaunch
     )
     {
         this.world = world;
+        world.setWaterThreads(
+            ConfigTools.getInt( config, ConfigKeys.CFG_WATER_THREADS ) );
+        world.setRabbitThreads(
+            ConfigTools.getInt( config, ConfigKeys.CFG_RABBIT_THREADS ) );
 
         SolutionInterpreter solutionInterpreter =
             createSolutionInterpreter( solution, world );
@@ -514,16 +519,12 @@ public class SwingGameLaunch implements GameLaunch
 
     public int addToken( int tileX, int tileY, Token.Type ability )
     {
-        int prev = world.abilities.get( ability );
+        int prev = world.changes.numLeft( ability );
         int now = physics.addToken( tileX, tileY, ability );
         if ( now != prev )
         {
             graphics.playSound( "place_token" );
         }
-        if ( prev != now )
-        {
-            solutionRecorder.append( new PlaceTokenAction( tileX, tileY ) );
-        }
         return now;
     }
 
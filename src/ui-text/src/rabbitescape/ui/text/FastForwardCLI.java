@@ -0,0 +1,48 @@
+package rabbitescape.ui.text;
+
+import java.io.PrintStream;
+
+import rabbitescape.engine.IgnoreWorldStatsListener;
+import rabbitescape.engine.LoadWorldFile;
+import rabbitescape.engine.World;
+import rabbitescape.engine.util.RealFileSystem;
+import rabbitescape.render.gameloop.FastForward;
+import rabbitescape.render.gameloop.HeadlessPhysics;
+
+/**
+ * Run a level with no display and no frame clock, and report how quickly
+ * it went.
+ */
+public class FastForwardCLI
+{
+    /**
+     * Without anyone placing tokens, many levels never end, so give up
+     * after this many ticks unless told otherwise.
+     */
+    public static final long DEFAULT_MAX_TICKS = 100000;
+
+    /**
+     * @param maxTicks stop after this many ticks even if the level is
+     *                 still running.
+     */
+    public static void fastForward(
+        String relPath, long maxTicks, PrintStream out )
+    {
+        World world = new LoadWorldFile( new RealFileSystem() ).load(
+            new IgnoreWorldStatsListener(), relPath );
+
+        FastForward.Stats stats =
+            FastForward.run( new HeadlessPhysics( world ), maxTicks );
+
+        out.println(
+            String.format(
+                "%d ticks in %.1f ms: %.0f ticks/s (%.2f us/tick), %s",
+                stats.ticks,
+                stats.nanos / 1e6,
+                stats.ticksPerSecond(),
+                stats.usPerTick(),
+                stats.completionState
+            )
+        );
+    }
+}
@@ -0,0 +1,90 @@
+package rabbitescape.ui.text;
+
+import java.io.File;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import rabbitescape.engine.IgnoreWorldStatsListener;
+import rabbitescape.engine.LoadWorldFile;
+import rabbitescape.engine.World;
+import rabbitescape.engine.solution.LevelSolver;
+import rabbitescape.engine.util.RealFileSystem;
+
+/**
+ * Search for solutions to levels, and print them in the form they take in
+ * a level file.
+ */
+public class SolveCLI
+{
+    public static final int BEAM_WIDTH = 64;
+    public static final int TICKS_PER_MOVE = 1;
+    /**
+     * Give up on a level after this many ticks, unless told otherwise.
+     */
+    public static final int DEFAULT_MAX_TICKS = 1000;
+
+    /**
+     * Solve one level, or every level under a directory that has no
+     * solution yet.
+     *
+     * @return true if every level tried was solved.
+     */
+    public static boolean solve( String path, int maxTicks, PrintStream out )
+    {
+        RealFileSystem fs = new RealFileSystem();
+        LoadWorldFile loader = new LoadWorldFile( fs );
+        LevelSolver solver =
+            new LevelSolver( BEAM_WIDTH, TICKS_PER_MOVE, maxTicks );
+
+        boolean isDir = new File( path ).isDirectory();
+        List<String> paths = isDir
+            ? relFiles( fs, path )
+            : Collections.singletonList( path );
+
+        boolean allSolved = true;
+        for ( String p : paths )
+        {
+            World world = loader.load( new IgnoreWorldStatsListener(), p );
+            if ( isDir && world.solutions.length > 0 )
+            {
+                continue;
+            }
+
+            LevelSolver.Result result = solver.solve( world );
+            out.println(
+                String.format(
+                    "%s %s (%d states, %d ms)",
+                    result.solved() ? "SOLVED" : "UNSOLVED",
+                    p,
+                    result.statesSeen,
+                    result.nanos / 1000000
+                )
+            );
+            if ( result.solved() )
+            {
+                out.println(
+                    ":solution." + ( world.solutions.length + 1 ) + "="
+                        + result.solutionString()
+                );
+            }
+            allSolved = allSolved && result.solved();
+        }
+        return allSolved;
+    }
+
+    private static List<String> relFiles( RealFileSystem fs, String dir )
+    {
+        List<String> ret = new ArrayList<>();
+        for ( String s : fs.ls( dir, true ) )
+        {
+            if ( s.endsWith( ".rel" ) )
+            {
+                ret.add( dir + File.separator + s );
+            }
+        }
+        Collections.sort( ret );
+        return ret;
+    }
+}
@@ -9,6 +9,8 @@ import static rabbitescape.engine.i18n.Translation.*;
 import rabbitescape.engine.i18n.Translation;
 import rabbitescape.engine.solution.SolutionDemo;
 import rabbitescape.engine.solution.SolutionRunner;
+import rabbitescape.engine.solution.SolutionStepListener;
+import rabbitescape.engine.solution.SolutionStepSinks;
 import rabbitescape.engine.textworld.TextWorldManip;
 import rabbitescape.engine.util.CommandLineOption;
 import rabbitescape.engine.util.CommandLineOptionSet;
@@ -60,12 +62,26 @@ public class TextMain
             new CommandLineOption( "--rellist",      false );
         CommandLineOption mars =
             new CommandLineOption( "--mars",         false );
+        CommandLineOption validateAll =
+            new CommandLineOption( "--validate-all", true );
+        CommandLineOption fastForward =
+            new CommandLineOption( "--fast-forward", true );
+        CommandLineOption count =
+            new CommandLineOption( "--count",        true );
+        CommandLineOption output =
+            new CommandLineOption( "--output",       true );
+        CommandLineOption autoSolve =
+            new CommandLineOption( "--auto-solve",   true );
+        CommandLineOption batchVerify =
+            new CommandLineOption( "--batch-verify", true );
         try
         {
             CommandLineOptionSet.parse( args,
                                         level, solution, encode, decode,
                                         help, noinput, placeholders,
-                                        template, gentest, rellist, mars );
+                                        template, gentest, rellist, mars,
+                                        validateAll, fastForward, count,
+                                        output, autoSolve, batchVerify );
             if ( mars.isPresent() )
             {
                 TapTimer.matched = true;
@@ -90,6 +106,15 @@ public class TextMain
                 demo( level.getValue(), solution.getValue(), true );
                 System.exit( 0 );
             }
+            if ( solution.isPresent() && output.isPresent() )
+            {
+                stepMetrics(
+                    level.getValue(),
+                    solution.getValue(),
+                    output.getValue()
+                );
+                System.exit( 0 );
+            }
             if ( solution.isPresent() )
             {
                 demo( level.getValue(), solution.getValue(), false );
@@ -121,6 +146,45 @@ public class TextMain
                 template( template.getValue() );
                 System.exit( 0 );
             }
+            if ( validateAll.isPresent() )
+            {
+                boolean passed = ValidateAllCLI.validateAll(
+                    validateAll.getValue(), System.out );
+                System.exit( passed ? 0 : 1 );
+            }
+            if ( fastForward.isPresent() )
+            {
+                FastForwardCLI.fastForward(
+                    fastForward.getValue(),
+                    count.isPresent()
+                        ? count.getInt()
+                        : FastForwardCLI.DEFAULT_MAX_TICKS,
+                    System.out
+                );
+                System.exit( 0 );
+            }
+            if ( autoSolve.isPresent() )
+            {
+                boolean solved = SolveCLI.solve(
+                    autoSolve.getValue(),
+                    count.isPresent()
+                        ? count.getInt()
+                        : SolveCLI.DEFAULT_MAX_TICKS,
+                    System.out
+                );
+                System.exit( solved ? 0 : 1 );
+            }
+            if ( batchVerify.isPresent() )
+            {
+                boolean allWon = VerifyCLI.verify(
+                    batchVerify.getValue(),
+                    count.isPresent()
+                        ? count.getInt()
+                        : VerifyCLI.DEFAULT_MAX_STEPS,
+                    System.out
+                );
+                System.exit( allWon ? 0 : 1 );
+            }
         }
         catch( Exception e )
         {
@@ -157,6 +221,30 @@ public class TextMain
         printResult(solved, System.out);
     }
 
+    /**
+     * Run the solution without printing the world, writing out each step's
+     * metrics instead, in the given format. The result goes to stderr, so
+     * that only metrics go to stdout.
+     */
+    private static void stepMetrics(
+        String relPath,
+        String solnCmdLine,
+        String format
+    )
+    {
+        SolutionStepListener sink =
+            SolutionStepSinks.create( format, System.out );
+
+        World world = new LoadWorldFile(
+            new RealFileSystem() ).load(
+                new IgnoreWorldStatsListener(), relPath );
+
+        SolutionDemo demo = new SolutionDemo( solnCmdLine, world );
+        boolean solved = SolutionRunner.runSolution(
+            demo.solution, world, sink );
+        printResult( solved, System.err );
+    }
+
     private static void printResult(
         boolean solved,
         PrintStream out
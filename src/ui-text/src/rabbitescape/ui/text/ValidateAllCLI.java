@@ -0,0 +1,118 @@
+package rabbitescape.ui.text;
+
+import java.io.File;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import rabbitescape.engine.LoadWorldFile;
+import rabbitescape.engine.solution.LevelValidator;
+import rabbitescape.engine.solution.LevelValidator.LevelResult;
+import rabbitescape.engine.solution.LevelValidator.Report;
+import rabbitescape.engine.solution.LevelValidator.SolutionResult;
+import rabbitescape.engine.util.RealFileSystem;
+
+/**
+ * Check that every level under a directory loads, that all its solutions
+ * run, and that at least one of them wins.
+ */
+public class ValidateAllCLI
+{
+    /**
+     * @return true if every level passed.
+     */
+    public static boolean validateAll( String dir, PrintStream out )
+    {
+        RealFileSystem fs = new RealFileSystem();
+        List<String> paths = relFiles( fs, dir );
+
+        Report report = new LevelValidator( new LoadWorldFile( fs ) )
+            .validate( paths );
+
+        for ( LevelResult level : report.levels )
+        {
+            printLevel( level, out );
+        }
+
+        int failed = report.failures( true ).size();
+        out.println(
+            String.format(
+                "%d levels, %d passed, %d failed in %d ms"
+                    + " (%d ms of level time)",
+                report.levels.size(),
+                report.levels.size() - failed,
+                failed,
+                millis( report.nanos ),
+                millis( report.levelNanos() )
+            )
+        );
+
+        return failed == 0;
+    }
+
+    private static List<String> relFiles( RealFileSystem fs, String dir )
+    {
+        List<String> ret = new ArrayList<>();
+        for ( String s : fs.ls( dir, true ) )
+        {
+            if ( s.endsWith( ".rel" ) )
+            {
+                ret.add( dir + File.separator + s );
+            }
+        }
+        Collections.sort( ret );
+        return ret;
+    }
+
+    private static void printLevel( LevelResult level, PrintStream out )
+    {
+        String status = level.passed( true ) ? "PASS" : "FAIL";
+        out.println(
+            String.format(
+                "%s %s (%d solutions, %d ms)",
+                status,
+                level.path,
+                level.solutions.size(),
+                millis( level.nanos )
+            )
+        );
+
+        if ( level.loadProblem != null )
+        {
+            out.println( "    did not load: " + describe( level.loadProblem ) );
+        }
+        for ( SolutionResult solution : level.solutions )
+        {
+            if ( solution.problem != null )
+            {
+                out.println(
+                    "    solution " + solution.solutionId + ": "
+                        + describe( solution.problem )
+                );
+            }
+        }
+        if ( level.firstProblem() == null && !level.solved() )
+        {
+            out.println( "    no solution wins" );
+        }
+    }
+
+    private static String describe( Throwable e )
+    {
+        Throwable cause = e;
+        while ( cause.getCause() != null )
+        {
+            cause = cause.getCause();
+        }
+
+        String message = cause.getMessage();
+        return cause.getClass().getSimpleName()
+            + ( message == null ? "" : ": " + message );
+    }
+
+    private static long millis( long nanos )
+    {
+        return nanos / 1000000;
+    }
+}
@@ -0,0 +1,81 @@
+package rabbitescape.ui.text;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import rabbitescape.engine.LoadWorldFile;
+import rabbitescape.engine.solution.JsonLinesVerdictSink;
+import rabbitescape.engine.solution.SolutionVerifier;
+import rabbitescape.engine.util.RealFileSystem;
+
+/**
+ * Check a batch of solutions sent in by players, printing a JSON verdict
+ * for each as soon as it is known.
+ *
+ * The batch file has one job per line: a level file, then whitespace, then
+ * a solution. Level files are found relative to the batch file. Blank
+ * lines, and lines starting with #, are ignored.
+ */
+public class VerifyCLI
+{
+    /**
+     * Stop any one solution after this many steps, unless told otherwise.
+     */
+    public static final int DEFAULT_MAX_STEPS = 10000;
+
+    /**
+     * @return true if every solution won.
+     */
+    public static boolean verify(
+        String batchFile, int maxSteps, PrintStream out )
+        throws IOException
+    {
+        RealFileSystem fs = new RealFileSystem();
+
+        SolutionVerifier.Report report =
+            new SolutionVerifier( new LoadWorldFile( fs ), maxSteps )
+                .verify(
+                    readJobs( fs, batchFile ),
+                    new JsonLinesVerdictSink( out )
+                );
+
+        return report.numWon() == report.verdicts.size();
+    }
+
+    private static List<SolutionVerifier.Job> readJobs(
+        RealFileSystem fs, String batchFile )
+        throws IOException
+    {
+        File dir = new File( batchFile ).getAbsoluteFile().getParentFile();
+
+        List<SolutionVerifier.Job> ret = new ArrayList<>();
+        for ( String line : fs.readLines( batchFile ) )
+        {
+            String trimmed = line.trim();
+            if ( trimmed.isEmpty() || trimmed.startsWith( "#" ) )
+            {
+                continue;
+            }
+
+            // Solutions have no spaces in them, but level paths might.
+            int split = Math.max(
+                trimmed.lastIndexOf( ' ' ), trimmed.lastIndexOf( '\t' ) );
+            String level =
+                split == -1 ? trimmed : trimmed.substring( 0, split ).trim();
+            String solution =
+                split == -1 ? "" : trimmed.substring( split + 1 );
+
+            File levelFile = new File( level );
+            if ( !levelFile.isAbsolute() )
+            {
+                levelFile = new File( dir, level );
+            }
+            ret.add(
+                new SolutionVerifier.Job( levelFile.getPath(), solution ) );
+        }
+        return ret;
+    }
+}